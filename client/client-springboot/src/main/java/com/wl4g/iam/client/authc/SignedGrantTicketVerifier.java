@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.client.authc;
+
+import static com.wl4g.infra.common.lang.Assert2.notNullOf;
+import static com.wl4g.infra.common.log.SmartLoggerFactory.getLogger;
+import static java.lang.System.currentTimeMillis;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.security.PublicKey;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.wl4g.iam.client.config.IamClientProperties;
+import com.wl4g.iam.client.validation.IamValidator;
+import com.wl4g.iam.common.model.GrantTicketKeysModel;
+import com.wl4g.iam.common.model.GrantTicketKeysModel.GrantTicketKey;
+import com.wl4g.iam.core.authc.SignedGrantTicket;
+import com.wl4g.iam.core.authc.SignedGrantTicket.GrantClaims;
+import com.wl4g.iam.core.exception.ServiceTicketValidateException;
+import com.wl4g.infra.common.log.SmartLogger;
+
+/**
+ * Signed grantTickets local verifier, the public keys are retrieved from the
+ * IAM server and cached, and refreshed (rate limited) when the key of signed
+ * grantTicket is unknown (i.e. rotated). The cached keys are only trusted in
+ * the rotation window of IAM server, so the rotated out keys are dropped even
+ * if the refreshing fails.
+ *
+ * @author James Wong<jamewong1376@gmail.com>
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ * @see {@link com.wl4g.iam.handler.fastcas.GrantTicketSigner}
+ */
+public class SignedGrantTicketVerifier {
+    protected final SmartLogger log = getLogger(getClass());
+
+    protected final IamClientProperties config;
+    protected final IamValidator<GrantTicketKeysModel, GrantTicketKeysModel> validator;
+
+    private final Map<String, PublicKey> keys = new ConcurrentHashMap<>(4);
+    private volatile long rotationMs;
+    private volatile long lastRefreshTime;
+
+    public SignedGrantTicketVerifier(IamClientProperties config,
+            IamValidator<GrantTicketKeysModel, GrantTicketKeysModel> validator) {
+        this.config = notNullOf(config, "config");
+        this.validator = notNullOf(validator, "validator");
+    }
+
+    /**
+     * Verify the signed grantTicket.
+     *
+     * @param ticket
+     * @return The verified claims, or null if the signing key is unknown
+     *         (should fallback to remote ticket validation).
+     * @throws ServiceTicketValidateException
+     */
+    public GrantClaims verify(SignedGrantTicket ticket) throws ServiceTicketValidateException {
+        PublicKey publicKey = getPublicKey(ticket.getKid());
+        if (isNull(publicKey)) {
+            log.warn("Unknown signing key: {} of signed grantTicket.", ticket.getKid());
+            return null;
+        }
+        if (!ticket.verify(publicKey)) {
+            throw new ServiceTicketValidateException("Invalid signature of signed grantTicket");
+        }
+
+        try {
+            return ticket.checkClaims(config.getSignedTicket().getIssuer(), config.getServiceName(), currentTimeMillis(),
+                    config.getSignedTicket().getClockSkewMs());
+        } catch (IllegalArgumentException e) {
+            throw new ServiceTicketValidateException(e.getMessage());
+        }
+    }
+
+    private PublicKey getPublicKey(String kid) {
+        PublicKey publicKey = getActiveKey(kid);
+        if (isNull(publicKey)) {
+            refreshKeys();
+            publicKey = getActiveKey(kid);
+        }
+        return publicKey;
+    }
+
+    private PublicKey getActiveKey(String kid) {
+        long rotationMs = this.rotationMs;
+        if (rotationMs > 0 && !SignedGrantTicket.isActiveKid(kid, currentTimeMillis(), rotationMs)) {
+            if (nonNull(keys.remove(kid))) {
+                log.info("Removed rotated out signed grantTicket key: {}", kid);
+            }
+            return null;
+        }
+        return keys.get(kid);
+    }
+
+    private synchronized void refreshKeys() {
+        long now = currentTimeMillis();
+        if (now - lastRefreshTime < config.getSignedTicket().getKeysRefreshMinIntervalMs()) {
+            return;
+        }
+        lastRefreshTime = now;
+        try {
+            GrantTicketKeysModel assertion = validator.validate(new GrantTicketKeysModel(config.getServiceName()));
+            Map<String, PublicKey> refreshed = new HashMap<>(4);
+            for (GrantTicketKey key : assertion.getKeys()) {
+                refreshed.put(key.getKid(), SignedGrantTicket.toPublicKey(key));
+            }
+            keys.putAll(refreshed);
+            keys.keySet().retainAll(refreshed.keySet());
+            rotationMs = assertion.getRotationMs();
+            log.info("Refreshed signed grantTicket keys: {}", refreshed.keySet());
+        } catch (Exception e) {
+            log.warn("Failed to refresh signed grantTicket keys. - {}", e.toString());
+        }
+    }
+
+}
@@ -28,6 +28,7 @@ import org.springframework.web.client.RestTemplate;
 
 import com.wl4g.infra.core.kit.access.IPAccessControl;
 import com.wl4g.infra.core.web.error.handler.CompositeSmartErrorHandler;
+import com.wl4g.iam.client.authc.SignedGrantTicketVerifier;
 import com.wl4g.iam.client.authc.secondary.SecondaryAuthenticationAdvice;
 import com.wl4g.iam.client.authc.secondary.SimpleSecondaryAuthenticationHandler;
 import com.wl4g.iam.client.configure.NoOpClientSecurityConfigurer;
@@ -40,9 +41,12 @@ import com.wl4g.iam.client.filter.LogoutAuthenticationFilter;
 import com.wl4g.iam.client.filter.ROOTAuthenticationFilter;
 import com.wl4g.iam.client.realm.FastCasClientAuthorizingRealm;
 import com.wl4g.iam.client.session.mgt.IamClientSessionManager;
+import com.wl4g.iam.client.session.mgt.SessionRevocationConsumer;
 import com.wl4g.iam.client.validation.ExpiredSessionIamValidator;
 import com.wl4g.iam.client.validation.FastCasTicketIamValidator;
+import com.wl4g.iam.client.validation.GrantTicketKeysIamValidator;
 import com.wl4g.iam.client.validation.IamValidator;
+import com.wl4g.iam.client.validation.SessionRevocationIamValidator;
 import com.wl4g.iam.client.web.FastCasClientAuthenticatingController;
 import com.wl4g.iam.core.authz.EnhancedModularRealmAuthorizer;
 import com.wl4g.iam.core.cache.IamCacheManager;
@@ -113,6 +117,17 @@ public class IamClientAutoConfiguration extends AbstractIamConfiguration {
         return sessionManager;
     }
 
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Bean
+    @ConditionalOnMissingBean
+    public SessionRevocationConsumer sessionRevocationConsumer(
+            IamClientProperties config,
+            IamCacheManager cacheManager,
+            IamClientSessionManager sessionManager,
+            @Qualifier(BEAN_SESSION_REVOCATION_VALIDATOR) IamValidator validator) {
+        return new SessionRevocationConsumer(config, cacheManager, sessionManager, validator);
+    }
+
     // ==============================
     // Authentication filter`s.
     // ==============================
@@ -199,8 +214,19 @@ public class IamClientAutoConfiguration extends AbstractIamConfiguration {
     @ConditionalOnMissingBean
     public FastCasClientAuthorizingRealm fastCasAuthorizingRealm(
             IamClientProperties config,
-            @Qualifier(BEAN_TICKET_VALIDATOR) IamValidator validator) {
-        return new FastCasClientAuthorizingRealm(config, validator);
+            @Qualifier(BEAN_TICKET_VALIDATOR) IamValidator validator,
+            IamCacheManager cacheManager,
+            SignedGrantTicketVerifier ticketVerifier) {
+        return new FastCasClientAuthorizingRealm(config, validator, cacheManager, ticketVerifier);
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Bean
+    @ConditionalOnMissingBean
+    public SignedGrantTicketVerifier signedGrantTicketVerifier(
+            IamClientProperties config,
+            @Qualifier(BEAN_GRANT_TICKET_KEYS_VALIDATOR) IamValidator validator) {
+        return new SignedGrantTicketVerifier(config, validator);
     }
 
     // ==============================
@@ -219,6 +245,18 @@ public class IamClientAutoConfiguration extends AbstractIamConfiguration {
         return new ExpiredSessionIamValidator(config, restTemplate);
     }
 
+    @SuppressWarnings("rawtypes")
+    @Bean(BEAN_SESSION_REVOCATION_VALIDATOR)
+    public IamValidator sessionRevocationValidator(IamClientProperties config, RestTemplate restTemplate) {
+        return new SessionRevocationIamValidator(config, restTemplate);
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Bean(BEAN_GRANT_TICKET_KEYS_VALIDATOR)
+    public IamValidator grantTicketKeysValidator(IamClientProperties config, RestTemplate restTemplate) {
+        return new GrantTicketKeysIamValidator(config, restTemplate);
+    }
+
     // ==============================
     // IAM context interceptor's
     // ==============================
@@ -285,5 +323,7 @@ public class IamClientAutoConfiguration extends AbstractIamConfiguration {
     final private static String BEAN_AUTH_FILTER = "authenticatorAuthenticationFilter";
     final private static String BEAN_TICKET_VALIDATOR = "fastCasTicketValidator";
     final private static String BEAN_SESSION_VALIDATOR = "expireSessionValidator";
+    final private static String BEAN_SESSION_REVOCATION_VALIDATOR = "sessionRevocationValidator";
+    final private static String BEAN_GRANT_TICKET_KEYS_VALIDATOR = "grantTicketKeysValidator";
 
 }
\ No newline at end of file
@@ -21,6 +21,8 @@ import static com.wl4g.iam.common.constant.IAMConstants.CONF_PREFIX_IAM;
 import static com.wl4g.iam.core.utils.IamAuthenticatingUtils.correctAuthenticaitorURI;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
+import java.io.Serializable;
+
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
@@ -75,6 +77,16 @@ public class IamClientProperties extends AbstractIamProperties<ClientParamProper
      */
     private ClientParamProperties param = new ClientParamProperties();
 
+    /**
+     * IAM client sessions revocation consuming configuration.
+     */
+    private SessionRevocationProperties revocation = new SessionRevocationProperties();
+
+    /**
+     * IAM client signed grantTickets verifying configuration.
+     */
+    private SignedTicketProperties signedTicket = new SignedTicketProperties();
+
     /**
      * Implementing the IAM-CAS protocol: When successful login, you must
      * redirect to the back-end server URI of IAM-CAS-Client. (Note: URI of
@@ -149,6 +161,22 @@ public class IamClientProperties extends AbstractIamProperties<ClientParamProper
         this.param = param;
     }
 
+    public SessionRevocationProperties getRevocation() {
+        return revocation;
+    }
+
+    public void setRevocation(SessionRevocationProperties revocation) {
+        this.revocation = revocation;
+    }
+
+    public SignedTicketProperties getSignedTicket() {
+        return signedTicket;
+    }
+
+    public void setSignedTicket(SignedTicketProperties signedTicket) {
+        this.signedTicket = signedTicket;
+    }
+
     @Override
     protected void validation() {
         super.validation();
@@ -180,4 +208,157 @@ public class IamClientProperties extends AbstractIamProperties<ClientParamProper
 
     }
 
+    /**
+     * IAM client sessions revocation consuming configuration properties, the
+     * revoked grantTickets of logged out or expired sessions are incrementally
+     * pulled from the IAM server, so that the local sessions are cleanup
+     * immediately instead of waiting for the sessions validation.
+     * 
+     * @author James Wong<jamewong1376@gmail.com>
+     * @version 2022-06-10 v3.1.0
+     * @since v3.1.0
+     */
+    public static class SessionRevocationProperties implements Serializable {
+        private static final long serialVersionUID = -5069712404873517713L;
+
+        /**
+         * Whether to enable consuming sessions revocations, which requires the
+         * IAM server supports the sessions revocations.
+         */
+        private boolean enabled = false;
+
+        /**
+         * The interval of pulling revocations(ms).
+         */
+        private long pollIntervalMs = 1000L;
+
+        /**
+         * The max number of revocations per pulling.
+         */
+        private int batchSize = 1000;
+
+        /**
+         * The max interval of pulling revocations(ms) when pulling fails
+         * continuously (e.g. the IAM server unavailable), the interval is
+         * doubled on each failure.
+         */
+        private long maxBackoffMs = 60_000L;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getPollIntervalMs() {
+            return pollIntervalMs;
+        }
+
+        public void setPollIntervalMs(long pollIntervalMs) {
+            this.pollIntervalMs = pollIntervalMs;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public long getMaxBackoffMs() {
+            return maxBackoffMs;
+        }
+
+        public void setMaxBackoffMs(long maxBackoffMs) {
+            this.maxBackoffMs = maxBackoffMs;
+        }
+
+    }
+
+    /**
+     * IAM client signed grantTickets verifying configuration properties, the
+     * signed grantTickets issued by IAM server are verified locally with the
+     * published public keys, and the principal info is retrieved by the remote
+     * ticket validation only when the principal digest is not cached.
+     * 
+     * @author James Wong<jamewong1376@gmail.com>
+     * @version 2022-06-10 v3.1.0
+     * @since v3.1.0
+     */
+    public static class SignedTicketProperties implements Serializable {
+        private static final long serialVersionUID = 2817351402938874418L;
+
+        /**
+         * Whether to enable verifying the signed grantTickets locally, if
+         * false, the remote ticket validation is always used.
+         */
+        private boolean enabled = true;
+
+        /**
+         * The service name of IAM server, i.e. the expected issuer of signed
+         * grantTickets.
+         */
+        private String issuer = "iam-web";
+
+        /**
+         * The min interval of refreshing the public keys when the key of
+         * signed grantTicket is unknown(ms).
+         */
+        private long keysRefreshMinIntervalMs = 30_000L;
+
+        /**
+         * The allowed clock skew of verifying the expiration time(ms).
+         */
+        private long clockSkewMs = 5_000L;
+
+        /**
+         * The expiration time of cached principal info(ms).
+         */
+        private long principalCacheExpireMs = 30 * 60_000L;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getIssuer() {
+            return issuer;
+        }
+
+        public void setIssuer(String issuer) {
+            this.issuer = issuer;
+        }
+
+        public long getKeysRefreshMinIntervalMs() {
+            return keysRefreshMinIntervalMs;
+        }
+
+        public void setKeysRefreshMinIntervalMs(long keysRefreshMinIntervalMs) {
+            this.keysRefreshMinIntervalMs = keysRefreshMinIntervalMs;
+        }
+
+        public long getClockSkewMs() {
+            return clockSkewMs;
+        }
+
+        public void setClockSkewMs(long clockSkewMs) {
+            this.clockSkewMs = clockSkewMs;
+        }
+
+        public long getPrincipalCacheExpireMs() {
+            return principalCacheExpireMs;
+        }
+
+        public void setPrincipalCacheExpireMs(long principalCacheExpireMs) {
+            this.principalCacheExpireMs = principalCacheExpireMs;
+        }
+
+    }
+
 }
\ No newline at end of file
@@ -24,28 +24,40 @@ import org.apache.shiro.subject.PrincipalCollection;
 
 import com.wl4g.iam.client.authc.FastAuthenticationInfo;
 import com.wl4g.iam.client.authc.FastCasAuthenticationToken;
+import com.wl4g.iam.client.authc.SignedGrantTicketVerifier;
 import com.wl4g.iam.client.config.IamClientProperties;
 import com.wl4g.iam.client.validation.IamValidator;
 import com.wl4g.iam.common.subject.IamPrincipal;
 import com.wl4g.iam.common.subject.IamPrincipal.Attributes;
+import com.wl4g.iam.common.subject.SimpleIamPrincipal;
 import com.wl4g.iam.core.authc.IamAuthenticationInfo;
 import com.wl4g.iam.core.authc.IamAuthenticationToken;
+import com.wl4g.iam.core.authc.SignedGrantTicket;
+import com.wl4g.iam.core.authc.SignedGrantTicket.GrantClaims;
+import com.wl4g.iam.core.cache.CacheKey;
+import com.wl4g.iam.core.cache.IamCache;
+import com.wl4g.iam.core.cache.IamCacheManager;
 import com.wl4g.iam.common.model.ServiceTicketValidateRequest;
 import com.wl4g.iam.common.model.ServiceTicketValidateModel;
 import com.wl4g.iam.core.exception.ServiceTicketValidateException;
 
 import static com.wl4g.infra.common.lang.Assert2.*;
+import static com.wl4g.iam.common.constant.FastCasIAMConstants.CACHE_PREFIX_IAM_TICKET_CONSUMED;
+import static com.wl4g.iam.common.constant.FastCasIAMConstants.CACHE_PREFIX_IAM_TICKET_PRINCIPAL;
 import static com.wl4g.iam.common.constant.FastCasIAMConstants.KEY_ACCESSTOKEN_SIGN_NAME;
 import static com.wl4g.iam.common.constant.FastCasIAMConstants.KEY_AUTHC_HOST_NAME;
 import static com.wl4g.iam.common.constant.FastCasIAMConstants.KEY_DATA_CIPHER_NAME;
 import static com.wl4g.iam.common.constant.FastCasIAMConstants.KEY_LANG_NAME;
 import static com.wl4g.iam.common.constant.FastCasIAMConstants.KEY_PARENT_SESSIONID_NAME;
+import static com.wl4g.iam.common.constant.FastCasIAMConstants.KEY_REMEMBERME_NAME;
 import static com.wl4g.iam.core.utils.IamSecurityHolder.bind;
 import static com.wl4g.iam.core.utils.IamSecurityHolder.getSession;
 import static java.lang.String.format;
 import static java.lang.String.valueOf;
 import static java.lang.System.currentTimeMillis;
+import static java.util.Arrays.asList;
 import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 import static org.apache.commons.lang3.StringUtils.EMPTY;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
@@ -74,10 +86,35 @@ import static org.apache.commons.lang3.StringUtils.isBlank;
  */
 public class FastCasClientAuthorizingRealm extends AbstractClientAuthorizingRealm {
 
+    /**
+     * Signed grantTickets local verifier, if null, the remote ticket
+     * validation is always used.
+     */
+    protected final SignedGrantTicketVerifier ticketVerifier;
+
+    /**
+     * Principal info (indexed by principal digest) cache.
+     */
+    protected final IamCache principalCache;
+
+    /**
+     * Consumed signed grantTickets cache.
+     */
+    protected final IamCache consumedTicketCache;
+
     public FastCasClientAuthorizingRealm(IamClientProperties config,
             IamValidator<ServiceTicketValidateRequest, ServiceTicketValidateModel<IamPrincipal>> validator) {
+        this(config, validator, null, null);
+    }
+
+    public FastCasClientAuthorizingRealm(IamClientProperties config,
+            IamValidator<ServiceTicketValidateRequest, ServiceTicketValidateModel<IamPrincipal>> validator,
+            IamCacheManager cacheManager, SignedGrantTicketVerifier ticketVerifier) {
         super(config, validator);
         super.setAuthenticationTokenClass(FastCasAuthenticationToken.class);
+        this.ticketVerifier = ticketVerifier;
+        this.principalCache = isNull(cacheManager) ? null : cacheManager.getIamCache(CACHE_PREFIX_IAM_TICKET_PRINCIPAL);
+        this.consumedTicketCache = isNull(cacheManager) ? null : cacheManager.getIamCache(CACHE_PREFIX_IAM_TICKET_CONSUMED);
     }
 
     /**
@@ -98,8 +135,9 @@ public class FastCasClientAuthorizingRealm extends AbstractClientAuthorizingReal
             // Get request flash grant ticket(May be empty)
             granticket = (String) ftk.getCredentials();
 
-            // Contact CAS remote server to validate ticket
-            ServiceTicketValidateModel<IamPrincipal> validResult = doRequestRemoteTicketValidation(token, granticket);
+            // Verify signed ticket locally or contact CAS remote server to
+            // validate ticket
+            ServiceTicketValidateModel<IamPrincipal> validResult = doTicketValidation(token, granticket);
 
             // Grant ticket assertion .
             assertTicketValidation(validResult);
@@ -173,6 +211,93 @@ public class FastCasClientAuthorizingRealm extends AbstractClientAuthorizingReal
         bind(KEY_ACCESSTOKEN_SIGN_NAME, attrs.getAccessTokenSign());
     }
 
+    /**
+     * Validate grant ticket, the signed grant ticket is verified locally, and
+     * only when the principal info of the digest is not cached, the remote
+     * validation is required.
+     * 
+     * @param token
+     * @param granticket
+     * @return
+     */
+    private ServiceTicketValidateModel<IamPrincipal> doTicketValidation(IamAuthenticationToken token, String granticket) {
+        if (!SignedGrantTicket.isSigned(granticket)) {
+            return doRequestRemoteTicketValidation(token, granticket);
+        }
+        // The IAM server only redeems the signed grant ticket itself rather
+        // than its plain grant ticket (jti) once it has been issued.
+        if (!isLocalVerifiable()) {
+            return doRequestRemoteTicketValidation(token, granticket);
+        }
+        SignedGrantTicket signedTicket = SignedGrantTicket.parse(granticket);
+        String plainTicket = signedTicket.getClaims().getJti();
+        GrantClaims claims = ticketVerifier.verify(signedTicket);
+        if (isNull(claims)) {
+            return doRequestRemoteTicketValidation(token, granticket);
+        }
+
+        // Signed grant ticket is single use.
+        long remainingMs = claims.getExp() + config.getSignedTicket().getClockSkewMs() - currentTimeMillis();
+        if (!consumedTicketCache.putIfAbsent(new CacheKey(plainTicket + ":" + claims.getIat(), Math.max(remainingMs, 1000L)),
+                claims.getSub())) {
+            throw new ServiceTicketValidateException("Signed grant ticket has been used");
+        }
+
+        String principalKey = claims.getSub() + ":" + claims.getPver();
+        IamPrincipal cached = (IamPrincipal) principalCache.get(new CacheKey(principalKey, SimpleIamPrincipal.class));
+        if (isNull(cached)) {
+            ServiceTicketValidateModel<IamPrincipal> assertion = doRequestRemoteTicketValidation(token, granticket);
+            if (nonNull(assertion) && nonNull(assertion.getIamPrincipal())) {
+                principalCache.put(new CacheKey(principalKey, config.getSignedTicket().getPrincipalCacheExpireMs()),
+                        toCachedPrincipal(assertion.getIamPrincipal()));
+            }
+            return assertion;
+        }
+
+        // The session attributes, see:
+        // com.wl4g.iam.handler.fastcas.FastCasServerAuthenticatingHandler#validate()
+        // The parent sessionId is not carried by the signed grant ticket of
+        // front channel, it's only returned by the remote ticket validation.
+        Attributes attrs = new Attributes();
+        attrs.putAll(cached.attributes());
+        attrs.setSessionLang(claims.getLang());
+        attrs.setClientHost(claims.getHost());
+        attrs.setRememberMe(valueOf(claims.isRme()));
+
+        ServiceTicketValidateModel<IamPrincipal> assertion = new ServiceTicketValidateModel<>();
+        assertion.setValidFromTime(currentTimeMillis());
+        assertion.setValidUntilTime(claims.getVut());
+        assertion.setIamPrincipal(new SimpleIamPrincipal(cached).withStoredCredentials(plainTicket).withAttributes(attrs));
+        log.debug("Verified signed grant ticket locally. principal: {}, grantTicket: {}", claims.getSub(), plainTicket);
+        return assertion;
+    }
+
+    /**
+     * The data cipher and access token sign keys cannot be carried by the
+     * signed grant ticket, so the remote validation is required if enabled.
+     * 
+     * @return
+     */
+    private boolean isLocalVerifiable() {
+        return nonNull(ticketVerifier) && nonNull(principalCache) && config.getSignedTicket().isEnabled()
+                && !config.getCipher().isEnableDataCipher() && !config.getSession().isEnableAccessTokenValidity();
+    }
+
+    /**
+     * Copy principal info without the session attributes for caching.
+     * 
+     * @param info
+     * @return
+     */
+    private SimpleIamPrincipal toCachedPrincipal(IamPrincipal info) {
+        Attributes attrs = new Attributes();
+        attrs.putAll(info.attributes());
+        attrs.keySet()
+                .removeAll(asList(KEY_LANG_NAME, KEY_AUTHC_HOST_NAME, KEY_PARENT_SESSIONID_NAME, KEY_DATA_CIPHER_NAME,
+                        KEY_ACCESSTOKEN_SIGN_NAME, KEY_REMEMBERME_NAME));
+        return new SimpleIamPrincipal(info).withStoredCredentials(null).withAttributes(attrs);
+    }
+
     /**
      * Contact fast-CAS remote server to validate ticket.
      * 
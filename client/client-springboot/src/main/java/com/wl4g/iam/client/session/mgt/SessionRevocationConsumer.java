@@ -0,0 +1,245 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.client.session.mgt;
+
+import static com.wl4g.infra.common.lang.Assert2.isTrue;
+import static com.wl4g.infra.common.lang.Assert2.notNullOf;
+import static com.wl4g.infra.common.log.SmartLoggerFactory.getLogger;
+import static com.wl4g.iam.common.constant.FastCasIAMConstants.CACHE_PREFIX_IAM_SESSION_REVOCATION;
+import static com.wl4g.iam.common.constant.FastCasIAMConstants.CACHE_PREFIX_IAM_TICKET_SERVER;
+import static com.wl4g.iam.common.constant.FastCasIAMConstants.LOCK_PREFIX_IAM_SESSION_REVOCATION_CONSUMING;
+import static java.lang.System.currentTimeMillis;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.stream.Collectors.toList;
+import static org.springframework.util.CollectionUtils.isEmpty;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import org.apache.shiro.session.Session;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.wl4g.infra.common.locks.JedisLockManager;
+import com.wl4g.infra.common.log.SmartLogger;
+import com.wl4g.iam.client.config.IamClientProperties;
+import com.wl4g.iam.client.config.IamClientProperties.SessionRevocationProperties;
+import com.wl4g.iam.client.validation.IamValidator;
+import com.wl4g.iam.common.model.SessionRevocationModel;
+import com.wl4g.iam.core.cache.CacheKey;
+import com.wl4g.iam.core.cache.IamCache;
+import com.wl4g.iam.core.cache.IamCacheManager;
+import com.wl4g.iam.core.session.mgt.IamSessionDAO;
+
+/**
+ * IAM client sessions revocation consumer, which incrementally pulls the
+ * revoked grantTickets of the logged out or expired sessions from the IAM
+ * server with the offset, and cleanup the local sessions immediately. </br>
+ * </br>
+ * The offset is shared by the cluster nodes, and if the server replies the
+ * revocations may have been lost, the full sessions validation is fallback.
+ * The pulling is backed off exponentially while it fails continuously.
+ *
+ * @author James Wong<jamewong1376@gmail.com>
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ * @see {@link com.wl4g.iam.session.mgt.SessionRevocationLog}
+ */
+public class SessionRevocationConsumer implements InitializingBean, DisposableBean {
+    protected final SmartLogger log = getLogger(getClass());
+
+    protected final IamClientProperties config;
+    protected final IamClientSessionManager sessionManager;
+    protected final IamValidator<SessionRevocationModel, SessionRevocationModel> validator;
+    protected final IamCache offsetCache;
+    protected final IamCache ticketCache;
+
+    @Autowired
+    protected IamSessionDAO sessionDAO;
+
+    @Autowired
+    protected JedisLockManager lockManager;
+
+    private ScheduledExecutorService scheduler;
+    private int failures;
+    private long nextPollTime;
+
+    public SessionRevocationConsumer(IamClientProperties config, IamCacheManager cacheManager,
+            IamClientSessionManager sessionManager, IamValidator<SessionRevocationModel, SessionRevocationModel> validator) {
+        this.config = notNullOf(config, "config");
+        this.sessionManager = notNullOf(sessionManager, "sessionManager");
+        this.validator = notNullOf(validator, "validator");
+        this.offsetCache = notNullOf(cacheManager, "cacheManager").getIamCache(CACHE_PREFIX_IAM_SESSION_REVOCATION);
+        this.ticketCache = cacheManager.getIamCache(CACHE_PREFIX_IAM_TICKET_SERVER);
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        SessionRevocationProperties revocation = config.getRevocation();
+        if (!revocation.isEnabled()) {
+            log.info("Disabled consuming sessions revocations.");
+            return;
+        }
+        isTrue(revocation.getPollIntervalMs() > 0, "revocation.pollIntervalMs must be greater than 0");
+        isTrue(revocation.getBatchSize() > 0, "revocation.batchSize must be greater than 0");
+        isTrue(revocation.getMaxBackoffMs() >= revocation.getPollIntervalMs(),
+                "revocation.maxBackoffMs must be greater than or equal to revocation.pollIntervalMs");
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "iam-session-revocation-consumer");
+            t.setDaemon(true);
+            return t;
+        });
+        this.scheduler.scheduleWithFixedDelay(() -> consume(), revocation.getPollIntervalMs(),
+                revocation.getPollIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (nonNull(scheduler)) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Pulls the sessions revocations after the last offset, and cleanup the
+     * local sessions.
+     */
+    public synchronized void consume() {
+        long now = currentTimeMillis();
+        if (now < nextPollTime) {
+            return; // Backing off
+        }
+        Lock lock = null;
+        try {
+            lock = getConsumingLock();
+            if (!lock.tryLock()) {
+                lock = null;
+                log.debug("Skip consuming sessions revocations.");
+                return;
+            }
+            poll();
+            if (failures > 0) {
+                log.info("Recovered consuming sessions revocations after {} failures.", failures);
+            }
+            failures = 0;
+        } catch (Exception e) {
+            long backoffMs = getBackoffMs(++failures);
+            nextPollTime = now + backoffMs;
+            if (failures == 1) {
+                log.warn("Failed to consume sessions revocations, backoff {}ms. - {}", backoffMs, e.toString());
+            } else {
+                log.debug("Failed to consume sessions revocations {} times, backoff {}ms. - {}", failures, backoffMs,
+                        e.toString());
+            }
+        } finally {
+            if (nonNull(lock)) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Gets the backoff of continuous failures, which is doubled on each
+     * failure up to the max backoff.
+     *
+     * @param failures
+     * @return
+     */
+    long getBackoffMs(int failures) {
+        SessionRevocationProperties revocation = config.getRevocation();
+        long backoffMs = revocation.getPollIntervalMs() << Math.min(failures, 16);
+        return Math.max(revocation.getPollIntervalMs(), Math.min(backoffMs, revocation.getMaxBackoffMs()));
+    }
+
+    protected Lock getConsumingLock() {
+        return lockManager.getLock(LOCK_PREFIX_IAM_SESSION_REVOCATION_CONSUMING);
+    }
+
+    /**
+     * Pulls all revocations after the last offset in batches.
+     */
+    void poll() {
+        CacheKey offsetKey = new CacheKey(config.getServiceName(), String.class);
+        String offset = (String) offsetCache.get(offsetKey);
+
+        int batchSize = config.getRevocation().getBatchSize();
+        SessionRevocationModel assertion = null;
+        do {
+            SessionRevocationModel request = new SessionRevocationModel(config.getServiceName());
+            request.setOffset(offset);
+            request.setLimit(batchSize);
+            assertion = validator.validate(request);
+
+            // The revocations may have been lost, fallback to full
+            // validation.
+            if (assertion.isReset()) {
+                log.warn("Sessions revocations may have been lost after offset: {}, fallback to validating all sessions.",
+                        offset);
+                onRevocationsLost();
+            }
+            cleanupSessions(assertion.getTickets());
+
+            offset = assertion.getOffset();
+            offsetCache.put(new CacheKey(config.getServiceName()), offset);
+        } while (assertion.getTickets().size() >= batchSize);
+    }
+
+    protected void onRevocationsLost() {
+        sessionManager.validateSessions();
+    }
+
+    /**
+     * Cleanup the local sessions of revoked grantTickets.
+     *
+     * @param revokedTickets
+     */
+    protected void cleanupSessions(List<String> revokedTickets) {
+        if (isEmpty(revokedTickets)) {
+            return;
+        }
+        /**
+         * grantTicket => sessionId, See:
+         * {@link com.wl4g.iam.client.filter.AbstractClientIamAuthenticationFilter#onLoginSuccess}
+         */
+        List<Object> sessionIds = ticketCache
+                .getAll(revokedTickets.stream().map(t -> new CacheKey(t, String.class)).collect(toList()));
+        for (int i = 0; i < revokedTickets.size(); i++) {
+            Object sessionId = sessionIds.get(i);
+            if (isNull(sessionId)) {
+                continue;
+            }
+            try {
+                Session session = sessionDAO.readSession((Serializable) sessionId);
+                if (nonNull(session)) {
+                    sessionDAO.delete(session);
+                    log.info("Cleanup revoked sessionId: {}, grantTicket: {}", sessionId, revokedTickets.get(i));
+                }
+                ticketCache.remove(new CacheKey(revokedTickets.get(i)));
+            } catch (Exception e) {
+                log.warn("Failed to cleanup revoked sessionId: {}, grantTicket: {}. - {}", sessionId, revokedTickets.get(i),
+                        e.toString());
+            }
+        }
+    }
+
+}
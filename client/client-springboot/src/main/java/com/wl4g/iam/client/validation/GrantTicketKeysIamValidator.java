@@ -0,0 +1,57 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.client.validation;
+
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.web.client.RestTemplate;
+
+import com.wl4g.infra.common.web.rest.RespBase;
+import com.wl4g.iam.client.config.IamClientProperties;
+import com.wl4g.iam.common.model.GrantTicketKeysModel;
+import com.wl4g.iam.core.exception.ServiceTicketValidateException;
+
+import static com.wl4g.iam.common.constant.FastCasIAMConstants.URI_IAM_SERVER_GRANT_TICKET_KEYS;
+import static java.lang.String.format;
+
+/**
+ * Signed grantTickets public keys validator
+ * 
+ * @author James Wong<jamewong1376@gmail.com>
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+public class GrantTicketKeysIamValidator extends AbstractBasedIamValidator<GrantTicketKeysModel, GrantTicketKeysModel> {
+
+    public GrantTicketKeysIamValidator(IamClientProperties config, RestTemplate restTemplate) {
+        super(config, restTemplate);
+    }
+
+    @Override
+    public GrantTicketKeysModel validate(GrantTicketKeysModel request) throws ServiceTicketValidateException {
+        final RespBase<GrantTicketKeysModel> resp = doIamRemoteValidate(URI_IAM_SERVER_GRANT_TICKET_KEYS, request);
+        if (!RespBase.isSuccess(resp)) {
+            throw new ServiceTicketValidateException(format("Remote grantTicket keys reading error, %s", resp.getMessage()));
+        }
+        return resp.getData();
+    }
+
+    @Override
+    protected ParameterizedTypeReference<RespBase<GrantTicketKeysModel>> getTypeReference() {
+        return new ParameterizedTypeReference<RespBase<GrantTicketKeysModel>>() {
+        };
+    }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.client.session.mgt;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.wl4g.iam.client.config.IamClientProperties;
+import com.wl4g.iam.client.validation.IamValidator;
+import com.wl4g.iam.common.model.SessionRevocationModel;
+import com.wl4g.iam.core.cache.CacheKey;
+import com.wl4g.iam.core.cache.IamCache;
+import com.wl4g.iam.core.cache.IamCacheManager;
+
+public class SessionRevocationConsumerTests {
+
+    public static void main(String[] args) {
+        pollUntilDrainedTest();
+        resetFallbackTest();
+        backoffTest();
+    }
+
+    public static void pollUntilDrainedTest() {
+        List<String> offsets = new ArrayList<>();
+        TestConsumer consumer = new TestConsumer(request -> {
+            offsets.add(request.getOffset());
+            SessionRevocationModel assertion = new SessionRevocationModel(request.getApplication());
+            int round = offsets.size();
+            assertion.setOffset(String.valueOf(round));
+            if (round == 1) {
+                assertion.getTickets().addAll(asList("st1", "st2"));
+            } else if (round == 2) {
+                assertion.getTickets().addAll(asList("st3", "st4"));
+            } else {
+                assertion.getTickets().add("st5");
+            }
+            return assertion;
+        });
+        consumer.consume();
+        System.out.println("offsets=" + offsets); // [null, 1, 2]
+        System.out.println("cleaned=" + consumer.cleaned); // [st1, st2, st3, st4, st5]
+        System.out.println("stored=" + consumer.offsetCache.get(new CacheKey("portal", String.class))); // 3
+    }
+
+    public static void resetFallbackTest() {
+        TestConsumer consumer = new TestConsumer(request -> {
+            SessionRevocationModel assertion = new SessionRevocationModel(request.getApplication());
+            assertion.setReset(true);
+            assertion.setOffset("9");
+            return assertion;
+        });
+        consumer.consume();
+        System.out.println("lost=" + consumer.lost.get()); // 1
+        System.out.println("stored=" + consumer.offsetCache.get(new CacheKey("portal", String.class))); // 9
+    }
+
+    public static void backoffTest() {
+        AtomicInteger calls = new AtomicInteger();
+        TestConsumer consumer = new TestConsumer(request -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("Unsupported sessionRevocations");
+        });
+        consumer.consume();
+        // Backing off, the server is not requested.
+        consumer.consume();
+        System.out.println("calls=" + calls.get()); // 1
+
+        long pollIntervalMs = consumer.config.getRevocation().getPollIntervalMs();
+        System.out.println("backoff1=" + (consumer.getBackoffMs(1) == 2 * pollIntervalMs)); // true
+        System.out.println("backoffMax=" + (consumer.getBackoffMs(100) == consumer.config.getRevocation().getMaxBackoffMs())); // true
+    }
+
+    static class TestConsumer extends SessionRevocationConsumer {
+        final List<String> cleaned = new ArrayList<>();
+        final AtomicInteger lost = new AtomicInteger();
+        final Lock lock = new ReentrantLock();
+
+        TestConsumer(IamValidator<SessionRevocationModel, SessionRevocationModel> validator) {
+            this(newConfig(), newCacheManager(), validator);
+        }
+
+        TestConsumer(IamClientProperties config, IamCacheManager cacheManager,
+                IamValidator<SessionRevocationModel, SessionRevocationModel> validator) {
+            super(config, cacheManager, new IamClientSessionManager(config, cacheManager, null), validator);
+            config.getRevocation().setBatchSize(2);
+        }
+
+        @Override
+        protected Lock getConsumingLock() {
+            return lock;
+        }
+
+        @Override
+        protected void onRevocationsLost() {
+            lost.incrementAndGet();
+        }
+
+        @Override
+        protected void cleanupSessions(List<String> revokedTickets) {
+            cleaned.addAll(revokedTickets);
+        }
+    }
+
+    static IamClientProperties newConfig() {
+        IamClientProperties config = new IamClientProperties();
+        config.setServiceName("portal");
+        return config;
+    }
+
+    /**
+     * The in-memory cache manager only supports get/put/remove.
+     */
+    static IamCacheManager newCacheManager() {
+        Map<String, Object> store = new ConcurrentHashMap<>();
+        IamCache cache = (IamCache) Proxy.newProxyInstance(IamCache.class.getClassLoader(), new Class<?>[] { IamCache.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "get":
+                        return store.get(new String(((CacheKey) args[0]).getKey(), UTF_8));
+                    case "put":
+                        return store.put(new String(((CacheKey) args[0]).getKey(), UTF_8), args[1]);
+                    case "remove":
+                        return store.remove(new String(((CacheKey) args[0]).getKey(), UTF_8));
+                    default:
+                        throw new UnsupportedOperationException(method.toString());
+                    }
+                });
+        return (IamCacheManager) Proxy.newProxyInstance(IamCacheManager.class.getClassLoader(),
+                new Class<?>[] { IamCacheManager.class }, (proxy, method, args) -> cache);
+    }
+
+}
@@ -66,6 +66,10 @@ public abstract class FastCasIAMConstants extends IAMConstants {
     public static final String KEY_AUTHC_TOKEN = "authcTokenAttrName";
     /** authentication accountInfo save session key-name */
     public static final String KEY_AUTHC_ACCOUNT_INFO = "authcAccountInfoAttrName";
+    /** principal of the session indexed by, save session key-name */
+    public static final String KEY_SESSION_INDEXED_PRINCIPAL = "sessionIndexedPrincipalAttrName";
+    /** expiration time of the indexed principal, save session key-name */
+    public static final String KEY_SESSION_INDEX_EXPIRE_AT = "sessionIndexExpireAtAttrName";
 
     /**
      * IAM Server/client the JSON node key that response the session
@@ -91,6 +95,28 @@ public abstract class FastCasIAMConstants extends IAMConstants {
      */
     public static final String CACHE_PREFIX_IAM_SESSION_REFATTRS = CACHE_PREFIX_IAM_FASTCAS + "session:refattrs:";
 
+    /**
+     * {@link IamSession} revocations (revoked grantTickets) log stream cache
+     * name of each application.
+     */
+    public static final String CACHE_PREFIX_IAM_SESSION_REVOCATION = CACHE_PREFIX_IAM_FASTCAS + "session:revocation:";
+
+    /**
+     * The failed single logout notifications (retrying queue) cache name.
+     */
+    public static final String CACHE_PREFIX_IAM_LOGOUT_RETRY = CACHE_PREFIX_IAM_FASTCAS + "logout:retry";
+
+    /**
+     * The grantTickets referenced by the retrying logout notifications cache
+     * name.
+     */
+    public static final String CACHE_PREFIX_IAM_LOGOUT_TICKET = CACHE_PREFIX_IAM_FASTCAS + "logout:ticket:";
+
+    /**
+     * The rotating signing keys of signed grantTickets cache name.
+     */
+    public static final String CACHE_PREFIX_IAM_GRANT_TICKET_KEYS = CACHE_PREFIX_IAM_FASTCAS + "ticket:signkeys";
+
     /**
      * IAM replay attacks signature cache name.
      */
@@ -139,6 +165,14 @@ public abstract class FastCasIAMConstants extends IAMConstants {
     public static final String URI_IAM_SERVER_SECOND_VALIDATE = "secondaryValidate";
     /** IAM server seesions authentication validate API URI. */
     public static final String URI_IAM_SERVER_SESSION_VALIDATE = "sessionValidate";
+    /**
+     * Sessions revocations incremental reading URI.
+     */
+    public static final String URI_IAM_SERVER_SESSION_REVOCATIONS = "sessionRevocations";
+    /**
+     * Signed grantTickets public keys (JWKS-like) URI.
+     */
+    public static final String URI_IAM_SERVER_GRANT_TICKET_KEYS = "grantTicketKeys";
 
     /**
      * Callback Processing and Path in third party social networks services
@@ -218,11 +252,19 @@ public abstract class FastCasIAMConstants extends IAMConstants {
      * Generic API v1 sessions list query.
      */
     public static final String URI_IAM_SERVER_API_V2_SESSION = "/sessions";
+    /**
+     * Generic API v1 sessions principal index rebuild.
+     */
+    public static final String URI_IAM_SERVER_API_V2_SESSION_INDEX = "/sessions/index";
 
     /**
      * IAM client/server authentication session stored cache name.
      */
     public static final String CACHE_PREFIX_IAM_SESSION = CACHE_PREFIX_IAM + "session:id:";
+    /**
+     * IAM authentication session principal to session IDs index cache name.
+     */
+    public static final String CACHE_PREFIX_IAM_SESSION_PRINCIPAL = CACHE_PREFIX_IAM + "session:principal:";
     /**
      * IAM client authentication authorization information storage cache name.
      */
@@ -231,6 +273,15 @@ public abstract class FastCasIAMConstants extends IAMConstants {
      * IAM server authentication authorization information storage cache name.
      */
     public static final String CACHE_PREFIX_IAM_TICKET_SERVER = CACHE_PREFIX_IAM + "ticket:s:";
+    /**
+     * IAM client principal info (indexed by principal digest of signed
+     * grantTicket) cache name.
+     */
+    public static final String CACHE_PREFIX_IAM_TICKET_PRINCIPAL = CACHE_PREFIX_IAM + "ticket:principal:";
+    /**
+     * IAM client consumed signed grantTickets (replay protection) cache name.
+     */
+    public static final String CACHE_PREFIX_IAM_TICKET_CONSUMED = CACHE_PREFIX_IAM + "ticket:consumed:";
 
     /**
      * Login authentication related processing cache name.
@@ -314,6 +365,12 @@ public abstract class FastCasIAMConstants extends IAMConstants {
      */
     public static final String LOCK_PREFIX_IAM_SESSION_VALIDTING = CACHE_PREFIX_IAM + "c:validating:";
 
+    /**
+     * Only one node of the cluster is required to consume the sessions
+     * revocations.
+     */
+    public static final String LOCK_PREFIX_IAM_SESSION_REVOCATION_CONSUMING = CACHE_PREFIX_IAM + "c:revocation:consuming:";
+
     /** Fast-CAS client base URI. */
     public static final String URI_IAM_CLIENT_BASE = "/_fastcas-client";
     /** Fast-CAS client logout URI. */
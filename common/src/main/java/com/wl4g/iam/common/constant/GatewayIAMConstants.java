@@ -54,6 +54,8 @@ public abstract class GatewayIAMConstants extends IAMConstants {
     public static final String CACHE_PREFIX_IAM_GWTEWAY_IPFILTER = CACHE_PREFIX_IAM_GWTEWAY + ":ipfilter";
 
     public static final String CACHE_PREFIX_IAM_GWTEWAY_ROUTES = CACHE_PREFIX_IAM_GWTEWAY + ":routes";
+    public static final String CACHE_PREFIX_IAM_GWTEWAY_ROUTES_REVISION = CACHE_PREFIX_IAM_GWTEWAY_ROUTES + ":revision";
+    public static final String CACHE_PREFIX_IAM_GWTEWAY_ROUTES_CHANGED = CACHE_PREFIX_IAM_GWTEWAY_ROUTES + ":changed";
 
     public static final String CACHE_PREFIX_IAM_GWTEWAY_AUTH = CACHE_PREFIX_IAM_GWTEWAY + ":auth";
     public static final String CACHE_PREFIX_IAM_GWTEWAY_AUTH_SIGN_SECRET = CACHE_PREFIX_IAM_GWTEWAY_AUTH + ":sign:secret";
@@ -69,16 +71,29 @@ public abstract class GatewayIAMConstants extends IAMConstants {
             + ":config:rate";
     public static final String CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT_CONF_QUOTA = CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT
             + ":config:quota";
+    public static final String CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT_CONF_GCRA = CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT
+            + ":config:gcra";
+    public static final String CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT_CONF_SLIDINGWINDOW = CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT
+            + ":config:slidingwindow";
+    public static final String CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT_CONF_INVALIDATE = CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT
+            + ":config:invalidate";
     public static final String CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT_TOKEN_RATE = CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT
             + ":token:rate";
     public static final String CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT_TOKEN_QUOTA = CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT
             + ":token:quota";
+    public static final String CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT_TOKEN_GCRA = CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT
+            + ":token:gcra";
+    public static final String CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT_TOKEN_SLIDINGWINDOW = CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT
+            + ":token:slidingwindow";
     public static final String CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT_EVENT_HITS_RATE = CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT
             + ":event:hits:rate";
     public static final String CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT_EVENT_HITS_QUOTA = CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT
             + ":event:hits:quota";
 
     public static final String CACHE_SUFFIX_IAM_GATEWAY_RESPONSECACHE = CACHE_PREFIX_IAM_GWTEWAY + ":responsecache:data";
+    public static final String CACHE_PREFIX_IAM_GATEWAY_RESPONSECACHE_TIERED = CACHE_PREFIX_IAM_GWTEWAY + ":responsecache:tiered";
+    public static final String CACHE_PREFIX_IAM_GATEWAY_RESPONSECACHE_INVALIDATE = CACHE_PREFIX_IAM_GWTEWAY
+            + ":responsecache:invalidate";
 
     public static final String CACHE_SUFFIX_IAM_GATEWAY_EVENT_YYMMDD = "yyMMdd";
 
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.common.model;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.util.CollectionUtils;
+
+import com.wl4g.infra.common.serialize.JacksonUtils;
+
+/**
+ * Signed grantTickets public keys (JWKS-like) model, the clients use them to
+ * verify the signed grantTickets locally.
+ * 
+ * @author James Wong<jamewong1376@gmail.com>
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+public final class GrantTicketKeysModel extends BaseValidateModel {
+    private static final long serialVersionUID = 4125090870158322871L;
+
+    /**
+     * The currently valid public keys.
+     */
+    private List<GrantTicketKey> keys = new ArrayList<>();
+
+    /**
+     * The rotation interval of the signing keys(ms), the kid is the time
+     * bucket of rotation, and only the keys of current and previous buckets
+     * are trusted.
+     */
+    private long rotationMs;
+
+    public GrantTicketKeysModel() {
+    }
+
+    public GrantTicketKeysModel(String application) {
+        super(application);
+    }
+
+    public List<GrantTicketKey> getKeys() {
+        return keys;
+    }
+
+    public void setKeys(List<GrantTicketKey> keys) {
+        if (!CollectionUtils.isEmpty(keys)) {
+            this.keys.addAll(keys);
+        }
+    }
+
+    public long getRotationMs() {
+        return rotationMs;
+    }
+
+    public void setRotationMs(long rotationMs) {
+        this.rotationMs = rotationMs;
+    }
+
+    @Override
+    public String toString() {
+        return JacksonUtils.toJSONString(this);
+    }
+
+    /**
+     * The EC public key in the JWK format, see:
+     * <a href="https://tools.ietf.org/html/rfc7518#section-6.2">RFC7518</a>
+     */
+    public static class GrantTicketKey implements Serializable {
+        private static final long serialVersionUID = -1719462094361538816L;
+
+        private String kid;
+        private String kty;
+        private String crv;
+        private String alg;
+
+        /**
+         * The base64url encoded X coordinate.
+         */
+        private String x;
+
+        /**
+         * The base64url encoded Y coordinate.
+         */
+        private String y;
+
+        public GrantTicketKey() {
+        }
+
+        public GrantTicketKey(String kid, String kty, String crv, String alg, String x, String y) {
+            this.kid = kid;
+            this.kty = kty;
+            this.crv = crv;
+            this.alg = alg;
+            this.x = x;
+            this.y = y;
+        }
+
+        public String getKid() {
+            return kid;
+        }
+
+        public void setKid(String kid) {
+            this.kid = kid;
+        }
+
+        public String getKty() {
+            return kty;
+        }
+
+        public void setKty(String kty) {
+            this.kty = kty;
+        }
+
+        public String getCrv() {
+            return crv;
+        }
+
+        public void setCrv(String crv) {
+            this.crv = crv;
+        }
+
+        public String getAlg() {
+            return alg;
+        }
+
+        public void setAlg(String alg) {
+            this.alg = alg;
+        }
+
+        public String getX() {
+            return x;
+        }
+
+        public void setX(String x) {
+            this.x = x;
+        }
+
+        public String getY() {
+            return y;
+        }
+
+        public void setY(String y) {
+            this.y = y;
+        }
+
+        @Override
+        public String toString() {
+            return JacksonUtils.toJSONString(this);
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.common.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.util.CollectionUtils;
+
+import com.wl4g.infra.common.serialize.JacksonUtils;
+
+/**
+ * Sessions revocations incremental reading model, the request carries the
+ * last consumed offset, and the assertion carries the revoked grantTickets
+ * after that offset and the next offset.
+ * 
+ * @author James Wong<jamewong1376@gmail.com>
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+public final class SessionRevocationModel extends BaseValidateModel {
+    private static final long serialVersionUID = -2316042317480935816L;
+
+    /**
+     * The last consumed offset of request, or the next offset of assertion.
+     * Blank means reading from the latest.
+     */
+    private String offset;
+
+    /**
+     * The maximum number of revocations to read.
+     */
+    private int limit = 1000;
+
+    /**
+     * Whether the revocations after the requested offset may have been lost
+     * (e.g. trimmed), if true, the consumer should fully validate the sessions.
+     */
+    private boolean reset;
+
+    /**
+     * Revoked grantTickets.
+     */
+    private List<String> tickets = new ArrayList<>();
+
+    public SessionRevocationModel() {
+    }
+
+    public SessionRevocationModel(String application) {
+        super(application);
+    }
+
+    public String getOffset() {
+        return offset;
+    }
+
+    public void setOffset(String offset) {
+        this.offset = offset;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public boolean isReset() {
+        return reset;
+    }
+
+    public void setReset(boolean reset) {
+        this.reset = reset;
+    }
+
+    public List<String> getTickets() {
+        return tickets;
+    }
+
+    public void setTickets(List<String> tickets) {
+        if (!CollectionUtils.isEmpty(tickets)) {
+            this.tickets.addAll(tickets);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return JacksonUtils.toJSONString(this);
+    }
+
+}
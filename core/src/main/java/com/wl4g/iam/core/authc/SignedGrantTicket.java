@@ -0,0 +1,430 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.core.authc;
+
+import static com.wl4g.infra.common.lang.Assert2.hasTextOf;
+import static com.wl4g.infra.common.lang.Assert2.isTrue;
+import static com.wl4g.infra.common.lang.Assert2.notNullOf;
+import static com.wl4g.infra.common.serialize.JacksonUtils.parseJSON;
+import static com.wl4g.infra.common.serialize.JacksonUtils.toJSONString;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.commons.codec.digest.DigestUtils.sha256Hex;
+import static org.apache.commons.lang3.StringUtils.countMatches;
+import static org.apache.commons.lang3.StringUtils.isAnyBlank;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.math.NumberUtils.toLong;
+
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.wl4g.iam.common.model.GrantTicketKeysModel.GrantTicketKey;
+import com.wl4g.iam.common.subject.IamPrincipal;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Signed grantTicket, which is the JWS compact serialization (ES256) of the
+ * grant claims, so that the fast-CAS clients can verify it locally with the
+ * public keys of IAM server instead of the remote ticket validation. </br>
+ * </br>
+ * The claims carries the principal digest, the clients only need to retrieve
+ * the full {@link IamPrincipal} when the principal of the digest is not
+ * cached.
+ *
+ * <pre>
+ * base64url({"alg":"ES256","typ":"GT","kid":"..."}).base64url(claims).base64url(signature)
+ * </pre>
+ *
+ * @author James Wong<jamewong1376@gmail.com>
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+@Getter
+public final class SignedGrantTicket {
+
+    private final String kid;
+    private final GrantClaims claims;
+    private final String signingInput;
+    private final byte[] signature;
+
+    private SignedGrantTicket(String kid, GrantClaims claims, String signingInput, byte[] signature) {
+        this.kid = kid;
+        this.claims = claims;
+        this.signingInput = signingInput;
+        this.signature = signature;
+    }
+
+    /**
+     * Verify signature with the public key of {@link #getKid()}.
+     *
+     * @param publicKey
+     * @return
+     */
+    public boolean verify(PublicKey publicKey) {
+        notNullOf(publicKey, "publicKey");
+        try {
+            Signature verifier = Signature.getInstance(SIGNATURE_ALG);
+            verifier.initVerify(publicKey);
+            verifier.update(signingInput.getBytes(UTF_8));
+            return verifier.verify(rawToDer(signature));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Check the claims of the verified grantTicket, including the issuer.
+     *
+     * @param issuer
+     *            the expected issuer (IAM server service name)
+     * @param audience
+     *            the expected audience (application name)
+     * @param now
+     * @param clockSkewMs
+     * @return
+     * @throws IllegalArgumentException
+     */
+    public GrantClaims checkClaims(String issuer, String audience, long now, long clockSkewMs)
+            throws IllegalArgumentException {
+        isTrue(StringUtils.equals(claims.getIss(), issuer), "Invalid issuer: %s of signed grantTicket, expected: %s",
+                claims.getIss(), issuer);
+        return checkClaims(audience, now, clockSkewMs);
+    }
+
+    /**
+     * Check the claims of the verified grantTicket.
+     *
+     * @param audience
+     *            the expected audience (application name)
+     * @param now
+     * @param clockSkewMs
+     * @return
+     * @throws IllegalArgumentException
+     */
+    public GrantClaims checkClaims(String audience, long now, long clockSkewMs) throws IllegalArgumentException {
+        isTrue(!isAnyBlank(claims.getJti(), claims.getSub(), claims.getPver()), "Invalid claims of signed grantTicket");
+        isTrue(StringUtils.equals(claims.getAud(), audience), "Invalid audience: %s of signed grantTicket, expected: %s",
+                claims.getAud(), audience);
+        isTrue(now <= claims.getExp() + clockSkewMs, "Expired signed grantTicket");
+        return claims;
+    }
+
+    /**
+     * Gets the kid of signing key, i.e. the time bucket of key rotation.
+     *
+     * @param now
+     * @param rotationMs
+     * @return
+     */
+    public static String getKid(long now, long rotationMs) {
+        return String.valueOf(now / rotationMs);
+    }
+
+    /**
+     * Check whether the signing key is in the rotation window, i.e. the key
+     * of current or previous bucket (the tickets signed at the end of the
+     * previous bucket are still valid).
+     *
+     * @param kid
+     * @param now
+     * @param rotationMs
+     * @return
+     */
+    public static boolean isActiveKid(String kid, long now, long rotationMs) {
+        long bucket = toLong(kid, -1L);
+        return bucket >= 0 && bucket >= now / rotationMs - 1;
+    }
+
+    /**
+     * Check whether the grantTicket is signed, the plain grantTickets does not
+     * contains the separator.
+     *
+     * @param ticket
+     * @return
+     */
+    public static boolean isSigned(String ticket) {
+        return !isBlank(ticket) && countMatches(ticket, '.') == 2;
+    }
+
+    /**
+     * Sign the claims.
+     *
+     * @param claims
+     * @param kid
+     * @param privateKey
+     * @return
+     */
+    public static String sign(GrantClaims claims, String kid, PrivateKey privateKey) {
+        notNullOf(claims, "claims");
+        hasTextOf(kid, "kid");
+        notNullOf(privateKey, "privateKey");
+
+        Map<String, String> header = new LinkedHashMap<>(4);
+        header.put("alg", ALG);
+        header.put("typ", TYP);
+        header.put("kid", kid);
+        String signingInput = encode(toJSONString(header).getBytes(UTF_8)) + "." + encode(toJSONString(claims).getBytes(UTF_8));
+        try {
+            Signature signer = Signature.getInstance(SIGNATURE_ALG);
+            signer.initSign(privateKey);
+            signer.update(signingInput.getBytes(UTF_8));
+            return signingInput + "." + encode(derToRaw(signer.sign()));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to sign grantTicket", e);
+        }
+    }
+
+    /**
+     * Parse the signed grantTicket (without verifying).
+     *
+     * @param ticket
+     * @return
+     * @throws IllegalArgumentException
+     */
+    public static SignedGrantTicket parse(String ticket) throws IllegalArgumentException {
+        isTrue(isSigned(ticket), "Invalid signed grantTicket");
+        String[] parts = ticket.split("\\.");
+        isTrue(parts.length == 3, "Invalid signed grantTicket");
+
+        Map<String, String> header = parseJSON(new String(decode(parts[0]), UTF_8), new TypeReference<Map<String, String>>() {
+        });
+        isTrue(ALG.equals(header.get("alg")) && TYP.equals(header.get("typ")), "Unsupported signed grantTicket header");
+        GrantClaims claims = parseJSON(new String(decode(parts[1]), UTF_8), GrantClaims.class);
+        return new SignedGrantTicket(hasTextOf(header.get("kid"), "kid"), notNullOf(claims, "claims"),
+                parts[0] + "." + parts[1], decode(parts[2]));
+    }
+
+    /**
+     * Digest the authorization info (roles/permissions/organization) of
+     * principal, which is changed when the principal info changes.
+     *
+     * @param info
+     * @return
+     */
+    public static String digestPrincipal(IamPrincipal info) {
+        Map<String, Object> digested = new LinkedHashMap<>(8);
+        digested.put("principalId", info.getPrincipalId());
+        digested.put("principal", info.getPrincipal());
+        digested.put("roles", info.getRoles());
+        digested.put("permissions", info.getPermissions());
+        digested.put("organization", info.getOrganization());
+        return sha256Hex(toJSONString(digested));
+    }
+
+    /**
+     * Generate P-256 key pair.
+     *
+     * @return
+     */
+    public static KeyPair generateKeyPair() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec(CURVE_SPEC));
+            return generator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Convert to the public key of JWK format.
+     *
+     * @param kid
+     * @param publicKey
+     * @return
+     */
+    public static GrantTicketKey toGrantTicketKey(String kid, ECPublicKey publicKey) {
+        ECPoint w = publicKey.getW();
+        return new GrantTicketKey(kid, KTY, CRV, ALG, encode(toUnsigned(w.getAffineX())), encode(toUnsigned(w.getAffineY())));
+    }
+
+    /**
+     * Convert from the public key of JWK format.
+     *
+     * @param key
+     * @return
+     * @throws IllegalArgumentException
+     */
+    public static PublicKey toPublicKey(GrantTicketKey key) throws IllegalArgumentException {
+        isTrue(KTY.equals(key.getKty()) && CRV.equals(key.getCrv()), "Unsupported key: %s", key);
+        try {
+            AlgorithmParameters params = AlgorithmParameters.getInstance("EC");
+            params.init(new ECGenParameterSpec(CURVE_SPEC));
+            ECPoint w = new ECPoint(new BigInteger(1, decode(key.getX())), new BigInteger(1, decode(key.getY())));
+            return KeyFactory.getInstance("EC")
+                    .generatePublic(new ECPublicKeySpec(w, params.getParameterSpec(ECParameterSpec.class)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static String encode(byte[] data) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(data);
+    }
+
+    private static byte[] decode(String data) {
+        return Base64.getUrlDecoder().decode(data);
+    }
+
+    private static byte[] toUnsigned(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        byte[] unsigned = new byte[COORDINATE_LENGTH];
+        int len = Math.min(bytes.length, COORDINATE_LENGTH);
+        System.arraycopy(bytes, bytes.length - len, unsigned, COORDINATE_LENGTH - len, len);
+        return unsigned;
+    }
+
+    /**
+     * Transcodes the DER signature of JCA to the R|S concatenation of JWS.
+     */
+    static byte[] derToRaw(byte[] der) {
+        // SEQUENCE(len) INTEGER(len) r INTEGER(len) s, the length of P-256
+        // signature is always less than 128.
+        int rLen = der[3];
+        int sLen = der[5 + rLen];
+        byte[] raw = new byte[COORDINATE_LENGTH * 2];
+        copyInteger(der, 4, rLen, raw, 0);
+        copyInteger(der, 6 + rLen, sLen, raw, COORDINATE_LENGTH);
+        return raw;
+    }
+
+    /**
+     * Transcodes the R|S concatenation of JWS to the DER signature of JCA.
+     */
+    static byte[] rawToDer(byte[] raw) {
+        isTrue(raw.length == COORDINATE_LENGTH * 2, "Invalid signature length");
+        byte[] r = new BigInteger(1, Arrays.copyOfRange(raw, 0, COORDINATE_LENGTH)).toByteArray();
+        byte[] s = new BigInteger(1, Arrays.copyOfRange(raw, COORDINATE_LENGTH, raw.length)).toByteArray();
+        byte[] der = new byte[6 + r.length + s.length];
+        der[0] = 0x30;
+        der[1] = (byte) (4 + r.length + s.length);
+        der[2] = 0x02;
+        der[3] = (byte) r.length;
+        System.arraycopy(r, 0, der, 4, r.length);
+        der[4 + r.length] = 0x02;
+        der[5 + r.length] = (byte) s.length;
+        System.arraycopy(s, 0, der, 6 + r.length, s.length);
+        return der;
+    }
+
+    private static void copyInteger(byte[] src, int offset, int len, byte[] dst, int dstOffset) {
+        // Strip the sign byte.
+        while (len > COORDINATE_LENGTH && src[offset] == 0) {
+            offset++;
+            len--;
+        }
+        System.arraycopy(src, offset, dst, dstOffset + COORDINATE_LENGTH - len, len);
+    }
+
+    /**
+     * The grant claims of signed grantTicket, which is visible in the front
+     * channel, so it must not carry the IAM server sessionId.
+     */
+    @Getter
+    @Setter
+    @ToString
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class GrantClaims implements Serializable {
+        private static final long serialVersionUID = -3392719650126213436L;
+
+        /**
+         * Issuer, i.e. the IAM server service name.
+         */
+        private String iss;
+
+        /**
+         * Audience, i.e. the granted application name.
+         */
+        private String aud;
+
+        /**
+         * Subject, i.e. the principal.
+         */
+        private String sub;
+
+        /**
+         * The plain grantTicket.
+         */
+        private String jti;
+
+        /**
+         * Issued time.
+         */
+        private long iat;
+
+        /**
+         * Expiration time of this ticket (for login only).
+         */
+        private long exp;
+
+        /**
+         * The valid until time of the IAM server session.
+         */
+        private long vut;
+
+        /**
+         * The principal info digest, see: {@link #digestPrincipal(IamPrincipal)}
+         */
+        private String pver;
+
+        /**
+         * The session language.
+         */
+        private String lang;
+
+        /**
+         * The authenticating client host.
+         */
+        private String host;
+
+        /**
+         * Whether remember me.
+         */
+        private boolean rme;
+    }
+
+    public static final String ALG = "ES256";
+    public static final String TYP = "GT";
+    public static final String KTY = "EC";
+    public static final String CRV = "P-256";
+    private static final String CURVE_SPEC = "secp256r1";
+    private static final String SIGNATURE_ALG = "SHA256withECDSA";
+    private static final int COORDINATE_LENGTH = 32;
+
+}
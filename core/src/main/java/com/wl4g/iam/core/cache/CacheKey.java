@@ -131,6 +131,20 @@ public class CacheKey implements Serializable {
         return key.toString();
     }
 
+    /**
+     * Gets the key with the redis cluster hash tag, the keys of the same tag
+     * are always stored in the same slot, e.g. {tag}key
+     * 
+     * @param tag
+     * @param key
+     * @return
+     */
+    public static String withHashTag(String tag, String key) {
+        hasTextOf(tag, "hashTag");
+        notNull(key, "'key' must not be null");
+        return "{" + tag + "}" + key;
+    }
+
     /**
      * To key bytes.
      * 
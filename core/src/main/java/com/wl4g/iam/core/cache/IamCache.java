@@ -17,6 +17,7 @@ package com.wl4g.iam.core.cache;
 
 import static com.google.common.base.Charsets.UTF_8;
 
+import java.util.List;
 import java.util.Map;
 
 import org.apache.shiro.cache.Cache;
@@ -103,6 +104,27 @@ public interface IamCache extends Cache<CacheKey, Object> {
      */
     boolean putIfAbsent(CacheKey key, Object value);
 
+    /**
+     * Batch gets the values of keys with one round trip (e.g. MGET)
+     *
+     * @param keys
+     *            Keys that contains the value class
+     * @return The values in the order of keys, element is null if the key does
+     *         not exist.
+     * @throws CacheException
+     */
+    List<Object> getAll(List<CacheKey> keys) throws CacheException;
+
+    /**
+     * Batch sets the expiration of the existing keys with one round trip (e.g.
+     * PEXPIRE by script), the keys that does not exist are ignored.
+     *
+     * @param keys
+     *            Keys that contains the expiration
+     * @throws CacheException
+     */
+    void expireAll(List<CacheKey> keys) throws CacheException;
+
     // --- Enhanced API. ---
 
     /**
@@ -18,17 +18,24 @@ package com.wl4g.iam.core.cache;
 import static com.google.common.base.Charsets.UTF_8;
 import static com.wl4g.infra.common.collection.CollectionUtils2.safeMap;
 import static com.wl4g.infra.common.lang.Assert2.hasTextOf;
+import static com.wl4g.infra.common.lang.Assert2.isTrue;
 import static com.wl4g.infra.common.lang.Assert2.notNull;
 import static com.wl4g.infra.common.lang.Assert2.notNullOf;
 import static com.wl4g.infra.common.log.SmartLoggerFactory.getLogger;
 import static com.wl4g.infra.common.jedis.util.RedisSpecUtil.isSuccess;
 import static com.wl4g.iam.core.cache.CacheKey.toKeyBytes;
+import static java.lang.String.valueOf;
+import static java.util.Collections.singletonList;
 import static java.util.Collections.singletonMap;
 import static java.util.Objects.isNull;
 import static java.util.stream.Collectors.toMap;
+import static org.apache.commons.lang3.StringUtils.containsIgnoreCase;
 import static org.springframework.util.CollectionUtils.isEmpty;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -39,7 +46,9 @@ import com.wl4g.infra.common.log.SmartLogger;
 import com.wl4g.infra.common.jedis.JedisClient;
 import com.wl4g.iam.core.cache.CacheKey.Serializer;
 
+import redis.clients.jedis.exceptions.JedisException;
 import redis.clients.jedis.params.SetParams;
+import redis.clients.jedis.util.JedisClusterCRC16;
 
 /**
  * REDIS enhanced implement cache
@@ -55,6 +64,11 @@ public class JedisIamCache implements IamCache {
     private final String name;
     private final JedisClient jedisClient;
 
+    /**
+     * Whether the keys cannot be retrieved by one MGET, i.e. redis cluster.
+     */
+    private volatile boolean crossSlot;
+
     public JedisIamCache(String name, JedisClient jedisClient) {
         this.name = notNullOf(name, "cacheName");
         this.jedisClient = notNullOf(jedisClient, "jedisClient");
@@ -219,6 +233,140 @@ public class JedisIamCache implements IamCache {
         return isSuccess(res);
     }
 
+    @Override
+    public List<Object> getAll(List<CacheKey> keys) throws CacheException {
+        notNullOf(keys, "keys");
+        if (keys.isEmpty()) {
+            return new ArrayList<>(0);
+        }
+        log.debug("GetAll keys={}", keys.size());
+
+        byte[][] realKeys = new byte[keys.size()][];
+        for (int i = 0; i < realKeys.length; i++) {
+            notNullOf(keys.get(i).getValueClass(), "valueClass");
+            realKeys[i] = keys.get(i).getKey(name);
+        }
+        List<byte[]> datas = null;
+        if (!crossSlot) {
+            try {
+                datas = jedisClient.mget(realKeys);
+            } catch (JedisException e) {
+                if (!isCrossSlotError(e)) {
+                    throw e;
+                }
+                // Redis cluster, the keys in different slots cannot be
+                // retrieved by one MGET.
+                log.info("Cross slot keys of cache: {}, fallback to MGET by slot. - {}", name, e.getMessage());
+                crossSlot = true;
+            }
+        }
+        if (crossSlot) {
+            datas = mgetBySlot(realKeys);
+        }
+
+        List<Object> values = new ArrayList<>(keys.size());
+        for (int i = 0; i < realKeys.length; i++) {
+            byte[] data = isNull(datas) ? null : datas.get(i);
+            CacheKey key = keys.get(i);
+            values.add(isNull(data) ? null : key.getSerializer().deserialize(data, key.getValueClass()));
+        }
+        return values;
+    }
+
+    @Override
+    public void expireAll(List<CacheKey> keys) throws CacheException {
+        notNullOf(keys, "keys");
+        if (keys.isEmpty()) {
+            return;
+        }
+        log.debug("ExpireAll keys={}", keys.size());
+
+        byte[][] realKeys = new byte[keys.size()][];
+        List<Integer> indexes = new ArrayList<>(keys.size());
+        for (int i = 0; i < realKeys.length; i++) {
+            isTrue(keys.get(i).hasExpire(), "The expire of key: %s is required", keys.get(i));
+            realKeys[i] = keys.get(i).getKey(name);
+            indexes.add(i);
+        }
+        if (!crossSlot) {
+            try {
+                pexpireAll(realKeys, keys, indexes);
+                return;
+            } catch (JedisException e) {
+                if (!isCrossSlotError(e)) {
+                    throw e;
+                }
+                log.info("Cross slot keys of cache: {}, fallback to PEXPIRE by slot. - {}", name, e.getMessage());
+                crossSlot = true;
+            }
+        }
+        for (List<Integer> slotIndexes : groupBySlot(realKeys).values()) {
+            pexpireAll(realKeys, keys, slotIndexes);
+        }
+    }
+
+    private void pexpireAll(byte[][] realKeys, List<CacheKey> keys, List<Integer> indexes) {
+        List<String> scriptKeys = new ArrayList<>(indexes.size());
+        List<String> scriptArgs = new ArrayList<>(indexes.size());
+        for (Integer index : indexes) {
+            scriptKeys.add(new String(realKeys[index], UTF_8));
+            scriptArgs.add(valueOf(keys.get(index).getExpireMs()));
+        }
+        jedisClient.eval(PEXPIRE_ALL_SCRIPT, scriptKeys, scriptArgs);
+    }
+
+    /**
+     * MGET the keys of the same slot together, which are always stored in the
+     * same node of the redis cluster.
+     *
+     * @param realKeys
+     * @return
+     */
+    private List<byte[]> mgetBySlot(byte[][] realKeys) {
+        List<byte[]> datas = new ArrayList<>(realKeys.length);
+        for (int i = 0; i < realKeys.length; i++) {
+            datas.add(null);
+        }
+        for (List<Integer> indexes : groupBySlot(realKeys).values()) {
+            byte[][] slotKeys = new byte[indexes.size()][];
+            for (int i = 0; i < slotKeys.length; i++) {
+                slotKeys[i] = realKeys[indexes.get(i)];
+            }
+            List<byte[]> slotDatas = slotKeys.length == 1 ? singletonList(jedisClient.get(slotKeys[0]))
+                    : jedisClient.mget(slotKeys);
+            for (int i = 0; !isNull(slotDatas) && i < slotDatas.size(); i++) {
+                datas.set(indexes.get(i), slotDatas.get(i));
+            }
+        }
+        return datas;
+    }
+
+    /**
+     * Group the indexes of keys by the redis cluster slot.
+     *
+     * @param realKeys
+     * @return
+     */
+    static Map<Integer, List<Integer>> groupBySlot(byte[][] realKeys) {
+        Map<Integer, List<Integer>> slots = new LinkedHashMap<>(realKeys.length);
+        for (int i = 0; i < realKeys.length; i++) {
+            slots.computeIfAbsent(JedisClusterCRC16.getSlot(realKeys[i]), slot -> new ArrayList<>(2)).add(i);
+        }
+        return slots;
+    }
+
+    static boolean isCrossSlotError(JedisException e) {
+        String message = valueOf(e.getMessage());
+        return containsIgnoreCase(message, "CROSSSLOT") || containsIgnoreCase(message, "different slots");
+    }
+
+    /**
+     * PEXPIRE does not create the key, so the keys removed concurrently (e.g.
+     * logout) are not restored.
+     */
+    private static final String PEXPIRE_ALL_SCRIPT = "for i = 1, #KEYS do redis.call('PEXPIRE', KEYS[i], ARGV[i]); end;"
+            + "return #KEYS;";
+
     // --- Enhanced API. ---
 
     @Override
@@ -494,7 +494,7 @@ public abstract class AbstractIamConfiguration extends PrefixHandlerMappingSuppo
     }
 
     private static final String BEAN_IAM_OKHTTP3_POOL = "iamOkhttp3ConnectionPool";
-    private static final String BEAN_IAM_OKHTTP3_CLIENT = "iamOkhttp3Client";
+    public static final String BEAN_IAM_OKHTTP3_CLIENT = "iamOkhttp3Client";
     private static final String BEAN_IAM_OKHTTP3_CLIENT_FACTORY = "iamOkHttp3ClientHttpRequestFactory";
     public static final String BEAN_IAM_OKHTTP3_PROXY_SELECTOR = "iamOkhttp3ProxySelector";
     public static final String BEAN_IAM_OKHTTP3_REST_TEMPLATE = "iamOkhttp3RestTemplate";
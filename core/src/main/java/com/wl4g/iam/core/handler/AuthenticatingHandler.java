@@ -21,10 +21,12 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.shiro.subject.Subject;
 
 import com.wl4g.iam.common.model.LoginedModel;
+import com.wl4g.iam.common.model.GrantTicketKeysModel;
 import com.wl4g.iam.common.model.LogoutModel;
 import com.wl4g.iam.common.model.SecondaryAuthcValidateModel;
 import com.wl4g.iam.common.model.ServiceTicketValidateModel;
 import com.wl4g.iam.common.model.ServiceTicketValidateRequest;
+import com.wl4g.iam.common.model.SessionRevocationModel;
 import com.wl4g.iam.common.model.SessionValidateModel;
 import com.wl4g.iam.common.subject.IamPrincipal;
 import com.wl4g.iam.core.exception.IllegalApplicationAccessException;
@@ -135,4 +137,24 @@ public interface AuthenticatingHandler {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Sessions revocations incremental reading
+     *
+     * @param param
+     * @return
+     */
+    default SessionRevocationModel sessionRevocations(SessionRevocationModel param) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Gets signed grantTickets public keys
+     *
+     * @param param
+     * @return
+     */
+    default GrantTicketKeysModel grantTicketKeys(GrantTicketKeysModel param) {
+        throw new UnsupportedOperationException();
+    }
+
 }
\ No newline at end of file
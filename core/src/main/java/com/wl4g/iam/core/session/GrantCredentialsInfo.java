@@ -27,6 +27,8 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import javax.validation.constraints.NotBlank;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 /**
  * IAM authentication grant ticket information.
  * 
@@ -150,6 +152,13 @@ public class GrantCredentialsInfo implements Serializable {
         // @NotBlank
         private String dataCipher;
 
+        /**
+         * The expiration time of the signed grant ticket issued with this
+         * grant ticket, if greater than 0, only the signed grant ticket can be
+         * redeemed (the grant ticket is visible in its claims).
+         */
+        private long signedExpireTime;
+
         public GrantApp() {
             super();
         }
@@ -188,6 +197,20 @@ public class GrantCredentialsInfo implements Serializable {
             return this;
         }
 
+        public long getSignedExpireTime() {
+            return signedExpireTime;
+        }
+
+        public GrantApp setSignedExpireTime(long signedExpireTime) {
+            this.signedExpireTime = signedExpireTime;
+            return this;
+        }
+
+        @JsonIgnore
+        public boolean isSigned() {
+            return signedExpireTime > 0;
+        }
+
         @Override
         public String toString() {
             return toJSONString(this);
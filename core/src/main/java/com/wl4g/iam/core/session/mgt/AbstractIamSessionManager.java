@@ -57,6 +57,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import com.wl4g.infra.common.lang.StringUtils2;
 import com.wl4g.infra.common.log.SmartLogger;
+import com.wl4g.iam.core.authc.SignedGrantTicket;
 import com.wl4g.iam.core.cache.CacheKey;
 import com.wl4g.iam.core.cache.IamCache;
 import com.wl4g.iam.core.cache.IamCacheManager;
@@ -136,7 +137,8 @@ public abstract class AbstractIamSessionManager<C extends AbstractIamProperties<
 
 		// Using internal ticket session.
 		if (isInternalTicketRequest(request)) {
-			String grantTicket = getCleanParam(request, config.getParam().getGrantTicket());
+			String grantTicket = getGrantTicketIndexKey(getCleanParam(request, config.getParam().getApplication()),
+					getCleanParam(request, config.getParam().getGrantTicket()));
 			if (checkSessionValidity(grantTicket)) {
 				/**
 				 * {@link CentralAuthenticationHandler#loggedin()}
@@ -370,6 +372,31 @@ public abstract class AbstractIamSessionManager<C extends AbstractIamProperties<
 	 * @param sid
 	 * @return
 	 */
+	/**
+	 * Gets the index key of grantTicket => sessionId, the signed grantTicket
+	 * is indexed by its plain grantTicket (i.e. the jti of claims), and the
+	 * index keys of the same application are hash tagged to the same slot.
+	 * 
+	 * @param grantAppName
+	 * @param grantTicket
+	 * @return
+	 */
+	protected String getGrantTicketIndexKey(String grantAppName, String grantTicket) {
+		if (!checkSessionValidity(grantAppName) || !checkSessionValidity(grantTicket)) {
+			log.warn("Cannot gets grantTicket index key of application: '{}', grantTicket: '{}'", grantAppName, grantTicket);
+			return null;
+		}
+		if (!SignedGrantTicket.isSigned(grantTicket)) {
+			return CacheKey.withHashTag(grantAppName, grantTicket);
+		}
+		try {
+			return CacheKey.withHashTag(grantAppName, SignedGrantTicket.parse(grantTicket).getClaims().getJti());
+		} catch (RuntimeException e) {
+			log.warn("Invalid signed grantTicket: '{}', caused by: {}", grantTicket, e.getMessage());
+			return null;
+		}
+	}
+
 	protected boolean checkSessionValidity(Serializable sid) {
 		return !isNull(sid) && isNotBlank(sid.toString()) && !sid.toString().equalsIgnoreCase("NULL");
 	}
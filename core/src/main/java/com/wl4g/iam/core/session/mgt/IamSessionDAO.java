@@ -80,4 +80,24 @@ public interface IamSessionDAO extends SessionDAO {
 	 */
 	void removeAccessSession(Object principal);
 
+	/**
+	 * Rebuild the principal to session IDs index of all the access sessions,
+	 * which is usually used for the migration of the existing deployments.
+	 *
+	 * @param batchSize
+	 *            Scan iteration batch size.
+	 * @return The number of indexed sessions.
+	 */
+	long rebuildPrincipalIndex(final int batchSize);
+
+	/**
+	 * Rebuild the principal index in the background, see
+	 * {@link #rebuildPrincipalIndex(int)}.
+	 *
+	 * @param batchSize
+	 *            Scan iteration batch size.
+	 * @return Returns false if the rebuilding is already in progress.
+	 */
+	boolean rebuildPrincipalIndexAsync(final int batchSize);
+
 }
\ No newline at end of file
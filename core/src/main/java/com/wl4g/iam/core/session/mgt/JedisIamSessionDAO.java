@@ -18,15 +18,31 @@ package com.wl4g.iam.core.session.mgt;
 import static com.google.common.base.Charsets.UTF_8;
 import static com.wl4g.infra.common.lang.Assert2.isTrue;
 import static com.wl4g.iam.common.constant.FastCasIAMConstants.CACHE_PREFIX_IAM_SESSION;
+import static com.wl4g.iam.common.constant.FastCasIAMConstants.CACHE_PREFIX_IAM_SESSION_PRINCIPAL;
+import static com.wl4g.iam.common.constant.FastCasIAMConstants.KEY_SESSION_INDEXED_PRINCIPAL;
+import static com.wl4g.iam.common.constant.FastCasIAMConstants.KEY_SESSION_INDEX_EXPIRE_AT;
+import static java.lang.System.currentTimeMillis;
+import static java.lang.String.valueOf;
+import static java.util.Collections.singletonList;
+import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 import static org.springframework.util.CollectionUtils.isEmpty;
+import static redis.clients.jedis.ScanParams.SCAN_POINTER_START;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.shiro.session.Session;
 import org.apache.shiro.session.UnknownSessionException;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import com.wl4g.infra.common.jedis.JedisClient;
@@ -41,15 +57,26 @@ import com.wl4g.iam.core.config.AbstractIamProperties;
 import com.wl4g.iam.core.config.AbstractIamProperties.ParamProperties;
 import com.wl4g.iam.core.session.IamSession;
 
+import redis.clients.jedis.ScanParams;
+import redis.clients.jedis.ScanResult;
+
 /**
- * Redis shiro session DAO.
+ * Redis shiro session DAO. </br>
+ * </br>
+ * The session IDs of each principal are indexed by a redis set, so that the
+ * sessions lookup and removal of the principal are O(sessions of that
+ * principal) instead of scanning all the sessions. The index is updated when
+ * the principal of session is changed or the index may expire before the
+ * session, and when deleting the session, its TTL covers the longest TTL of
+ * the principal sessions, and the stale IDs (e.g. expired sessions) are lazily
+ * cleaned up when lookup.
  *
  * @author James Wong<jamewong1376@gmail.com>
  * @version v1.0
  * @date 2018年11月28日
  * @since
  */
-public class JedisIamSessionDAO extends RelationAttributesIamSessionDAO {
+public class JedisIamSessionDAO extends RelationAttributesIamSessionDAO implements DisposableBean {
 
 	/**
 	 * Distributed locks.
@@ -57,6 +84,20 @@ public class JedisIamSessionDAO extends RelationAttributesIamSessionDAO {
 	@Autowired
 	protected JedisLockManager lockManager;
 
+	/**
+	 * Whether the principal index is rebuilding in the background.
+	 */
+	private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+
+	/**
+	 * The background principal index rebuilder.
+	 */
+	private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "iam-session-index-rebuilder");
+		t.setDaemon(true);
+		return t;
+	});
+
 	public JedisIamSessionDAO(AbstractIamProperties<? extends ParamProperties> config, IamCacheManager cacheManager) {
 		super(config, cacheManager);
 	}
@@ -71,8 +112,7 @@ public class JedisIamSessionDAO extends RelationAttributesIamSessionDAO {
 		isTrue(limit > 0, "accessSessions batchSize must >0");
 		byte[] match = (cacheManager.getIamCache(CACHE_PREFIX_IAM_SESSION).getCacheName() + "*").getBytes(UTF_8);
 		ClusterScanParams params = new ClusterScanParams(limit, match);
-		JedisClient jedisClient = ((JedisIamCacheManager) cacheManager).getJedisClient();
-		return new ScanCursor<IamSession>(jedisClient, cursor, IamSession.class, new ScanCursor.Deserializer() {
+		return new ScanCursor<IamSession>(getJedisClient(), cursor, IamSession.class, new ScanCursor.Deserializer() {
 			public Object deserialize(byte[] data, Class<?> clazz) {
 				IamSession s = (IamSession) super.deserialize(data, clazz);
 				awareRelationCache(s);
@@ -82,20 +122,52 @@ public class JedisIamSessionDAO extends RelationAttributesIamSessionDAO {
 		}.open();
 	}
 
+	/**
+	 * Gets access sessions by the principal index, which is iterated with the
+	 * SSCAN of batch size limit, and the sessions of each batch are read with
+	 * one MGET. Note: The cursor of scanning the sessions keyspace is not
+	 * applicable to the index (a single set), so the index is always iterated
+	 * from the beginning.
+	 */
 	@Override
 	public Set<IamSession> getAccessSessions(final CursorSpec cursor, final int limit, final Object principal) {
+		isTrue(limit > 0, "accessSessions batchSize must >0");
 		Set<IamSession> principalSessions = new HashSet<>(4);
-		ScanCursor<IamSession> sc = getAccessSessions(cursor, limit);
-		while (sc.hasNext()) {
-			IamSession s = sc.next();
-			if (nonNull(s)) {
-				awareRelationCache(s);
-				Object primaryPrincipal = s.getPrimaryPrincipal();
-				if (nonNull(primaryPrincipal) && primaryPrincipal.equals(principal)) {
-					principalSessions.add(s);
+		if (isNull(principal)) {
+			return principalSessions;
+		}
+		String indexKey = getPrincipalIndexKey(principal);
+		ScanParams params = new ScanParams().count(limit);
+		String indexCursor = SCAN_POINTER_START;
+		do {
+			ScanResult<String> result = getJedisClient().sscan(indexKey, indexCursor, params);
+			indexCursor = result.getCursor();
+			List<String> sessionIds = result.getResult();
+			if (isEmpty(sessionIds)) {
+				continue;
+			}
+			List<CacheKey> keys = new ArrayList<>(sessionIds.size());
+			sessionIds.forEach(sessionId -> keys.add(new CacheKey(sessionId, IamSession.class)));
+			List<Object> sessions = cacheManager.getIamCache(CACHE_PREFIX_IAM_SESSION).getAll(keys);
+
+			List<String> staleSessionIds = new ArrayList<>(2);
+			for (int i = 0; i < sessionIds.size(); i++) {
+				IamSession s = (IamSession) sessions.get(i);
+				// The session has expired or has been re-logged by other
+				// principal.
+				if (isNull(s) || !principal.equals(s.getPrimaryPrincipal())) {
+					staleSessionIds.add(sessionIds.get(i));
+					continue;
 				}
+				awareRelationCache(s);
+				principalSessions.add(s);
 			}
-		}
+			// Lazy cleanup stale session IDs.
+			if (!staleSessionIds.isEmpty()) {
+				log.debug("Cleanup stale session ids: {} of principal index: {}", staleSessionIds, indexKey);
+				getJedisClient().srem(indexKey, staleSessionIds.toArray(new String[0]));
+			}
+		} while (!SCAN_POINTER_START.equals(indexCursor));
 		return principalSessions;
 	}
 
@@ -112,6 +184,57 @@ public class JedisIamSessionDAO extends RelationAttributesIamSessionDAO {
 		}
 	}
 
+	@Override
+	public long rebuildPrincipalIndex(final int batchSize) {
+		log.info("Rebuilding sessions principal index ...");
+
+		long indexed = 0;
+		ScanCursor<IamSession> sc = getAccessSessions(batchSize);
+		// Stop when the DAO is destroying.
+		while (sc.hasNext() && !Thread.currentThread().isInterrupted()) {
+			IamSession s = sc.next();
+			if (nonNull(s) && nonNull(s.getPrimaryPrincipal())) {
+				long indexTimeout = getIndexTimeout(s.getTimeout());
+				putPrincipalIndex(s.getPrimaryPrincipal(), s.getId(), indexTimeout);
+				if (isNull(getIndexedPrincipal(s))) {
+					backfillIndexedPrincipal(s, indexTimeout);
+				}
+				++indexed;
+			}
+		}
+		log.info("Rebuilt sessions principal index of {} sessions.", indexed);
+		return indexed;
+	}
+
+	@Override
+	public boolean rebuildPrincipalIndexAsync(final int batchSize) {
+		if (!rebuilding.compareAndSet(false, true)) {
+			log.info("Skip rebuilding sessions principal index, it's already in progress.");
+			return false;
+		}
+		try {
+			rebuilder.execute(() -> {
+				try {
+					rebuildPrincipalIndex(batchSize);
+				} catch (Exception e) {
+					log.error("Failed to rebuild sessions principal index.", e);
+				} finally {
+					rebuilding.set(false);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// Destroyed.
+			rebuilding.set(false);
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public void destroy() throws Exception {
+		rebuilder.shutdownNow();
+	}
+
 	@Override
 	protected Serializable doCreate(Session session) {
 		log.debug("doCreate {}", session.getId());
@@ -138,13 +261,29 @@ public class JedisIamSessionDAO extends RelationAttributesIamSessionDAO {
 
 	@Override
 	protected void doPutIamSession(Session session) {
+		// Update principal index, before the session is stored, so that the
+		// indexed principal is stored together.
+		updatePrincipalIndex((IamSession) session);
+
 		// Update session latest expiration time to timeout.
 		cacheManager.getIamCache(CACHE_PREFIX_IAM_SESSION).put(new CacheKey(session.getId(), session.getTimeout()), session);
 	}
 
 	@Override
 	protected void doDeleteIamSession(Session session) {
+		// Note: The principal has been removed from the session by logout
+		// before deleting, so the indexed principal is used.
+		String indexedPrincipal = getIndexedPrincipal(session);
+		if (isNull(indexedPrincipal)) {
+			// e.g. deleted by ID only.
+			indexedPrincipal = getIndexedPrincipal(doReadIamSession(session.getId()));
+		}
 		cacheManager.getIamCache(CACHE_PREFIX_IAM_SESSION).remove(new CacheKey(session.getId()));
+
+		// Remove from principal index.
+		if (nonNull(indexedPrincipal)) {
+			getJedisClient().srem(getPrincipalIndexKey(indexedPrincipal), valueOf(session.getId()));
+		}
 	}
 
 	@Override
@@ -152,4 +291,108 @@ public class JedisIamSessionDAO extends RelationAttributesIamSessionDAO {
 		return (Session) cacheManager.getIamCache(CACHE_PREFIX_IAM_SESSION).get(new CacheKey(sessionId, IamSession.class));
 	}
 
+	/**
+	 * Update the principal index only when the principal is changed or the
+	 * index may expire before the session, the indexed principal and index
+	 * expiration time are recorded to the session attributes. Note: The index
+	 * TTL is extended to twice the session timeout, so that the session
+	 * touched within the timeout does not update the index every time.
+	 *
+	 * @param session
+	 */
+	private void updatePrincipalIndex(IamSession session) {
+		Object principal = session.getPrimaryPrincipal();
+		// e.g. The principal has been removed by logout, keep the indexed
+		// principal for deleting.
+		if (isNull(principal)) {
+			return;
+		}
+		String currentPrincipal = valueOf(principal);
+		String indexedPrincipal = getIndexedPrincipal(session);
+		Long indexExpireAt = (Long) session.getAttribute(KEY_SESSION_INDEX_EXPIRE_AT);
+		long now = currentTimeMillis();
+		long timeout = session.getTimeout();
+
+		boolean changed = !currentPrincipal.equals(indexedPrincipal);
+		if (!changed && nonNull(indexExpireAt)
+				&& (timeout < 0 ? indexExpireAt < 0 : (indexExpireAt >= 0 && now + timeout <= indexExpireAt))) {
+			return;
+		}
+		// Re-logged by other principal.
+		if (changed && nonNull(indexedPrincipal)) {
+			getJedisClient().srem(getPrincipalIndexKey(indexedPrincipal), valueOf(session.getId()));
+		}
+		long indexTimeout = getIndexTimeout(timeout);
+		putPrincipalIndex(currentPrincipal, session.getId(), indexTimeout);
+		session.setAttribute(KEY_SESSION_INDEXED_PRINCIPAL, currentPrincipal);
+		session.setAttribute(KEY_SESSION_INDEX_EXPIRE_AT, timeout < 0 ? -1L : now + indexTimeout);
+	}
+
+	/**
+	 * Records the indexed principal to the session created before the
+	 * principal index was introduced, so that it's removed from the index when
+	 * deleted after logout (the principal has been removed). The session is
+	 * stored with its remaining TTL, so the rebuilding doesn't extend the idle
+	 * sessions.
+	 *
+	 * @param session
+	 * @param indexTimeoutMs
+	 */
+	private void backfillIndexedPrincipal(IamSession session, long indexTimeoutMs) {
+		long now = currentTimeMillis();
+		long timeout = session.getTimeout();
+		long remainingMs = timeout;
+		if (timeout >= 0) {
+			remainingMs = timeout - (now - session.getLastAccessTime().getTime());
+			if (remainingMs <= 0) { // Expiring
+				return;
+			}
+		}
+		session.setAttribute(KEY_SESSION_INDEXED_PRINCIPAL, valueOf(session.getPrimaryPrincipal()));
+		session.setAttribute(KEY_SESSION_INDEX_EXPIRE_AT, timeout < 0 ? -1L : now + indexTimeoutMs);
+		cacheManager.getIamCache(CACHE_PREFIX_IAM_SESSION).put(new CacheKey(session.getId(), remainingMs), session);
+	}
+
+	/**
+	 * Atomically add the session ID to the principal index, and extend the
+	 * index TTL if it's shorter than the timeout.
+	 *
+	 * @param principal
+	 * @param sessionId
+	 * @param indexTimeoutMs
+	 */
+	private void putPrincipalIndex(Object principal, Serializable sessionId, long indexTimeoutMs) {
+		getJedisClient().eval(PUT_PRINCIPAL_INDEX_SCRIPT, singletonList(getPrincipalIndexKey(principal)),
+				Arrays.asList(valueOf(sessionId), valueOf(indexTimeoutMs)));
+	}
+
+	private long getIndexTimeout(long sessionTimeout) {
+		return sessionTimeout < 0 ? sessionTimeout : sessionTimeout * 2;
+	}
+
+	private String getIndexedPrincipal(Session session) {
+		return isNull(session) ? null : (String) ((IamSession) session).getAttribute(KEY_SESSION_INDEXED_PRINCIPAL);
+	}
+
+	private String getPrincipalIndexKey(Object principal) {
+		return cacheManager.getIamCache(CACHE_PREFIX_IAM_SESSION_PRINCIPAL).getCacheName() + valueOf(principal);
+	}
+
+	private JedisClient getJedisClient() {
+		return ((JedisIamCacheManager) cacheManager).getJedisClient();
+	}
+
+	/**
+	 * KEYS[1]: principal index key, ARGV[1]: session ID, ARGV[2]: session
+	 * timeout milliseconds (negative means never expire).
+	 */
+	private static final String PUT_PRINCIPAL_INDEX_SCRIPT = "local existed = redis.call('EXISTS', KEYS[1]);"
+			+ "redis.call('SADD', KEYS[1], ARGV[1]);"
+			+ "local timeoutMs = tonumber(ARGV[2]);"
+			+ "if timeoutMs < 0 then return redis.call('PERSIST', KEYS[1]); end;"
+			+ "local ttl = redis.call('PTTL', KEYS[1]);"
+			+ "if (ttl == -1 and existed == 0) or (ttl >= 0 and ttl < timeoutMs) then"
+			+ " return redis.call('PEXPIRE', KEYS[1], timeoutMs); end;"
+			+ "return 0;";
+
 }
\ No newline at end of file
@@ -20,10 +20,12 @@ import javax.servlet.http.HttpServletResponse;
 import javax.validation.constraints.NotNull;
 
 import com.wl4g.infra.common.web.rest.RespBase;
+import com.wl4g.iam.common.model.GrantTicketKeysModel;
 import com.wl4g.iam.common.model.LogoutModel;
 import com.wl4g.iam.common.model.SecondaryAuthcValidateModel;
 import com.wl4g.iam.common.model.ServiceTicketValidateModel;
 import com.wl4g.iam.common.model.ServiceTicketValidateRequest;
+import com.wl4g.iam.common.model.SessionRevocationModel;
 import com.wl4g.iam.common.model.SessionValidateModel;
 import com.wl4g.iam.common.subject.IamPrincipal;
 
@@ -80,4 +82,24 @@ public interface AuthenticatingController {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Sessions revocations incremental reading
+     *
+     * @param param
+     * @return
+     */
+    default RespBase<SessionRevocationModel> sessionRevocations(@NotNull SessionRevocationModel param) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Gets signed grantTickets public keys
+     *
+     * @param param
+     * @return
+     */
+    default RespBase<GrantTicketKeysModel> grantTicketKeys(@NotNull GrantTicketKeysModel param) {
+        throw new UnsupportedOperationException();
+    }
+
 }
\ No newline at end of file
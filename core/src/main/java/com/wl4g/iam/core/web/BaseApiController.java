@@ -19,7 +19,9 @@ import static com.wl4g.infra.common.lang.DateUtils2.formatDate;
 import static com.wl4g.infra.common.jedis.cursor.ScanCursor.CursorSpec.parse;
 import static com.wl4g.iam.common.constant.FastCasIAMConstants.BEAN_SESSION_RESOURCE_MSG_BUNDLER;
 import static com.wl4g.iam.common.constant.FastCasIAMConstants.CACHE_PREFIX_IAM_SESSION_REFATTRS;
+import static com.wl4g.iam.common.constant.FastCasIAMConstants.DEFAULT_SESSION_SCAN_BATCHS;
 import static com.wl4g.iam.common.constant.FastCasIAMConstants.URI_IAM_SERVER_API_V2_SESSION;
+import static com.wl4g.iam.common.constant.FastCasIAMConstants.URI_IAM_SERVER_API_V2_SESSION_INDEX;
 import static java.util.Objects.nonNull;
 import static java.util.stream.Collectors.toList;
 import static org.apache.commons.lang3.StringUtils.isBlank;
@@ -203,6 +205,27 @@ public abstract class BaseApiController extends BaseController implements Initia
         return resp;
     }
 
+    /**
+     * Rebuild the sessions principal index, which is usually used to backfill
+     * the index of the existing sessions after upgrading. The rebuilding is
+     * executed in the background, and the response data is whether it's
+     * started (false if it's already in progress).
+     *
+     * @param request
+     * @return
+     * @throws Exception
+     */
+    @PostMapping(path = URI_IAM_SERVER_API_V2_SESSION_INDEX)
+    public RespBase<?> rebuildSessionsIndex(HttpServletRequest request) throws Exception {
+        log.info("called:rebuildSessionsIndex '{}' from '{}'", URI_IAM_SERVER_API_V2_SESSION_INDEX, request.getRemoteHost());
+
+        RespBase<Boolean> resp = RespBase.create();
+        // The full scanning is executed in the background.
+        resp.setData(sessionDAO.rebuildPrincipalIndexAsync(DEFAULT_SESSION_SCAN_BATCHS));
+        log.info("resp:rebuildSessionsIndex {}", resp);
+        return resp;
+    }
+
     /**
      * Convert wrap {@link IamSession} to {@link SessionAttributeModel}. </br>
      * </br>
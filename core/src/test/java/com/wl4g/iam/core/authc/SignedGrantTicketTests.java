@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.core.authc;
+
+import static java.lang.System.currentTimeMillis;
+
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.util.Arrays;
+
+import com.wl4g.iam.core.authc.SignedGrantTicket.GrantClaims;
+
+public class SignedGrantTicketTests {
+
+    public static void main(String[] args) {
+        signAndVerifyTest();
+        tamperedVerifyTest();
+        shortSignatureTranscodeTest();
+        checkClaimsTest();
+        keyRotationWindowTest();
+    }
+
+    public static void signAndVerifyTest() {
+        KeyPair pair = SignedGrantTicket.generateKeyPair();
+        String ticket = SignedGrantTicket.sign(newClaims(), "1", pair.getPrivate());
+        System.out.println("isSigned=" + SignedGrantTicket.isSigned(ticket)); // true
+
+        // Verify with the public key of JWK format.
+        PublicKey publicKey = SignedGrantTicket
+                .toPublicKey(SignedGrantTicket.toGrantTicketKey("1", (ECPublicKey) pair.getPublic()));
+        SignedGrantTicket signed = SignedGrantTicket.parse(ticket);
+        System.out.println("kid=" + signed.getKid() + ", claims=" + signed.getClaims());
+        System.out.println("verified=" + signed.verify(publicKey)); // true
+    }
+
+    public static void tamperedVerifyTest() {
+        KeyPair pair = SignedGrantTicket.generateKeyPair();
+        String ticket = SignedGrantTicket.sign(newClaims(), "1", pair.getPrivate());
+
+        GrantClaims claims = newClaims();
+        claims.setSub("root");
+        String[] parts = ticket.split("\\.");
+        String forged = SignedGrantTicket.sign(claims, "1", SignedGrantTicket.generateKeyPair().getPrivate()).split("\\.")[1];
+        SignedGrantTicket tampered = SignedGrantTicket.parse(parts[0] + "." + forged + "." + parts[2]);
+        System.out.println("verified=" + tampered.verify(pair.getPublic())); // false
+    }
+
+    public static void shortSignatureTranscodeTest() {
+        // Short R (leading zero bytes) and S (high bit set, DER prepends the
+        // sign byte).
+        byte[] raw = new byte[64];
+        raw[31] = 0x01;
+        Arrays.fill(raw, 32, 64, (byte) 0xff);
+        byte[] der = SignedGrantTicket.rawToDer(raw);
+        System.out.println("rLen=" + der[3] + ", sLen=" + der[5 + der[3]]); // rLen=1, sLen=33
+        System.out.println("transcoded=" + Arrays.equals(raw, SignedGrantTicket.derToRaw(der))); // true
+
+        // About 1/128 of the real signatures has short R or S.
+        KeyPair pair = SignedGrantTicket.generateKeyPair();
+        int shorts = 0, failures = 0;
+        for (int i = 0; i < 2000; i++) {
+            SignedGrantTicket signed = SignedGrantTicket
+                    .parse(SignedGrantTicket.sign(newClaims(), "1", pair.getPrivate()));
+            byte[] signature = signed.getSignature();
+            if (signature[0] == 0 || signature[32] == 0) {
+                ++shorts;
+            }
+            if (!signed.verify(pair.getPublic())
+                    || !Arrays.equals(signature, SignedGrantTicket.derToRaw(SignedGrantTicket.rawToDer(signature)))) {
+                ++failures;
+            }
+        }
+        System.out.println("shorts=" + shorts + ", failures=" + failures); // failures=0
+    }
+
+    public static void checkClaimsTest() {
+        SignedGrantTicket signed = SignedGrantTicket
+                .parse(SignedGrantTicket.sign(newClaims(), "1", SignedGrantTicket.generateKeyPair().getPrivate()));
+        long exp = signed.getClaims().getExp();
+        System.out.println("checked=" + signed.checkClaims("portal", exp, 0L)); // claims
+
+        // Other audience.
+        System.out.println("rejected=" + isRejected(() -> signed.checkClaims("other", exp, 0L))); // true
+        // Expired.
+        System.out.println("rejected=" + isRejected(() -> signed.checkClaims("portal", exp + 1L, 0L))); // true
+        // Expired but in the clock skew.
+        System.out.println("rejected=" + isRejected(() -> signed.checkClaims("portal", exp + 1L, 5000L))); // false
+        // Issuer.
+        System.out.println("rejected=" + isRejected(() -> signed.checkClaims("iam-web", "portal", exp, 0L))); // false
+        System.out.println("rejected=" + isRejected(() -> signed.checkClaims("other", "portal", exp, 0L))); // true
+    }
+
+    public static void keyRotationWindowTest() {
+        long rotationMs = 60_000L;
+        long now = 10 * rotationMs + 5L;
+        System.out.println("kid=" + SignedGrantTicket.getKid(now, rotationMs)); // 10
+        System.out.println("current=" + SignedGrantTicket.isActiveKid("10", now, rotationMs)); // true
+        System.out.println("previous=" + SignedGrantTicket.isActiveKid("9", now, rotationMs)); // true
+        System.out.println("expired=" + SignedGrantTicket.isActiveKid("8", now, rotationMs)); // false
+        System.out.println("invalid=" + SignedGrantTicket.isActiveKid("abc", now, rotationMs)); // false
+        // The previous key is expired after the next rotation.
+        System.out.println("previous=" + SignedGrantTicket.isActiveKid("9", now + rotationMs, rotationMs)); // false
+    }
+
+    private static boolean isRejected(Runnable check) {
+        try {
+            check.run();
+            return false;
+        } catch (IllegalArgumentException e) {
+            return true;
+        }
+    }
+
+    private static GrantClaims newClaims() {
+        long now = currentTimeMillis();
+        GrantClaims claims = new GrantClaims();
+        claims.setIss("iam-web");
+        claims.setAud("portal");
+        claims.setSub("user1");
+        claims.setJti("st" + now);
+        claims.setIat(now);
+        claims.setExp(now + 60_000L);
+        claims.setVut(now + 1800_000L);
+        claims.setPver("digest1");
+        return claims;
+    }
+
+}
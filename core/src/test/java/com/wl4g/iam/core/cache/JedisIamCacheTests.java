@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.core.cache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.List;
+import java.util.Map;
+
+import redis.clients.jedis.exceptions.JedisClusterOperationException;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+public class JedisIamCacheTests {
+
+    public static void main(String[] args) {
+        groupBySlotTest();
+        crossSlotErrorTest();
+    }
+
+    public static void groupBySlotTest() {
+        byte[][] keys = new byte[][] { "iam:ticket:client:st1".getBytes(UTF_8), "iam:ticket:client:st2".getBytes(UTF_8),
+                "{iam:session}:sid1".getBytes(UTF_8), "{iam:session}:sid2".getBytes(UTF_8),
+                "iam:ticket:client:st1".getBytes(UTF_8) };
+        Map<Integer, List<Integer>> slots = JedisIamCache.groupBySlot(keys);
+        System.out.println(slots);
+        // The keys with the same hash tag are grouped to the same slot.
+        System.out.println("hashTag=" + slots.values().stream().anyMatch(idx -> idx.contains(2) && idx.contains(3))); // true
+        // The same keys are grouped, and the order of keys is preserved.
+        System.out.println("sameKey=" + slots.values().stream().anyMatch(idx -> idx.get(0) == 0 && idx.contains(4))); // true
+        System.out.println("total=" + slots.values().stream().mapToInt(List::size).sum()); // 5
+
+        // The grantTicket indexes of the same application are in one slot.
+        byte[][] ticketKeys = new byte[][] { ("iam:ticket:c:" + CacheKey.withHashTag("app1", "st1")).getBytes(UTF_8),
+                ("iam:ticket:c:" + CacheKey.withHashTag("app1", "st2")).getBytes(UTF_8),
+                ("iam:ticket:c:" + CacheKey.withHashTag("app1", "st3")).getBytes(UTF_8) };
+        System.out.println("ticketSlots=" + JedisIamCache.groupBySlot(ticketKeys).size()); // 1
+    }
+
+    public static void crossSlotErrorTest() {
+        System.out.println(JedisIamCache.isCrossSlotError(
+                new JedisDataException("CROSSSLOT Keys in request don't hash to the same slot"))); // true
+        System.out.println(JedisIamCache.isCrossSlotError(new JedisClusterOperationException(
+                "No way to dispatch this command to Redis Cluster because keys have different slots."))); // true
+        System.out.println(JedisIamCache.isCrossSlotError(new JedisDataException("WRONGTYPE"))); // false
+    }
+
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.core.session.mgt;
+
+import static com.wl4g.iam.common.constant.FastCasIAMConstants.CACHE_PREFIX_IAM_SESSION_PRINCIPAL;
+import static com.wl4g.iam.common.constant.FastCasIAMConstants.KEY_SESSION_INDEX_EXPIRE_AT;
+import static java.lang.System.currentTimeMillis;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.shiro.subject.support.DefaultSubjectContext.PRINCIPALS_SESSION_KEY;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.shiro.subject.SimplePrincipalCollection;
+
+import com.wl4g.iam.core.cache.JedisIamCacheManager;
+import com.wl4g.iam.core.config.AbstractIamProperties;
+import com.wl4g.iam.core.config.AbstractIamProperties.ParamProperties;
+import com.wl4g.iam.core.session.IamSession;
+import com.wl4g.infra.common.jedis.JedisClient;
+import com.wl4g.infra.common.jedis.cursor.ScanCursor.CursorSpec;
+
+import redis.clients.jedis.ScanResult;
+
+public class JedisIamSessionDAOTests {
+
+    public static void main(String[] args) {
+        deleteAfterLogoutTest();
+        evalOnlyWhenChangedTest();
+        reloggedByOtherPrincipalTest();
+        deleteByIdOnlyTest();
+        getAccessSessionsByBatchTest();
+    }
+
+    public static void deleteAfterLogoutTest() {
+        InMemoryJedis jedis = new InMemoryJedis();
+        JedisIamSessionDAO dao = newSessionDAO(jedis);
+        IamSession s = newSession(dao, "user1");
+        System.out.println("indexed=" + jedis.getSet(indexKey("user1")).contains(s.getId())); // true
+
+        // Shiro removes the principal from the session by logout before
+        // deleting it.
+        s.removeAttribute(PRINCIPALS_SESSION_KEY);
+        dao.update(s);
+        dao.delete(s);
+        System.out.println("removed=" + jedis.getSet(indexKey("user1")).isEmpty()); // true
+    }
+
+    public static void evalOnlyWhenChangedTest() {
+        InMemoryJedis jedis = new InMemoryJedis();
+        JedisIamSessionDAO dao = newSessionDAO(jedis);
+        IamSession s = newSession(dao, "user1");
+        dao.update(s);
+        dao.update(s);
+        System.out.println("evals=" + jedis.evals.get()); // 1
+
+        // The index may expire before the session.
+        s.setAttribute(KEY_SESSION_INDEX_EXPIRE_AT, currentTimeMillis() + s.getTimeout() / 2);
+        dao.update(s);
+        System.out.println("evals=" + jedis.evals.get()); // 2
+        dao.update(s);
+        System.out.println("evals=" + jedis.evals.get()); // 2
+
+        // The session timeout is changed.
+        s.setTimeout(s.getTimeout() * 3);
+        dao.update(s);
+        System.out.println("evals=" + jedis.evals.get()); // 3
+    }
+
+    public static void reloggedByOtherPrincipalTest() {
+        InMemoryJedis jedis = new InMemoryJedis();
+        JedisIamSessionDAO dao = newSessionDAO(jedis);
+        IamSession s = newSession(dao, "user1");
+        s.setAttribute(PRINCIPALS_SESSION_KEY, new SimplePrincipalCollection("user2", "test-realm"));
+        dao.update(s);
+        System.out.println("user1=" + jedis.getSet(indexKey("user1"))); // []
+        System.out.println("user2=" + jedis.getSet(indexKey("user2")).contains(s.getId())); // true
+    }
+
+    public static void deleteByIdOnlyTest() {
+        InMemoryJedis jedis = new InMemoryJedis();
+        JedisIamSessionDAO dao = newSessionDAO(jedis);
+        IamSession s = newSession(dao, "user1");
+        dao.delete(new IamSession(s.getId()));
+        System.out.println("removed=" + jedis.getSet(indexKey("user1")).isEmpty()); // true
+    }
+
+    public static void getAccessSessionsByBatchTest() {
+        InMemoryJedis jedis = new InMemoryJedis();
+        JedisIamSessionDAO dao = newSessionDAO(jedis);
+        for (int i = 0; i < 5; i++) {
+            newSession(dao, "user1");
+        }
+        newSession(dao, "user2");
+        // e.g. The session has expired.
+        jedis.getSet(indexKey("user1")).add("expired-session-id");
+
+        Set<IamSession> sessions = dao.getAccessSessions(new CursorSpec(), 2, "user1");
+        System.out.println("sessions=" + sessions.size()); // 5
+        System.out.println("sscans=" + jedis.sscans.get()); // 3
+        System.out.println("cleanup=" + !jedis.getSet(indexKey("user1")).contains("expired-session-id")); // true
+    }
+
+    static IamSession newSession(JedisIamSessionDAO dao, String principal) {
+        IamSession s = new IamSession("127.0.0.1");
+        s.setAttribute(PRINCIPALS_SESSION_KEY, new SimplePrincipalCollection(principal, "test-realm"));
+        dao.create(s);
+        return s;
+    }
+
+    static String indexKey(String principal) {
+        return "iam-test:" + CACHE_PREFIX_IAM_SESSION_PRINCIPAL + principal;
+    }
+
+    static JedisIamSessionDAO newSessionDAO(InMemoryJedis jedis) {
+        AbstractIamProperties<ParamProperties> config = new AbstractIamProperties<ParamProperties>() {
+            private static final long serialVersionUID = 1L;
+            private ParamProperties param = new ParamProperties();
+
+            @Override
+            protected String getLoginUri() {
+                return "/login";
+            }
+
+            @Override
+            protected String getSuccessUri() {
+                return "/index";
+            }
+
+            @Override
+            protected String getUnauthorizedUri() {
+                return "/403";
+            }
+
+            @Override
+            public ParamProperties getParam() {
+                return param;
+            }
+
+            @Override
+            public void setParam(ParamProperties param) {
+                this.param = param;
+            }
+        };
+        return new JedisIamSessionDAO(config, new JedisIamCacheManager("iam-test:", jedis.client));
+    }
+
+    /**
+     * The in-memory {@link JedisClient}, which only supports the commands used
+     * by the session DAO.
+     */
+    static class InMemoryJedis {
+        final Map<String, byte[]> values = new HashMap<>();
+        final Map<String, Set<String>> sets = new HashMap<>();
+        final AtomicInteger evals = new AtomicInteger(0);
+        final AtomicInteger sscans = new AtomicInteger(0);
+
+        final JedisClient client = (JedisClient) Proxy.newProxyInstance(JedisClient.class.getClassLoader(),
+                new Class<?>[] { JedisClient.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "get":
+                        return values.get(key(args[0]));
+                    case "set":
+                        values.put(key(args[0]), (byte[]) args[1]);
+                        return "OK";
+                    case "setex":
+                        values.put(key(args[0]), (byte[]) args[2]);
+                        return "OK";
+                    case "mget":
+                        List<byte[]> results = new ArrayList<>();
+                        for (byte[] key : (byte[][]) args[0]) {
+                            results.add(values.get(key(key)));
+                        }
+                        return results;
+                    case "del":
+                        long deleted = 0;
+                        for (Object key : args[0] instanceof Object[] ? (Object[]) args[0] : new Object[] { args[0] }) {
+                            deleted += values.remove(key(key)) != null || sets.remove(key(key)) != null ? 1 : 0;
+                        }
+                        return deleted;
+                    case "expire":
+                        return 1L;
+                    case "eval":
+                        // The principal index script: SADD and extend TTL.
+                        evals.incrementAndGet();
+                        List<?> keys = (List<?>) args[1], argv = (List<?>) args[2];
+                        return getSet((String) keys.get(0)).add((String) argv.get(0)) ? 1L : 0L;
+                    case "sscan":
+                        // Iterates by the fixed page size 2.
+                        sscans.incrementAndGet();
+                        List<String> members = new ArrayList<>(getSet((String) args[0]));
+                        int from = Integer.parseInt((String) args[1]), to = Math.min(from + 2, members.size());
+                        return new ScanResult<>(to >= members.size() ? "0" : String.valueOf(to), members.subList(from, to));
+                    case "srem":
+                        long removed = 0;
+                        for (String member : (String[]) args[1]) {
+                            removed += getSet((String) args[0]).remove(member) ? 1 : 0;
+                        }
+                        return removed;
+                    case "toString":
+                        return InMemoryJedis.class.getSimpleName();
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    default:
+                        throw new UnsupportedOperationException(method.toString());
+                    }
+                });
+
+        Set<String> getSet(String key) {
+            return sets.computeIfAbsent(key, k -> Collections.synchronizedSet(new LinkedHashSet<>()));
+        }
+
+        static String key(Object key) {
+            return key instanceof byte[] ? new String((byte[]) key, UTF_8) : String.valueOf(key);
+        }
+    }
+
+}
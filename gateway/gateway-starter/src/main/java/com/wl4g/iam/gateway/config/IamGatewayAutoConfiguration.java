@@ -28,6 +28,7 @@ import com.wl4g.iam.gateway.fault.config.FaultAutoConfiguration;
 import com.wl4g.iam.gateway.ipfilter.config.IpFilterAutoConfiguration;
 import com.wl4g.iam.gateway.loadbalance.config.CanaryLoadbalanceAutoConfiguration;
 import com.wl4g.iam.gateway.logging.config.LoggingAutoConfiguration;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
 import com.wl4g.iam.gateway.metrics.config.IamGatewayMetricsAutoConfiguration;
 import com.wl4g.iam.gateway.requestlimit.config.IamRequestLimiterAutoConfiguration;
 import com.wl4g.iam.gateway.requestsize.config.IamRequestSizeAutoConfiguration;
@@ -39,6 +40,7 @@ import com.wl4g.iam.gateway.server.config.GatewayWebServerAutoConfiguration;
 import com.wl4g.iam.gateway.trace.config.GrayTraceAutoConfiguration;
 //import com.wl4g.iam.gateway.trace.config.GrayTraceAutoConfiguration;
 import com.wl4g.iam.gateway.traffic.config.TrafficAutoConfiguration;
+import com.wl4g.iam.gateway.util.matcher.RequestMatcherEngine;
 
 import reactor.core.publisher.Mono;
 
@@ -63,6 +65,11 @@ public class IamGatewayAutoConfiguration {
         return new ReactiveByteArrayRedisTemplate(connectionFactory);
     }
 
+    @Bean
+    public RequestMatcherEngine requestMatcherEngine(IamGatewayMetricsFacade metricsFacade) {
+        return new RequestMatcherEngine(metricsFacade);
+    }
+
     @Bean
     public HiddenHttpMethodFilter hiddenHttpMethodFilter() {
         return new HiddenHttpMethodFilter() {
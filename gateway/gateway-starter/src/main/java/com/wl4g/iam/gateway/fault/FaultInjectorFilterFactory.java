@@ -16,25 +16,19 @@
 package com.wl4g.iam.gateway.fault;
 
 import static com.wl4g.infra.common.lang.Assert2.notNullOf;
-import static java.util.Collections.singletonMap;
 
 import java.time.Duration;
-import java.util.Map;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.function.Predicate;
-import java.util.function.Supplier;
 
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
-import org.springframework.cloud.gateway.route.Route;
 import org.springframework.cloud.gateway.support.HttpStatusHolder;
 import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.core.Ordered;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.server.ServerWebExchange;
 
-import com.google.common.base.Predicates;
 import com.wl4g.iam.gateway.fault.config.FaultProperties;
 import com.wl4g.iam.gateway.fault.config.FaultProperties.AbstractInjectorProperties;
 import com.wl4g.iam.gateway.fault.config.FaultProperties.InjectorProperties;
@@ -44,9 +38,9 @@ import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsName;
 import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsTag;
 import com.wl4g.iam.gateway.util.IamGatewayUtil;
 import com.wl4g.iam.gateway.util.IamGatewayUtil.SafeFilterOrdered;
+import com.wl4g.iam.gateway.util.matcher.CompiledRequestMatcher;
+import com.wl4g.iam.gateway.util.matcher.RequestMatcherEngine;
 import com.wl4g.infra.common.bean.ConfigBeanUtils;
-import com.wl4g.infra.context.utils.web.ReactiveRequestExtractor;
-import com.wl4g.infra.context.web.matcher.SpelRequestMatcher;
 
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -66,16 +60,18 @@ import reactor.core.publisher.Mono;
 public class FaultInjectorFilterFactory extends AbstractGatewayFilterFactory<FaultInjectorFilterFactory.Config> {
 
     private final FaultProperties faultConfig;
-    private final SpelRequestMatcher requestMatcher;
+    private final CompiledRequestMatcher requestMatcher;
     private final IamGatewayMetricsFacade metricsFacade;
 
-    public FaultInjectorFilterFactory(FaultProperties faultConfig, IamGatewayMetricsFacade metricsFacade) {
+    public FaultInjectorFilterFactory(FaultProperties faultConfig, IamGatewayMetricsFacade metricsFacade,
+            RequestMatcherEngine requestMatcherEngine) {
         super(FaultInjectorFilterFactory.Config.class);
         this.faultConfig = notNullOf(faultConfig, "faultConfig");
         this.metricsFacade = notNullOf(metricsFacade, "metricsFacade");
-        // Build gray request matcher.
-        this.requestMatcher = new SpelRequestMatcher(faultConfig.getPreferMatchRuleDefinitions());
-
+        // Build gray request matcher and pre-compile expression.
+        this.requestMatcher = notNullOf(requestMatcherEngine, "requestMatcherEngine").compile(
+                RequestMatcherEngine.MATCHER_FAULT, faultConfig.getPreferMatchRuleDefinitions(),
+                faultConfig.getPreferOpenMatchExpression());
     }
 
     @Override
@@ -159,15 +155,8 @@ public class FaultInjectorFilterFactory extends AbstractGatewayFilterFactory<Fau
          * @return
          */
         private boolean isFaultRequest(ServerWebExchange exchange) {
-            // Gets current request route.
-            Route route = exchange.getRequiredAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
-
-            // Add routeId temporary predicates.
-            Map<String, Supplier<Predicate<String>>> routeIdPredicateSupplier = singletonMap(VAR_ROUTE_ID,
-                    () -> (Predicate<String>) Predicates.equalTo(route.getId()));
-
-            return requestMatcher.matches(new ReactiveRequestExtractor(exchange.getRequest()),
-                    faultConfig.getPreferOpenMatchExpression(), routeIdPredicateSupplier);
+            // The routeId variable is bound by the matcher.
+            return requestMatcher.matches(exchange, faultConfig.getPreferOpenMatchExpression());
         }
 
         private boolean isFaultWithPercentage(AbstractInjectorProperties injectorConfig) {
@@ -21,6 +21,7 @@ import org.springframework.context.annotation.Bean;
 import com.wl4g.iam.common.constant.GatewayIAMConstants;
 import com.wl4g.iam.gateway.fault.FaultInjectorFilterFactory;
 import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
+import com.wl4g.iam.gateway.util.matcher.RequestMatcherEngine;
 
 /**
  * {@link FaultAutoConfiguration}
@@ -40,8 +41,9 @@ public class FaultAutoConfiguration {
     @Bean
     public FaultInjectorFilterFactory faultInjectorFilterFactory(
             FaultProperties faultConfig,
-            IamGatewayMetricsFacade metricsFacade) {
-        return new FaultInjectorFilterFactory(faultConfig, metricsFacade);
+            IamGatewayMetricsFacade metricsFacade,
+            RequestMatcherEngine requestMatcherEngine) {
+        return new FaultInjectorFilterFactory(faultConfig, metricsFacade, requestMatcherEngine);
     }
 
 }
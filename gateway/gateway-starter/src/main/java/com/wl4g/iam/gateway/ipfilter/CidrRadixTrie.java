@@ -0,0 +1,207 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.ipfilter;
+
+import static com.wl4g.infra.common.lang.Assert2.isTrue;
+import static com.wl4g.infra.common.lang.Assert2.notNullOf;
+import static java.lang.String.format;
+import static java.util.Objects.isNull;
+
+import java.net.UnknownHostException;
+
+import com.wl4g.infra.common.net.CIDR;
+
+/**
+ * IPv4/IPv6 binary radix (Patricia) trie of the CIDRs, the allow/reject CIDRs
+ * are compiled once into the path-compressed trie, and matching an address
+ * only walks the bits of the address, that is O(32) for IPv4 and O(128) for
+ * IPv6 regardless of the number of CIDRs, and does not allocate. </br>
+ * </br>
+ * The result of {@link #match(byte[])} contains both whether any allow/reject
+ * CIDR contains the address and the rule types of the longest matched prefix.
+ * </br>
+ * Note: The trie is not thread-safe for writing, it should be fully built
+ * before being published to the request threads.
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-05 v3.1.0
+ * @since v3.1.0
+ */
+public class CidrRadixTrie {
+
+    private Node ipv4Root;
+    private Node ipv6Root;
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Insert the CIDR (e.g. 192.168.0.0/16, fd00::/8) with the rule type.
+     *
+     * @param cidr
+     * @param allow
+     */
+    public void insert(String cidr, boolean allow) {
+        CIDR _cidr;
+        try {
+            _cidr = CIDR.newCIDR(cidr);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException(format("Failed to parse cidr for '%s'", cidr), e);
+        }
+        insert(_cidr.getBaseAddress().getAddress(), _cidr.getMask(), allow);
+    }
+
+    public void insert(byte[] address, int prefixLen, boolean allow) {
+        notNullOf(address, "address");
+        isTrue(address.length == 4 || address.length == 16, "Invalid address length of %s", address.length);
+        isTrue(prefixLen >= 0 && prefixLen <= address.length * 8, "Invalid prefix length of %s", prefixLen);
+        byte[] key = maskOf(address, prefixLen);
+        int type = allow ? ALLOW : REJECT;
+        if (address.length == 4) {
+            ipv4Root = insert(ipv4Root, key, prefixLen, type);
+        } else {
+            ipv6Root = insert(ipv6Root, key, prefixLen, type);
+        }
+        ++size;
+    }
+
+    /**
+     * Matching all the prefixes of the address.
+     *
+     * @param address
+     *            The raw address bytes, see {@link java.net.InetAddress#getAddress()}
+     * @return The bit flags of {@link #ANY_ALLOW}, {@link #ANY_REJECT},
+     *         {@link #LONGEST_ALLOW} and {@link #LONGEST_REJECT}.
+     */
+    public int match(byte[] address) {
+        int bits = address.length * 8;
+        Node node = address.length == 4 ? ipv4Root : (address.length == 16 ? ipv6Root : null);
+        int any = 0, longest = 0;
+        while (!isNull(node) && node.prefixLen <= bits && isPrefixOf(node.key, node.prefixLen, address)) {
+            if (node.type != 0) {
+                any |= node.type;
+                longest = node.type;
+            }
+            if (node.prefixLen == bits) {
+                break;
+            }
+            node = bitAt(address, node.prefixLen) == 0 ? node.left : node.right;
+        }
+        return any | (longest << 2);
+    }
+
+    private static Node insert(Node node, byte[] key, int prefixLen, int type) {
+        if (isNull(node)) {
+            return new Node(key, prefixLen, type);
+        }
+        int common = Math.min(commonPrefixLen(node.key, key), Math.min(node.prefixLen, prefixLen));
+        if (common == node.prefixLen && common == prefixLen) {
+            node.type |= type;
+            return node;
+        }
+        if (common == node.prefixLen) { // Descend to the children.
+            if (bitAt(key, common) == 0) {
+                node.left = insert(node.left, key, prefixLen, type);
+            } else {
+                node.right = insert(node.right, key, prefixLen, type);
+            }
+            return node;
+        }
+        Node parent;
+        if (common == prefixLen) { // The new prefix contains the node.
+            parent = new Node(key, prefixLen, type);
+        } else { // Diverged, split with an internal node.
+            parent = new Node(maskOf(key, common), common, 0);
+            Node leaf = new Node(key, prefixLen, type);
+            if (bitAt(key, common) == 0) {
+                parent.left = leaf;
+            } else {
+                parent.right = leaf;
+            }
+        }
+        if (bitAt(node.key, common) == 0) {
+            parent.left = node;
+        } else {
+            parent.right = node;
+        }
+        return parent;
+    }
+
+    private static boolean isPrefixOf(byte[] key, int prefixLen, byte[] address) {
+        int fullBytes = prefixLen >>> 3;
+        for (int i = 0; i < fullBytes; i++) {
+            if (key[i] != address[i]) {
+                return false;
+            }
+        }
+        int remainBits = prefixLen & 7;
+        if (remainBits == 0) {
+            return true;
+        }
+        int mask = (0xff << (8 - remainBits)) & 0xff;
+        return (key[fullBytes] & mask) == (address[fullBytes] & mask);
+    }
+
+    private static int commonPrefixLen(byte[] a, byte[] b) {
+        for (int i = 0; i < a.length; i++) {
+            int diff = (a[i] ^ b[i]) & 0xff;
+            if (diff != 0) {
+                return (i << 3) + Integer.numberOfLeadingZeros(diff) - 24;
+            }
+        }
+        return a.length << 3;
+    }
+
+    private static int bitAt(byte[] address, int index) {
+        return (address[index >>> 3] >>> (7 - (index & 7))) & 1;
+    }
+
+    private static byte[] maskOf(byte[] address, int prefixLen) {
+        byte[] masked = new byte[address.length];
+        int fullBytes = prefixLen >>> 3;
+        System.arraycopy(address, 0, masked, 0, fullBytes);
+        int remainBits = prefixLen & 7;
+        if (remainBits != 0) {
+            masked[fullBytes] = (byte) (address[fullBytes] & (0xff << (8 - remainBits)));
+        }
+        return masked;
+    }
+
+    static class Node {
+        final byte[] key;
+        final int prefixLen;
+        int type;
+        Node left;
+        Node right;
+
+        Node(byte[] key, int prefixLen, int type) {
+            this.key = key;
+            this.prefixLen = prefixLen;
+            this.type = type;
+        }
+    }
+
+    static final int ALLOW = 1;
+    static final int REJECT = 2;
+
+    public static final int ANY_ALLOW = ALLOW;
+    public static final int ANY_REJECT = REJECT;
+    public static final int LONGEST_ALLOW = ALLOW << 2;
+    public static final int LONGEST_REJECT = REJECT << 2;
+
+}
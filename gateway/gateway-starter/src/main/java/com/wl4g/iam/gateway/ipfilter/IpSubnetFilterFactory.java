@@ -15,22 +15,34 @@
  */
 package com.wl4g.iam.gateway.ipfilter;
 
+import static com.wl4g.iam.common.constant.GatewayIAMConstants.CONF_PREFIX_IAM_GATEWAY_IPFILTER;
 import static com.wl4g.infra.common.collection.CollectionUtils2.safeList;
+import static com.wl4g.infra.common.collection.CollectionUtils2.safeSet;
 import static com.wl4g.infra.common.lang.Assert2.notNullOf;
-import static java.lang.String.format;
+import static com.wl4g.infra.common.lang.FastTimeClock.currentTimeMillis;
 import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.StringUtils.startsWith;
 
 import java.net.Inet4Address;
 import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.springframework.beans.BeanUtils;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
 import org.springframework.cloud.gateway.support.HttpStatusHolder;
 import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.context.ApplicationListener;
 import org.springframework.core.Ordered;
 import org.springframework.http.HttpHeaders;
 import org.springframework.validation.annotation.Validated;
@@ -40,20 +52,18 @@ import com.wl4g.iam.gateway.ipfilter.config.IpFilterProperties;
 import com.wl4g.iam.gateway.ipfilter.config.IpFilterProperties.StrategyProperties;
 import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
 import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsName;
-import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsTag;
-import com.wl4g.iam.gateway.util.IamGatewayUtil;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.RouteCounter;
 import com.wl4g.iam.gateway.util.IamGatewayUtil.SafeFilterOrdered;
 import com.wl4g.infra.common.bean.ConfigBeanUtils;
-import com.wl4g.infra.common.net.CIDR;
 
-import io.netty.handler.ipfilter.IpFilterRuleType;
-import io.netty.handler.ipfilter.IpSubnetFilterRule;
 import io.netty.util.NetUtil;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 /**
  * {@link IpSubnetFilterFactory}
@@ -63,10 +73,14 @@ import reactor.core.publisher.Mono;
  * @since v3.0.0
  * @see {@link io.netty.handler.ipfilter.IpSubnetFilterRule}
  */
-public class IpSubnetFilterFactory extends AbstractGatewayFilterFactory<IpSubnetFilterFactory.Config> {
+@Slf4j
+public class IpSubnetFilterFactory extends AbstractGatewayFilterFactory<IpSubnetFilterFactory.Config>
+        implements ApplicationListener<EnvironmentChangeEvent> {
 
     private final IpFilterProperties ipFilterConfig;
     private final IamGatewayMetricsFacade metricsFacade;
+    private final AtomicLong defaultsVersion = new AtomicLong(0);
+    private final Set<IpSubnetGatewayFilter> filters = Collections.newSetFromMap(new WeakHashMap<>());
 
     public IpSubnetFilterFactory(IpFilterProperties ipListConfig, IamGatewayMetricsFacade metricsFacade) {
         super(IpSubnetFilterFactory.Config.class);
@@ -81,8 +95,69 @@ public class IpSubnetFilterFactory extends AbstractGatewayFilterFactory<IpSubnet
 
     @Override
     public GatewayFilter apply(Config config) {
+        IpSubnetGatewayFilter filter = new IpSubnetGatewayFilter(config);
+        synchronized (filters) {
+            filters.add(filter);
+        }
+        // Catch up if the defaults changed while the filter was compiling.
+        filter.recompileIfStale();
+        return filter;
+    }
+
+    /**
+     * When the default strategy of {@link IpFilterProperties} is refreshed,
+     * the CIDRs of all the filters are recompiled on the bounded elastic
+     * scheduler, the requests keep matching the previous trie until the new
+     * one is published.
+     */
+    @Override
+    public void onApplicationEvent(EnvironmentChangeEvent event) {
+        if (safeSet(event.getKeys()).stream().anyMatch(key -> startsWith(key, CONF_PREFIX_IAM_GATEWAY_IPFILTER))) {
+            log.info("The IP filter properties changed, the CIDRs will be recompiled.");
+            defaultsVersion.incrementAndGet();
+            Schedulers.boundedElastic().schedule(this::recompileAll);
+        }
+    }
+
+    /**
+     * Recompile the CIDRs of all the live filters with the current defaults.
+     */
+    protected void recompileAll() {
+        List<IpSubnetGatewayFilter> snapshot;
+        synchronized (filters) {
+            snapshot = new ArrayList<>(filters);
+        }
+        for (IpSubnetGatewayFilter filter : snapshot) {
+            try {
+                filter.recompileIfStale();
+            } catch (Exception e) {
+                log.error("Failed to recompile CIDRs of IP filter, keep using the previous. - {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Compile the CIDRs of the config (merged with the current defaults) to
+     * {@link CidrRadixTrie}.
+     *
+     * @param rawConfig
+     * @return
+     */
+    protected CompiledConfig compile(Config rawConfig) {
+        final long version = defaultsVersion.get();
+        final long beginTime = currentTimeMillis();
+
+        Config config = new Config();
+        BeanUtils.copyProperties(rawConfig, config);
         applyDefaultToConfig(config);
-        return new IpSubnetGatewayFilter(config.validate());
+        config.validate();
+
+        CidrRadixTrie trie = new CidrRadixTrie();
+        safeList(config.getIPSubnets())
+                .forEach(s -> safeList(s.getCidrs()).forEach(cidr -> trie.insert(cidr, s.isAllow())));
+
+        log.info("Compiled {} CIDRs of IP filter, cost: {}ms", trie.size(), (currentTimeMillis() - beginTime));
+        return new CompiledConfig(config, trie, version);
     }
 
     private void applyDefaultToConfig(Config config) {
@@ -138,9 +213,26 @@ public class IpSubnetFilterFactory extends AbstractGatewayFilterFactory<IpSubnet
         }
     }
 
+    @Getter
     @AllArgsConstructor
-    class IpSubnetGatewayFilter implements GatewayFilter, Ordered {
+    protected static class CompiledConfig {
         private final Config config;
+        private final CidrRadixTrie trie;
+        private final long version;
+    }
+
+    class IpSubnetGatewayFilter implements GatewayFilter, Ordered {
+        private final Config rawConfig;
+        private final RouteCounter totalCounter;
+        private final RouteCounter hitsCounter;
+        private volatile CompiledConfig compiled;
+
+        IpSubnetGatewayFilter(Config rawConfig) {
+            this.rawConfig = notNullOf(rawConfig, "rawConfig");
+            this.compiled = compile(rawConfig);
+            this.totalCounter = metricsFacade.routeCounter(MetricsName.IPFILTER_TOTAL);
+            this.hitsCounter = metricsFacade.routeCounter(MetricsName.IPFILTER_HITS_TOTAL);
+        }
 
         @Override
         public int getOrder() {
@@ -150,23 +242,44 @@ public class IpSubnetFilterFactory extends AbstractGatewayFilterFactory<IpSubnet
         @Override
         public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
             // Add metrics of total.
-            metricsFacade.counter(exchange, MetricsName.IPFILTER_TOTAL, 1, MetricsTag.ROUTE_ID,
-                    IamGatewayUtil.getRouteId(exchange));
+            totalCounter.increment(exchange);
 
-            if (isAllowed(config, exchange)) {
+            CompiledConfig compiled = getCompiled();
+            Config config = compiled.getConfig();
+            if (isAllowed(compiled, exchange)) {
                 return chain.filter(exchange);
             }
 
             // Add metrics of hits total.
-            metricsFacade.counter(exchange, MetricsName.IPFILTER_HITS_TOTAL, 1, MetricsTag.ROUTE_ID,
-                    IamGatewayUtil.getRouteId(exchange));
+            hitsCounter.increment(exchange);
 
             // Response of reject.
             ServerWebExchangeUtils.setResponseStatus(exchange, HttpStatusHolder.parse(config.getStatusCode()));
             return exchange.getResponse().setComplete();
         }
 
-        private boolean isAllowed(Config config, ServerWebExchange exchange) {
+        private CompiledConfig getCompiled() {
+            return compiled;
+        }
+
+        /**
+         * Note: Never called on the request path, the publish of the newer
+         * version is serialized so that a slow compile can't overwrite it.
+         */
+        void recompileIfStale() {
+            if (compiled.getVersion() == defaultsVersion.get()) {
+                return;
+            }
+            CompiledConfig recompiled = compile(rawConfig);
+            synchronized (this) {
+                if (recompiled.getVersion() > compiled.getVersion()) {
+                    this.compiled = recompiled;
+                }
+            }
+        }
+
+        private boolean isAllowed(CompiledConfig compiled, ServerWebExchange exchange) {
+            Config config = compiled.getConfig();
             // Determine remote client address.
             // Note:This method does not send network resolutions
             InetSocketAddress remoteAddress = createInetSocketAddress(getClientAddress(config, exchange), 0, false);
@@ -180,17 +293,16 @@ public class IpSubnetFilterFactory extends AbstractGatewayFilterFactory<IpSubnet
 
             // Check if it is allowed to pass.
             //
-            // matching white-list
-            boolean isAccept = safeList(config.getIPSubnets()).stream()
-                    .filter(s -> s.isAllow())
-                    .flatMap(s -> safeList(s.getCidrs()).stream())
-                    .anyMatch(cidr -> buildRule(cidr, IpFilterRuleType.ACCEPT).matches(remoteAddress));
-
-            // matching blacklist
-            boolean isReject = safeList(config.getIPSubnets()).stream()
-                    .filter(s -> !s.isAllow())
-                    .flatMap(s -> safeList(s.getCidrs()).stream())
-                    .anyMatch(cidr -> buildRule(cidr, IpFilterRuleType.REJECT).matches(remoteAddress));
+            // matching white-list and blacklist by compiled CIDRs trie.
+            int matched = compiled.getTrie().match(address.getAddress());
+            boolean isAccept, isReject;
+            if (config.isLongestPrefixMatch()) {
+                isAccept = (matched & CidrRadixTrie.LONGEST_ALLOW) != 0;
+                isReject = (matched & CidrRadixTrie.LONGEST_REJECT) != 0;
+            } else {
+                isAccept = (matched & CidrRadixTrie.ANY_ALLOW) != 0;
+                isReject = (matched & CidrRadixTrie.ANY_REJECT) != 0;
+            }
 
             // If none of the conditions are met, allow access.
             boolean allowed = isAccept && !isReject;
@@ -218,15 +330,6 @@ public class IpSubnetFilterFactory extends AbstractGatewayFilterFactory<IpSubnet
             return exchange.getRequest().getRemoteAddress().getAddress().getHostAddress();
         }
 
-        private IpSubnetFilterRule buildRule(String cidr, IpFilterRuleType ruleType) {
-            try {
-                CIDR _cidr = CIDR.newCIDR(cidr);
-                return new IpSubnetFilterRule(_cidr.getBaseAddress(), _cidr.getMask(), ruleType);
-            } catch (UnknownHostException e) {
-                throw new IllegalArgumentException(format("Failed to parse cidr for '%s'", cidr));
-            }
-        }
-
     }
 
     public static final String BEAN_NAME = "IpFilter";
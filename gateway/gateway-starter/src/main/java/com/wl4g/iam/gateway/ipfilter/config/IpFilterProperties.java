@@ -64,6 +64,13 @@ public class IpFilterProperties {
          */
         private boolean preferRejectOnCidrConflict = true;
 
+        /**
+         * Whether only the longest (most specific) matched CIDR takes effect,
+         * e.g. allow 192.168.3.0/24 in deny 192.168.0.0/16. By default, any
+         * matched allow and deny CIDRs are considered to be conflict.
+         */
+        private boolean longestPrefixMatch = false;
+
         /**
          * Whether to accept the request when neither the white-list nor the
          * blacklist CIDRs match.
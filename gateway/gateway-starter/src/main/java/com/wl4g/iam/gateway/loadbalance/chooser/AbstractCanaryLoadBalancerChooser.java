@@ -14,24 +14,25 @@ import java.util.List;
 
 import javax.annotation.Resource;
 
-import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.client.ServiceInstance;
-import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.gateway.route.Route;
 import org.springframework.cloud.gateway.support.NotFoundException;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.web.server.ServerWebExchange;
 
 import com.wl4g.iam.gateway.loadbalance.CanaryLoadBalancerFilterFactory;
-import com.wl4g.iam.gateway.loadbalance.LoadBalancerUtil;
 import com.wl4g.iam.gateway.loadbalance.config.CanaryLoadBalancerProperties;
+import com.wl4g.iam.gateway.loadbalance.discovery.CanaryServiceInstanceCache;
+import com.wl4g.iam.gateway.loadbalance.discovery.CanaryServiceInstanceSnapshot;
+import com.wl4g.iam.gateway.loadbalance.discovery.CanaryServiceInstanceSnapshot.CandidateGroup;
 import com.wl4g.iam.gateway.loadbalance.stats.LoadBalancerStats;
 import com.wl4g.iam.gateway.loadbalance.stats.LoadBalancerStats.InstanceStatus;
 import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
 import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsName;
 import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsTag;
+import com.wl4g.iam.gateway.util.matcher.CompiledRequestMatcher;
 import com.wl4g.infra.common.log.SmartLogger;
-import com.wl4g.infra.context.utils.web.ReactiveRequestExtractor;
-import com.wl4g.infra.context.web.matcher.SpelRequestMatcher;
 import com.wl4g.infra.context.web.matcher.SpelRequestMatcher.MatchHttpRequestRule;
 
 import lombok.Getter;
@@ -52,16 +53,17 @@ public abstract class AbstractCanaryLoadBalancerChooser implements CanaryLoadBal
     protected final SmartLogger log = getLogger(getClass());
     protected @Autowired CanaryLoadBalancerProperties loadBalancerConfig;
     protected @Autowired LoadBalancerStats loadBalancerStats;
-    protected @Autowired DiscoveryClient discoveryClient;
-    protected @Resource(name = BEAN_CANARY_LB_REQUEST_MATCHER) SpelRequestMatcher requestMatcher;
+    protected @Autowired CanaryServiceInstanceCache instanceCache;
+    protected @Resource(name = BEAN_CANARY_LB_REQUEST_MATCHER) CompiledRequestMatcher requestMatcher;
     protected @Autowired IamGatewayMetricsFacade metricsFacade;
 
     @Override
     public ServiceInstance choose(CanaryLoadBalancerFilterFactory.Config config, ServerWebExchange exchange, String serviceId) {
-        List<ServiceInstance> allInstances = discoveryClient.getInstances(serviceId);
+        // Non-blocking, the snapshot is refreshed off the event loop.
+        CanaryServiceInstanceSnapshot snapshot = instanceCache.getSnapshot(serviceId);
 
         // There is no instance in the registry throwing an exception.
-        if (isEmpty(allInstances)) {
+        if (snapshot.isEmpty()) {
             log.warn("No found instance available for {}", serviceId);
             addCounterMetrics(config, exchange, MetricsName.CANARY_LB_CHOOSE_EMPTY_INSTANCES_TOTAL, serviceId);
             throw new NotFoundException(format("No found instance available for %s", serviceId));
@@ -69,25 +71,30 @@ public abstract class AbstractCanaryLoadBalancerChooser implements CanaryLoadBal
 
         // According to the configuration expression, match whether the current
         // request satisfies the load condition for executing the canary.
-        List<ServiceInstance> candidateInstances = null;
-        List<MatchHttpRequestRule> rules = requestMatcher.find(new ReactiveRequestExtractor(exchange.getRequest()),
-                getLoadBalancerConfig().getCanaryChooseExpression());
+        CandidateGroup candidateGroup = null;
+        List<MatchHttpRequestRule> rules = requestMatcher.find(exchange, getLoadBalancerConfig().getCanaryChooseExpression());
         if (isEmpty(rules)) {
             log.warn("The request did not match the canary load balancer instance.");
             addCounterMetrics(config, exchange, MetricsName.CANARY_LB_CHOOSE_MISSING_TOTAL, serviceId);
             if (config.getChoose().isFallbackAllToCandidates()) {
-                candidateInstances = allInstances;
+                candidateGroup = snapshot.getAllInstances();
                 addCounterMetrics(config, exchange, MetricsName.CANARY_LB_CHOOSE_FALLBACK_TOTAL, serviceId);
             } else {
                 return null;
             }
         } else {
             addCounterMetrics(config, exchange, MetricsName.CANARY_LB_CHOOSE_TOTAL, serviceId);
-            // Gets a list of eligible candidate instances.
-            candidateInstances = findCandidateInstances(allInstances, rules.stream().map(r -> r.getName()).collect(toList()));
+            // Gets a group of eligible candidate instances from the
+            // precomputed canary label index.
+            candidateGroup = snapshot.getCandidates(rules.stream().map(r -> r.getName()).collect(toList()));
         }
 
-        return doChooseInstance(config, exchange, loadBalancerStats, serviceId, candidateInstances);
+        // The available instances are memorized in the candidate group until
+        // the reachable instances changes.
+        Route route = exchange.getRequiredAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        List<InstanceStatus> availableInstances = candidateGroup.getAvailableInstances(route.getId(), loadBalancerStats);
+
+        return doChooseInstance(config, exchange, loadBalancerStats, serviceId, availableInstances);
     }
 
     public List<ServiceInstance> findCandidateInstances(List<ServiceInstance> instances, List<String> matchedRuleNames) {
@@ -109,17 +116,7 @@ public abstract class AbstractCanaryLoadBalancerChooser implements CanaryLoadBal
             ServerWebExchange exchange,
             LoadBalancerStats stats,
             String serviceId,
-            List<ServiceInstance> candidateInstances);
-
-    protected List<InstanceStatus> getAvailableInstances(
-            List<InstanceStatus> reachableInstances,
-            List<ServiceInstance> candidateInstances) {
-
-        return safeList(reachableInstances).stream()
-                .filter(i -> safeList(candidateInstances).stream()
-                        .anyMatch(c -> StringUtils.equals(i.getInstance().getInstanceId(), LoadBalancerUtil.getInstanceId(c))))
-                .collect(toList());
-    }
+            List<InstanceStatus> availableInstances);
 
     protected void addCounterMetrics(
             CanaryLoadBalancerFilterFactory.Config config,
@@ -38,7 +38,7 @@ public class RoundRobinCanaryLoadBalancerChooser extends AbstractCanaryLoadBalan
             ServerWebExchange exchange,
             LoadBalancerStats stats,
             String serviceId,
-            List<ServiceInstance> candidateInstances) {
+            List<InstanceStatus> availableInstances) {
 
         // Refer to spring-loadbalaner:
         // int pos = Math.abs(nextServerCyclicCounter.incrementAndGet());
@@ -47,14 +47,8 @@ public class RoundRobinCanaryLoadBalancerChooser extends AbstractCanaryLoadBalan
         int count = 0;
         InstanceStatus chosenInstance = null;
         while (isNull(chosenInstance) && count++ < config.getChoose().getMaxChooseTries()) {
-            List<InstanceStatus> allInstances = stats.getAllInstances(exchange);
-            List<InstanceStatus> reachableInstances = stats.getReachableInstances(exchange);
-            List<InstanceStatus> availableInstances = getAvailableInstances(reachableInstances, candidateInstances);
-
-            int allCount = allInstances.size();
             int avaCount = availableInstances.size();
-
-            if ((avaCount == 0) || (allCount == 0)) {
+            if (avaCount == 0) {
                 log.warn("No up servers available from load balancer loadBalancerStats: {}", stats);
                 return null;
             }
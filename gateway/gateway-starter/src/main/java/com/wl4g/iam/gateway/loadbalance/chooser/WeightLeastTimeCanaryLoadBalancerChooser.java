@@ -7,6 +7,7 @@ import org.springframework.web.server.ServerWebExchange;
 
 import com.wl4g.iam.gateway.loadbalance.CanaryLoadBalancerFilterFactory;
 import com.wl4g.iam.gateway.loadbalance.stats.LoadBalancerStats;
+import com.wl4g.iam.gateway.loadbalance.stats.LoadBalancerStats.InstanceStatus;
 
 /**
  * Grayscale load balancer rule for weight-based least response time.
@@ -29,10 +30,10 @@ public class WeightLeastTimeCanaryLoadBalancerChooser extends LeastConnCanaryLoa
             ServerWebExchange exchange,
             LoadBalancerStats stats,
             String serviceId,
-            List<ServiceInstance> candidateInstances) {
+            List<InstanceStatus> availableInstances) {
 
         // TODO
-        return super.doChooseInstance(config, exchange, stats, serviceId, candidateInstances);
+        return super.doChooseInstance(config, exchange, stats, serviceId, availableInstances);
     }
 
 }
\ No newline at end of file
@@ -63,11 +63,22 @@ public class CanaryLoadBalancerProperties {
      */
     private List<MatchHttpRequestRule> canaryMatchRuleDefinitions = new ArrayList<>();
 
+    /**
+     * The load balancer statistician provider, the lock-free statistician is
+     * opt-in via {@link StatsProvider#LockFree}.
+     */
+    private StatsProvider statsProvider = StatsProvider.Default;
+
     /**
      * The number of load balancer statistician scheduler worker threads.
      */
     private int statsSchedulerThread = 2;
 
+    /**
+     * The shared probe client properties of the load balancer statistician.
+     */
+    private ProbeClientProperties probeClient = new ProbeClientProperties();
+
     /**
      * The initial interval at which the instance list is periodically pulled
      * update register from the discovery service.
@@ -80,6 +91,13 @@ public class CanaryLoadBalancerProperties {
      */
     private int registerRouteServicesDelaySeconds = 60;
 
+    /**
+     * The interval at which the per-service instances snapshot used by the
+     * canary choosers is periodically refreshed from the discovery server
+     * (besides the discovery heartbeat events).
+     */
+    private int instanceSnapshotRefreshSeconds = 15;
+
     /**
      * LoadBalancer defaultChoose properties.
      */
@@ -119,6 +137,36 @@ public class CanaryLoadBalancerProperties {
 
     }
 
+    @Getter
+    @Setter
+    @ToString
+    public static class ProbeClientProperties {
+
+        /**
+         * The maximum number of pooled (keep-alive) connections of the shared
+         * probe client.
+         */
+        private int maxConnections = 128;
+
+        /**
+         * The maximum idle time of the pooled probe connections, it should be
+         * greater than the probe interval to reuse the connections.
+         */
+        private long maxIdleMs = 60_000;
+
+        /**
+         * The maximum number of concurrent probes of all instances.
+         */
+        private int maxConcurrency = 32;
+
+        /**
+         * The maximum number of pending probes, the probes exceeding this
+         * will be dropped.
+         */
+        private int maxPending = 4096;
+
+    }
+
     @Getter
     @Setter
     @ToString
@@ -169,6 +217,27 @@ public class CanaryLoadBalancerProperties {
          */
         private int receiveQueue = 8;
 
+        /**
+         * The smoothing factor of the passive cost time EWMA (exponentially
+         * weighted moving average), the larger the value, the more sensitive
+         * to the latest samples. Only valid for
+         * {@link StatsProvider#LockFree}
+         */
+        private double passiveEwmaAlpha = 0.3;
+
+    }
+
+    public static enum StatsProvider {
+
+        /**
+         * see:{@link com.wl4g.iam.gateway.loadbalance.stats.DefaultLoadBalancerStats}
+         */
+        Default,
+
+        /**
+         * see:{@link com.wl4g.iam.gateway.loadbalance.stats.LockFreeLoadBalancerStats}
+         */
+        LockFree;
     }
 
     public static final String DEFAULT_LB_CANARY_LABEL_KEY = "Iscg-Canary-Label";
@@ -36,16 +36,19 @@ import com.wl4g.iam.gateway.loadbalance.chooser.WeightLeastConnCanaryLoadBalance
 import com.wl4g.iam.gateway.loadbalance.chooser.WeightLeastTimeCanaryLoadBalancerChooser;
 import com.wl4g.iam.gateway.loadbalance.chooser.WeightRandomCanaryLoadBalancerChooser;
 import com.wl4g.iam.gateway.loadbalance.chooser.WeightRoundRobinCanaryLoadBalancerChooser;
+import com.wl4g.iam.gateway.loadbalance.discovery.CanaryServiceInstanceCache;
 import com.wl4g.iam.gateway.loadbalance.metrics.CanaryLoadBalancerCollector;
 import com.wl4g.iam.gateway.loadbalance.stats.DefaultLoadBalancerStats;
 import com.wl4g.iam.gateway.loadbalance.stats.InMemoryLoadBalancerRegistry;
 import com.wl4g.iam.gateway.loadbalance.stats.LoadBalancerRegistry;
 import com.wl4g.iam.gateway.loadbalance.stats.LoadBalancerStats;
+import com.wl4g.iam.gateway.loadbalance.stats.LockFreeLoadBalancerStats;
 import com.wl4g.iam.gateway.loadbalance.stats.ReachableStrategy;
 import com.wl4g.iam.gateway.loadbalance.stats.ReachableStrategy.DefaultLatestReachableStrategy;
 import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
+import com.wl4g.iam.gateway.util.matcher.CompiledRequestMatcher;
+import com.wl4g.iam.gateway.util.matcher.RequestMatcherEngine;
 import com.wl4g.infra.common.framework.operator.GenericOperatorAdapter;
-import com.wl4g.infra.context.web.matcher.SpelRequestMatcher;
 
 import io.prometheus.client.Collector;
 import io.prometheus.client.CollectorRegistry;
@@ -81,7 +84,17 @@ public class CanaryLoadbalanceAutoConfiguration {
 
     @Bean
     public LoadBalancerStats defaultLoadBalancerStats(CanaryLoadBalancerProperties loadBalancerConfig) {
-        return new DefaultLoadBalancerStats(loadBalancerConfig);
+        switch (loadBalancerConfig.getStatsProvider()) {
+        case Default:
+            return new DefaultLoadBalancerStats(loadBalancerConfig);
+        default:
+            return new LockFreeLoadBalancerStats(loadBalancerConfig);
+        }
+    }
+
+    @Bean
+    public CanaryServiceInstanceCache canaryServiceInstanceCache(CanaryLoadBalancerProperties loadBalancerConfig) {
+        return new CanaryServiceInstanceCache(loadBalancerConfig);
     }
 
     // Load-balancer metrics.
@@ -98,8 +111,11 @@ public class CanaryLoadbalanceAutoConfiguration {
     // Load-balancer rules.
 
     @Bean(BEAN_CANARY_LB_REQUEST_MATCHER)
-    public SpelRequestMatcher canaryLoadBalancerSpelRequestMatcher(CanaryLoadBalancerProperties loadBalancerConfig) {
-        return new SpelRequestMatcher(loadBalancerConfig.getCanaryMatchRuleDefinitions());
+    public CompiledRequestMatcher canaryLoadBalancerSpelRequestMatcher(
+            CanaryLoadBalancerProperties loadBalancerConfig,
+            RequestMatcherEngine requestMatcherEngine) {
+        return requestMatcherEngine.compile(RequestMatcherEngine.MATCHER_CANARY_LB,
+                loadBalancerConfig.getCanaryMatchRuleDefinitions());
     }
 
     @Bean
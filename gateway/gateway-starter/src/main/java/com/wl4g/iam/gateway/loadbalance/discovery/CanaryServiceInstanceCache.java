@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.loadbalance.discovery;
+
+import static com.wl4g.infra.common.collection.CollectionUtils2.safeList;
+import static com.wl4g.infra.common.lang.Assert2.notNullOf;
+import static java.lang.String.format;
+import static java.util.Objects.isNull;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.cloud.client.discovery.event.HeartbeatMonitor;
+import org.springframework.context.ApplicationListener;
+
+import com.wl4g.iam.gateway.loadbalance.config.CanaryLoadBalancerProperties;
+import com.wl4g.infra.common.task.RunnerProperties;
+import com.wl4g.infra.common.task.RunnerProperties.StartupMode;
+import com.wl4g.infra.common.task.SafeScheduledTaskPoolExecutor;
+import com.wl4g.infra.context.task.ApplicationTaskRunner;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Per-service discovery instances snapshot cache, the snapshots are refreshed
+ * off the event loop by the scheduler and the discovery heartbeat events, so
+ * that the canary choosers never call the blocking
+ * {@link DiscoveryClient#getInstances(String)} on the request path. </br>
+ * </br>
+ * Note: Only the first request of a newly appeared service (not yet
+ * pre-loaded) will load the snapshot synchronously once.
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-03 v3.1.0
+ * @since v3.1.0
+ */
+@Slf4j
+public class CanaryServiceInstanceCache extends ApplicationTaskRunner<RunnerProperties>
+        implements ApplicationListener<HeartbeatEvent> {
+
+    private final CanaryLoadBalancerProperties loadBalancerConfig;
+    private final HeartbeatMonitor heartbeatMonitor = new HeartbeatMonitor();
+    private final Map<String, CanaryServiceInstanceSnapshot> snapshots = new ConcurrentHashMap<>(16);
+    private @Autowired DiscoveryClient discoveryClient;
+
+    public CanaryServiceInstanceCache(CanaryLoadBalancerProperties loadBalancerConfig) {
+        super(new RunnerProperties(StartupMode.ASYNC, 1));
+        this.loadBalancerConfig = notNullOf(loadBalancerConfig, "loadBalancerConfig");
+    }
+
+    @Override
+    protected void onApplicationStarted(ApplicationArguments args, SafeScheduledTaskPoolExecutor worker) throws Exception {
+        getWorker().scheduleWithFixedDelay(() -> refreshAll(true), 0, loadBalancerConfig.getInstanceSnapshotRefreshSeconds(),
+                SECONDS);
+    }
+
+    @Override
+    public void onApplicationEvent(HeartbeatEvent event) {
+        if (heartbeatMonitor.update(event.getValue())) {
+            getWorker().execute(() -> refreshAll(false));
+        }
+    }
+
+    public @NotNull CanaryServiceInstanceSnapshot getSnapshot(@NotBlank String serviceId) {
+        CanaryServiceInstanceSnapshot snapshot = snapshots.get(serviceId);
+        if (isNull(snapshot)) {
+            log.info("Loading the instances snapshot of service '{}' for the first time.", serviceId);
+            snapshot = refresh(serviceId);
+        }
+        return snapshot;
+    }
+
+    public CanaryServiceInstanceSnapshot refresh(@NotBlank String serviceId) {
+        CanaryServiceInstanceSnapshot snapshot = new CanaryServiceInstanceSnapshot(serviceId,
+                discoveryClient.getInstances(serviceId), loadBalancerConfig.getCanaryDiscoveryServiceLabelPrefix());
+        snapshots.put(serviceId, snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Refresh the snapshots of all cached services.
+     *
+     * @param discoverAll
+     *            Whether to pre-load the services that have not been
+     *            requested yet from discovery server.
+     */
+    protected void refreshAll(boolean discoverAll) {
+        try {
+            Set<String> serviceIds = new HashSet<>(snapshots.keySet());
+            if (discoverAll) {
+                serviceIds.addAll(safeList(discoveryClient.getServices()));
+            }
+            serviceIds.forEach(serviceId -> {
+                try {
+                    refresh(serviceId);
+                } catch (Exception e) {
+                    log.warn(format("Failed to refresh instances snapshot of service '%s', keep the previous.", serviceId),
+                            e);
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Failed to refresh all service instances snapshot.", e);
+        }
+    }
+
+}
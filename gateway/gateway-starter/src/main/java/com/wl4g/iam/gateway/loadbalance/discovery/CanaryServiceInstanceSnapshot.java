@@ -0,0 +1,169 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.loadbalance.discovery;
+
+import static com.wl4g.infra.common.collection.CollectionUtils2.safeList;
+import static com.wl4g.infra.common.collection.CollectionUtils2.safeMap;
+import static com.wl4g.infra.common.lang.Assert2.hasTextOf;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.isNull;
+import static java.util.stream.Collectors.toList;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.StringUtils.startsWith;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.validation.constraints.NotNull;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+import com.wl4g.iam.gateway.loadbalance.LoadBalancerUtil;
+import com.wl4g.iam.gateway.loadbalance.stats.LoadBalancerStats;
+import com.wl4g.iam.gateway.loadbalance.stats.LoadBalancerStats.InstanceStatus;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Immutable snapshot of the discovery service instances, the canary label
+ * indexes (metadata label value -> instances) are precomputed at refresh time,
+ * so that choosing candidates becomes a map lookup instead of traversing the
+ * meta-data of all instances for each request.
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-03 v3.1.0
+ * @since v3.1.0
+ */
+@Getter
+@ToString
+public class CanaryServiceInstanceSnapshot {
+
+    private final String serviceId;
+    private final long createTime;
+    private final CandidateGroup allInstances;
+    @ToString.Exclude
+    private final Map<String, CandidateGroup> canaryIndex;
+    @ToString.Exclude
+    private final Map<List<String>, CandidateGroup> mergedGroups = new ConcurrentHashMap<>(4);
+
+    public CanaryServiceInstanceSnapshot(String serviceId, List<ServiceInstance> instances, String canaryLabelPrefix) {
+        this.serviceId = hasTextOf(serviceId, "serviceId");
+        this.createTime = System.currentTimeMillis();
+        this.allInstances = new CandidateGroup(safeList(instances));
+
+        Map<String, List<ServiceInstance>> index = new HashMap<>();
+        for (ServiceInstance instance : allInstances.getInstances()) {
+            for (Entry<String, String> e : safeMap(instance.getMetadata()).entrySet()) {
+                if (startsWith(e.getKey(), canaryLabelPrefix) && !isBlank(e.getValue())) {
+                    List<ServiceInstance> labeled = index.computeIfAbsent(toIndexKey(e.getValue()), k -> new ArrayList<>());
+                    if (!labeled.contains(instance)) {
+                        labeled.add(instance);
+                    }
+                }
+            }
+        }
+        Map<String, CandidateGroup> canaryIndex = new HashMap<>(index.size());
+        index.forEach((label, labeled) -> canaryIndex.put(label, new CandidateGroup(labeled)));
+        this.canaryIndex = canaryIndex;
+    }
+
+    public boolean isEmpty() {
+        return allInstances.getInstances().isEmpty();
+    }
+
+    /**
+     * Gets the candidate group of matched canary rule names (equivalent to
+     * {@link com.wl4g.iam.gateway.loadbalance.chooser.AbstractCanaryLoadBalancerChooser#findCandidateInstances(List, List)}).
+     */
+    public @NotNull CandidateGroup getCandidates(@NotNull List<String> matchedRuleNames) {
+        if (matchedRuleNames.size() == 1) {
+            CandidateGroup group = canaryIndex.get(toIndexKey(matchedRuleNames.get(0)));
+            return isNull(group) ? CandidateGroup.EMPTY : group;
+        }
+        return mergedGroups.computeIfAbsent(new ArrayList<>(matchedRuleNames), names -> {
+            Set<ServiceInstance> merged = new LinkedHashSet<>();
+            for (String name : names) {
+                CandidateGroup group = canaryIndex.get(toIndexKey(name));
+                if (!isNull(group)) {
+                    merged.addAll(group.getInstances());
+                }
+            }
+            return new CandidateGroup(new ArrayList<>(merged));
+        });
+    }
+
+    private static String toIndexKey(String label) {
+        return label.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The candidate instances group, which also memorizes the available
+     * (reachable and candidate) instances, and will only be recomputed when the
+     * reachable version of the {@link LoadBalancerStats} changes.
+     */
+    @Getter
+    @ToString
+    public static class CandidateGroup {
+        public static final CandidateGroup EMPTY = new CandidateGroup(emptyList());
+
+        private final List<ServiceInstance> instances;
+        @ToString.Exclude
+        private final Set<String> instanceIds;
+        @ToString.Exclude
+        private volatile AvailableMemo memo;
+
+        CandidateGroup(List<ServiceInstance> instances) {
+            this.instances = unmodifiableList(instances);
+            this.instanceIds = new HashSet<>(instances.size() * 2);
+            instances.forEach(i -> instanceIds.add(LoadBalancerUtil.getInstanceId(i)));
+        }
+
+        public @NotNull List<InstanceStatus> getAvailableInstances(@NotNull String routeId, @NotNull LoadBalancerStats stats) {
+            long version = stats.getReachableVersion();
+            AvailableMemo memo = this.memo;
+            if (!isNull(memo) && memo.getVersion() == version && memo.getRouteId().equals(routeId)) {
+                return memo.getAvailable();
+            }
+            List<InstanceStatus> available = instanceIds.isEmpty() ? emptyList()
+                    : unmodifiableList(stats.getReachableInstances(routeId)
+                            .stream()
+                            .filter(i -> instanceIds.contains(LoadBalancerUtil.getInstanceId(i.getInstance())))
+                            .collect(toList()));
+            this.memo = new AvailableMemo(routeId, version, available);
+            return available;
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    static class AvailableMemo {
+        private final String routeId;
+        private final long version;
+        private final List<InstanceStatus> available;
+    }
+
+}
@@ -28,6 +28,7 @@ import static java.util.Arrays.asList;
 import static java.util.Collections.unmodifiableMap;
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toMap;
@@ -37,18 +38,27 @@ import static org.springframework.util.CollectionUtils.isEmpty;
 
 import java.net.URI;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nullable;
 import javax.validation.constraints.NotNull;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.cloud.client.ServiceInstance;
@@ -62,6 +72,7 @@ import org.springframework.web.server.ServerWebExchange;
 import com.wl4g.iam.gateway.loadbalance.CanaryLoadBalancerFilterFactory.CanaryLoadBalancerGatewayFilter;
 import com.wl4g.iam.gateway.loadbalance.LoadBalancerUtil;
 import com.wl4g.iam.gateway.loadbalance.config.CanaryLoadBalancerProperties;
+import com.wl4g.iam.gateway.loadbalance.config.CanaryLoadBalancerProperties.ProbeClientProperties;
 import com.wl4g.iam.gateway.loadbalance.config.CanaryLoadBalancerProperties.ProbeProperties;
 import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
 import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsName;
@@ -74,8 +85,10 @@ import com.wl4g.infra.context.task.ApplicationTaskRunner;
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.Disposable;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.SignalType;
+import reactor.core.publisher.Sinks;
+import reactor.core.publisher.Sinks.EmitResult;
 import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 /**
  * {@link DefaultLoadBalancerStats}
@@ -85,20 +98,59 @@ import reactor.netty.http.client.HttpClient;
  * @since v3.0.0
  */
 @Slf4j
-public class DefaultLoadBalancerStats extends ApplicationTaskRunner<RunnerProperties> implements LoadBalancerStats {
-
-    private final CanaryLoadBalancerProperties loadBalancerConfig;
-    private @Autowired LoadBalancerRegistry loadBalancerRegistry;
-    private @Autowired ReachableStrategy reachableStrategy;
-    private @Autowired @Lazy RouteLocator routeRlocator;
-    private @Autowired DiscoveryClient discoveryClient;
-    private @Autowired IamGatewayMetricsFacade metricsFacade;
+public class DefaultLoadBalancerStats extends ApplicationTaskRunner<RunnerProperties>
+        implements LoadBalancerStats, DisposableBean {
+
+    protected final CanaryLoadBalancerProperties loadBalancerConfig;
+    protected @Autowired LoadBalancerRegistry loadBalancerRegistry;
+    protected @Autowired ReachableStrategy reachableStrategy;
+    protected @Autowired @Lazy RouteLocator routeRlocator;
+    protected @Autowired DiscoveryClient discoveryClient;
+    protected @Autowired IamGatewayMetricsFacade metricsFacade;
     private final AtomicBoolean initRegisterAllRouteServicesCompleted = new AtomicBoolean(false);
-    private final Map<String, ScheduledFuture<?>> routeServicesProbeFutures = new ConcurrentHashMap<>(4);
+    private final Map<String, RouteProbeTask> routeServicesProbeFutures = new ConcurrentHashMap<>(4);
+    protected final AtomicLong reachableVersion = new AtomicLong(0);
+
+    /**
+     * The shared keep-alive probe client of all instances, instead of creating
+     * the connection provider (and connecting) for every probe.
+     */
+    private final ConnectionProvider probeConnectionProvider;
+    private final HttpClient probeClient;
+    private final HttpClient wiretapProbeClient;
+
+    /**
+     * The pending probes queue, which is consumed with the bounded
+     * concurrency.
+     */
+    private final Sinks.Many<Mono<Void>> probeQueue;
+    private final Disposable probeSubscription;
 
     public DefaultLoadBalancerStats(CanaryLoadBalancerProperties loadBalancerConfig) {
         super(new RunnerProperties(StartupMode.ASYNC, loadBalancerConfig.getStatsSchedulerThread()));
         this.loadBalancerConfig = notNullOf(loadBalancerConfig, "loadBalancerConfig");
+        ProbeClientProperties probeClientConfig = loadBalancerConfig.getProbeClient();
+        this.probeConnectionProvider = ConnectionProvider.builder("iscg-canary-lb-probe")
+                .maxConnections(probeClientConfig.getMaxConnections())
+                .pendingAcquireMaxCount(probeClientConfig.getMaxPending())
+                .maxIdleTime(Duration.ofMillis(probeClientConfig.getMaxIdleMs()))
+                .build();
+        this.probeClient = HttpClient.create(probeConnectionProvider).keepAlive(true);
+        this.wiretapProbeClient = probeClient.wiretap(true);
+        this.probeQueue = Sinks.many().unicast().onBackpressureBuffer(new ArrayBlockingQueue<>(probeClientConfig.getMaxPending()));
+        this.probeSubscription = probeQueue.asFlux()
+                .flatMap(ping -> ping.onErrorResume(ex -> {
+                    log.warn("Failed to the request probe.", ex);
+                    return Mono.empty();
+                }), probeClientConfig.getMaxConcurrency())
+                .subscribe();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        probeSubscription.dispose();
+        probeConnectionProvider.disposeLater().block(Duration.ofSeconds(5));
+        super.close();
     }
 
     @Override
@@ -147,6 +199,7 @@ public class DefaultLoadBalancerStats extends ApplicationTaskRunner<RunnerProper
                     }
                 }
             });
+            reachableVersion.incrementAndGet();
             callback.run();
         } catch (Exception e) {
             log.warn("Failed to update or register all route services instance to the canary LB probe registry.", e);
@@ -158,7 +211,7 @@ public class DefaultLoadBalancerStats extends ApplicationTaskRunner<RunnerProper
         addCounterMetrics(MetricsName.CANARY_LB_STATS_RESTART_PROBE_TASK_TOTAL, routeIds);
 
         List<String> _routeIds = safeArrayToList(routeIds);
-        Map<String, ScheduledFuture<?>> updateRouteServicesProbeFutures = routeServicesProbeFutures.entrySet()
+        Map<String, RouteProbeTask> updateRouteServicesProbeFutures = routeServicesProbeFutures.entrySet()
                 .stream()
                 .filter(e -> nonNull(e.getValue()))
                 .filter(e -> _routeIds.isEmpty() || _routeIds.contains(e.getKey()))
@@ -173,8 +226,8 @@ public class DefaultLoadBalancerStats extends ApplicationTaskRunner<RunnerProper
                 .filter(e -> _routeIds.isEmpty() || _routeIds.contains(e.getKey()))
                 .collect(toMap(e -> e.getKey(), e -> e.getValue()));
 
-        // Stop the before probe tasks.
-        updateRouteServicesProbeFutures.forEach((routeId, future) -> future.cancel(false));
+        // Stop the before probe tasks, including the pending probes of them.
+        updateRouteServicesProbeFutures.forEach((routeId, task) -> task.cancel());
 
         // Re-scheduling probe tasks.
         int count = 0, maxTries = routeServices.size() * 2;
@@ -186,21 +239,12 @@ public class DefaultLoadBalancerStats extends ApplicationTaskRunner<RunnerProper
                 String routeId = entry.getKey();
                 RouteServiceStatus routeService = entry.getValue();
                 ProbeProperties probe = routeService.getConfig().getProbe();
-                ScheduledFuture<?> future = updateRouteServicesProbeFutures.get(routeId);
-                if (isNull(future) || (nonNull(future) && future.isDone())) {
-                    Map<String, InstanceStatus> serviceInstances = routeService.getInstances();
-                    getWorker().scheduleWithFixedDelay(() -> {
-                        serviceInstances.values().forEach(instance -> {
-                            try {
-                                doPing(probe, instance);
-                            } catch (Exception e) {
-                                log.warn(
-                                        format("Failed to the request probe. routeId=%s, serviceId=%s, instanceId=%s", routeId,
-                                                instance.getInstance().getServiceId(), instance.getInstance().getInstanceId()),
-                                        e);
-                            }
-                        });
-                    }, probe.getInitialSeconds(), probe.getDelaySeconds(), SECONDS);
+                RouteProbeTask task = updateRouteServicesProbeFutures.get(routeId);
+                if (isNull(task) || (nonNull(task) && task.isDone())) {
+                    RouteProbeTask newTask = new RouteProbeTask(routeId, probe, routeService.getInstances());
+                    newTask.future = getProbeScheduler().scheduleWithFixedDelay(newTask, probe.getInitialSeconds(),
+                            probe.getDelaySeconds(), SECONDS);
+                    routeServicesProbeFutures.put(routeId, newTask);
                     it.remove();
                 }
             }
@@ -270,6 +314,11 @@ public class DefaultLoadBalancerStats extends ApplicationTaskRunner<RunnerProper
         return unmodifiableMap(loadBalancerRegistry.getAllRouteServices());
     }
 
+    @Override
+    public long getReachableVersion() {
+        return reachableVersion.get();
+    }
+
     @Override
     public String toString() {
         return "DefaultLoadBalancerStats [loadBalancerConfig=" + loadBalancerConfig + ", loadBalancerRegistry="
@@ -279,7 +328,64 @@ public class DefaultLoadBalancerStats extends ApplicationTaskRunner<RunnerProper
                 + ", routeServicesProbeFutures=" + routeServicesProbeFutures + "]";
     }
 
-    protected Disposable doPing(ProbeProperties probe, InstanceStatus status) {
+    RouteProbeTask getProbeTask(String routeId) {
+        return routeServicesProbeFutures.get(routeId);
+    }
+
+    /**
+     * Gets the scheduler of the probe tasks, i.e. the worker of runner.
+     */
+    protected ScheduledExecutorService getProbeScheduler() {
+        return getWorker();
+    }
+
+    /**
+     * Spread the probes of the route instances evenly across the probe
+     * interval, each instance is probed at a random offset within its own
+     * slot, so that the probes of a large number of instances are not sent in
+     * bursts.
+     *
+     * @return The futures of the scheduled one-shot probes.
+     */
+    protected List<ScheduledFuture<?>> scheduleProbes(
+            String routeId,
+            ProbeProperties probe,
+            Map<String, InstanceStatus> serviceInstances) {
+        List<InstanceStatus> instances = new ArrayList<>(serviceInstances.values());
+        List<ScheduledFuture<?>> futures = new ArrayList<>(instances.size());
+        if (instances.isEmpty()) {
+            return futures;
+        }
+        long slotMs = Math.max(1L, SECONDS.toMillis(probe.getDelaySeconds()) / instances.size());
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < instances.size(); i++) {
+            InstanceStatus instance = instances.get(i);
+            futures.add(getProbeScheduler().schedule(() -> submitProbe(routeId, probe, instance),
+                    i * slotMs + random.nextLong(slotMs), MILLISECONDS));
+        }
+        return futures;
+    }
+
+    protected void submitProbe(String routeId, ProbeProperties probe, InstanceStatus instance) {
+        try {
+            EmitResult result;
+            // The sink does not allow the concurrent emitting, note that the
+            // lock only guards the enqueue of the scheduler threads.
+            synchronized (probeQueue) {
+                result = probeQueue.tryEmitNext(Mono.defer(() -> doPing(probe, instance)));
+            }
+            if (result.isFailure()) {
+                log.warn("Dropped the request probe of {}. routeId={}, serviceId={}, instanceId={}", result, routeId,
+                        instance.getInstance().getServiceId(), instance.getInstance().getInstanceId());
+                addCounterMetrics(instance, MetricsName.CANARY_LB_STATS_DROPPED_TOTAL);
+            }
+        } catch (Exception e) {
+            log.warn(format("Failed to the request probe. routeId=%s, serviceId=%s, instanceId=%s", routeId,
+                    instance.getInstance().getServiceId(), instance.getInstance().getInstanceId()), e);
+        }
+    }
+
+    protected Mono<Void> doPing(ProbeProperties probe, InstanceStatus status) {
         addCounterMetrics(status, MetricsName.CANARY_LB_STATS_TOTAL);
 
         /**
@@ -294,58 +400,27 @@ public class DefaultLoadBalancerStats extends ApplicationTaskRunner<RunnerProper
         Duration timeout = Duration.ofMillis(probe.getTimeoutMs());
         URI pingUri = buildUri(probe, status);
         log.debug("LoadBalancer stats probe to {}->'{}' ...", status, pingUri);
-        if (!isBlank(probe.getExpectBody())) {
-            return HttpClient.create()
-                    .wiretap(probe.isWiretap())
-                    .get()
-                    .uri(pingUri)
-                    .responseContent()
-                    .aggregate()
-                    .asString()
-                    .timeout(timeout,
-                            Mono.fromRunnable(
-                                    () -> save(probe, status, new ActiveProbe(currentTimeMillis(), true, null, null, null))))
-                    .doFinally(signal -> {
-                        // Failed to request probe ping.
-                        if (signal == SignalType.CANCEL) {
-                            save(probe, status, new ActiveProbe(currentTimeMillis(), false, true, null, null));
-                        }
-                    })
-                    // main thread non-blocking.
-                    .subscribe(response -> {
-                        log.debug("Probe success for instance status: {}, response: {}", status, response);
-                        save(probe, status, new ActiveProbe(currentTimeMillis(), false, null, null, response));
-                    }, ex -> {
-                        log.debug("Probe error for instance status: {}", status);
-                        save(probe, status, new ActiveProbe(currentTimeMillis(), false, null, null, null));
-                    }, () -> {
-                        log.debug("Ping completion for service instance status: {}", status);
-                    });
-        }
-        return HttpClient.create()
-                .wiretap(probe.isWiretap())
-                .get()
+        boolean expectBody = !isBlank(probe.getExpectBody());
+        return (probe.isWiretap() ? wiretapProbeClient : probeClient).get()
                 .uri(pingUri)
-                .responseConnection((res, connection) -> Mono.just(res))
-                .timeout(timeout,
-                        Mono.fromRunnable(
-                                () -> save(probe, status, new ActiveProbe(currentTimeMillis(), true, null, null, null))))
-                .doFinally(signal -> {
-                    // Failed to request probe ping.
-                    if (signal == SignalType.CANCEL) {
-                        save(probe, status, new ActiveProbe(currentTimeMillis(), false, true, null, null));
-                    }
+                // The response body is always consumed, so that the connection
+                // can be released back to the pool and reused.
+                .responseSingle((response, content) -> content.asString()
+                        .defaultIfEmpty("")
+                        .map(body -> new ActiveProbe(currentTimeMillis(), false, null, response.status(),
+                                expectBody ? body : null)))
+                .timeout(timeout, Mono.fromSupplier(() -> new ActiveProbe(currentTimeMillis(), true, null, null, null)))
+                .onErrorResume(ex -> {
+                    // Same as before, the failed probe (e.g. connection
+                    // refused) is not counted as cancelled.
+                    log.debug("Probe error for instance status: {}, cause: {}", status, ex.toString());
+                    return Mono.just(new ActiveProbe(currentTimeMillis(), false, null, null, null));
+                })
+                .doOnNext(activeProbe -> {
+                    log.debug("Probe completion for instance status: {}, result: {}", status, activeProbe);
+                    save(probe, status, activeProbe);
                 })
-                // main thread non-blocking.
-                .subscribe(response -> {
-                    log.debug("Probe success for instance status: {}, response: {}", status, response);
-                    save(probe, status, new ActiveProbe(currentTimeMillis(), false, null, response.status(), null));
-                }, ex -> {
-                    log.debug("Probe error for instance status: {}", status);
-                    save(probe, status, new ActiveProbe(currentTimeMillis(), false, null, null, null));
-                }, () -> {
-                    log.debug("Probe completion for instance status: {}", status);
-                });
+                .then();
     }
 
     protected URI buildUri(ProbeProperties probe, InstanceStatus status) {
@@ -355,14 +430,27 @@ public class DefaultLoadBalancerStats extends ApplicationTaskRunner<RunnerProper
         return URI.create(scheme.concat(instance.getHost()).concat(portPart).concat(probe.getPath()));
     }
 
-    protected synchronized void save(ProbeProperties probe, InstanceStatus status, ActiveProbe activeProbe) {
+    protected void save(ProbeProperties probe, InstanceStatus status, ActiveProbe activeProbe) {
         Stats stats = status.getStats();
-        Deque<ActiveProbe> queue = stats.getActiveProbes();
-        if (queue.size() > probe.getReceiveQueue()) {
-            queue.pollFirst();
+        // Only lock the instance, the probes of instances are concurrent.
+        synchronized (status) {
+            Deque<ActiveProbe> queue = stats.getActiveProbes();
+            if (queue.size() > probe.getReceiveQueue()) {
+                queue.pollFirst();
+            }
+            queue.offer(activeProbe);
+            // The p95 needs to sort the passive samples, so it's refreshed by
+            // the probes rather than each request.
+            if (!stats.getPassiveProbes().isEmpty()) {
+                long[] sorted = stats.getPassiveProbes().stream().mapToLong(p -> p.getCostTime()).sorted().toArray();
+                stats.setP95CostTime(sorted[Math.max(0, (int) Math.ceil(0.95d * sorted.length) - 1)]);
+            }
+            Boolean oldAlive = stats.getAlive();
+            reachableStrategy.updateStatus(probe, status);
+            if (!Objects.equals(oldAlive, stats.getAlive())) {
+                reachableVersion.incrementAndGet();
+            }
         }
-        queue.offer(activeProbe);
-        reachableStrategy.updateStatus(probe, status);
 
         if (activeProbe.isTimeout()) {
             addCounterMetrics(status, MetricsName.CANARY_LB_STATS_TIMEOUT_TOTAL);
@@ -372,18 +460,79 @@ public class DefaultLoadBalancerStats extends ApplicationTaskRunner<RunnerProper
         }
     }
 
-    protected synchronized void save(ProbeProperties probe, InstanceStatus status, PassiveProbe passiveProbe) {
+    protected void save(ProbeProperties probe, InstanceStatus status, PassiveProbe passiveProbe) {
         Stats stats = status.getStats();
-        Deque<PassiveProbe> queue = stats.getPassiveProbes();
-        if (queue.size() > probe.getReceiveQueue()) {
-            queue.pollFirst();
+        synchronized (status) {
+            Deque<PassiveProbe> queue = stats.getPassiveProbes();
+            if (queue.size() > probe.getReceiveQueue()) {
+                queue.pollFirst();
+            }
+            queue.offer(passiveProbe);
+            stats.setLatestCostTime(queue.peekLast().getCostTime());
+            stats.setOldestCostTime(queue.peekLast().getCostTime());
+            stats.setMaxCostTime(queue.stream().mapToDouble(p -> p.getCostTime()).max().getAsDouble());
+            stats.setMinCostTime(queue.stream().mapToDouble(p -> p.getCostTime()).min().getAsDouble());
+            stats.setAvgCostTime(queue.stream().mapToDouble(p -> p.getCostTime()).average().getAsDouble());
+        }
+    }
+
+    /**
+     * The periodic probe task of the route, which tracks the one-shot probes
+     * scheduled by each round, so that they are cancelled together with the
+     * task when restarted.
+     */
+    class RouteProbeTask implements Runnable {
+        private final String routeId;
+        private final ProbeProperties probe;
+        private final Map<String, InstanceStatus> serviceInstances;
+        private final Set<ScheduledFuture<?>> pendingProbes = ConcurrentHashMap.newKeySet();
+        private volatile ScheduledFuture<?> future;
+        private volatile boolean cancelled;
+
+        RouteProbeTask(String routeId, ProbeProperties probe, Map<String, InstanceStatus> serviceInstances) {
+            this.routeId = routeId;
+            this.probe = probe;
+            this.serviceInstances = serviceInstances;
+        }
+
+        @Override
+        public void run() {
+            pendingProbes.removeIf(Future::isDone);
+            if (cancelled) {
+                return;
+            }
+            for (ScheduledFuture<?> probeFuture : scheduleProbes(routeId, probe, serviceInstances)) {
+                pendingProbes.add(probeFuture);
+                // Cancelled while scheduling.
+                if (cancelled) {
+                    probeFuture.cancel(false);
+                }
+            }
+        }
+
+        void cancel() {
+            this.cancelled = true;
+            if (nonNull(future)) {
+                future.cancel(false);
+            }
+            pendingProbes.forEach(probeFuture -> probeFuture.cancel(false));
+            pendingProbes.clear();
+        }
+
+        boolean isDone() {
+            return cancelled || (nonNull(future) && future.isDone());
+        }
+
+        int getPendingProbes() {
+            pendingProbes.removeIf(Future::isDone);
+            return pendingProbes.size();
+        }
+
+        @Override
+        public String toString() {
+            return "RouteProbeTask [routeId=" + routeId + ", cancelled=" + cancelled + ", pendingProbes="
+                    + pendingProbes.size() + "]";
         }
-        queue.offer(passiveProbe);
-        stats.setLatestCostTime(queue.peekLast().getCostTime());
-        stats.setOldestCostTime(queue.peekLast().getCostTime());
-        stats.setMaxCostTime(queue.stream().mapToDouble(p -> p.getCostTime()).max().getAsDouble());
-        stats.setMinCostTime(queue.stream().mapToDouble(p -> p.getCostTime()).min().getAsDouble());
-        stats.setAvgCostTime(queue.stream().mapToDouble(p -> p.getCostTime()).average().getAsDouble());
     }
 
     /**
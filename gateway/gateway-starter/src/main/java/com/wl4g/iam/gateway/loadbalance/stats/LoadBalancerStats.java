@@ -15,7 +15,9 @@
  */
 package com.wl4g.iam.gateway.loadbalance.stats;
 
+import static com.wl4g.infra.common.collection.CollectionUtils2.safeMap;
 import static com.wl4g.infra.common.lang.Assert2.notNullOf;
+import static java.util.Objects.isNull;
 
 import java.util.Deque;
 import java.util.List;
@@ -84,6 +86,36 @@ public interface LoadBalancerStats {
     @NotNull
     Map<String, RouteServiceStatus> getAllRouteServices();
 
+    /**
+     * Gets the version of the reachable instances, which is increased whenever
+     * the instances are re-registered or the alive status of any instance
+     * changes, it can be used to cache the results computed from the reachable
+     * instances.
+     */
+    long getReachableVersion();
+
+    /**
+     * Gets the p95 passive cost time (ms) of the route, i.e. the largest one of
+     * the reachable instances, it's only refreshed out of the request hot path
+     * (e.g. when the probe results are saved).
+     *
+     * @param routeId
+     * @return The p95 cost time, or 0 if the route is not load balanced or has
+     *         no samples yet.
+     */
+    default double getP95CostTime(@NotBlank String routeId) {
+        RouteServiceStatus routeService = getAllRouteServices().get(routeId);
+        if (isNull(routeService)) {
+            return 0d;
+        }
+        return safeMap(routeService.getInstances()).values()
+                .stream()
+                .filter(i -> !Boolean.FALSE.equals(i.getStats().getAlive()))
+                .mapToDouble(i -> i.getStats().getP95CostTime())
+                .max()
+                .orElse(0d);
+    }
+
     @Getter
     @Setter
     @ToString
@@ -112,12 +144,15 @@ public interface LoadBalancerStats {
         private AtomicInteger connections = new AtomicInteger(0);
         private Deque<ActiveProbe> activeProbes = Queues.newArrayDeque();
         private Deque<PassiveProbe> passiveProbes = Queues.newArrayDeque();
-        private Boolean alive;
-        private double latestCostTime;
-        private double oldestCostTime;
-        private double maxCostTime;
-        private double minCostTime;
-        private double avgCostTime;
+        @ToString.Exclude
+        private volatile PassiveLatencyWindow passiveWindow;
+        private volatile Boolean alive;
+        private volatile double latestCostTime;
+        private volatile double oldestCostTime;
+        private volatile double maxCostTime;
+        private volatile double minCostTime;
+        private volatile double avgCostTime;
+        private volatile double p95CostTime;
     }
 
     /**
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.loadbalance.stats;
+
+import static com.wl4g.infra.common.lang.FastTimeClock.currentTimeMillis;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.wl4g.iam.gateway.loadbalance.LoadBalancerUtil;
+import com.wl4g.iam.gateway.loadbalance.config.CanaryLoadBalancerProperties;
+import com.wl4g.iam.gateway.loadbalance.config.CanaryLoadBalancerProperties.ProbeProperties;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsName;
+
+/**
+ * {@link LockFreeLoadBalancerStats}, Compared to
+ * {@link DefaultLoadBalancerStats}, the connect/disconnect of the request hot
+ * path no longer go through the globally synchronized
+ * {@link LoadBalancerRegistry#update(String, RouteServiceStatus, boolean)} and
+ * the O(n) aggregations of
+ * {@link DefaultLoadBalancerStats#save(ProbeProperties, InstanceStatus, PassiveProbe)},
+ * each instance only updates its own connections counter and
+ * {@link PassiveLatencyWindow}.
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-02 v3.1.0
+ * @since v3.1.0
+ */
+public class LockFreeLoadBalancerStats extends DefaultLoadBalancerStats {
+
+    public LockFreeLoadBalancerStats(CanaryLoadBalancerProperties loadBalancerConfig) {
+        super(loadBalancerConfig);
+    }
+
+    @Override
+    public int connect(ServerWebExchange exchange, ServiceInstance instance) {
+        exchange.getAttributes().put(KEY_COST_TIME, currentTimeMillis());
+        RouteServiceStatus routeService = getRouteService(exchange);
+        InstanceStatus instanceStatus = routeService.getInstances().get(LoadBalancerUtil.getInstanceId(instance));
+        if (nonNull(instanceStatus)) {
+            int count = instanceStatus.getStats().getConnections().incrementAndGet();
+            addCounterMetrics(exchange, MetricsName.CANARY_LB_STATS_CONNECT_OPEN_TOTAL, instance);
+            return count;
+        }
+        return 0;
+    }
+
+    @Override
+    public int disconnect(ServerWebExchange exchange, ServiceInstance instance) {
+        RouteServiceStatus routeService = getRouteService(exchange);
+        InstanceStatus instanceStatus = routeService.getInstances().get(LoadBalancerUtil.getInstanceId(instance));
+        if (nonNull(instanceStatus)) {
+            Long beginTime = exchange.getAttribute(KEY_COST_TIME);
+            if (nonNull(beginTime)) {
+                record(routeService.getConfig().getProbe(), instanceStatus, currentTimeMillis() - beginTime);
+            }
+            int count = instanceStatus.getStats().getConnections().decrementAndGet();
+            addCounterMetrics(exchange, MetricsName.CANARY_LB_STATS_CONNECT_CLOSE_TOTAL, instance);
+            return count;
+        }
+        return 0;
+    }
+
+    @Override
+    protected void save(ProbeProperties probe, InstanceStatus status, ActiveProbe activeProbe) {
+        super.save(probe, status, activeProbe);
+
+        // Fold the passive window aggregates out of the hot path.
+        PassiveLatencyWindow window = status.getStats().getPassiveWindow();
+        if (nonNull(window)) {
+            window.fold(status.getStats());
+        }
+    }
+
+    @Override
+    protected void save(ProbeProperties probe, InstanceStatus status, PassiveProbe passiveProbe) {
+        record(probe, status, passiveProbe.getCostTime());
+    }
+
+    /**
+     * Record passive cost time, O(1) and does not allocate after the window is
+     * initialized.
+     */
+    protected void record(ProbeProperties probe, InstanceStatus status, long costTime) {
+        Stats stats = status.getStats();
+        PassiveLatencyWindow window = stats.getPassiveWindow();
+        if (isNull(window)) {
+            window = initPassiveWindow(probe, status);
+        }
+        double ewma = window.record(costTime);
+        stats.setLatestCostTime(costTime);
+        stats.setAvgCostTime(ewma);
+    }
+
+    protected PassiveLatencyWindow initPassiveWindow(ProbeProperties probe, InstanceStatus status) {
+        Stats stats = status.getStats();
+        synchronized (stats) {
+            PassiveLatencyWindow window = stats.getPassiveWindow();
+            if (isNull(window)) {
+                stats.setPassiveWindow(window = new PassiveLatencyWindow(probe.getReceiveQueue(), probe.getPassiveEwmaAlpha()));
+            }
+            return window;
+        }
+    }
+
+    protected RouteServiceStatus getRouteService(ServerWebExchange exchange) {
+        Route route = exchange.getRequiredAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        return loadBalancerRegistry.getRouteService(route.getId(), true);
+    }
+
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.loadbalance.stats;
+
+import static com.wl4g.infra.common.lang.Assert2.isTrue;
+import static java.lang.Double.doubleToRawLongBits;
+import static java.lang.Double.longBitsToDouble;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import lombok.Getter;
+
+/**
+ * Lock-free passive latency window, the writer only claims a slot of the ring
+ * buffer by one atomic increment and updates the EWMA with a CAS loop (a lost
+ * CAS under contention is retried against the latest average, so no sample is
+ * dropped), and the request hot path never blocks. The min/max/oldest aggregates are
+ * folded from the ring by the reader side (e.g. probe scheduler) only.
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-02 v3.1.0
+ * @since v3.1.0
+ */
+public class PassiveLatencyWindow {
+
+    private static final long EMPTY_SAMPLE = -1L;
+
+    private final AtomicLongArray samples;
+    private final int mask;
+    private final AtomicLong cursor = new AtomicLong(0);
+    private final AtomicLong ewmaBits = new AtomicLong(doubleToRawLongBits(Double.NaN));
+    private final @Getter double alpha;
+
+    public PassiveLatencyWindow(int capacity, double alpha) {
+        isTrue(capacity > 0, "capacity must be greater than 0");
+        isTrue(alpha > 0 && alpha <= 1, "alpha must be in (0, 1]");
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.samples = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            this.samples.set(i, EMPTY_SAMPLE);
+        }
+        this.mask = size - 1;
+        this.alpha = alpha;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public long count() {
+        return cursor.get();
+    }
+
+    /**
+     * Record a passive cost time sample, O(1) and allocation free.
+     *
+     * @param costTime
+     * @return The EWMA cost time stored by this sample.
+     */
+    public double record(long costTime) {
+        long seq = cursor.getAndIncrement();
+        samples.lazySet((int) (seq & mask), costTime);
+
+        for (;;) {
+            long prevBits = ewmaBits.get();
+            double prev = longBitsToDouble(prevBits);
+            double next = Double.isNaN(prev) ? costTime : (prev + alpha * (costTime - prev));
+            if (ewmaBits.compareAndSet(prevBits, doubleToRawLongBits(next))) {
+                return next;
+            }
+        }
+    }
+
+    public double ewma() {
+        double value = longBitsToDouble(ewmaBits.get());
+        return Double.isNaN(value) ? 0d : value;
+    }
+
+    public long latest() {
+        long seq = cursor.get();
+        return seq <= 0 ? 0L : sampleAt(seq - 1);
+    }
+
+    public long oldest() {
+        long seq = cursor.get();
+        if (seq <= 0) {
+            return 0L;
+        }
+        return sampleAt(seq > capacity() ? (seq - capacity()) : 0);
+    }
+
+    /**
+     * Fold the current window into the given stats, note that this is O(window
+     * size) and should only be called on the non hot path.
+     *
+     * @param stats
+     */
+    public void fold(LoadBalancerStats.Stats stats) {
+        long min = Long.MAX_VALUE, max = Long.MIN_VALUE, sum = 0;
+        int n = 0;
+        for (int i = 0, size = capacity(); i < size; i++) {
+            long sample = samples.get(i);
+            if (sample == EMPTY_SAMPLE) {
+                continue;
+            }
+            min = Math.min(min, sample);
+            max = Math.max(max, sample);
+            sum += sample;
+            ++n;
+        }
+        if (n == 0) {
+            return;
+        }
+        stats.setMinCostTime(min);
+        stats.setMaxCostTime(max);
+        stats.setP95CostTime(percentile(0.95d));
+        stats.setOldestCostTime(oldest());
+        stats.setLatestCostTime(latest());
+        stats.setAvgCostTime(ewma());
+    }
+
+    /**
+     * Calculate the percentile of the samples in the current window, note that
+     * this is O(n log n) of window size and should only be called on the non
+     * hot path.
+     *
+     * @param percentile
+     *            The percentile in (0, 1], e.g. 0.95
+     * @return The percentile cost time, or 0 if there are no samples.
+     */
+    public long percentile(double percentile) {
+        isTrue(percentile > 0 && percentile <= 1, "percentile must be in (0, 1]");
+        long[] sorted = new long[capacity()];
+        int n = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            long sample = samples.get(i);
+            if (sample != EMPTY_SAMPLE) {
+                sorted[n++] = sample;
+            }
+        }
+        if (n == 0) {
+            return 0L;
+        }
+        Arrays.sort(sorted, 0, n);
+        return sorted[Math.max(0, (int) Math.ceil(percentile * n) - 1)];
+    }
+
+    private long sampleAt(long seq) {
+        long sample = samples.get((int) (seq & mask));
+        return sample == EMPTY_SAMPLE ? 0L : sample;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " [capacity=" + capacity() + ", count=" + count() + ", ewma=" + ewma()
+                + ", latest=" + latest() + "]";
+    }
+
+}
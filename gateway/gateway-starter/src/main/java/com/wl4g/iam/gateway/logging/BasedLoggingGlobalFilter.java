@@ -17,8 +17,6 @@ package com.wl4g.iam.gateway.logging;
 
 import static com.wl4g.infra.common.lang.Assert2.notNullOf;
 import static com.wl4g.infra.common.lang.FastTimeClock.currentTimeMillis;
-import static java.lang.String.format;
-import static java.util.Collections.singletonMap;
 import static java.util.Collections.unmodifiableList;
 import static java.util.Objects.isNull;
 import static org.apache.commons.lang3.SystemUtils.LINE_SEPARATOR;
@@ -35,31 +33,23 @@ import static org.springframework.http.MediaType.TEXT_PLAIN;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.function.Predicate;
-import java.util.function.Supplier;
 
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.GlobalFilter;
-import org.springframework.cloud.gateway.route.Route;
-import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.core.Ordered;
-import org.springframework.expression.EvaluationException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.server.ServerWebExchange;
 
-import com.google.common.base.Predicates;
 import com.wl4g.iam.gateway.logging.config.LoggingProperties;
 import com.wl4g.iam.gateway.util.IamGatewayUtil.SafeFilterOrdered;
+import com.wl4g.iam.gateway.util.matcher.CompiledRequestMatcher;
+import com.wl4g.iam.gateway.util.matcher.RequestMatcherEngine;
 import com.wl4g.infra.common.lang.TypeConverts;
-import com.wl4g.infra.common.web.WebUtils.WebRequestExtractor;
 import com.wl4g.infra.core.constant.CoreInfraConstants;
 import com.wl4g.infra.context.logging.LoggingMessageUtil;
 import com.wl4g.infra.context.logging.reactive.BaseLoggingWebFilter;
-import com.wl4g.infra.context.utils.web.ReactiveRequestExtractor;
-import com.wl4g.infra.context.web.matcher.SpelRequestMatcher;
 
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Mono;
@@ -75,22 +65,15 @@ import reactor.core.publisher.Mono;
 public abstract class BasedLoggingGlobalFilter implements GlobalFilter, Ordered {
 
     protected final LoggingProperties loggingConfig;
-    protected final SpelRequestMatcher requestMatcher;
+    protected final CompiledRequestMatcher requestMatcher;
 
-    public BasedLoggingGlobalFilter(LoggingProperties loggingConfig) {
+    public BasedLoggingGlobalFilter(LoggingProperties loggingConfig, RequestMatcherEngine requestMatcherEngine) {
         this.loggingConfig = notNullOf(loggingConfig, "loggingConfig");
-        // Build gray request matcher.
-        this.requestMatcher = new SpelRequestMatcher(loggingConfig.getPreferMatchRuleDefinitions());
-        // Check expression.
-        try {
-            // Pre-compile and warm up to evaluate checks at service startup,
-            // and avoid performance issues at runtime for unexpected errors,
-            // such as throwing stack information when evaluating exceptions.
-            this.requestMatcher.matches(new WebRequestExtractor() {
-            }, loggingConfig.getPreferOpenMatchExpression());
-        } catch (EvaluationException e) {
-            throw new EvaluationException(format("Invalid evaluation expression for reason: %s", e.getMessage()), e);
-        }
+        notNullOf(requestMatcherEngine, "requestMatcherEngine");
+        // Build gray request matcher and pre-compile expression. (shared by
+        // request/response logging filters)
+        this.requestMatcher = requestMatcherEngine.compile(RequestMatcherEngine.MATCHER_LOGGING,
+                loggingConfig.getPreferMatchRuleDefinitions(), loggingConfig.getPreferOpenMatchExpression());
     }
 
     /**
@@ -150,22 +133,13 @@ public abstract class BasedLoggingGlobalFilter implements GlobalFilter, Ordered
         if (!loggingConfig.isEnabled()) {
             return false;
         }
-        // Gets current request route.
-        Route route = exchange.getRequiredAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
-
-        // Add routeId temporary predicates.
-        Map<String, Supplier<Predicate<String>>> routeIdPredicateSupplier = singletonMap(VAR_ROUTE_ID,
-                () -> (Predicate<String>) Predicates.equalTo(route.getId()));
-
         try {
             // Check if printing the log of the current request is enabled based
-            // on the current request parameters.
-            return (requestMatcher.matches(new ReactiveRequestExtractor(exchange.getRequest()),
-                    loggingConfig.getPreferOpenMatchExpression(), routeIdPredicateSupplier))
-                    || (determineRequestVerboseLevel(exchange) > 10
-                            && requestMatcher.matches(new ReactiveRequestExtractor(exchange.getRequest()),
-                                    exchange.getRequest().getHeaders().getFirst(loggingConfig.getDyeingLogStateRequestHeader()),
-                                    routeIdPredicateSupplier));
+            // on the current request parameters. (The results are memorized in
+            // exchange, evaluated only once for request and response logging)
+            return (requestMatcher.matches(exchange, loggingConfig.getPreferOpenMatchExpression()))
+                    || (determineRequestVerboseLevel(exchange) > 10 && requestMatcher.matches(exchange,
+                            exchange.getRequest().getHeaders().getFirst(loggingConfig.getDyeingLogStateRequestHeader())));
         } catch (Exception e) {
             log.warn("Evaluating failed, logging disabled by default, reason: %s", e.getMessage());
             return false;
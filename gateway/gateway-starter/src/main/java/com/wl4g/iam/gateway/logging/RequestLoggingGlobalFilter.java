@@ -40,6 +40,7 @@ import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.server.ServerWebExchange;
 
 import com.wl4g.iam.gateway.logging.config.LoggingProperties;
+import com.wl4g.iam.gateway.util.matcher.RequestMatcherEngine;
 
 import lombok.extern.slf4j.Slf4j;
 import reactor.core.publisher.Flux;
@@ -55,8 +56,8 @@ import reactor.core.publisher.Mono;
 @Slf4j
 public class RequestLoggingGlobalFilter extends BasedLoggingGlobalFilter {
 
-    public RequestLoggingGlobalFilter(LoggingProperties loggingConfig) {
-        super(loggingConfig);
+    public RequestLoggingGlobalFilter(LoggingProperties loggingConfig, RequestMatcherEngine requestMatcherEngine) {
+        super(loggingConfig, requestMatcherEngine);
     }
 
     @Override
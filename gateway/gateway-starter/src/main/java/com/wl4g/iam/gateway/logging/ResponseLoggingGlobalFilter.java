@@ -44,6 +44,7 @@ import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.server.ServerWebExchange;
 
 import com.wl4g.iam.gateway.logging.config.LoggingProperties;
+import com.wl4g.iam.gateway.util.matcher.RequestMatcherEngine;
 import com.wl4g.infra.common.lang.FastTimeClock;
 
 import lombok.extern.slf4j.Slf4j;
@@ -60,8 +61,8 @@ import reactor.core.publisher.Mono;
 @Slf4j
 public class ResponseLoggingGlobalFilter extends BasedLoggingGlobalFilter {
 
-    public ResponseLoggingGlobalFilter(LoggingProperties loggingConfig) {
-        super(loggingConfig);
+    public ResponseLoggingGlobalFilter(LoggingProperties loggingConfig, RequestMatcherEngine requestMatcherEngine) {
+        super(loggingConfig, requestMatcherEngine);
     }
 
     @Override
@@ -22,6 +22,7 @@ import org.springframework.context.annotation.Bean;
 
 import com.wl4g.iam.gateway.logging.RequestLoggingGlobalFilter;
 import com.wl4g.iam.gateway.logging.ResponseLoggingGlobalFilter;
+import com.wl4g.iam.gateway.util.matcher.RequestMatcherEngine;
 
 /**
  * {@link LoggingMessageAutoConfiguration}
@@ -39,13 +40,17 @@ public class LoggingAutoConfiguration {
     }
 
     @Bean
-    public RequestLoggingGlobalFilter requestLoggingGlobalFilter(LoggingProperties loggingConfig) {
-        return new RequestLoggingGlobalFilter(loggingConfig);
+    public RequestLoggingGlobalFilter requestLoggingGlobalFilter(
+            LoggingProperties loggingConfig,
+            RequestMatcherEngine requestMatcherEngine) {
+        return new RequestLoggingGlobalFilter(loggingConfig, requestMatcherEngine);
     }
 
     @Bean
-    public ResponseLoggingGlobalFilter responseLoggingGlobalFilter(LoggingProperties loggingConfig) {
-        return new ResponseLoggingGlobalFilter(loggingConfig);
+    public ResponseLoggingGlobalFilter responseLoggingGlobalFilter(
+            LoggingProperties loggingConfig,
+            RequestMatcherEngine requestMatcherEngine) {
+        return new ResponseLoggingGlobalFilter(loggingConfig, requestMatcherEngine);
     }
 
 }
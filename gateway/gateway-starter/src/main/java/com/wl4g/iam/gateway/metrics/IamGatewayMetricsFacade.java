@@ -23,10 +23,11 @@ import static java.lang.System.nanoTime;
 import static java.util.Arrays.asList;
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
-import java.time.Duration;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 
@@ -38,7 +39,8 @@ import org.springframework.cloud.commons.util.InetUtils;
 import org.springframework.core.env.Environment;
 import org.springframework.web.server.ServerWebExchange;
 
-import com.google.common.collect.Lists;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.wl4g.iam.gateway.loadbalance.LoadBalancerUtil;
 import com.wl4g.iam.gateway.loadbalance.stats.LoadBalancerStats.InstanceStatus;
 import com.wl4g.iam.gateway.util.IamGatewayUtil;
@@ -46,12 +48,15 @@ import com.wl4g.iam.gateway.util.IamGatewayUtil;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Tags;
 import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.config.MeterFilter;
 import io.micrometer.prometheus.PrometheusMeterRegistry;
 import io.prometheus.client.Collector.MetricFamilySamples;
 import io.prometheus.client.CounterMetricFamily;
 import io.prometheus.client.GaugeMetricFamily;
 import io.prometheus.client.SummaryMetricFamily;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -67,6 +72,13 @@ import lombok.extern.slf4j.Slf4j;
 @Getter
 public class IamGatewayMetricsFacade implements InitializingBean {
 
+    public static final String PROP_COUNTER_SELF_INSTANCE_TAG = "spring.iam.gateway.metrics.counter-self-instance-tag";
+    public static final String PROP_MAX_CACHED_METERS = "spring.iam.gateway.metrics.max-cached-meters";
+    public static final String PROP_MAX_ROUTE_TAGS = "spring.iam.gateway.metrics.max-route-tags";
+    public static final long DEFAULT_MAX_CACHED_METERS = 10_000L;
+    public static final int DEFAULT_MAX_ROUTE_TAGS = 1_000;
+    public static final String METRICS_NAME_PREFIX = "iscg_";
+
     private final Map<String, MetricFamilySamples> sampleRegistry = new ConcurrentHashMap<>(16);
 
     private final PrometheusMeterRegistry meterRegistry;
@@ -83,16 +95,48 @@ public class IamGatewayMetricsFacade implements InitializingBean {
      */
     private DefaultServiceInstance localInstance;
 
+    private String localInstanceId;
+
+    /**
+     * Whether to tag the counters with the self instance, which is disabled by
+     * default to keep the exported label sets of counters unchanged, the
+     * route timers are always tagged.
+     */
+    private final boolean counterSelfInstanceTag;
+
+    @Getter(AccessLevel.NONE)
+    private final Cache<MeterKey, Counter> cachedCounters;
+
+    @Getter(AccessLevel.NONE)
+    private final Cache<MeterKey, Timer> cachedTimers;
+
     public IamGatewayMetricsFacade(@NotNull PrometheusMeterRegistry meterRegistry, @NotNull InetUtils inet,
             @NotNull Environment environment) {
         this.meterRegistry = notNullOf(meterRegistry, "meterRegistry");
         this.inet = notNullOf(inet, "inet");
         this.environment = notNullOf(environment, "environment");
+        this.counterSelfInstanceTag = environment.getProperty(PROP_COUNTER_SELF_INSTANCE_TAG, Boolean.class, false);
+        long maxCachedMeters = environment.getProperty(PROP_MAX_CACHED_METERS, Long.class, DEFAULT_MAX_CACHED_METERS);
+        this.cachedCounters = Caffeine.newBuilder().maximumSize(maxCachedMeters).build();
+        this.cachedTimers = Caffeine.newBuilder().maximumSize(maxCachedMeters).build();
     }
 
     @Override
     public void afterPropertiesSet() throws Exception {
         initLocalInstance();
+        initMeterFilters();
+    }
+
+    /**
+     * The evicted meters of the caches are still registered, so the number of
+     * routeId tag values are limited, the meters of exceeded routeIds are
+     * denied (no-op).
+     */
+    private void initMeterFilters() {
+        int maxRouteTags = environment.getProperty(PROP_MAX_ROUTE_TAGS, Integer.class, DEFAULT_MAX_ROUTE_TAGS);
+        meterRegistry.config()
+                .meterFilter(MeterFilter.maximumAllowableTags(METRICS_NAME_PREFIX, MetricsTag.ROUTE_ID, maxRouteTags,
+                        MeterFilter.deny()));
     }
 
     private void initLocalInstance() throws Exception {
@@ -102,6 +146,7 @@ public class IamGatewayMetricsFacade implements InitializingBean {
         int port = environment.getRequiredProperty("server.port", Integer.class);
         String instanceId = host.concat(":").concat(valueOf(port));
         this.localInstance = new DefaultServiceInstance(instanceId, serviceId, host, port, secure);
+        this.localInstanceId = LoadBalancerUtil.getInstanceId(localInstance);
     }
 
     //
@@ -114,10 +159,7 @@ public class IamGatewayMetricsFacade implements InitializingBean {
             notNullOf(metricsName, "metricsName");
             String routeId = IamGatewayUtil.getRouteId(exchange);
             if (nonNull(routeId)) {
-                List<String> _tags = Lists.newArrayList(tags);
-                _tags.add(MetricsTag.ROUTE_ID);
-                _tags.add(routeId);
-                getCounter(metricsName, _tags.toArray(new String[0])).increment(amount);
+                obtainCounter(metricsName, routeId, tags).increment(amount);
             }
         } catch (Exception e) {
             log.warn(format("Cannot add to counter metrics name: %s, amount: {}", metricsName, valueOf(amount)), e);
@@ -138,12 +180,12 @@ public class IamGatewayMetricsFacade implements InitializingBean {
             notNullOf(status, "instanceStatus");
             notNullOf(status.getInstance(), "instanceStatus.instance");
             notNullOf(metricsName, "metricsName");
-            List<String> _tags = Lists.newArrayList(tags);
-            _tags.add(MetricsTag.LB_SERVICE_ID);
-            _tags.add(status.getInstance().getServiceId());
-            _tags.add(MetricsTag.LB_INSTANCE_ID);
-            _tags.add(LoadBalancerUtil.getInstanceId(status.getInstance()));
-            getCounter(metricsName, _tags.toArray(new String[0])).increment(amount);
+            String[] _tags = Arrays.copyOf(tags, tags.length + 4);
+            _tags[tags.length] = MetricsTag.LB_SERVICE_ID;
+            _tags[tags.length + 1] = status.getInstance().getServiceId();
+            _tags[tags.length + 2] = MetricsTag.LB_INSTANCE_ID;
+            _tags[tags.length + 3] = LoadBalancerUtil.getInstanceId(status.getInstance());
+            getCounter(metricsName, _tags).increment(amount);
         } catch (Exception e) {
             log.warn(format("Cannot add to counter metrics name: %s, amount: {}, instanceStatus: {}", metricsName,
                     valueOf(amount)), status, e);
@@ -152,10 +194,7 @@ public class IamGatewayMetricsFacade implements InitializingBean {
 
     public void counter(MetricsName metricsName, String routeId, double amount, String... tags) {
         try {
-            List<String> _tags = Lists.newArrayList(tags);
-            _tags.add(MetricsTag.ROUTE_ID);
-            _tags.add(routeId);
-            getCounter(metricsName, _tags.toArray(new String[0])).increment(amount);
+            obtainCounter(metricsName, routeId, tags).increment(amount);
         } catch (Exception e) {
             log.warn(format("Cannot add to counter metrics name: %s, amount: {}, routeId: {}", metricsName, valueOf(amount)),
                     routeId, e);
@@ -163,10 +202,24 @@ public class IamGatewayMetricsFacade implements InitializingBean {
     }
 
     public Counter getCounter(MetricsName metricsName, String... tags) {
-        List<String> _tags = Lists.newArrayList(tags);
-        _tags.add(MetricsTag.SELF_INSTANCE_ID);
-        _tags.add(LoadBalancerUtil.getInstanceId(localInstance));
-        return Counter.builder(metricsName.getName()).description(metricsName.getHelp()).tags(tags).register(meterRegistry);
+        return obtainCounter(metricsName, null, tags);
+    }
+
+    /**
+     * Gets the counter of bound tags, the registered counters are cached by
+     * (metric, routeId, tags), so the repeated lookup no longer builds the
+     * {@link io.micrometer.core.instrument.Meter.Id} and tags.
+     */
+    private Counter obtainCounter(MetricsName metricsName, String routeId, String[] tags) {
+        MeterKey key = new MeterKey(metricsName, routeId, tags);
+        Counter counter = cachedCounters.getIfPresent(key);
+        if (isNull(counter)) {
+            counter = cachedCounters.get(key, k -> Counter.builder(metricsName.getName())
+                    .description(metricsName.getHelp())
+                    .tags(k.toTags(counterSelfInstanceTag ? localInstanceId : null))
+                    .register(meterRegistry));
+        }
+        return counter;
     }
 
     public Gauge gauge(MetricsName metricsName, Supplier<Number> supplier, String... tags) {
@@ -177,45 +230,62 @@ public class IamGatewayMetricsFacade implements InitializingBean {
     public void timer(ServerWebExchange exchange, MetricsName metricsName, long beginNanoTime, String... tags) {
         notNullOf(exchange, "exchange");
         notNullOf(metricsName, "metricsName");
-        Duration cost = Duration.ofNanos(nanoTime() - beginNanoTime);
+        long costNanos = nanoTime() - beginNanoTime;
         try {
             String routeId = IamGatewayUtil.getRouteId(exchange);
             if (nonNull(routeId)) {
-                List<String> _tags = Lists.newArrayList(tags);
-                _tags.add(MetricsTag.SELF_INSTANCE_ID);
-                _tags.add(LoadBalancerUtil.getInstanceId(localInstance));
-                _tags.add(MetricsTag.ROUTE_ID);
-                _tags.add(routeId);
-                getTimer(metricsName, _tags.toArray(new String[0])).record(cost);
+                obtainTimer(metricsName, routeId, tags).record(costNanos, NANOSECONDS);
             }
         } catch (Exception e) {
-            log.warn(format("Cannot add to counter metrics name: %s, cost: {}ns", metricsName, valueOf(cost.getNano())), e);
+            log.warn(format("Cannot add to counter metrics name: %s, cost: {}ns", metricsName, valueOf(costNanos)), e);
         }
     }
 
     public void timer(MetricsName metricsName, String routeId, long beginNanoTime, String... tags) {
         notNullOf(metricsName, "metricsName");
         hasTextOf(routeId, "routeId");
-        Duration cost = Duration.ofNanos(nanoTime() - beginNanoTime);
+        long costNanos = nanoTime() - beginNanoTime;
         try {
-            List<String> _tags = Lists.newArrayList(tags);
-            _tags.add(MetricsTag.SELF_INSTANCE_ID);
-            _tags.add(LoadBalancerUtil.getInstanceId(localInstance));
-            _tags.add(MetricsTag.ROUTE_ID);
-            _tags.add(routeId);
-            getTimer(metricsName, _tags.toArray(new String[0])).record(cost);
+            obtainTimer(metricsName, routeId, tags).record(costNanos, NANOSECONDS);
         } catch (Exception e) {
-            log.warn(format("Cannot add to counter metrics name: %s, cost: {}ns", metricsName, valueOf(cost.getNano())), e);
+            log.warn(format("Cannot add to counter metrics name: %s, cost: {}ns", metricsName, valueOf(costNanos)), e);
         }
     }
 
     public Timer getTimer(MetricsName metricsName, String... tags) {
-        return Timer.builder(metricsName.getName())
-                .distributionStatisticBufferLength(10240)
-                // .distributionStatisticExpiry(Duration.ofDays(1))
-                .description(metricsName.getHelp())
-                .tags(tags)
-                .register(meterRegistry);
+        return obtainTimer(metricsName, null, tags);
+    }
+
+    private Timer obtainTimer(MetricsName metricsName, String routeId, String[] tags) {
+        MeterKey key = new MeterKey(metricsName, routeId, tags);
+        Timer timer = cachedTimers.getIfPresent(key);
+        if (isNull(timer)) {
+            timer = cachedTimers.get(key, k -> Timer.builder(metricsName.getName())
+                    .distributionStatisticBufferLength(10240)
+                    // .distributionStatisticExpiry(Duration.ofDays(1))
+                    .description(metricsName.getHelp())
+                    .tags(k.toTags(nonNull(routeId) ? localInstanceId : null))
+                    .register(meterRegistry));
+        }
+        return timer;
+    }
+
+    /**
+     * Resolve the counter handle of the fixed tags, which is usually created
+     * once at the time of {@code GatewayFilterFactory#apply()}, and the
+     * per-route counters are bound lazily, so that the increments of the
+     * request hot path is a map lookup by routeId and does not allocate.
+     */
+    public RouteCounter routeCounter(MetricsName metricsName, String... tags) {
+        return new RouteCounter(notNullOf(metricsName, "metricsName"), tags.clone());
+    }
+
+    /**
+     * Resolve the timer handle of the fixed tags, see
+     * {@link #routeCounter(MetricsName, String...)}
+     */
+    public RouteTimer routeTimer(MetricsName metricsName, String... tags) {
+        return new RouteTimer(notNullOf(metricsName, "metricsName"), tags.clone());
     }
 
     public DistributionSummary getDistributionSummary(MetricsName metricsName, String unit, String... tags) {
@@ -274,6 +344,117 @@ public class IamGatewayMetricsFacade implements InitializingBean {
         return (SummaryMetricFamily) samples;
     }
 
+    public class RouteCounter {
+        private final MetricsName metricsName;
+        private final String[] tags;
+        private final Map<String, Counter> counters = new ConcurrentHashMap<>(8);
+
+        RouteCounter(MetricsName metricsName, String[] tags) {
+            this.metricsName = metricsName;
+            this.tags = tags;
+        }
+
+        public void increment(ServerWebExchange exchange) {
+            increment(exchange, 1d);
+        }
+
+        public void increment(ServerWebExchange exchange, double amount) {
+            String routeId = IamGatewayUtil.getRouteId(exchange);
+            if (nonNull(routeId)) {
+                increment(routeId, amount);
+            }
+        }
+
+        public void increment(String routeId, double amount) {
+            try {
+                Counter counter = counters.get(routeId);
+                if (isNull(counter)) {
+                    counter = counters.computeIfAbsent(routeId, _routeId -> obtainCounter(metricsName, _routeId, tags));
+                }
+                counter.increment(amount);
+            } catch (Exception e) {
+                log.warn(format("Cannot add to counter metrics name: %s, routeId: %s", metricsName, routeId), e);
+            }
+        }
+    }
+
+    public class RouteTimer {
+        private final MetricsName metricsName;
+        private final String[] tags;
+        private final Map<String, Timer> timers = new ConcurrentHashMap<>(8);
+
+        RouteTimer(MetricsName metricsName, String[] tags) {
+            this.metricsName = metricsName;
+            this.tags = tags;
+        }
+
+        public void record(ServerWebExchange exchange, long beginNanoTime) {
+            String routeId = IamGatewayUtil.getRouteId(exchange);
+            if (nonNull(routeId)) {
+                record(routeId, beginNanoTime);
+            }
+        }
+
+        public void record(String routeId, long beginNanoTime) {
+            long costNanos = nanoTime() - beginNanoTime;
+            try {
+                Timer timer = timers.get(routeId);
+                if (isNull(timer)) {
+                    timer = timers.computeIfAbsent(routeId, _routeId -> obtainTimer(metricsName, _routeId, tags));
+                }
+                timer.record(costNanos, NANOSECONDS);
+            } catch (Exception e) {
+                log.warn(format("Cannot add to timer metrics name: %s, routeId: %s", metricsName, routeId), e);
+            }
+        }
+    }
+
+    /**
+     * The registered meter cache key of (metric, routeId, tags).
+     */
+    static final class MeterKey {
+        private final MetricsName metricsName;
+        private final String routeId;
+        private final String[] tags;
+        private final int hash;
+
+        MeterKey(MetricsName metricsName, String routeId, String[] tags) {
+            this.metricsName = metricsName;
+            this.routeId = routeId;
+            this.tags = tags;
+            this.hash = 31 * (31 * metricsName.hashCode() + Objects.hashCode(routeId)) + Arrays.hashCode(tags);
+        }
+
+        Tags toTags(String localInstanceId) {
+            Tags _tags = Tags.of(tags);
+            if (nonNull(localInstanceId)) {
+                _tags = _tags.and(MetricsTag.SELF_INSTANCE_ID, localInstanceId);
+            }
+            if (nonNull(routeId)) {
+                _tags = _tags.and(MetricsTag.ROUTE_ID, routeId);
+            }
+            return _tags;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof MeterKey)) {
+                return false;
+            }
+            MeterKey that = (MeterKey) obj;
+            return hash == that.hash && metricsName == that.metricsName && Objects.equals(routeId, that.routeId)
+                    && Arrays.equals(tags, that.tags);
+        }
+    }
+
     @Getter
     @AllArgsConstructor
     public static enum MetricsName {
@@ -333,6 +514,9 @@ public class IamGatewayMetricsFacade implements InitializingBean {
         CANARY_LB_STATS_CANCEL_ERROR_TOTAL("iscg_canary_lb_stats_cancel_error_total",
                 "The total number of active probe cancel or error of the canary load balancing statistic"),
 
+        CANARY_LB_STATS_DROPPED_TOTAL("iscg_canary_lb_stats_dropped_total",
+                "The total number of active probes dropped due to the probe pending queue is full"),
+
         // passive probe statistic.
 
         CANARY_LB_STATS_CONNECT_OPEN_TOTAL("iscg_canary_lb_stats_connect_open_total",
@@ -365,12 +549,29 @@ public class IamGatewayMetricsFacade implements InitializingBean {
 
         REDIS_RATELIMIT_TIME("iscg_redis_ratelimit_time", "The number of redis ratelimit cost time"),
 
+        REDIS_RATELIMIT_LEASE_TOTAL("iscg_redis_ratelimit_lease_total",
+                "The number of total tokens lease calls to redis in the redis rate limiter local lease mode"),
+
         REDIS_QUOTALIMIT_TOTAL("iscg_redis_quotalimit_total", "The number of total processing in the redis quota limiter"),
 
         REDIS_QUOTALIMIT_HITS_TOTAL("iscg_redis_quotalimit_hits_total", "The number of total hits in the redis quota limiter"),
 
         REDIS_QUOTALIMIT_TIME("iscg_redis_quotalimit_time", "The number of redis quota limit cost time"),
 
+        REDIS_GCRALIMIT_TOTAL("iscg_redis_gcralimit_total", "The number of total processing in the redis GCRA limiter"),
+
+        REDIS_GCRALIMIT_HITS_TOTAL("iscg_redis_gcralimit_hits_total", "The number of total hits in the redis GCRA limiter"),
+
+        REDIS_GCRALIMIT_TIME("iscg_redis_gcralimit_time", "The number of redis GCRA limit cost time"),
+
+        REDIS_WINDOWLIMIT_TOTAL("iscg_redis_windowlimit_total",
+                "The number of total processing in the redis sliding window limiter"),
+
+        REDIS_WINDOWLIMIT_HITS_TOTAL("iscg_redis_windowlimit_hits_total",
+                "The number of total hits in the redis sliding window limiter"),
+
+        REDIS_WINDOWLIMIT_TIME("iscg_redis_windowlimit_time", "The number of redis sliding window limit cost time"),
+
         //
         // Response cache.
         //
@@ -379,6 +580,15 @@ public class IamGatewayMetricsFacade implements InitializingBean {
 
         RESPONSE_CACHE_HITS_TOTAL("iscg_responsecache_hits_total", "The number of total hits in the response cache"),
 
+        RESPONSE_CACHE_TIER_REQUESTS_TOTAL("iscg_responsecache_tier_requests_total",
+                "The number of total lookups of each tier in the tiered response cache"),
+
+        RESPONSE_CACHE_TIER_HITS_TOTAL("iscg_responsecache_tier_hits_total",
+                "The number of total hits of each tier in the tiered response cache"),
+
+        RESPONSE_CACHE_TIER_HIT_RATIO("iscg_responsecache_tier_hit_ratio",
+                "The hit ratio of each tier in the tiered response cache since started"),
+
         //
         // IpFilter.
         //
@@ -397,7 +607,40 @@ public class IamGatewayMetricsFacade implements InitializingBean {
         // Traffic.
         //
 
-        TRAFFIC_REPLICATION_TOTAL("iscg_traffic_replication_total", "The number of total processing in the traffic replication");
+        TRAFFIC_REPLICATION_TOTAL("iscg_traffic_replication_total", "The number of total processing in the traffic replication"),
+
+        TRAFFIC_REPLICATION_DROPPED_TOTAL("iscg_traffic_replication_dropped_total",
+                "The number of total dropped replications in the traffic replication"),
+
+        TRAFFIC_REPLICATION_LAG_TIME("iscg_traffic_replication_lag_time",
+                "The number of waiting time in the queue before the replication executed"),
+
+        //
+        // Request size.
+        //
+
+        REQUEST_SIZE_INGRESS_BYTES_TOTAL("iscg_request_size_ingress_bytes_total",
+                "The number of total request body bytes received, i.e. the ingress throughput"),
+
+        REQUEST_SIZE_REJECTED_TOTAL("iscg_request_size_rejected_total",
+                "The number of total requests rejected due to the body size exceeded"),
+
+        //
+        // Retry.
+        //
+
+        RETRY_BUDGET_EXHAUSTED_TOTAL("iscg_retry_budget_exhausted_total",
+                "The number of total retries rejected by the exhausted retry budget"),
+
+        RETRY_HEDGED_TOTAL("iscg_retry_hedged_total", "The number of total hedged requests sent"),
+
+        RETRY_HEDGED_WINS_TOTAL("iscg_retry_hedged_wins_total", "The number of total hedged requests that won the response"),
+
+        //
+        // Request matcher.
+        //
+
+        REQUEST_MATCHER_TIME("iscg_request_matcher_time", "The number of request matcher evaluation cost time");
 
         private final String name;
         private final String help;
@@ -429,6 +672,20 @@ public class IamGatewayMetricsFacade implements InitializingBean {
 
         public static final String FAULT_INJECTOR = "injector";
 
+        // for Traffic replication tags.
+
+        public static final String TRAFFIC_TARGET = "target";
+        public static final String TRAFFIC_DROP_REASON = "reason";
+
+        // for Response cache tags.
+
+        public static final String CACHE_TIER = "tier";
+
+        // for Request matcher tags.
+
+        public static final String MATCHER = "matcher";
+        public static final String MATCHER_RULE = "rule";
+
     }
 
 }
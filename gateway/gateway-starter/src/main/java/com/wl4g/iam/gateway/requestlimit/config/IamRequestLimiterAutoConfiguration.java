@@ -51,8 +51,10 @@ import com.wl4g.iam.gateway.requestlimit.key.PathIamKeyResolver;
 import com.wl4g.iam.gateway.requestlimit.key.PrincipalIamKeyResolver;
 import com.wl4g.iam.gateway.requestlimit.limiter.IamRequestLimiter;
 import com.wl4g.iam.gateway.requestlimit.limiter.IamRequestLimiter.RequestLimiterPrivoder;
+import com.wl4g.iam.gateway.requestlimit.limiter.gcra.RedisGcraIamRequestLimiter;
 import com.wl4g.iam.gateway.requestlimit.limiter.quota.RedisQuotaIamRequestLimiter;
 import com.wl4g.iam.gateway.requestlimit.limiter.rate.RedisRateIamRequestLimiter;
+import com.wl4g.iam.gateway.requestlimit.limiter.window.RedisSlidingWindowIamRequestLimiter;
 import com.wl4g.infra.common.eventbus.EventBusSupport;
 import com.wl4g.infra.common.framework.operator.GenericOperatorAdapter;
 
@@ -166,6 +168,26 @@ public class IamRequestLimiterAutoConfiguration {
         return new RedisQuotaIamRequestLimiter(requestLimiterConfig, configurer, redisTemplate, eventBus, metricsFacade);
     }
 
+    @Bean
+    public IamRequestLimiter redisGcraIamRequestLimiter(
+            IamRequestLimiterProperties requestLimiterConfig,
+            LimiterStrategyConfigurer configurer,
+            ReactiveStringRedisTemplate redisTemplate,
+            @Qualifier(BEAN_REDIS_RATELIMITE_EVENTBUS) EventBusSupport eventBus,
+            IamGatewayMetricsFacade metricsFacade) {
+        return new RedisGcraIamRequestLimiter(requestLimiterConfig, configurer, redisTemplate, eventBus, metricsFacade);
+    }
+
+    @Bean
+    public IamRequestLimiter redisSlidingWindowIamRequestLimiter(
+            IamRequestLimiterProperties requestLimiterConfig,
+            LimiterStrategyConfigurer configurer,
+            ReactiveStringRedisTemplate redisTemplate,
+            @Qualifier(BEAN_REDIS_RATELIMITE_EVENTBUS) EventBusSupport eventBus,
+            IamGatewayMetricsFacade metricsFacade) {
+        return new RedisSlidingWindowIamRequestLimiter(requestLimiterConfig, configurer, redisTemplate, eventBus, metricsFacade);
+    }
+
     @Bean
     public GenericOperatorAdapter<RequestLimiterPrivoder, IamRequestLimiter> iamRequestLimiterAdapter(
             List<IamRequestLimiter> rqeuestLimiters) {
@@ -15,12 +15,17 @@
  */
 package com.wl4g.iam.gateway.requestlimit.config;
 
+import static com.wl4g.iam.common.constant.GatewayIAMConstants.CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT_CONF_GCRA;
+import static com.wl4g.iam.common.constant.GatewayIAMConstants.CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT_CONF_INVALIDATE;
 import static com.wl4g.iam.common.constant.GatewayIAMConstants.CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT_CONF_QUOTA;
 import static com.wl4g.iam.common.constant.GatewayIAMConstants.CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT_CONF_RATE;
+import static com.wl4g.iam.common.constant.GatewayIAMConstants.CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT_CONF_SLIDINGWINDOW;
 import static com.wl4g.iam.common.constant.GatewayIAMConstants.CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT_EVENT_HITS_RATE;
 import static com.wl4g.iam.common.constant.GatewayIAMConstants.CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT_EVENT_HITS_QUOTA;
+import static com.wl4g.iam.common.constant.GatewayIAMConstants.CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT_TOKEN_GCRA;
 import static com.wl4g.iam.common.constant.GatewayIAMConstants.CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT_TOKEN_QUOTA;
 import static com.wl4g.iam.common.constant.GatewayIAMConstants.CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT_TOKEN_RATE;
+import static com.wl4g.iam.common.constant.GatewayIAMConstants.CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT_TOKEN_SLIDINGWINDOW;
 import static com.wl4g.iam.common.constant.GatewayIAMConstants.CACHE_SUFFIX_IAM_GATEWAY_EVENT_YYMMDD;
 
 import org.springframework.http.HttpStatus;
@@ -32,8 +37,10 @@ import com.wl4g.iam.gateway.requestlimit.key.IntervalIamKeyResolver.IntervalKeyR
 import com.wl4g.iam.gateway.requestlimit.key.IpRangeIamKeyResolver.IpRangeKeyResolverStrategy;
 import com.wl4g.iam.gateway.requestlimit.key.PathIamKeyResolver.PathKeyResolverStrategy;
 import com.wl4g.iam.gateway.requestlimit.key.PrincipalIamKeyResolver.PrincipalKeyResolverStrategy;
+import com.wl4g.iam.gateway.requestlimit.limiter.gcra.RedisGcraRequestLimiterStrategy;
 import com.wl4g.iam.gateway.requestlimit.limiter.quota.RedisQuotaRequestLimiterStrategy;
 import com.wl4g.iam.gateway.requestlimit.limiter.rate.RedisRateRequestLimiterStrategy;
+import com.wl4g.iam.gateway.requestlimit.limiter.window.RedisSlidingWindowRequestLimiterStrategy;
 
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -149,6 +156,21 @@ public class IamRequestLimiterProperties {
          */
         private RedisQuotaLimiterProperties quota = new RedisQuotaLimiterProperties();
 
+        /**
+         * The default GCRA limiting configuration.
+         */
+        private RedisGcraLimiterProperties gcra = new RedisGcraLimiterProperties();
+
+        /**
+         * The default sliding window limiting configuration.
+         */
+        private RedisSlidingWindowLimiterProperties slidingWindow = new RedisSlidingWindowLimiterProperties();
+
+        /**
+         * The local cache of the user-level limiter strategies configuration.
+         */
+        private StrategyCacheProperties strategyCache = new StrategyCacheProperties();
+
         @Getter
         @Setter
         @ToString
@@ -173,6 +195,55 @@ public class IamRequestLimiterProperties {
             private String denyEmptyKeyHeader;
         }
 
+        /**
+         * The strategies are cached locally (including the non-existent
+         * strategies, i.e. use the default strategy), and invalidated by the
+         * redis pub/sub message or the redis keyspace notifications when the
+         * operator changes the strategies.
+         */
+        @Getter
+        @Setter
+        @ToString
+        @Validated
+        @AllArgsConstructor
+        @NoArgsConstructor
+        public static class StrategyCacheProperties {
+
+            /**
+             * Whether to enable the local cache of limiter strategies.
+             */
+            private boolean enabled = true;
+
+            /**
+             * The maximum number of cached strategies of each limiter.
+             */
+            private long maxSize = 100_000L;
+
+            /**
+             * The expiration seconds of the cached strategies, which is the
+             * upper bound of staleness if the invalidation message is lost.
+             */
+            private long expireSeconds = 60L;
+
+            /**
+             * The channel of invalidation messages, the message payload is the
+             * config key (i.e. '{routeId}:{limitKey}'), or '*' to invalidate
+             * all. The config writers should publish it via
+             * {@link com.wl4g.iam.gateway.requestlimit.configurer.RedisLimiterStrategyConfigurer#publishInvalidation(String)}
+             * after saving the strategy.
+             */
+            private String invalidateChannel = CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT_CONF_INVALIDATE;
+
+            /**
+             * Whether to subscribe the redis keyspace notifications of the
+             * strategies config hash keys, which requires the redis server
+             * enabled 'notify-keyspace-events' with 'Kh' (or 'KA'). Because of
+             * the notifications do not contain the hash field, the cached
+             * strategies of the changed limiter are reloaded in batch.
+             */
+            private boolean keyspaceNotifyEnabled = true;
+        }
+
         /**
          * The request rate limiter properties.
          */
@@ -218,6 +289,11 @@ public class IamRequestLimiterProperties {
              */
             private RedisRateRequestLimiterStrategy defaultStrategy = new RedisRateRequestLimiterStrategy();
 
+            /**
+             * The local token lease (hybrid mode) configuration.
+             */
+            private LocalLeaseProperties localLease = new LocalLeaseProperties();
+
             public RedisRateLimiterProperties() {
                 setRemainingHeader(RATE_REMAINING_HEADER);
                 setLimitKeyHeader(RATE_LIMITKEY_HEADER);
@@ -253,6 +329,51 @@ public class IamRequestLimiterProperties {
              * The name of the deny header that empty key got obtained.
              */
             public static final String RATE_DENY_EMPTYKEY_HEADER = "X-Iscg-RateLimit-Deny-EmptyKey";
+
+            /**
+             * The hybrid mode of rate limiter, each gateway node keeps a local
+             * token bucket per limit key, which leases tokens batches from the
+             * redis token bucket, and only calls redis when the lease runs
+             * out.
+             */
+            @Getter
+            @Setter
+            @ToString
+            @Validated
+            @AllArgsConstructor
+            @NoArgsConstructor
+            public static class LocalLeaseProperties {
+
+                /**
+                 * Whether to enable the hybrid mode of local tokens lease.
+                 */
+                private boolean enabled = false;
+
+                /**
+                 * The lease size is adaptive to the local consuming rate of
+                 * the limit key, which is expected to be used up within this
+                 * time.
+                 */
+                private long leaseTargetMillis = 100L;
+
+                /**
+                 * The maximum ratio of one lease to the burst capacity, which
+                 * bounds the accuracy loss, i.e. the tokens leased but unused
+                 * by one node that the other nodes cannot use.
+                 */
+                private double maxLeaseRatio = 0.1d;
+
+                /**
+                 * The leased but unused tokens are discarded after this time,
+                 * which bounds the time-shift of the bursts.
+                 */
+                private long leaseExpireMillis = 1000L;
+
+                /**
+                 * The maximum number of limit keys of local token leases.
+                 */
+                private long maxLocalKeys = 100_000L;
+            }
         }
 
         /**
@@ -326,6 +447,112 @@ public class IamRequestLimiterProperties {
             public static final String QUOTA_DENY_EMPTYKEY_HEADER = "X-Iscg-QuotaLimit-Deny-EmptyKey";
         }
 
+        /**
+         * The request GCRA (generic cell rate algorithm) limiter properties.
+         */
+        @Getter
+        @Setter
+        @ToString
+        @Validated
+        @AllArgsConstructor
+        public static class RedisGcraLimiterProperties extends AbstractLimiterProperties {
+
+            /**
+             * The GCRA limiter user-level configuration key prefix.
+             */
+            private String configPrefix = CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT_CONF_GCRA;
+
+            /**
+             * The GCRA limiter user-level theoretical arrival time key prefix.
+             */
+            private String tokenPrefix = CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT_TOKEN_GCRA;
+
+            /**
+             * The name of the header that returns the limit configuration.
+             */
+            private String limitHeader = GCRA_LIMIT_HEADER;
+
+            /**
+             * The name of the header that returns the period configuration.
+             */
+            private String periodHeader = GCRA_PERIOD_HEADER;
+
+            /**
+             * The name of the header that returns the milliseconds to wait
+             * before retrying of the rejected request.
+             */
+            private String retryAfterHeader = GCRA_RETRY_AFTER_HEADER;
+
+            /**
+             * The defaultStrategy configuration of request limiter based on
+             * redis GCRA.
+             */
+            private RedisGcraRequestLimiterStrategy defaultStrategy = new RedisGcraRequestLimiterStrategy();
+
+            public RedisGcraLimiterProperties() {
+                setRemainingHeader(GCRA_REMAINING_HEADER);
+                setLimitKeyHeader(GCRA_LIMITKEY_HEADER);
+                setDenyEmptyKeyHeader(GCRA_DENY_EMPTYKEY_HEADER);
+            }
+
+            public static final String GCRA_LIMIT_HEADER = "X-Iscg-GcraLimit-Limit";
+            public static final String GCRA_PERIOD_HEADER = "X-Iscg-GcraLimit-Period-Millis";
+            public static final String GCRA_RETRY_AFTER_HEADER = "X-Iscg-GcraLimit-Retry-After-Millis";
+            public static final String GCRA_REMAINING_HEADER = "X-Iscg-GcraLimit-Remaining";
+            public static final String GCRA_LIMITKEY_HEADER = "X-Iscg-GcraLimit-LimitKey";
+            public static final String GCRA_DENY_EMPTYKEY_HEADER = "X-Iscg-GcraLimit-Deny-EmptyKey";
+        }
+
+        /**
+         * The request sliding window (counter) limiter properties.
+         */
+        @Getter
+        @Setter
+        @ToString
+        @Validated
+        @AllArgsConstructor
+        public static class RedisSlidingWindowLimiterProperties extends AbstractLimiterProperties {
+
+            /**
+             * The sliding window limiter user-level configuration key prefix.
+             */
+            private String configPrefix = CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT_CONF_SLIDINGWINDOW;
+
+            /**
+             * The sliding window limiter user-level counters key prefix.
+             */
+            private String tokenPrefix = CACHE_PREFIX_IAM_GWTEWAY_REQUESTLIMIT_TOKEN_SLIDINGWINDOW;
+
+            /**
+             * The name of the header that returns the request capacity
+             * configuration.
+             */
+            private String requestCapacityHeader = SLIDINGWINDOW_REQUEST_CAPACITY_HEADER;
+
+            /**
+             * The name of the header that returns the window configuration.
+             */
+            private String windowHeader = SLIDINGWINDOW_WINDOW_HEADER;
+
+            /**
+             * The defaultStrategy configuration of request limiter based on
+             * redis sliding window.
+             */
+            private RedisSlidingWindowRequestLimiterStrategy defaultStrategy = new RedisSlidingWindowRequestLimiterStrategy();
+
+            public RedisSlidingWindowLimiterProperties() {
+                setRemainingHeader(SLIDINGWINDOW_REMAINING_HEADER);
+                setLimitKeyHeader(SLIDINGWINDOW_LIMITKEY_HEADER);
+                setDenyEmptyKeyHeader(SLIDINGWINDOW_DENY_EMPTYKEY_HEADER);
+            }
+
+            public static final String SLIDINGWINDOW_REQUEST_CAPACITY_HEADER = "X-Iscg-WindowLimit-Request-Capacity";
+            public static final String SLIDINGWINDOW_WINDOW_HEADER = "X-Iscg-WindowLimit-Window-Millis";
+            public static final String SLIDINGWINDOW_REMAINING_HEADER = "X-Iscg-WindowLimit-Remaining";
+            public static final String SLIDINGWINDOW_LIMITKEY_HEADER = "X-Iscg-WindowLimit-LimitKey";
+            public static final String SLIDINGWINDOW_DENY_EMPTYKEY_HEADER = "X-Iscg-WindowLimit-Deny-EmptyKey";
+        }
+
     }
 
     /**
@@ -380,6 +607,29 @@ public class IamRequestLimiterProperties {
              * pattern.
              */
             private String cumulatorSuffixOfDatePattern = CACHE_SUFFIX_IAM_GATEWAY_EVENT_YYMMDD;
+
+            /**
+             * The interval of flushing the locally aggregated counters to
+             * redis.
+             */
+            private long flushIntervalMs = 1000L;
+
+            /**
+             * The maximum number of commands per pipeline of flushing.
+             */
+            private int flushBatchSize = 500;
+
+            /**
+             * The maximum number of locally pending counter keys, exceeding it
+             * will trigger the flush in advance.
+             */
+            private int maxPendingKeys = 100_000;
+
+            /**
+             * The expiration seconds of the date bucket accumulator hashes, 0
+             * means never expire.
+             */
+            private long cumulatorExpireSeconds = 90 * 24 * 60 * 60L;
         }
 
     }
@@ -19,8 +19,10 @@ import static java.lang.String.valueOf;
 
 import javax.validation.constraints.NotBlank;
 
+import com.wl4g.iam.gateway.requestlimit.limiter.gcra.RedisGcraRequestLimiterStrategy;
 import com.wl4g.iam.gateway.requestlimit.limiter.quota.RedisQuotaRequestLimiterStrategy;
 import com.wl4g.iam.gateway.requestlimit.limiter.rate.RedisRateRequestLimiterStrategy;
+import com.wl4g.iam.gateway.requestlimit.limiter.window.RedisSlidingWindowRequestLimiterStrategy;
 
 import reactor.core.publisher.Mono;
 
@@ -39,6 +41,10 @@ public interface LimiterStrategyConfigurer {
 
     Mono<RedisQuotaRequestLimiterStrategy> loadQuotaStrategy(@NotBlank String routeId, @NotBlank String limitKey);
 
+    Mono<RedisGcraRequestLimiterStrategy> loadGcraStrategy(@NotBlank String routeId, @NotBlank String limitKey);
+
+    Mono<RedisSlidingWindowRequestLimiterStrategy> loadSlidingWindowStrategy(@NotBlank String routeId, @NotBlank String limitKey);
+
     public static String getConfigKey(String routeId, String limitKey) {
         return valueOf(routeId).concat(":").concat(limitKey);
     }
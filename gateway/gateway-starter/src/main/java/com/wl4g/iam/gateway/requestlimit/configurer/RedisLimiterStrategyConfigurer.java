@@ -16,47 +16,328 @@
 package com.wl4g.iam.gateway.requestlimit.configurer;
 
 import static com.wl4g.infra.common.serialize.JacksonUtils.parseJSON;
+import static java.lang.String.format;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.StringUtils.trimToEmpty;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.validation.constraints.NotBlank;
 
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.ReactiveSubscription.Message;
 import org.springframework.data.redis.core.ReactiveHashOperations;
 import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.ReactiveRedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.wl4g.iam.gateway.requestlimit.config.IamRequestLimiterProperties;
+import com.wl4g.iam.gateway.requestlimit.config.IamRequestLimiterProperties.LimiterProperties.StrategyCacheProperties;
+import com.wl4g.iam.gateway.requestlimit.config.IamRequestLimiterProperties.LimiterProperties;
+import com.wl4g.iam.gateway.requestlimit.limiter.RequestLimiterStrategy;
+import com.wl4g.iam.gateway.requestlimit.limiter.gcra.RedisGcraRequestLimiterStrategy;
 import com.wl4g.iam.gateway.requestlimit.limiter.quota.RedisQuotaRequestLimiterStrategy;
 import com.wl4g.iam.gateway.requestlimit.limiter.rate.RedisRateRequestLimiterStrategy;
+import com.wl4g.iam.gateway.requestlimit.limiter.window.RedisSlidingWindowRequestLimiterStrategy;
 
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
 /**
- * {@link RedisLimiterStrategyConfigurer}
+ * {@link RedisLimiterStrategyConfigurer}, the strategies are cached locally
+ * (including the non-existent strategies, so that the limiter falls back to
+ * the default strategy without a round trip). The concurrent loads of the same
+ * strategy are coalesced into one redis read, and the cached strategy is
+ * invalidated per config key by the pub/sub message of
+ * {@link StrategyCacheProperties#getInvalidateChannel()} (see
+ * {@link #publishInvalidation(String)}). The redis keyspace notifications of
+ * the config hash keys and the re-subscription (i.e. the messages may be lost
+ * while disconnected) do not carry the changed keys, so the cached strategies
+ * of the limiter are reloaded in batch rather than wiped.
  * 
  * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
  * @version 2022-04-20 v3.0.0
  * @since v3.0.0
  */
-public class RedisLimiterStrategyConfigurer implements LimiterStrategyConfigurer {
+@Slf4j
+public class RedisLimiterStrategyConfigurer implements LimiterStrategyConfigurer, InitializingBean, DisposableBean {
 
     private @Autowired IamRequestLimiterProperties requestLimitConfig;
     private @Autowired ReactiveStringRedisTemplate redisTemplate;
+    /**
+     * The cached strategies of each limiter, keyed by the config prefix.
+     */
+    private final Map<String, StrategyCache> cachedStrategies = new ConcurrentHashMap<>(4);
+    private final AtomicInteger subscriptions = new AtomicInteger(0);
+    private ReactiveRedisMessageListenerContainer listenerContainer;
+    private Disposable subscription;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        StrategyCacheProperties cacheConfig = requestLimitConfig.getLimiter().getStrategyCache();
+        if (!cacheConfig.isEnabled()) {
+            return;
+        }
+        LimiterProperties limiterConfig = requestLimitConfig.getLimiter();
+        Map<String, Class<? extends RequestLimiterStrategy>> strategyClasses = new LinkedHashMap<>(4);
+        strategyClasses.put(limiterConfig.getRate().getConfigPrefix(), RedisRateRequestLimiterStrategy.class);
+        strategyClasses.put(limiterConfig.getQuota().getConfigPrefix(), RedisQuotaRequestLimiterStrategy.class);
+        strategyClasses.put(limiterConfig.getGcra().getConfigPrefix(), RedisGcraRequestLimiterStrategy.class);
+        strategyClasses.put(limiterConfig.getSlidingWindow().getConfigPrefix(), RedisSlidingWindowRequestLimiterStrategy.class);
+        strategyClasses.forEach((prefix, strategyClass) -> cachedStrategies.put(prefix,
+                new StrategyCache(prefix, strategyClass, CacheBuilder.newBuilder()
+                        .maximumSize(cacheConfig.getMaxSize())
+                        .expireAfterWrite(cacheConfig.getExpireSeconds(), SECONDS)
+                        .build())));
+        subscribeInvalidation(cacheConfig);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (nonNull(subscription)) {
+            subscription.dispose();
+        }
+        if (nonNull(listenerContainer)) {
+            listenerContainer.destroy();
+        }
+    }
 
     @Override
     public Mono<RedisRateRequestLimiterStrategy> loadRateStrategy(@NotBlank String routeId, @NotBlank String limitKey) {
         String prefix = requestLimitConfig.getLimiter().getRate().getConfigPrefix();
         String configKey = LimiterStrategyConfigurer.getConfigKey(routeId, limitKey);
-        return getOperation().get(prefix, configKey).map(json -> parseJSON(json, RedisRateRequestLimiterStrategy.class));
+        return load(prefix, configKey, RedisRateRequestLimiterStrategy.class);
     }
 
     @Override
     public Mono<RedisQuotaRequestLimiterStrategy> loadQuotaStrategy(@NotBlank String routeId, @NotBlank String limitKey) {
         String prefix = requestLimitConfig.getLimiter().getQuota().getConfigPrefix();
         String configKey = LimiterStrategyConfigurer.getConfigKey(routeId, limitKey);
-        return getOperation().get(prefix, configKey).map(json -> parseJSON(json, RedisQuotaRequestLimiterStrategy.class));
+        return load(prefix, configKey, RedisQuotaRequestLimiterStrategy.class);
+    }
+
+    @Override
+    public Mono<RedisGcraRequestLimiterStrategy> loadGcraStrategy(@NotBlank String routeId, @NotBlank String limitKey) {
+        String prefix = requestLimitConfig.getLimiter().getGcra().getConfigPrefix();
+        String configKey = LimiterStrategyConfigurer.getConfigKey(routeId, limitKey);
+        return load(prefix, configKey, RedisGcraRequestLimiterStrategy.class);
+    }
+
+    @Override
+    public Mono<RedisSlidingWindowRequestLimiterStrategy> loadSlidingWindowStrategy(
+            @NotBlank String routeId,
+            @NotBlank String limitKey) {
+        String prefix = requestLimitConfig.getLimiter().getSlidingWindow().getConfigPrefix();
+        String configKey = LimiterStrategyConfigurer.getConfigKey(routeId, limitKey);
+        return load(prefix, configKey, RedisSlidingWindowRequestLimiterStrategy.class);
+    }
+
+    /**
+     * Publish the invalidation message of the config key to all the gateway
+     * nodes, must be called after the strategy of config key is saved (or
+     * deleted) to the config hash.
+     *
+     * @param configKey
+     *            The config key (i.e. '{routeId}:{limitKey}'), or '*' to
+     *            invalidate all.
+     * @return The number of nodes that received the message.
+     */
+    public Mono<Long> publishInvalidation(String configKey) {
+        String channel = requestLimitConfig.getLimiter().getStrategyCache().getInvalidateChannel();
+        return redisTemplate.convertAndSend(channel, configKey);
+    }
+
+    /**
+     * Invalidate the cached strategies of the config key.
+     *
+     * @param configKey
+     *            The config key, or '*' (or blank) to invalidate all.
+     */
+    public void invalidate(String configKey) {
+        if (isBlank(configKey) || "*".equals(configKey)) {
+            cachedStrategies.values().forEach(StrategyCache::invalidateAll);
+        } else {
+            cachedStrategies.values().forEach(cache -> cache.invalidate(configKey));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends RequestLimiterStrategy> Mono<T> load(String prefix, String configKey, Class<T> strategyClass) {
+        StrategyCache cache = cachedStrategies.get(prefix);
+        if (isNull(cache)) { // Cache disabled
+            return getOperation().get(prefix, configKey).map(json -> parseJSON(json, strategyClass));
+        }
+        Optional<? extends RequestLimiterStrategy> cached = cache.strategies.getIfPresent(configKey);
+        if (nonNull(cached)) {
+            return Mono.justOrEmpty((Optional<T>) cached);
+        }
+        return cache.loading.computeIfAbsent(configKey, _configKey -> new PendingLoad(cache, _configKey)).result.flatMap(strategy -> Mono.justOrEmpty((Optional<T>) strategy));
+    }
+
+    protected void subscribeInvalidation(StrategyCacheProperties cacheConfig) {
+        List<Topic> topics = new ArrayList<>(cachedStrategies.size() + 1);
+        topics.add(ChannelTopic.of(cacheConfig.getInvalidateChannel()));
+        if (cacheConfig.isKeyspaceNotifyEnabled()) {
+            cachedStrategies.keySet().forEach(prefix -> topics.add(PatternTopic.of(KEYSPACE_CHANNEL_PREFIX.concat(prefix))));
+        }
+        this.listenerContainer = new ReactiveRedisMessageListenerContainer(redisTemplate.getConnectionFactory());
+        this.subscription = listenerContainer.receive(topics.toArray(new Topic[0]))
+                .doOnSubscribe(s -> onSubscribed())
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .subscribe(message -> onInvalidateMessage(message),
+                        e -> log.error("Failed to subscribe the limiter strategies invalidation.", e));
+    }
+
+    void onSubscribed() {
+        // The messages may be lost during the disconnection.
+        if (subscriptions.getAndIncrement() > 0) {
+            cachedStrategies.values().forEach(StrategyCache::reload);
+        }
+    }
+
+    void onInvalidateMessage(Message<String, String> message) {
+        String channel = message.getChannel();
+        if (log.isDebugEnabled()) {
+            log.debug("Received limiter strategies invalidation on '{}' of '{}'", channel, message.getMessage());
+        }
+        if (channel.startsWith("__keyspace@")) {
+            // The keyspace channel is '__keyspace@{db}__:{configPrefix}'
+            String prefix = channel.substring(channel.indexOf("__:") + 3);
+            StrategyCache cache = cachedStrategies.get(prefix);
+            if (nonNull(cache)) {
+                cache.reload();
+            }
+        } else {
+            invalidate(trimToEmpty(message.getMessage()));
+        }
     }
 
     private ReactiveHashOperations<String, String, String> getOperation() {
         return redisTemplate.opsForHash();
     }
 
+    /**
+     * The cached strategies of one limiter. The strategy loaded is cached only
+     * if it's not invalidated while loading (i.e. the pending load is still
+     * registered), so that a racing load never caches the stale strategy.
+     */
+    class StrategyCache {
+        private final String prefix;
+        private final Class<? extends RequestLimiterStrategy> strategyClass;
+        private final Cache<String, Optional<? extends RequestLimiterStrategy>> strategies;
+        private final Map<String, PendingLoad> loading = new ConcurrentHashMap<>(16);
+        private final AtomicLong invalidations = new AtomicLong(0);
+        private final AtomicBoolean reloading = new AtomicBoolean(false);
+        private final AtomicBoolean reloadRequired = new AtomicBoolean(false);
+
+        StrategyCache(String prefix, Class<? extends RequestLimiterStrategy> strategyClass,
+                Cache<String, Optional<? extends RequestLimiterStrategy>> strategies) {
+            this.prefix = prefix;
+            this.strategyClass = strategyClass;
+            this.strategies = strategies;
+        }
+
+        void invalidate(String configKey) {
+            invalidations.incrementAndGet();
+            loading.remove(configKey);
+            strategies.invalidate(configKey);
+        }
+
+        void invalidateAll() {
+            invalidations.incrementAndGet();
+            loading.clear();
+            strategies.invalidateAll();
+        }
+
+        /**
+         * Reload the cached strategies in batch (HMGET), the concurrent reload
+         * requests are coalesced into one more reload after the current one.
+         */
+        void reload() {
+            // The pending loads may have read the stale strategies.
+            loading.clear();
+            reloadRequired.set(true);
+            if (!reloading.compareAndSet(false, true)) {
+                return;
+            }
+            reloadRequired.set(false);
+            long version = invalidations.get();
+            List<String> configKeys = new ArrayList<>(strategies.asMap().keySet());
+            Flux.fromIterable(configKeys)
+                    .buffer(DEFAULT_RELOAD_BATCH)
+                    .concatMap(batch -> getOperation().multiGet(prefix, batch).doOnNext(values -> {
+                        for (int i = 0; i < batch.size(); i++) {
+                            String json = i < values.size() ? values.get(i) : null;
+                            // Skip the strategies invalidated while reloading.
+                            if (nonNull(strategies.getIfPresent(batch.get(i)))) {
+                                strategies.put(batch.get(i),
+                                        isBlank(json) ? Optional.empty() : Optional.of(parseJSON(json, strategyClass)));
+                            }
+                        }
+                    }))
+                    .then()
+                    .doOnError(e -> {
+                        log.warn(format("Failed to reload the limiter strategies of '%s', invalidate all.", prefix), e);
+                        invalidateAll();
+                    })
+                    .onErrorResume(e -> Mono.empty())
+                    .doFinally(signal -> {
+                        // Re-reload if the keys were invalidated (they may be
+                        // overwritten by the stale strategies) or requested.
+                        boolean stale = invalidations.get() != version;
+                        reloading.set(false);
+                        if (stale || reloadRequired.get()) {
+                            reload();
+                        }
+                    })
+                    .subscribe();
+        }
+    }
+
+    /**
+     * The single flight load of the strategy, all the concurrent loaders of
+     * the config key share the same redis read.
+     */
+    class PendingLoad {
+        private final Mono<Optional<? extends RequestLimiterStrategy>> result;
+
+        PendingLoad(StrategyCache cache, String configKey) {
+            this.result = getOperation().get(cache.prefix, configKey)
+                    .<Optional<? extends RequestLimiterStrategy>> map(json -> Optional.of(parseJSON(json, cache.strategyClass)))
+                    // Negative caching, use the default strategy.
+                    .defaultIfEmpty(Optional.empty())
+                    .doOnNext(strategy -> {
+                        if (cache.loading.remove(configKey, this)) {
+                            cache.strategies.put(configKey, strategy);
+                        }
+                    })
+                    .doOnError(e -> cache.loading.remove(configKey, this))
+                    .cache();
+        }
+    }
+
+    public static final String KEYSPACE_CHANNEL_PREFIX = "__keyspace@*__:";
+    private static final int DEFAULT_RELOAD_BATCH = 512;
+
 }
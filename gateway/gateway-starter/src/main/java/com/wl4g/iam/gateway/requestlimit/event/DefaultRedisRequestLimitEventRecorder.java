@@ -17,41 +17,59 @@ package com.wl4g.iam.gateway.requestlimit.event;
 
 import static java.lang.String.valueOf;
 
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.BoundHashOperations;
 import org.springframework.data.redis.core.StringRedisTemplate;
 
 import com.google.common.eventbus.Subscribe;
 import com.wl4g.iam.gateway.requestlimit.config.IamRequestLimiterProperties;
+import com.wl4g.iam.gateway.requestlimit.config.IamRequestLimiterProperties.EventRecorderProperties.RedisLimitEventRecorderProperties;
+import com.wl4g.iam.gateway.util.redis.RedisHashCounterBatcher;
 import com.wl4g.infra.common.lang.DateUtils2;
 
 import lombok.extern.slf4j.Slf4j;
 
 /**
- * {@link DefaultRedisRequestLimitEventRecorder}
+ * {@link DefaultRedisRequestLimitEventRecorder}, the hits are aggregated
+ * locally and flushed to redis asynchronously in batches, see
+ * {@link RedisHashCounterBatcher}
  * 
  * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
  * @version 2022-04-19 v3.0.0
  * @since v3.0.0
  */
 @Slf4j
-public class DefaultRedisRequestLimitEventRecorder {
+public class DefaultRedisRequestLimitEventRecorder implements InitializingBean, DisposableBean {
     public static final String LOG_RATELIMIT_HITS_EVENT = "RATELIMIT_HITS_EVENT";
     public static final String LOG_QUOTALIMIT_HITS_EVENT = "QUOTALIMIT_HITS_EVENT";
 
     private @Autowired IamRequestLimiterProperties requestLimitConfig;
     private @Autowired StringRedisTemplate redisTemplate;
+    private RedisHashCounterBatcher batcher;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        RedisLimitEventRecorderProperties redis = requestLimitConfig.getEventRecorder().getRedis();
+        this.batcher = new RedisHashCounterBatcher("request-limit-event", redisTemplate, redis.getFlushIntervalMs(),
+                redis.getFlushBatchSize(), redis.getMaxPendingKeys(), redis.getCumulatorExpireSeconds());
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        batcher.close();
+    }
 
     @Subscribe
     public void onRateLimitHit(RateLimitHitEvent event) {
         String limitKey = valueOf(event.getSource());
-        Long incr = null;
+        Long pending = null;
         try {
             String prefix = requestLimitConfig.getEventRecorder().getRedis().getRateHitsCumulatorPrefix();
-            incr = getHitsCumulator(prefix, event.getRouteId()).increment(limitKey, 1);
+            pending = batcher.increment(getHitsCumulatorKey(prefix, event.getRouteId()), limitKey, 1);
         } finally {
             if (requestLimitConfig.getEventRecorder().isLocalLogEnabled() && log.isInfoEnabled()) {
-                log.info("{} {}->{}", LOG_RATELIMIT_HITS_EVENT, limitKey, incr);
+                log.info("{} {}->pending:{}", LOG_RATELIMIT_HITS_EVENT, limitKey, pending);
             }
         }
     }
@@ -59,24 +77,24 @@ public class DefaultRedisRequestLimitEventRecorder {
     @Subscribe
     public void onQuotaLimitHit(QuotaLimitHitEvent event) {
         String limitKey = valueOf(event.getSource());
-        Long incr = null;
+        Long pending = null;
         try {
             String prefix = requestLimitConfig.getEventRecorder().getRedis().getQuotaHitsCumulatorPrefix();
-            incr = getHitsCumulator(prefix, event.getRouteId()).increment(limitKey, 1);
+            pending = batcher.increment(getHitsCumulatorKey(prefix, event.getRouteId()), limitKey, 1);
         } finally {
             if (requestLimitConfig.getEventRecorder().isLocalLogEnabled() && log.isInfoEnabled()) {
-                log.info("{} {}->{}", LOG_QUOTALIMIT_HITS_EVENT, limitKey, incr);
+                log.info("{} {}->pending:{}", LOG_QUOTALIMIT_HITS_EVENT, limitKey, pending);
             }
         }
     }
 
-    private BoundHashOperations<String, Object, Object> getHitsCumulator(String configPrefix, String routeId) {
+    private String getHitsCumulatorKey(String configPrefix, String routeId) {
         String suffix = requestLimitConfig.getEventRecorder().getRedis().getCumulatorSuffixOfDatePattern();
         String hashKey = configPrefix.concat(":").concat(routeId).concat(":").concat(DateUtils2.getDate(suffix));
         if (log.isDebugEnabled()) {
             log.debug("hashkey: {}", hashKey);
         }
-        return redisTemplate.boundHashOps(hashKey);
+        return hashKey;
     }
 
 }
@@ -18,7 +18,13 @@ package com.wl4g.iam.gateway.requestlimit.limiter;
 import static com.wl4g.infra.common.lang.Assert2.notNullOf;
 import static com.wl4g.infra.common.log.SmartLoggerFactory.getLogger;
 
+import java.util.List;
+
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
 
 import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
 import com.wl4g.iam.gateway.requestlimit.config.IamRequestLimiterProperties;
@@ -51,4 +57,16 @@ public abstract class AbstractRedisIamRequestLimiter<S extends RequestLimiterStr
         this.metricsFacade = notNullOf(metricsFacade, "metricsFacade");
     }
 
+    /**
+     * Create the redis script of the classpath location, which returns the
+     * list of numbers.
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    protected static RedisScript<List<Long>> newListResultScript(String location) {
+        DefaultRedisScript script = new DefaultRedisScript<>();
+        script.setScriptSource(new ResourceScriptSource(new ClassPathResource(location)));
+        script.setResultType(List.class);
+        return script;
+    }
+
 }
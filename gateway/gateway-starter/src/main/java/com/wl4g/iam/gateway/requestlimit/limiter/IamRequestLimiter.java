@@ -22,8 +22,10 @@ import org.springframework.web.server.ServerWebExchange;
 import com.wl4g.iam.gateway.requestlimit.IamRequestLimiterFilterFactory;
 import com.wl4g.iam.gateway.requestlimit.config.IamRequestLimiterProperties.LimiterProperties.AbstractLimiterProperties;
 import com.wl4g.iam.gateway.requestlimit.limiter.IamRequestLimiter.RequestLimiterPrivoder;
+import com.wl4g.iam.gateway.requestlimit.limiter.gcra.RedisGcraRequestLimiterStrategy;
 import com.wl4g.iam.gateway.requestlimit.limiter.quota.RedisQuotaRequestLimiterStrategy;
 import com.wl4g.iam.gateway.requestlimit.limiter.rate.RedisRateRequestLimiterStrategy;
+import com.wl4g.iam.gateway.requestlimit.limiter.window.RedisSlidingWindowRequestLimiterStrategy;
 import com.wl4g.infra.common.framework.operator.Operator;
 
 import lombok.AllArgsConstructor;
@@ -62,7 +64,11 @@ public interface IamRequestLimiter extends Operator<RequestLimiterPrivoder> {
     public static enum RequestLimiterPrivoder {
         RedisRateLimiter(RedisRateRequestLimiterStrategy.class),
 
-        RedisQuotaLimiter(RedisQuotaRequestLimiterStrategy.class);
+        RedisQuotaLimiter(RedisQuotaRequestLimiterStrategy.class),
+
+        RedisGcraLimiter(RedisGcraRequestLimiterStrategy.class),
+
+        RedisSlidingWindowLimiter(RedisSlidingWindowRequestLimiterStrategy.class);
 
         private final Class<? extends RequestLimiterStrategy> strategyClass;
     }
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.requestlimit.limiter.gcra;
+
+import static com.wl4g.infra.common.lang.FastTimeClock.currentTimeMillis;
+import static java.lang.System.nanoTime;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsName;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.RouteCounter;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.RouteTimer;
+import com.wl4g.iam.gateway.requestlimit.IamRequestLimiterFilterFactory;
+import com.wl4g.iam.gateway.requestlimit.config.IamRequestLimiterProperties;
+import com.wl4g.iam.gateway.requestlimit.config.IamRequestLimiterProperties.LimiterProperties.AbstractLimiterProperties;
+import com.wl4g.iam.gateway.requestlimit.config.IamRequestLimiterProperties.LimiterProperties.RedisGcraLimiterProperties;
+import com.wl4g.iam.gateway.requestlimit.configurer.LimiterStrategyConfigurer;
+import com.wl4g.iam.gateway.requestlimit.event.RateLimitHitEvent;
+import com.wl4g.iam.gateway.requestlimit.limiter.AbstractRedisIamRequestLimiter;
+import com.wl4g.infra.common.eventbus.EventBusSupport;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link RedisGcraIamRequestLimiter}, the GCRA (generic cell rate algorithm)
+ * is equivalent to the token bucket, but only stores a single theoretical
+ * arrival time per key (which expires when the bucket would be full again),
+ * and allows the requests smoothly without the burst at the cycle boundaries.
+ * 
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-08 v3.1.0
+ * @since v3.1.0
+ * @see https://en.wikipedia.org/wiki/Generic_cell_rate_algorithm
+ */
+public class RedisGcraIamRequestLimiter extends AbstractRedisIamRequestLimiter<RedisGcraRequestLimiterStrategy> {
+
+    private final RouteCounter totalCounter;
+    private final RouteCounter hitsCounter;
+    private final RouteTimer timer;
+
+    public RedisGcraIamRequestLimiter(IamRequestLimiterProperties requestLimiterConfig, LimiterStrategyConfigurer configurer,
+            ReactiveStringRedisTemplate redisTemplate, EventBusSupport eventBus, IamGatewayMetricsFacade metricsFacade) {
+        super(requestLimiterConfig, configurer, redisTemplate, eventBus, metricsFacade);
+        this.totalCounter = metricsFacade.routeCounter(MetricsName.REDIS_GCRALIMIT_TOTAL);
+        this.hitsCounter = metricsFacade.routeCounter(MetricsName.REDIS_GCRALIMIT_HITS_TOTAL);
+        this.timer = metricsFacade.routeTimer(MetricsName.REDIS_GCRALIMIT_TIME);
+    }
+
+    @Override
+    public RequestLimiterPrivoder kind() {
+        return RequestLimiterPrivoder.RedisGcraLimiter;
+    }
+
+    @Override
+    public Mono<LimitedResult> isAllowed(
+            IamRequestLimiterFilterFactory.Config config,
+            ServerWebExchange exchange,
+            String routeId,
+            String limitKey) {
+        totalCounter.increment(routeId, 1);
+        final long beginTime = nanoTime();
+
+        return configurer.loadGcraStrategy(routeId, limitKey)
+                .defaultIfEmpty(((RedisGcraLimiterProperties) getDefaultLimiter()).getDefaultStrategy())
+                .flatMap(strategy -> {
+                    double emissionInterval = (double) strategy.getPeriodMillis() / strategy.getLimit();
+                    double burstTolerance = emissionInterval * strategy.getBurst();
+                    List<String> scriptArgs = Arrays.asList(String.valueOf(emissionInterval), String.valueOf(burstTolerance),
+                            String.valueOf(currentTimeMillis()), String.valueOf(strategy.getRequestedTokens()));
+
+                    // allowed, remaining, retry_after = redis.eval(SCRIPT,
+                    // keys, args)
+                    return redisTemplate.execute(GCRA_SCRIPT, getKeys(limitKey), scriptArgs).next().onErrorResume(ex -> {
+                        // We don't want a hard dependency on Redis to allow
+                        // traffic.
+                        log.error("Error calling GCRA limiter lua", ex);
+                        return Mono.just(Arrays.asList(1L, -1L, 0L));
+                    }).map(results -> {
+                        boolean allowed = results.get(0) == 1L;
+                        long tokensLeft = results.get(1);
+                        LimitedResult result = new LimitedResult(allowed, tokensLeft,
+                                createHeaders(strategy, tokensLeft, results.get(2), limitKey));
+                        if (log.isTraceEnabled()) {
+                            log.trace("response: {}", result);
+                        }
+                        timer.record(routeId, beginTime);
+                        if (!allowed) { // Total hits metric
+                            hitsCounter.increment(routeId, 1);
+                            eventBus.post(new RateLimitHitEvent(routeId, limitKey, exchange.getRequest().getURI().getPath()));
+                        }
+                        return result;
+                    });
+                });
+    }
+
+    @Override
+    public AbstractLimiterProperties getDefaultLimiter() {
+        return requestLimiterConfig.getLimiter().getGcra();
+    }
+
+    protected List<String> getKeys(String limitKey) {
+        // Use `{}` around keys to use redis key hash tags.
+        return Arrays.asList(requestLimiterConfig.getLimiter().getGcra().getTokenPrefix().concat(".{").concat(limitKey).concat(
+                "}.tat"));
+    }
+
+    protected Map<String, String> createHeaders(
+            RedisGcraRequestLimiterStrategy strategy,
+            long tokensLeft,
+            long retryAfterMillis,
+            String limitKey) {
+        Map<String, String> headers = new HashMap<>();
+        if (strategy.isIncludeHeaders()) {
+            RedisGcraLimiterProperties config = requestLimiterConfig.getLimiter().getGcra();
+            headers.put(config.getLimitHeader(), String.valueOf(strategy.getLimit()));
+            headers.put(config.getPeriodHeader(), String.valueOf(strategy.getPeriodMillis()));
+            headers.put(config.getRemainingHeader(), String.valueOf(tokensLeft));
+            headers.put(config.getLimitKeyHeader(), String.valueOf(limitKey));
+            if (retryAfterMillis > 0) {
+                headers.put(config.getRetryAfterHeader(), String.valueOf(retryAfterMillis));
+            }
+        }
+        return headers;
+    }
+
+    /**
+     * The script of GCRA limiter, see:
+     * {@code classpath:/META-INF/scripts/iam_gateway_gcra.lua}
+     */
+    public static final RedisScript<List<Long>> GCRA_SCRIPT = newListResultScript("META-INF/scripts/iam_gateway_gcra.lua");
+
+}
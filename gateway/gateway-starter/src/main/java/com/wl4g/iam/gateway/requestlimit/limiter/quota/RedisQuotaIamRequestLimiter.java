@@ -26,6 +26,8 @@ import org.springframework.web.server.ServerWebExchange;
 
 import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
 import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsName;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.RouteCounter;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.RouteTimer;
 import com.wl4g.iam.gateway.requestlimit.IamRequestLimiterFilterFactory;
 import com.wl4g.iam.gateway.requestlimit.config.IamRequestLimiterProperties;
 import com.wl4g.iam.gateway.requestlimit.config.IamRequestLimiterProperties.LimiterProperties.AbstractLimiterProperties;
@@ -46,9 +48,16 @@ import reactor.core.publisher.Mono;
  */
 public class RedisQuotaIamRequestLimiter extends AbstractRedisIamRequestLimiter<RedisQuotaRequestLimiterStrategy> {
 
+    private final RouteCounter totalCounter;
+    private final RouteCounter hitsCounter;
+    private final RouteTimer timer;
+
     public RedisQuotaIamRequestLimiter(IamRequestLimiterProperties requestLimiterConfig, LimiterStrategyConfigurer configurer,
             ReactiveStringRedisTemplate redisTemplate, EventBusSupport eventBus, IamGatewayMetricsFacade metricsFacade) {
         super(requestLimiterConfig, configurer, redisTemplate, eventBus, metricsFacade);
+        this.totalCounter = metricsFacade.routeCounter(MetricsName.REDIS_QUOTALIMIT_TOTAL);
+        this.hitsCounter = metricsFacade.routeCounter(MetricsName.REDIS_QUOTALIMIT_HITS_TOTAL);
+        this.timer = metricsFacade.routeTimer(MetricsName.REDIS_QUOTALIMIT_TIME);
     }
 
     @Override
@@ -62,7 +71,7 @@ public class RedisQuotaIamRequestLimiter extends AbstractRedisIamRequestLimiter<
             ServerWebExchange exchange,
             String routeId,
             String limitKey) {
-        metricsFacade.counter(MetricsName.REDIS_QUOTALIMIT_TOTAL, routeId, 1);
+        totalCounter.increment(routeId, 1);
         final long beginTime = nanoTime();
 
         return configurer.loadQuotaStrategy(routeId, limitKey)
@@ -87,10 +96,10 @@ public class RedisQuotaIamRequestLimiter extends AbstractRedisIamRequestLimiter<
                             if (log.isTraceEnabled()) {
                                 log.trace("response: {}", result);
                             }
-                            metricsFacade.timer(MetricsName.REDIS_QUOTALIMIT_TIME, routeId, beginTime);
+                            timer.record(routeId, beginTime);
 
                             if (!allowed) { // Total hits metric
-                                metricsFacade.counter(MetricsName.REDIS_QUOTALIMIT_HITS_TOTAL, routeId, 1);
+                                hitsCounter.increment(routeId, 1);
                                 eventBus.post(
                                         new QuotaLimitHitEvent(routeId, limitKey, exchange.getRequest().getURI().getPath()));
                             }
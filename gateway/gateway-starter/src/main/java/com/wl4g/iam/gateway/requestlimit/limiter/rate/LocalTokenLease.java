@@ -0,0 +1,134 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.requestlimit.limiter.rate;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.wl4g.iam.gateway.requestlimit.config.IamRequestLimiterProperties.LimiterProperties.RedisRateLimiterProperties.LocalLeaseProperties;
+
+/**
+ * The local tokens leased from the redis token bucket of one limit key, the
+ * requests are admitted by CAS on the local tokens without calling redis,
+ * until the lease runs out or expires. </br>
+ * </br>
+ * The lease size is adaptive to the local consuming rate (EWMA), and bounded
+ * by {@link LocalLeaseProperties#getMaxLeaseRatio()} of the burst capacity.
+ * The strategy loaded at the last lease is also kept, so the hot path does not
+ * load the strategy from redis either.
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-08 v3.1.0
+ * @since v3.1.0
+ */
+public class LocalTokenLease {
+
+    private final AtomicLong tokens = new AtomicLong(0);
+    private final AtomicLong acquired = new AtomicLong(0);
+    private volatile long expireTime;
+    private volatile long remoteTokensLeft = -1L;
+    private volatile RedisRateRequestLimiterStrategy strategy;
+    private volatile long rateWindowBeginTime;
+    private volatile double rate; // tokens per second
+
+    /**
+     * Try to acquire the requested tokens from the local lease.
+     *
+     * @param requested
+     * @param now
+     * @return Whether the local tokens is enough and not expired.
+     */
+    public boolean tryAcquire(long requested, long now) {
+        if (now >= expireTime) {
+            return false;
+        }
+        for (;;) {
+            long current = tokens.get();
+            if (current < requested) {
+                return false;
+            }
+            if (tokens.compareAndSet(current, current - requested)) {
+                acquired.addAndGet(requested);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Add the leased tokens, the unused tokens of the expired lease are
+     * discarded.
+     *
+     * @param granted
+     * @param remoteTokensLeft
+     * @param strategy
+     * @param now
+     * @param leaseExpireMillis
+     */
+    public void refill(
+            long granted,
+            long remoteTokensLeft,
+            RedisRateRequestLimiterStrategy strategy,
+            long now,
+            long leaseExpireMillis) {
+        if (now >= expireTime) {
+            tokens.set(granted);
+        } else {
+            tokens.addAndGet(granted);
+        }
+        this.remoteTokensLeft = remoteTokensLeft;
+        this.strategy = strategy;
+        this.expireTime = now + leaseExpireMillis;
+    }
+
+    /**
+     * Calculate the next lease size, which is expected to be consumed locally
+     * within {@link LocalLeaseProperties#getLeaseTargetMillis()}.
+     *
+     * @param strategy
+     * @param leaseConfig
+     * @param now
+     * @return The number of tokens, at least requested tokens per request.
+     */
+    public long nextLeaseSize(RedisRateRequestLimiterStrategy strategy, LocalLeaseProperties leaseConfig, long now) {
+        long elapsed = now - rateWindowBeginTime;
+        if (elapsed > 0) {
+            double instantRate = acquired.getAndSet(0) * 1000d / elapsed;
+            // The first window since the idle has no history.
+            rate = (rate <= 0 || elapsed > leaseConfig.getLeaseExpireMillis()) ? instantRate : (rate + instantRate) / 2;
+            rateWindowBeginTime = now;
+        }
+        long requested = strategy.getRequestedTokens();
+        long maxLease = Math.max(requested, (long) (strategy.getBurstCapacity() * leaseConfig.getMaxLeaseRatio()));
+        long expected = (long) Math.ceil(rate * leaseConfig.getLeaseTargetMillis() / 1000d);
+        return Math.min(maxLease, Math.max(requested, expected));
+    }
+
+    public long getTokens() {
+        return tokens.get();
+    }
+
+    /**
+     * The estimated remaining tokens, i.e. the local tokens plus the tokens
+     * left of redis bucket at the last lease.
+     */
+    public long getEstimatedTokensLeft() {
+        return remoteTokensLeft < 0 ? -1L : tokens.get() + remoteTokensLeft;
+    }
+
+    public RedisRateRequestLimiterStrategy getStrategy() {
+        return strategy;
+    }
+
+}
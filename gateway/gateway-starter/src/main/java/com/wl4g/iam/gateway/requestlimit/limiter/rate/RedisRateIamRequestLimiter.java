@@ -16,7 +16,10 @@
 package com.wl4g.iam.gateway.requestlimit.limiter.rate;
 
 import static com.wl4g.infra.common.lang.Assert2.notNullOf;
+import static com.wl4g.infra.common.lang.FastTimeClock.currentTimeMillis;
 import static java.lang.System.nanoTime;
+import static java.util.Objects.nonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 import java.time.Instant;
 import java.util.ArrayList;
@@ -24,6 +27,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.data.redis.core.script.RedisScript;
@@ -31,13 +35,18 @@ import org.springframework.web.server.ServerWebExchange;
 
 import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
 import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsName;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.RouteCounter;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.RouteTimer;
 import com.wl4g.iam.gateway.requestlimit.IamRequestLimiterFilterFactory;
 import com.wl4g.iam.gateway.requestlimit.config.IamRequestLimiterProperties;
 import com.wl4g.iam.gateway.requestlimit.config.IamRequestLimiterProperties.LimiterProperties.AbstractLimiterProperties;
 import com.wl4g.iam.gateway.requestlimit.config.IamRequestLimiterProperties.LimiterProperties.RedisRateLimiterProperties;
+import com.wl4g.iam.gateway.requestlimit.config.IamRequestLimiterProperties.LimiterProperties.RedisRateLimiterProperties.LocalLeaseProperties;
 import com.wl4g.iam.gateway.requestlimit.configurer.LimiterStrategyConfigurer;
 import com.wl4g.iam.gateway.requestlimit.event.RateLimitHitEvent;
 import com.wl4g.iam.gateway.requestlimit.limiter.AbstractRedisIamRequestLimiter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.wl4g.infra.common.eventbus.EventBusSupport;
 
 import lombok.Getter;
@@ -46,7 +55,14 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /**
- * {@link RedisRateIamRequestLimiter}
+ * {@link RedisRateIamRequestLimiter}, when the local lease (hybrid mode) is
+ * enabled, the requests are admitted by the local tokens leased in batches from
+ * the redis token bucket (see {@link LocalTokenLease}), and redis is only
+ * called when the lease runs out. Since the leased tokens have been deducted
+ * in redis, the cluster never admits more than the bucket allows, the accuracy
+ * loss is bounded that the tokens leased but unused by one node (at most
+ * {@link LocalLeaseProperties#getMaxLeaseRatio()} of the burst capacity) are
+ * not available to the other nodes until the lease expires.
  * 
  * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
  * @version 2022-04-19 v3.0.0
@@ -59,12 +75,28 @@ import reactor.core.publisher.Mono;
 public class RedisRateIamRequestLimiter extends AbstractRedisIamRequestLimiter<RedisRateRequestLimiterStrategy> {
 
     private final RedisScript<List<Long>> redisScript;
+    private final RouteCounter totalCounter;
+    private final RouteCounter hitsCounter;
+    private final RouteTimer timer;
+    private final RouteCounter leaseCounter;
+    private final Cache<String, LocalTokenLease> localLeases;
+    private final Map<String, Mono<Long>> leasings = new ConcurrentHashMap<>(16);
 
     public RedisRateIamRequestLimiter(RedisScript<List<Long>> redisScript, IamRequestLimiterProperties requestLimiterConfig,
             LimiterStrategyConfigurer configurer, ReactiveStringRedisTemplate redisTemplate, EventBusSupport eventBus,
             IamGatewayMetricsFacade metricsFacade) {
         super(requestLimiterConfig, configurer, redisTemplate, eventBus, metricsFacade);
         this.redisScript = notNullOf(redisScript, "redisScript");
+        this.totalCounter = metricsFacade.routeCounter(MetricsName.REDIS_RATELIMIT_TOTAL);
+        this.hitsCounter = metricsFacade.routeCounter(MetricsName.REDIS_RATELIMIT_HITS_TOTAL);
+        this.timer = metricsFacade.routeTimer(MetricsName.REDIS_RATELIMIT_TIME);
+        this.leaseCounter = metricsFacade.routeCounter(MetricsName.REDIS_RATELIMIT_LEASE_TOTAL);
+        LocalLeaseProperties leaseConfig = requestLimiterConfig.getLimiter().getRate().getLocalLease();
+        this.localLeases = CacheBuilder.newBuilder()
+                .maximumSize(leaseConfig.getMaxLocalKeys())
+                // Keep the idle leases a while for the consuming rate history.
+                .expireAfterAccess(Math.max(leaseConfig.getLeaseExpireMillis(), 1000L) * 10, MILLISECONDS)
+                .build();
     }
 
     @Override
@@ -83,8 +115,11 @@ public class RedisRateIamRequestLimiter extends AbstractRedisIamRequestLimiter<R
             ServerWebExchange exchange,
             String routeId,
             String limitKey) {
-        metricsFacade.counter(MetricsName.REDIS_RATELIMIT_TOTAL, routeId, 1);
+        totalCounter.increment(routeId, 1);
         final long beginTime = nanoTime();
+        if (requestLimiterConfig.getLimiter().getRate().getLocalLease().isEnabled()) {
+            return isAllowedWithLease(exchange, routeId, limitKey, beginTime, true);
+        }
 
         return configurer.loadRateStrategy(routeId, limitKey)
                 .defaultIfEmpty(((RedisRateLimiterProperties) getDefaultLimiter()).getDefaultStrategy())
@@ -130,9 +165,9 @@ public class RedisRateIamRequestLimiter extends AbstractRedisIamRequestLimiter<R
                                     }
 
                                     // [Begin] ADD feature for metrics
-                                    metricsFacade.timer(MetricsName.REDIS_RATELIMIT_TIME, routeId, beginTime);
+                                    timer.record(routeId, beginTime);
                                     if (!allowed) { // Total hits metric
-                                        metricsFacade.counter(MetricsName.REDIS_RATELIMIT_HITS_TOTAL, routeId, 1);
+                                        hitsCounter.increment(routeId, 1);
                                         eventBus.post(new RateLimitHitEvent(routeId, limitKey,
                                                 exchange.getRequest().getURI().getPath()));
                                     }
@@ -152,6 +187,86 @@ public class RedisRateIamRequestLimiter extends AbstractRedisIamRequestLimiter<R
                 });
     }
 
+    /**
+     * Admit the request with the local leased tokens, and lease from the redis
+     * token bucket when the local tokens run out.
+     */
+    protected Mono<LimitedResult> isAllowedWithLease(
+            ServerWebExchange exchange,
+            String routeId,
+            String limitKey,
+            long beginTime,
+            boolean retryOnContended) {
+        String leaseKey = routeId.concat(":").concat(limitKey);
+        LocalTokenLease lease = getLocalLease(leaseKey);
+        RedisRateRequestLimiterStrategy cachedStrategy = lease.getStrategy();
+        if (nonNull(cachedStrategy) && lease.tryAcquire(cachedStrategy.getRequestedTokens(), currentTimeMillis())) {
+            timer.record(routeId, beginTime);
+            return Mono.just(new LimitedResult(true, lease.getEstimatedTokensLeft(),
+                    createHeaders(cachedStrategy, lease.getEstimatedTokensLeft(), limitKey)));
+        }
+        return leasings.computeIfAbsent(leaseKey, key -> doLease(routeId, limitKey, lease).doFinally(signal -> leasings.remove(key))
+                .cache()).flatMap(granted -> {
+                    RedisRateRequestLimiterStrategy strategy = lease.getStrategy();
+                    if (granted < 0) { // Redis is unavailable, allow traffic.
+                        timer.record(routeId, beginTime);
+                        return Mono.just(new LimitedResult(true, -1L, createHeaders(strategy, -1L, limitKey)));
+                    }
+                    if (lease.tryAcquire(strategy.getRequestedTokens(), currentTimeMillis())) {
+                        timer.record(routeId, beginTime);
+                        return Mono.just(new LimitedResult(true, lease.getEstimatedTokensLeft(),
+                                createHeaders(strategy, lease.getEstimatedTokensLeft(), limitKey)));
+                    }
+                    // The leased tokens have been used up by the concurrent
+                    // requests, lease again once.
+                    if (granted > 0 && retryOnContended) {
+                        return isAllowedWithLease(exchange, routeId, limitKey, beginTime, false);
+                    }
+                    timer.record(routeId, beginTime);
+                    hitsCounter.increment(routeId, 1);
+                    eventBus.post(new RateLimitHitEvent(routeId, limitKey, exchange.getRequest().getURI().getPath()));
+                    return Mono.just(new LimitedResult(false, 0L, createHeaders(strategy, 0L, limitKey)));
+                });
+    }
+
+    /**
+     * Lease the tokens from the redis token bucket into the local lease.
+     *
+     * @return The granted tokens, or -1 if failed to call redis.
+     */
+    protected Mono<Long> doLease(String routeId, String limitKey, LocalTokenLease lease) {
+        LocalLeaseProperties leaseConfig = requestLimiterConfig.getLimiter().getRate().getLocalLease();
+        return configurer.loadRateStrategy(routeId, limitKey)
+                .defaultIfEmpty(((RedisRateLimiterProperties) getDefaultLimiter()).getDefaultStrategy())
+                .flatMap(strategy -> {
+                    leaseCounter.increment(routeId, 1);
+                    long leaseSize = lease.nextLeaseSize(strategy, leaseConfig, currentTimeMillis());
+                    List<String> scriptArgs = Arrays.asList(strategy.getReplenishRate() + "", strategy.getBurstCapacity() + "",
+                            Instant.now().getEpochSecond() + "", strategy.getRequestedTokens() + "", leaseSize + "");
+                    return redisTemplate.execute(LEASE_SCRIPT, getKeys(strategy, limitKey), scriptArgs)
+                            .next()
+                            .map(results -> {
+                                long granted = results.get(0);
+                                lease.refill(granted, results.get(1), strategy, currentTimeMillis(),
+                                        leaseConfig.getLeaseExpireMillis());
+                                return granted;
+                            })
+                            .onErrorResume(throwable -> {
+                                log.error("Error calling rate limiter lease lua", throwable);
+                                lease.refill(0, -1L, strategy, currentTimeMillis(), 0L);
+                                return Mono.just(-1L);
+                            });
+                });
+    }
+
+    protected LocalTokenLease getLocalLease(String leaseKey) {
+        LocalTokenLease lease = localLeases.getIfPresent(leaseKey);
+        if (nonNull(lease)) {
+            return lease;
+        }
+        return localLeases.asMap().computeIfAbsent(leaseKey, key -> new LocalTokenLease());
+    }
+
     @Override
     public AbstractLimiterProperties getDefaultLimiter() {
         return requestLimiterConfig.getLimiter().getRate();
@@ -184,4 +299,11 @@ public class RedisRateIamRequestLimiter extends AbstractRedisIamRequestLimiter<R
         return headers;
     }
 
+    /**
+     * The script of tokens lease, see:
+     * {@code classpath:/META-INF/scripts/iam_gateway_rate_lease.lua}
+     */
+    public static final RedisScript<List<Long>> LEASE_SCRIPT = newListResultScript(
+            "META-INF/scripts/iam_gateway_rate_lease.lua");
+
 }
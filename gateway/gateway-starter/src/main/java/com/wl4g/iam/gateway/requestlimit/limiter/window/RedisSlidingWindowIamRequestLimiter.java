@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.requestlimit.limiter.window;
+
+import static com.wl4g.infra.common.lang.FastTimeClock.currentTimeMillis;
+import static java.lang.System.nanoTime;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsName;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.RouteCounter;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.RouteTimer;
+import com.wl4g.iam.gateway.requestlimit.IamRequestLimiterFilterFactory;
+import com.wl4g.iam.gateway.requestlimit.config.IamRequestLimiterProperties;
+import com.wl4g.iam.gateway.requestlimit.config.IamRequestLimiterProperties.LimiterProperties.AbstractLimiterProperties;
+import com.wl4g.iam.gateway.requestlimit.config.IamRequestLimiterProperties.LimiterProperties.RedisSlidingWindowLimiterProperties;
+import com.wl4g.iam.gateway.requestlimit.configurer.LimiterStrategyConfigurer;
+import com.wl4g.iam.gateway.requestlimit.event.RateLimitHitEvent;
+import com.wl4g.iam.gateway.requestlimit.limiter.AbstractRedisIamRequestLimiter;
+import com.wl4g.infra.common.eventbus.EventBusSupport;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link RedisSlidingWindowIamRequestLimiter}, the sliding window counter
+ * limiter, which estimates the count of the sliding window by the current
+ * fixed window counter plus the previous window counter weighted by its
+ * overlap, so there is no burst at the window boundaries, and only two TTLed
+ * counters are stored per key (unlike the sliding window log, the memory does
+ * not grow with the capacity).
+ * 
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-08 v3.1.0
+ * @since v3.1.0
+ */
+public class RedisSlidingWindowIamRequestLimiter extends AbstractRedisIamRequestLimiter<RedisSlidingWindowRequestLimiterStrategy> {
+
+    private final RouteCounter totalCounter;
+    private final RouteCounter hitsCounter;
+    private final RouteTimer timer;
+
+    public RedisSlidingWindowIamRequestLimiter(IamRequestLimiterProperties requestLimiterConfig,
+            LimiterStrategyConfigurer configurer, ReactiveStringRedisTemplate redisTemplate, EventBusSupport eventBus,
+            IamGatewayMetricsFacade metricsFacade) {
+        super(requestLimiterConfig, configurer, redisTemplate, eventBus, metricsFacade);
+        this.totalCounter = metricsFacade.routeCounter(MetricsName.REDIS_WINDOWLIMIT_TOTAL);
+        this.hitsCounter = metricsFacade.routeCounter(MetricsName.REDIS_WINDOWLIMIT_HITS_TOTAL);
+        this.timer = metricsFacade.routeTimer(MetricsName.REDIS_WINDOWLIMIT_TIME);
+    }
+
+    @Override
+    public RequestLimiterPrivoder kind() {
+        return RequestLimiterPrivoder.RedisSlidingWindowLimiter;
+    }
+
+    @Override
+    public Mono<LimitedResult> isAllowed(
+            IamRequestLimiterFilterFactory.Config config,
+            ServerWebExchange exchange,
+            String routeId,
+            String limitKey) {
+        totalCounter.increment(routeId, 1);
+        final long beginTime = nanoTime();
+
+        return configurer.loadSlidingWindowStrategy(routeId, limitKey)
+                .defaultIfEmpty(((RedisSlidingWindowLimiterProperties) getDefaultLimiter()).getDefaultStrategy())
+                .flatMap(strategy -> {
+                    long now = currentTimeMillis();
+                    List<String> scriptArgs = Arrays.asList(String.valueOf(strategy.getRequestCapacity()),
+                            String.valueOf(strategy.getWindowMillis()), String.valueOf(now),
+                            String.valueOf(strategy.getRequestedTokens()));
+
+                    // allowed, remaining = redis.eval(SCRIPT, keys, args)
+                    return redisTemplate.execute(SLIDING_WINDOW_SCRIPT, getKeys(strategy, limitKey, now), scriptArgs)
+                            .next()
+                            .onErrorResume(ex -> {
+                                // We don't want a hard dependency on Redis to
+                                // allow traffic.
+                                log.error("Error calling sliding window limiter lua", ex);
+                                return Mono.just(Arrays.asList(1L, -1L));
+                            })
+                            .map(results -> {
+                                boolean allowed = results.get(0) == 1L;
+                                long tokensLeft = results.get(1);
+                                LimitedResult result = new LimitedResult(allowed, tokensLeft,
+                                        createHeaders(strategy, tokensLeft, limitKey));
+                                if (log.isTraceEnabled()) {
+                                    log.trace("response: {}", result);
+                                }
+                                timer.record(routeId, beginTime);
+                                if (!allowed) { // Total hits metric
+                                    hitsCounter.increment(routeId, 1);
+                                    eventBus.post(
+                                            new RateLimitHitEvent(routeId, limitKey, exchange.getRequest().getURI().getPath()));
+                                }
+                                return result;
+                            });
+                });
+    }
+
+    @Override
+    public AbstractLimiterProperties getDefaultLimiter() {
+        return requestLimiterConfig.getLimiter().getSlidingWindow();
+    }
+
+    protected List<String> getKeys(RedisSlidingWindowRequestLimiterStrategy strategy, String limitKey, long now) {
+        // Use `{}` around keys to use redis key hash tags, so that both
+        // windows of the same limit key are in the same slot.
+        String prefix = requestLimiterConfig.getLimiter().getSlidingWindow().getTokenPrefix().concat(".{").concat(limitKey).concat(
+                "}.");
+        long currentWindow = now / strategy.getWindowMillis();
+        return Arrays.asList(prefix.concat(String.valueOf(currentWindow)), prefix.concat(String.valueOf(currentWindow - 1)));
+    }
+
+    protected Map<String, String> createHeaders(RedisSlidingWindowRequestLimiterStrategy strategy, long tokensLeft, String limitKey) {
+        Map<String, String> headers = new HashMap<>();
+        if (strategy.isIncludeHeaders()) {
+            RedisSlidingWindowLimiterProperties config = requestLimiterConfig.getLimiter().getSlidingWindow();
+            headers.put(config.getRequestCapacityHeader(), String.valueOf(strategy.getRequestCapacity()));
+            headers.put(config.getWindowHeader(), String.valueOf(strategy.getWindowMillis()));
+            headers.put(config.getRemainingHeader(), String.valueOf(tokensLeft));
+            headers.put(config.getLimitKeyHeader(), String.valueOf(limitKey));
+        }
+        return headers;
+    }
+
+    /**
+     * The script of sliding window limiter, see:
+     * {@code classpath:/META-INF/scripts/iam_gateway_sliding_window.lua}
+     */
+    public static final RedisScript<List<Long>> SLIDING_WINDOW_SCRIPT = newListResultScript(
+            "META-INF/scripts/iam_gateway_sliding_window.lua");
+
+}
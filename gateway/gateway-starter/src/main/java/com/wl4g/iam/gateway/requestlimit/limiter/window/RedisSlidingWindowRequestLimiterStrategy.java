@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.requestlimit.limiter.window;
+
+import javax.validation.constraints.Min;
+
+import org.springframework.validation.annotation.Validated;
+
+import com.wl4g.iam.gateway.requestlimit.limiter.RequestLimiterStrategy;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * {@link RedisSlidingWindowRequestLimiterStrategy}
+ * 
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-08 v3.1.0
+ * @since v3.1.0
+ */
+@Getter
+@Setter
+@ToString
+@Validated
+@AllArgsConstructor
+@NoArgsConstructor
+public class RedisSlidingWindowRequestLimiterStrategy extends RequestLimiterStrategy {
+
+    /**
+     * The number of total maximum allowed requests within any sliding window.
+     */
+    private @Min(0) long requestCapacity = 1000L;
+
+    /**
+     * The sliding window milliseconds.
+     */
+    private @Min(1) long windowMillis = 60_000L;
+
+    /**
+     * How many tokens are requested per request?
+     */
+    private @Min(1) int requestedTokens = 1;
+}
@@ -17,24 +17,36 @@
 package com.wl4g.iam.gateway.requestsize;
 
 import static com.wl4g.infra.common.lang.Assert2.notNullOf;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 import static org.springframework.cloud.gateway.support.GatewayToStringStyler.filterToStringCreator;
 
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
 import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
 import org.springframework.util.ObjectUtils;
+import org.springframework.web.server.PayloadTooLargeException;
 import org.springframework.web.server.ServerWebExchange;
 
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsName;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.RouteCounter;
 import com.wl4g.iam.gateway.requestsize.config.IamRequestSizeProperties;
 import com.wl4g.iam.gateway.requestsize.config.IamRequestSizeProperties.RequestSizeProperties;
 import com.wl4g.iam.gateway.util.IamGatewayUtil.SafeFilterOrdered;
 import com.wl4g.infra.common.bean.ConfigBeanUtils;
 
 import lombok.AllArgsConstructor;
+import lombok.Getter;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
 
 /**
  * {@link IamRequestSizeFilterFactory}
@@ -51,10 +63,15 @@ public class IamRequestSizeFilterFactory extends AbstractGatewayFilterFactory<Ia
             + " Request size is %s where permissible limit is %s";
 
     private final IamRequestSizeProperties requestSizeConfig;
+    private final RouteCounter ingressBytesCounter;
+    private final RouteCounter rejectedCounter;
 
-    public IamRequestSizeFilterFactory(IamRequestSizeProperties requestSizeConfig) {
+    public IamRequestSizeFilterFactory(IamRequestSizeProperties requestSizeConfig, IamGatewayMetricsFacade metricsFacade) {
         super(IamRequestSizeFilterFactory.Config.class);
         this.requestSizeConfig = notNullOf(requestSizeConfig, "requestSizeConfig");
+        notNullOf(metricsFacade, "metricsFacade");
+        this.ingressBytesCounter = metricsFacade.routeCounter(MetricsName.REQUEST_SIZE_INGRESS_BYTES_TOTAL);
+        this.rejectedCounter = metricsFacade.routeCounter(MetricsName.REQUEST_SIZE_REJECTED_TOTAL);
     }
 
     @Override
@@ -106,19 +123,52 @@ public class IamRequestSizeFilterFactory extends AbstractGatewayFilterFactory<Ia
         @Override
         public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
             ServerHttpRequest request = exchange.getRequest();
+            long maxBodySize = config.getMaxBodySize().toBytes();
             String contentLength = request.getHeaders().getFirst("content-length");
             if (!ObjectUtils.isEmpty(contentLength)) {
                 Long currentRequestSize = Long.valueOf(contentLength);
-                if (currentRequestSize > config.getMaxBodySize().toBytes()) {
-                    exchange.getResponse().setStatusCode(HttpStatus.PAYLOAD_TOO_LARGE);
-                    if (!exchange.getResponse().isCommitted()) {
-                        exchange.getResponse().getHeaders().add("errorMessage",
-                                getErrorMessage(currentRequestSize, config.getMaxBodySize().toBytes()));
-                    }
-                    return exchange.getResponse().setComplete();
+                if (currentRequestSize > maxBodySize) {
+                    return rejectPayloadTooLarge(exchange, currentRequestSize, maxBodySize);
+                }
+            }
+
+            // The chunked (or HTTP/2) requests may have no content-length, so
+            // the body is counted while streaming to the upstream.
+            ServerWebExchange _exchange = exchange.mutate().request(new SizeLimitedRequest(exchange, maxBodySize)).build();
+            return chain.filter(_exchange).onErrorResume(ex -> {
+                RequestBodyTooLargeException tooLarge = findTooLargeCause(ex);
+                if (isNull(tooLarge)) {
+                    return Mono.error(ex);
+                }
+                if (exchange.getResponse().isCommitted()) {
+                    return Mono.error(new PayloadTooLargeException(tooLarge));
+                }
+                return rejectPayloadTooLarge(exchange, tooLarge.getRequestSize(), maxBodySize);
+            });
+        }
+
+        /**
+         * The body error may be wrapped by the upstream http client.
+         */
+        private RequestBodyTooLargeException findTooLargeCause(Throwable ex) {
+            for (Throwable cause = ex; nonNull(cause); cause = cause.getCause()) {
+                if (cause instanceof RequestBodyTooLargeException) {
+                    return (RequestBodyTooLargeException) cause;
+                }
+                if (cause.getCause() == cause) {
+                    break;
                 }
             }
-            return chain.filter(exchange);
+            return null;
+        }
+
+        private Mono<Void> rejectPayloadTooLarge(ServerWebExchange exchange, long currentRequestSize, long maxBodySize) {
+            rejectedCounter.increment(exchange);
+            exchange.getResponse().setStatusCode(HttpStatus.PAYLOAD_TOO_LARGE);
+            if (!exchange.getResponse().isCommitted()) {
+                exchange.getResponse().getHeaders().add("errorMessage", getErrorMessage(currentRequestSize, maxBodySize));
+            }
+            return exchange.getResponse().setComplete();
         }
 
         @Override
@@ -128,6 +178,50 @@ public class IamRequestSizeFilterFactory extends AbstractGatewayFilterFactory<Ia
 
     }
 
+    /**
+     * The request decorator that counts the body bytes without buffering, and
+     * aborts the body as soon as the max size is exceeded.
+     */
+    class SizeLimitedRequest extends ServerHttpRequestDecorator {
+        private final ServerWebExchange exchange;
+        private final long maxBodySize;
+
+        SizeLimitedRequest(ServerWebExchange exchange, long maxBodySize) {
+            super(exchange.getRequest());
+            this.exchange = exchange;
+            this.maxBodySize = maxBodySize;
+        }
+
+        @Override
+        public Flux<DataBuffer> getBody() {
+            return Flux.defer(() -> {
+                // Counting for each subscription, e.g. re-read by retry.
+                long[] requestSize = { 0L };
+                return super.getBody().handle((DataBuffer buffer, SynchronousSink<DataBuffer> sink) -> {
+                    requestSize[0] += buffer.readableByteCount();
+                    if (requestSize[0] > maxBodySize) {
+                        DataBufferUtils.release(buffer);
+                        sink.error(new RequestBodyTooLargeException(requestSize[0]));
+                    } else {
+                        sink.next(buffer);
+                    }
+                }).doFinally(signal -> ingressBytesCounter.increment(exchange, requestSize[0]));
+            });
+        }
+    }
+
+    @Getter
+    static class RequestBodyTooLargeException extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+
+        private final long requestSize;
+
+        RequestBodyTooLargeException(long requestSize) {
+            super("Request body size exceeded, request size is at least " + requestSize + " B");
+            this.requestSize = requestSize;
+        }
+    }
+
     public static final String BEAN_NAME = "IamRequestSize";
 
 }
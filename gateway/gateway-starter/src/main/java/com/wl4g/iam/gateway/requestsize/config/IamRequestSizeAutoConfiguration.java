@@ -19,6 +19,7 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 
 import com.wl4g.iam.common.constant.GatewayIAMConstants;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
 import com.wl4g.iam.gateway.requestsize.IamRequestSizeFilterFactory;
 
 /**
@@ -37,8 +38,10 @@ public class IamRequestSizeAutoConfiguration {
     }
 
     @Bean
-    public IamRequestSizeFilterFactory iamRequestSizeFilterFactory(IamRequestSizeProperties requestSizeConfig) {
-        return new IamRequestSizeFilterFactory(requestSizeConfig);
+    public IamRequestSizeFilterFactory iamRequestSizeFilterFactory(
+            IamRequestSizeProperties requestSizeConfig,
+            IamGatewayMetricsFacade metricsFacade) {
+        return new IamRequestSizeFilterFactory(requestSizeConfig, metricsFacade);
     }
 
 }
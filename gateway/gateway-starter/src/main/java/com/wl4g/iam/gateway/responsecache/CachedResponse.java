@@ -0,0 +1,226 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.responsecache;
+
+import static com.wl4g.infra.common.lang.Assert2.notNullOf;
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.isNull;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+
+import javax.validation.constraints.NotNull;
+
+import org.springframework.http.HttpHeaders;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * The cached response envelope, which contains the status, the (filtered)
+ * headers and the body, and is encoded into the compact binary format:
+ *
+ * <pre>
+ * magic(1) version(1) status(2) createTime(8) expireTime(8)
+ * headerCount(2) { nameLen(2) name valueCount(2) { valueLen(2) value }... }...
+ * bodyLen(4) body
+ * </pre>
+ *
+ * The lengths and counts of 2 bytes are unsigned, and the response that
+ * exceeds them is not encodable (i.e. not cached). The envelope of
+ * {@link #VARIANTS_STATUS} is the marker of the responses that vary by the
+ * request headers listed in its 'Vary' header, see
+ * {@link ResponseCacheKeyBuilder#buildVariant}.
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-09 v3.1.0
+ * @since v3.1.0
+ */
+@Getter
+@ToString(exclude = "body")
+public class CachedResponse {
+
+    private final int status;
+    private final HttpHeaders headers;
+    private final byte[] body;
+    private final long createTime;
+
+    /**
+     * The expiration time determined by the upstream 'Cache-Control' or
+     * 'Expires', or 0 if not specified (i.e. depends on the cache provider).
+     */
+    private final long expireTime;
+
+    public CachedResponse(int status, @NotNull HttpHeaders headers, @NotNull byte[] body, long createTime, long expireTime) {
+        this.status = status;
+        this.headers = notNullOf(headers, "headers");
+        this.body = notNullOf(body, "body");
+        this.createTime = createTime;
+        this.expireTime = expireTime;
+    }
+
+    public boolean isExpired(long now) {
+        return expireTime > 0 && now >= expireTime;
+    }
+
+    public boolean isVariants() {
+        return status == VARIANTS_STATUS;
+    }
+
+    /**
+     * Encode the cached response.
+     *
+     * @return
+     * @throws IllegalArgumentException
+     *             If the count or length of headers exceeds 65535.
+     */
+    public byte[] encode() {
+        int size = 1 + 1 + 2 + 8 + 8 + 2 + 4 + body.length;
+        checkUnsignedShort(headers.size(), "header count");
+        // The encoded names and values in order, to encode only once.
+        List<byte[]> encodedHeaders = new ArrayList<>(headers.size() * 2);
+        for (Entry<String, List<String>> header : headers.entrySet()) {
+            byte[] name = header.getKey().getBytes(UTF_8);
+            checkUnsignedShort(name.length, "header name length");
+            checkUnsignedShort(header.getValue().size(), "header value count");
+            size += 2 + name.length + 2;
+            encodedHeaders.add(name);
+            for (String value : header.getValue()) {
+                byte[] _value = value.getBytes(UTF_8);
+                checkUnsignedShort(_value.length, "header value length");
+                size += 2 + _value.length;
+                encodedHeaders.add(_value);
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(MAGIC).put(VERSION).putShort((short) status).putLong(createTime).putLong(expireTime);
+        buffer.putShort((short) headers.size());
+        int i = 0;
+        for (Entry<String, List<String>> header : headers.entrySet()) {
+            byte[] name = encodedHeaders.get(i++);
+            buffer.putShort((short) name.length).put(name);
+            buffer.putShort((short) header.getValue().size());
+            for (int j = 0; j < header.getValue().size(); j++) {
+                byte[] value = encodedHeaders.get(i++);
+                buffer.putShort((short) value.length).put(value);
+            }
+        }
+        buffer.putInt(body.length).put(body);
+        return buffer.array();
+    }
+
+    /**
+     * Create the marker of the responses that vary by the request headers.
+     *
+     * @param varyHeaders
+     *            The request header names that the responses vary by.
+     * @param createTime
+     * @param expireTime
+     * @return
+     */
+    public static CachedResponse newVariants(List<String> varyHeaders, long createTime, long expireTime) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setVary(varyHeaders);
+        return new CachedResponse(VARIANTS_STATUS, headers, new byte[0], createTime, expireTime);
+    }
+
+    /**
+     * Decode the cached response.
+     *
+     * @param data
+     * @return The cached response, or null if the data is not the supported
+     *         format (e.g. the raw body cached by the older versions) or
+     *         corrupted, every length is checked against the remaining bytes
+     *         before reading or allocating.
+     */
+    public static CachedResponse decode(byte[] data) {
+        if (isNull(data) || data.length < 1 + 1 + 2 + 8 + 8 + 2 + 4 || data[0] != MAGIC || data[1] != VERSION) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(data, 2, data.length - 2);
+            int status = buffer.getShort() & 0xffff;
+            long createTime = buffer.getLong();
+            long expireTime = buffer.getLong();
+            int headerCount = buffer.getShort() & 0xffff;
+            HttpHeaders headers = new HttpHeaders();
+            for (int i = 0; i < headerCount; i++) {
+                String name = readString(buffer);
+                if (isNull(name) || buffer.remaining() < 2) {
+                    return null;
+                }
+                int valueCount = buffer.getShort() & 0xffff;
+                if (valueCount * 2 > buffer.remaining()) {
+                    return null;
+                }
+                for (int j = 0; j < valueCount; j++) {
+                    String value = readString(buffer);
+                    if (isNull(value)) {
+                        return null;
+                    }
+                    headers.add(name, value);
+                }
+            }
+            if (buffer.remaining() < 4) {
+                return null;
+            }
+            int bodyLength = buffer.getInt();
+            if (bodyLength < 0 || bodyLength > buffer.remaining()) {
+                return null;
+            }
+            byte[] body = new byte[bodyLength];
+            buffer.get(body);
+            return new CachedResponse(status, headers, body, createTime, expireTime);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static void checkUnsignedShort(int value, String name) {
+        if (value > MAX_UNSIGNED_SHORT) {
+            throw new IllegalArgumentException(format("The %s %s exceeds %s", name, value, MAX_UNSIGNED_SHORT));
+        }
+    }
+
+    /**
+     * Read the string of unsigned short length prefix.
+     *
+     * @param buffer
+     * @return The string, or null if the length exceeds the remaining bytes.
+     */
+    private static String readString(ByteBuffer buffer) {
+        if (buffer.remaining() < 2) {
+            return null;
+        }
+        int length = buffer.getShort() & 0xffff;
+        if (length > buffer.remaining()) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    public static final byte MAGIC = (byte) 0xC7;
+    public static final byte VERSION = 1;
+    public static final int VARIANTS_STATUS = 0;
+    private static final int MAX_UNSIGNED_SHORT = 0xffff;
+
+}
@@ -18,67 +18,61 @@ package com.wl4g.iam.gateway.responsecache;
 import static com.google.common.cache.CacheBuilder.newBuilder;
 import static com.wl4g.infra.common.lang.Assert2.notNull;
 import static com.wl4g.infra.common.lang.Assert2.notNullOf;
+import static com.wl4g.infra.common.lang.FastTimeClock.currentTimeMillis;
 import static java.lang.String.valueOf;
-import static java.util.Collections.singletonMap;
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
-import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.function.Function;
-import java.util.function.Predicate;
-import java.util.function.Supplier;
 
 import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
-import org.springframework.cloud.gateway.filter.factory.rewrite.CachedBodyOutputMessage;
-import org.springframework.cloud.gateway.route.Route;
-import org.springframework.cloud.gateway.support.BodyInserterContext;
-import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.core.Ordered;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.ReactiveRedisMessageListenerContainer;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.ReactiveHttpOutputMessage;
-import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.web.reactive.function.BodyInserter;
-import org.springframework.web.reactive.function.BodyInserters;
-import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.server.ServerWebExchange;
 
-import com.google.common.base.Predicates;
 import com.google.common.cache.Cache;
-import com.google.common.hash.Hashing;
 import com.wl4g.iam.gateway.config.ReactiveByteArrayRedisTemplate;
 import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
 import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsName;
-import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsTag;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.RouteCounter;
 import com.wl4g.iam.gateway.responsecache.cache.EhCacheResponseCache;
 import com.wl4g.iam.gateway.responsecache.cache.RedisResponseCache;
 import com.wl4g.iam.gateway.responsecache.cache.ResponseCache;
 import com.wl4g.iam.gateway.responsecache.cache.SimpleResponseCache;
+import com.wl4g.iam.gateway.responsecache.cache.TieredResponseCache;
 import com.wl4g.iam.gateway.responsecache.config.ResponseCacheProperties;
 import com.wl4g.iam.gateway.responsecache.config.ResponseCacheProperties.CachedProperties;
 import com.wl4g.iam.gateway.util.IamGatewayUtil;
 import com.wl4g.iam.gateway.util.IamGatewayUtil.SafeFilterOrdered;
+import com.wl4g.iam.gateway.util.http.DataBufferCapture;
+import com.wl4g.iam.gateway.util.matcher.CompiledRequestMatcher;
+import com.wl4g.iam.gateway.util.matcher.RequestMatcherEngine;
 import com.wl4g.infra.common.bean.ConfigBeanUtils;
-import com.wl4g.infra.context.utils.web.ReactiveRequestExtractor;
-import com.wl4g.infra.context.web.matcher.SpelRequestMatcher;
 
-import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
-import io.netty.util.ReferenceCountUtil;
-import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
 
 /**
  * {@link ResponseCacheFilterFactory}
@@ -88,22 +82,28 @@ import reactor.core.publisher.Mono;
  * @since v3.0.0
  */
 @Slf4j
-public class ResponseCacheFilterFactory extends AbstractGatewayFilterFactory<ResponseCacheFilterFactory.Config> {
+public class ResponseCacheFilterFactory extends AbstractGatewayFilterFactory<ResponseCacheFilterFactory.Config>
+        implements DisposableBean {
 
     private final ResponseCacheProperties responseCacheConfig;
     private final ReactiveByteArrayRedisTemplate redisTemplate;
     private final IamGatewayMetricsFacade metricsFacade;
-    private final SpelRequestMatcher requestMatcher;
+    private final CompiledRequestMatcher requestMatcher;
     private final ConcurrentMap<String, ResponseCache> responseCaches = new ConcurrentHashMap<>(4);
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, Disposable> invalidateSubscriptions = new ConcurrentHashMap<>(2);
+    private ReactiveRedisMessageListenerContainer listenerContainer;
 
     public ResponseCacheFilterFactory(ResponseCacheProperties responseCacheConfig, ReactiveByteArrayRedisTemplate redisTemplate,
-            IamGatewayMetricsFacade metricsFacade) {
+            IamGatewayMetricsFacade metricsFacade, RequestMatcherEngine requestMatcherEngine) {
         super(ResponseCacheFilterFactory.Config.class);
         this.responseCacheConfig = notNullOf(responseCacheConfig, "responseCacheConfig");
         this.redisTemplate = notNullOf(redisTemplate, "redisTemplate");
         this.metricsFacade = notNullOf(metricsFacade, "metricsFacade");
-        // Build gray request matcher.
-        this.requestMatcher = new SpelRequestMatcher(responseCacheConfig.getPreferMatchRuleDefinitions());
+        // Build gray request matcher and pre-compile expression.
+        this.requestMatcher = notNullOf(requestMatcherEngine, "requestMatcherEngine").compile(
+                RequestMatcherEngine.MATCHER_RESPONSE_CACHE, responseCacheConfig.getPreferMatchRuleDefinitions(),
+                responseCacheConfig.getPreferOpenMatchExpression());
     }
 
     @Override
@@ -111,6 +111,58 @@ public class ResponseCacheFilterFactory extends AbstractGatewayFilterFactory<Res
         return BEAN_NAME;
     }
 
+    @Override
+    public void destroy() throws Exception {
+        invalidateSubscriptions.values().forEach(Disposable::dispose);
+        synchronized (this) {
+            if (nonNull(listenerContainer)) {
+                listenerContainer.destroy();
+            }
+        }
+    }
+
+    /**
+     * Subscribe the near-cache invalidation messages of the tiered caches
+     * from the other nodes (once per channel).
+     */
+    private void subscribeInvalidation(String channel) {
+        invalidateSubscriptions.computeIfAbsent(channel, _channel -> {
+            synchronized (this) {
+                if (isNull(listenerContainer)) {
+                    listenerContainer = new ReactiveRedisMessageListenerContainer(redisTemplate.getConnectionFactory());
+                }
+            }
+            return listenerContainer.receive(ChannelTopic.of(_channel))
+                    // The messages may be lost during the disconnection.
+                    .doOnSubscribe(s -> onInvalidateMessage(null))
+                    .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                    .subscribe(message -> onInvalidateMessage(message.getMessage()),
+                            e -> log.error("Failed to subscribe the response cache invalidation.", e));
+        });
+    }
+
+    /**
+     * The message is '{nodeId}\n{routeId}\n{hashKey or *}', or null to
+     * invalidate the near-caches of all routes.
+     */
+    private void onInvalidateMessage(String message) {
+        if (isNull(message)) {
+            responseCaches.values()
+                    .stream()
+                    .filter(cache -> cache instanceof TieredResponseCache)
+                    .forEach(cache -> ((TieredResponseCache) cache).onRemoteInvalidate(TieredResponseCache.INVALIDATE_ALL));
+            return;
+        }
+        String[] parts = message.split(TieredResponseCache.MESSAGE_SEPARATOR, 3);
+        if (parts.length != 3 || nodeId.equals(parts[0])) { // Ignore self
+            return;
+        }
+        ResponseCache responseCache = responseCaches.get(parts[1]);
+        if (responseCache instanceof TieredResponseCache) {
+            ((TieredResponseCache) responseCache).onRemoteInvalidate(parts[2]);
+        }
+    }
+
     private void applyDefaultToConfig(Config config) {
         try {
             ConfigBeanUtils.configureWithDefault(new ResponseCacheFilterFactory.Config(), config,
@@ -126,24 +178,24 @@ public class ResponseCacheFilterFactory extends AbstractGatewayFilterFactory<Res
         return new RequestCacheGatewayFilter(config);
     }
 
-    @SuppressWarnings("deprecation")
-    public static String getRequestHashKey(Config config, ServerWebExchange exchange) {
-        ServerHttpRequest request = exchange.getRequest();
-        StringBuffer hashPlain = new StringBuffer(request.getMethod().name());
-        Map<String, String> queryParams = request.getQueryParams().toSingleValueMap();
-        queryParams.keySet().stream().sorted((k1, k2) -> k1.compareTo(k2)).forEach(
-                key -> hashPlain.append(key).append("=").append(queryParams.get(key)).append("&"));
-        String hashKey = Hashing.sha1().hashString(hashPlain.toString(), StandardCharsets.UTF_8).toString();
-        log.debug("Hashed key '{}' from '{}'", hashKey, hashPlain);
-        return hashKey;
-    }
-
     public static class Config extends CachedProperties {
     }
 
-    @AllArgsConstructor
     class RequestCacheGatewayFilter implements GatewayFilter, Ordered {
         private final Config config;
+        private final RouteCounter totalCounter;
+        private final RouteCounter hitsCounter;
+        private final ResponseCacheKeyBuilder keyBuilder;
+        private final ResponseCachePolicy cachePolicy;
+        private final Map<String, Sinks.One<Optional<CachedResponse>>> inflights = new ConcurrentHashMap<>(16);
+
+        RequestCacheGatewayFilter(Config config) {
+            this.config = config;
+            this.keyBuilder = new ResponseCacheKeyBuilder(config);
+            this.cachePolicy = new ResponseCachePolicy(config, responseCacheConfig.getResponseCachedHeader());
+            this.totalCounter = metricsFacade.routeCounter(MetricsName.RESPONSE_CACHE_TOTAL);
+            this.hitsCounter = metricsFacade.routeCounter(MetricsName.RESPONSE_CACHE_HITS_TOTAL);
+        }
 
         @Override
         public int getOrder() {
@@ -161,54 +213,174 @@ public class ResponseCacheFilterFactory extends AbstractGatewayFilterFactory<Res
             }
 
             // Add metrics of total.
-            metricsFacade.counter(exchange, MetricsName.RESPONSE_CACHE_TOTAL, 1, MetricsTag.ROUTE_ID,
-                    IamGatewayUtil.getRouteId(exchange));
+            totalCounter.increment(exchange);
 
             // Calculate the request unique hash key.
-            String hashKey = getRequestHashKey(config, exchange);
+            String baseKey = keyBuilder.build(exchange);
+            if (log.isDebugEnabled()) {
+                log.debug("Hashed key '{}' of uri: {}", baseKey, exchange.getRequest().getURI());
+            }
 
             // Gets or create response cache by route.
             ResponseCache responseCache = obtainRouteResponseCache(exchange);
 
-            // First get the response data from the cache.
-            return responseCache.get(hashKey).defaultIfEmpty(new byte[0]).flatMap(cachedResponseBytes -> {
-                // Response cached data.
-                if (nonNull(cachedResponseBytes) && cachedResponseBytes.length > 0) {
+            // First get the response data from the cache, the responses that
+            // vary by the other request headers are cached as the variants.
+            return responseCache.get(baseKey).defaultIfEmpty(EMPTY_BYTES).flatMap(cachedResponseBytes -> {
+                CachedResponse variants = cachedResponseBytes.length > 0 ? CachedResponse.decode(cachedResponseBytes) : null;
+                if (nonNull(variants) && variants.isVariants() && !variants.isExpired(currentTimeMillis())) {
+                    String variantKey = keyBuilder.buildVariant(baseKey, exchange.getRequest(),
+                            variants.getHeaders().getVary());
+                    return responseCache.get(variantKey)
+                            .defaultIfEmpty(EMPTY_BYTES)
+                            .flatMap(variantBytes -> respondOrRequest(exchange, chain, responseCache, baseKey, variantKey,
+                                    variantBytes));
+                }
+                return respondOrRequest(exchange, chain, responseCache, baseKey, baseKey, cachedResponseBytes);
+            });
+        }
+
+        /**
+         * Response with the cached data of hash key, or request the upstream
+         * and cache the response if missed.
+         */
+        private Mono<Void> respondOrRequest(
+                ServerWebExchange exchange,
+                GatewayFilterChain chain,
+                ResponseCache responseCache,
+                String baseKey,
+                String hashKey,
+                byte[] cachedResponseBytes) {
+            // Response cached data.
+            if (cachedResponseBytes.length > 0) {
+                CachedResponse cached = CachedResponse.decode(cachedResponseBytes);
+                if (nonNull(cached) && !cached.isVariants() && !cached.isExpired(currentTimeMillis())) {
                     // Add metrics of hits total.
-                    metricsFacade.counter(exchange, MetricsName.RESPONSE_CACHE_HITS_TOTAL, 1, MetricsTag.ROUTE_ID,
-                            IamGatewayUtil.getRouteId(exchange));
-                    return responseWithCached(exchange, hashKey, cachedResponseBytes);
+                    hitsCounter.increment(exchange);
+                    return responseWithCached(exchange, hashKey, cached);
                 }
+                // Expired by the upstream 'Cache-Control' or 'Expires', or
+                // the unrecognized format.
+                responseCache.invalidate(hashKey).subscribe();
+            }
 
-                // Extract new response data to cache.
-                ByteBuf respBuf = Unpooled.buffer(responseCacheConfig.getTmpBufferInitialCapacity(),
-                        responseCacheConfig.getTmpBufferMaxCapacity());
-                ServerHttpResponse newResponse = decorateResponse(exchange, chain, responseBodySegment -> {
-                    if (respBuf.isWritable(responseBodySegment.length)) {
-                        respBuf.writeBytes(responseBodySegment);
+            // Coalesce the concurrent missed requests of the same key,
+            // only the leading request goes to the upstream.
+            Sinks.One<Optional<CachedResponse>> inflight = null;
+            if (config.isCoalesceEnabled()) {
+                Sinks.One<Optional<CachedResponse>> newInflight = Sinks.one();
+                Sinks.One<Optional<CachedResponse>> leading = inflights.putIfAbsent(hashKey, newInflight);
+                if (nonNull(leading)) {
+                    return waitForLeading(exchange, chain, hashKey, leading);
+                }
+                inflight = newInflight;
+            }
+            final Sinks.One<Optional<CachedResponse>> _inflight = inflight;
+
+            // Capture the response body to cache while streaming to the
+            // client.
+            DataBufferCapture capture = new DataBufferCapture(responseCacheConfig.getMaxCachedBodySize());
+            ServerHttpResponse newResponse = decorateResponse(exchange, capture);
+
+            // The doFinally() method does not block the response to write
+            // data to the remote client.
+            return chain.filter(exchange.mutate().response(newResponse).build()).doFinally(signal -> {
+                CachedResponse cached = null;
+                try {
+                    // The cancelled or failed response may be incomplete.
+                    if (signal == SignalType.ON_COMPLETE) {
+                        cached = toCachedResponse(exchange.getResponse(), capture);
                     }
-                    return Mono.just(responseBodySegment);
-                });
-
-                // The doFinally() method does not block the response to write
-                // data to the remote client.
-                return chain.filter(exchange.mutate().response(newResponse).build()).doFinally(signal -> {
-                    try {
-                        byte[] respBytes = new byte[respBuf.readableBytes()];
-                        respBuf.readBytes(respBytes);
-                        if (nonNull(respBytes) && respBytes.length > 0) {
-                            // Use a subscribe() to prevent reactive
-                            // RedisResponseCache from not completing.
-                            responseCache.put(hashKey, respBytes).subscribe();
-                            log.debug("Cached response body of hashKey: {}, uri: {}", hashKey, exchange.getRequest().getURI());
-                        }
-                    } finally {
-                        ReferenceCountUtil.safeRelease(respBuf);
+                    if (nonNull(cached)) {
+                        cached = putCachedResponse(exchange, responseCache, baseKey, cached);
                     }
-                });
+                } finally {
+                    capture.release();
+                    if (nonNull(_inflight)) {
+                        inflights.remove(hashKey, _inflight);
+                        // The waiting requests go to the upstream by
+                        // themselves if nothing cached.
+                        _inflight.tryEmitValue(Optional.ofNullable(cached));
+                    }
+                }
             });
         }
 
+        /**
+         * Put the cached response, the response that varies by the other
+         * request headers is put as the variant, along with the variants
+         * marker of base key.
+         *
+         * @return The cached response that can be shared with the coalesced
+         *         requests, or null.
+         */
+        private CachedResponse putCachedResponse(
+                ServerWebExchange exchange,
+                ResponseCache responseCache,
+                String baseKey,
+                CachedResponse cached) {
+            try {
+                String hashKey = baseKey;
+                List<String> extraVaryHeaders = keyBuilder.getExtraVaryHeaders(cached.getHeaders());
+                if (!extraVaryHeaders.isEmpty()) {
+                    hashKey = keyBuilder.buildVariant(baseKey, exchange.getRequest(), extraVaryHeaders);
+                    CachedResponse variants = CachedResponse.newVariants(extraVaryHeaders, cached.getCreateTime(),
+                            cached.getExpireTime());
+                    responseCache.put(baseKey, variants.encode(), cached.getExpireTime()).subscribe();
+                }
+                // Use a subscribe() to prevent reactive RedisResponseCache from
+                // not completing.
+                responseCache.put(hashKey, cached.encode(), cached.getExpireTime()).subscribe();
+                log.debug("Cached response of hashKey: {}, uri: {}", hashKey, exchange.getRequest().getURI());
+                // The coalesced requests may vary by the other header values.
+                return extraVaryHeaders.isEmpty() ? cached : null;
+            } catch (IllegalArgumentException e) {
+                log.debug("Skip cache the response of hashKey: {}. - {}", baseKey, e.getMessage());
+                return null;
+            }
+        }
+
+        /**
+         * Wait for the response of the leading request of the same key, and
+         * fallback to request the upstream if the leading request is failed,
+         * not cacheable or timeout.
+         */
+        private Mono<Void> waitForLeading(
+                ServerWebExchange exchange,
+                GatewayFilterChain chain,
+                String hashKey,
+                Sinks.One<Optional<CachedResponse>> leading) {
+            return leading.asMono()
+                    .timeout(Duration.ofMillis(config.getCoalesceTimeoutMs()), Mono.just(Optional.empty()))
+                    .flatMap(leadingCached -> {
+                        if (leadingCached.isPresent()) {
+                            hitsCounter.increment(exchange);
+                            return responseWithCached(exchange, hashKey, leadingCached.get());
+                        }
+                        return chain.filter(exchange);
+                    });
+        }
+
+        /**
+         * Create the cached response of the upstream response just completed.
+         *
+         * @param response
+         * @param capture
+         * @return The cached response, or null if not cacheable.
+         */
+        private CachedResponse toCachedResponse(ServerHttpResponse response, DataBufferCapture capture) {
+            Integer status = response.getRawStatusCode();
+            if (isNull(status)) {
+                return null;
+            }
+            byte[] respBytes = capture.toBytesAndRelease();
+            if (isNull(respBytes)) {
+                log.debug("Skip cache the response exceeded the max body size: {}", capture.getMaxSize());
+                return null;
+            }
+            return cachePolicy.toCachedResponse(status, response.getHeaders(), respBytes, currentTimeMillis());
+        }
+
         /**
          * Check if enable cached request needs to be filtered.
          * 
@@ -216,15 +388,8 @@ public class ResponseCacheFilterFactory extends AbstractGatewayFilterFactory<Res
          * @return
          */
         private boolean isCachedRequest(ServerWebExchange exchange) {
-            // Gets current request route.
-            Route route = exchange.getRequiredAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
-
-            // Add routeId temporary predicates.
-            Map<String, Supplier<Predicate<String>>> routeIdPredicateSupplier = singletonMap(VAR_ROUTE_ID,
-                    () -> (Predicate<String>) Predicates.equalTo(route.getId()));
-
-            return requestMatcher.matches(new ReactiveRequestExtractor(exchange.getRequest()),
-                    responseCacheConfig.getPreferOpenMatchExpression(), routeIdPredicateSupplier);
+            // The routeId variable is bound by the matcher.
+            return requestMatcher.matches(exchange, responseCacheConfig.getPreferOpenMatchExpression());
         }
 
         /**
@@ -256,6 +421,11 @@ public class ResponseCacheFilterFactory extends AbstractGatewayFilterFactory<Res
                         case RedisCache:
                             responseCache = new RedisResponseCache(config.getRedis(), redisTemplate);
                             break;
+                        case TieredCache:
+                            subscribeInvalidation(config.getTiered().getInvalidateChannel());
+                            responseCache = new TieredResponseCache(config.getTiered(), routeId, nodeId, redisTemplate,
+                                    metricsFacade);
+                            break;
                         }
                         responseCaches.put(routeId, responseCache);
                     }
@@ -265,89 +435,71 @@ public class ResponseCacheFilterFactory extends AbstractGatewayFilterFactory<Res
         }
 
         /**
-         * The response object decorated as an editable response body to solve
-         * the problem that the response body can only be read once.
+         * The response object decorated to capture the response body chunks
+         * (tee-style), i.e. the chunks are forwarded to the client
+         * immediately, so that the time to first byte is not affected by
+         * caching.
          * 
          * @param exchange
-         * @param chain
-         * @param transformer
+         * @param capture
          * @return
-         * @see {@link org.springframework.cloud.gateway.filter.factory.rewrite.ModifyResponseBodyGatewayFilterFactory#apply()}
-         * @see https://www.cnblogs.com/hyf-huangyongfei/p/12849406.html
-         * @see https://blog.csdn.net/kk380446/article/details/119537443
          */
-        private ServerHttpResponse decorateResponse(
-                ServerWebExchange exchange,
-                GatewayFilterChain chain,
-                Function<? super byte[], ? extends Mono<? extends byte[]>> transformer) {
+        private ServerHttpResponse decorateResponse(ServerWebExchange exchange, DataBufferCapture capture) {
             return new ServerHttpResponseDecorator(exchange.getResponse()) {
                 @Override
                 public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) { // Mono<NettyDataBuffer>
-                    // Tip: String type can also be used.
-                    // Class<String> inClass = String.class;
-                    // Class<String> outClass = String.class;
-                    Class<byte[]> inClass = byte[].class;
-                    Class<byte[]> outClass = byte[].class;
-
-                    String responseContentType = exchange
-                            .getAttribute(ServerWebExchangeUtils.ORIGINAL_RESPONSE_CONTENT_TYPE_ATTR);
-                    HttpHeaders newHeaders = new HttpHeaders();
-                    newHeaders.add(HttpHeaders.CONTENT_TYPE, responseContentType);
-
-                    ClientResponse clientResponse = ClientResponse.create(exchange.getResponse().getStatusCode())
-                            .headers(headers -> headers.putAll(newHeaders))
-                            .body(Flux.from(body))
-                            .build();
-
-                    Mono<byte[]> modifiedBody = clientResponse.bodyToMono(inClass).flatMap(transformer);
-                    BodyInserter<Mono<byte[]>, ReactiveHttpOutputMessage> bodyInserter = BodyInserters.fromPublisher(modifiedBody,
-                            outClass);
-
-                    // [FIX]: If the order of this filter is set to be executed
-                    // before, then the return header here is of type
-                    // ReadOnlyHttpHeaders, but it will be abnormal when other
-                    // filters need to modify the header. Is this due to the
-                    // order
-                    // of the filters ???
-                    HttpHeaders editableHeaders = new HttpHeaders(new LinkedMultiValueMap<>(exchange.getResponse().getHeaders()));
-                    CachedBodyOutputMessage outputMessage = new CachedBodyOutputMessage(exchange, editableHeaders);
-
-                    return bodyInserter.insert(outputMessage, new BodyInserterContext()).then(Mono.defer(() -> {
-                        Flux<DataBuffer> messageBody = outputMessage.getBody();
-                        HttpHeaders headers = getDelegate().getHeaders();
-                        if (!headers.containsKey(HttpHeaders.TRANSFER_ENCODING)) {
-                            messageBody = messageBody.doOnNext(data -> headers.setContentLength(data.readableByteCount()));
-                        }
-                        return getDelegate().writeWith(messageBody);
-                    }));
+                    abortIfTooLarge();
+                    return getDelegate().writeWith(Flux.from(body).doOnNext(capture::append));
                 }
 
                 @Override
                 public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
-                    return writeWith(Flux.from(body).flatMapSequential(p -> p));
+                    abortIfTooLarge();
+                    return getDelegate().writeAndFlushWith(Flux.from(body).map(p -> Flux.from(p).doOnNext(capture::append)));
+                }
+
+                private void abortIfTooLarge() {
+                    // Abort early with the declared 'Content-Length'.
+                    if (getDelegate().getHeaders().getContentLength() > capture.getMaxSize()) {
+                        capture.abort();
+                    }
                 }
             };
         }
 
         /**
-         * Respond directly to the last cached response bytes data.
+         * Respond directly to the cached response, or '304 Not Modified' if
+         * the conditional request matches the cached response.
          * 
          * @param exchange
          * @param hashKey
-         * @param cachedResponseBytes
+         * @param cached
          * @return
          */
-        private Mono<Void> responseWithCached(ServerWebExchange exchange, String hashKey, byte[] cachedResponseBytes) {
+        private Mono<Void> responseWithCached(ServerWebExchange exchange, String hashKey, CachedResponse cached) {
+            ServerHttpResponse response = exchange.getResponse();
             // see:https://github.com/spring-cloud/spring-cloud-gateway/issues/268
-            HttpHeaders headers = exchange.getResponse().getHeaders();
-            headers.add(responseCacheConfig.getResponseCachedHeader(), hashKey);
-            headers.add(HttpHeaders.CONTENT_LENGTH, valueOf(cachedResponseBytes.length));
-            return exchange.getResponse().writeWith(Flux.just(exchange.getResponse().bufferFactory().wrap(cachedResponseBytes)));
+            HttpHeaders headers = response.getHeaders();
+            headers.set(responseCacheConfig.getResponseCachedHeader(), hashKey);
+            headers.set(HttpHeaders.AGE, valueOf(Math.max(0L, (currentTimeMillis() - cached.getCreateTime()) / 1000L)));
+
+            if (cachePolicy.isNotModified(exchange.getRequest(), cached)) {
+                response.setStatusCode(HttpStatus.NOT_MODIFIED);
+                cachePolicy.copyNotModifiedHeaders(cached, headers);
+                return response.setComplete();
+            }
+
+            response.setRawStatusCode(cached.getStatus());
+            // Overrides the same headers added by the preceding filters.
+            headers.putAll(cached.getHeaders());
+            headers.setContentLength(cached.getBody().length);
+            return response.writeWith(Flux.just(response.bufferFactory().wrap(cached.getBody())));
         }
 
     }
 
     public static final String BEAN_NAME = "ResponseCache";
+    private static final byte[] EMPTY_BYTES = new byte[0];
     public static final String VAR_ROUTE_ID = "routeId";
 
 }
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.responsecache;
+
+import static com.wl4g.infra.common.collection.CollectionUtils2.safeList;
+import static com.wl4g.infra.common.lang.Assert2.notNullOf;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.isNull;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.wl4g.iam.gateway.responsecache.config.ResponseCacheProperties.CachedProperties;
+import com.wl4g.iam.gateway.util.IamGatewayUtil;
+
+/**
+ * The response cache key builder, the key is the 128-bit murmur3 hash (hex) of
+ * the route id, method, host, path, the selected request headers (i.e. the
+ * headers that the responses vary by) and the normalized query parameters
+ * (sorted by name, excluding the cache busting parameters). The fields are
+ * streamed into the hasher with separators, without building the plain string.
+ * The responses that vary by the other request headers (i.e. the response
+ * 'Vary' header) are keyed by {@link #buildVariant} of the base key.
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-09 v3.1.0
+ * @since v3.1.0
+ */
+public class ResponseCacheKeyBuilder {
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final boolean includeHost;
+    private final List<String> varyHeaders;
+    private final Set<String> excludeQueryParams;
+
+    public ResponseCacheKeyBuilder(CachedProperties config) {
+        notNullOf(config, "config");
+        this.includeHost = config.isKeyIncludeHost();
+        // Pre-normalized to make the key independent of configured order.
+        this.varyHeaders = Collections.unmodifiableList(safeList(config.getKeyVaryHeaders()).stream()
+                .map(name -> name.trim().toLowerCase(Locale.ROOT))
+                .filter(name -> !name.isEmpty())
+                .distinct()
+                .sorted()
+                .collect(toList()));
+        this.excludeQueryParams = Collections.unmodifiableSet(safeList(config.getKeyExcludeQueryParams()).stream()
+                .map(String::trim)
+                .collect(toSet()));
+    }
+
+    public String build(ServerWebExchange exchange) {
+        ServerHttpRequest request = exchange.getRequest();
+        Hasher hasher = HASH_FUNCTION.newHasher();
+        putField(hasher, IamGatewayUtil.getRouteId(exchange));
+        putField(hasher, request.getMethodValue());
+        if (includeHost) {
+            String host = request.getURI().getHost();
+            putField(hasher, isNull(host) ? null : host.toLowerCase(Locale.ROOT));
+        }
+        putField(hasher, request.getPath().pathWithinApplication().value());
+
+        HttpHeaders headers = request.getHeaders();
+        for (String name : varyHeaders) {
+            putValues(hasher, name, headers.get(name));
+        }
+
+        hasher.putByte(SECTION_SEPARATOR);
+        MultiValueMap<String, String> queryParams = request.getQueryParams();
+        if (!queryParams.isEmpty()) {
+            List<String> names = new ArrayList<>(queryParams.keySet());
+            if (names.size() > 1) {
+                Collections.sort(names);
+            }
+            for (String name : names) {
+                if (excludeQueryParams.contains(name)) {
+                    continue;
+                }
+                // The order of the repeated values may be meaningful.
+                putValues(hasher, name, queryParams.get(name));
+            }
+        }
+        return hasher.hash().toString();
+    }
+
+    /**
+     * Gets the request headers that the response varies by, but not included
+     * in the key, i.e. the response variants must be keyed by them.
+     *
+     * @param responseHeaders
+     * @return The sorted lower case header names.
+     */
+    public List<String> getExtraVaryHeaders(HttpHeaders responseHeaders) {
+        List<String> vary = responseHeaders.getVary();
+        if (vary.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return vary.stream()
+                .map(name -> name.trim().toLowerCase(Locale.ROOT))
+                .filter(name -> !name.isEmpty() && !"*".equals(name) && !varyHeaders.contains(name))
+                .distinct()
+                .sorted()
+                .collect(toList());
+    }
+
+    /**
+     * Build the key of the response variant, by the values of the request
+     * headers that the response varies by.
+     *
+     * @param baseKey
+     *            The key built by {@link #build(ServerWebExchange)}
+     * @param request
+     * @param extraVaryHeaders
+     *            The headers from {@link #getExtraVaryHeaders(HttpHeaders)}
+     * @return
+     */
+    public String buildVariant(String baseKey, ServerHttpRequest request, List<String> extraVaryHeaders) {
+        Hasher hasher = HASH_FUNCTION.newHasher();
+        putField(hasher, baseKey);
+        HttpHeaders headers = request.getHeaders();
+        for (String name : extraVaryHeaders) {
+            putValues(hasher, name, headers.get(name));
+        }
+        return hasher.hash().toString();
+    }
+
+    private static void putValues(Hasher hasher, String name, List<String> values) {
+        putField(hasher, name);
+        List<String> _values = safeList(values);
+        hasher.putInt(_values.size());
+        for (String value : _values) {
+            putField(hasher, value);
+        }
+    }
+
+    private static void putField(Hasher hasher, String value) {
+        if (isNull(value)) {
+            hasher.putByte(NULL_FIELD);
+        } else {
+            hasher.putString(value, UTF_8);
+        }
+        hasher.putByte(FIELD_SEPARATOR);
+    }
+
+    private static final byte NULL_FIELD = 1;
+    private static final byte FIELD_SEPARATOR = 0;
+    private static final byte SECTION_SEPARATOR = 2;
+
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.responsecache;
+
+import static com.wl4g.infra.common.collection.CollectionUtils2.safeList;
+import static com.wl4g.infra.common.lang.Assert2.notNullOf;
+import static java.util.Objects.isNull;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+import com.wl4g.iam.gateway.responsecache.config.ResponseCacheProperties.CachedProperties;
+
+/**
+ * The response cacheability policy, which decides whether the upstream
+ * response can be cached and its expiration time (according to the
+ * 'Cache-Control' and 'Expires'), which headers are stored, and whether the
+ * conditional request can be responded with '304 Not Modified' by the cached
+ * response.
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-09 v3.1.0
+ * @since v3.1.0
+ * @see https://datatracker.ietf.org/doc/html/rfc7234
+ * @see https://datatracker.ietf.org/doc/html/rfc7232
+ */
+public class ResponseCachePolicy {
+
+    private final Set<Integer> cacheableStatusCodes;
+    private final boolean honorCacheControl;
+    private final boolean conditionalEnabled;
+    private final Set<String> excludeHeaders;
+
+    public ResponseCachePolicy(CachedProperties config, String responseCachedHeader) {
+        notNullOf(config, "config");
+        this.cacheableStatusCodes = Collections.unmodifiableSet(new HashSet<>(safeList(config.getCacheableStatusCodes())));
+        this.honorCacheControl = config.isHonorCacheControl();
+        this.conditionalEnabled = config.isConditionalEnabled();
+        Set<String> excludeHeaders = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        excludeHeaders.addAll(EXCLUDE_HEADERS);
+        if (!isBlank(responseCachedHeader)) {
+            excludeHeaders.add(responseCachedHeader);
+        }
+        this.excludeHeaders = Collections.unmodifiableSet(excludeHeaders);
+    }
+
+    /**
+     * Create the cached response of the upstream response.
+     *
+     * @param status
+     * @param headers
+     * @param body
+     * @param now
+     * @return The cached response, or null if the response is not cacheable.
+     */
+    public CachedResponse toCachedResponse(int status, HttpHeaders headers, byte[] body, long now) {
+        if (!cacheableStatusCodes.contains(status) || headers.containsKey(HttpHeaders.SET_COOKIE)) {
+            return null;
+        }
+        // The responses vary by any request, see:RFC7231#section-7.1.4
+        for (String vary : headers.getVary()) {
+            if ("*".equals(vary.trim())) {
+                return null;
+            }
+        }
+        long expireTime = 0L;
+        if (honorCacheControl) {
+            expireTime = resolveExpireTime(headers, now);
+            if (expireTime < 0) {
+                return null;
+            }
+        }
+        HttpHeaders storeHeaders = new HttpHeaders();
+        for (Entry<String, List<String>> header : headers.entrySet()) {
+            if (!excludeHeaders.contains(header.getKey())) {
+                storeHeaders.put(header.getKey(), header.getValue());
+            }
+        }
+        return new CachedResponse(status, storeHeaders, body, now, expireTime);
+    }
+
+    /**
+     * Resolve the expiration time of the upstream response.
+     *
+     * @param headers
+     * @param now
+     * @return The expiration time, 0 if not specified, or -1 if the response
+     *         must not be cached.
+     */
+    long resolveExpireTime(HttpHeaders headers, long now) {
+        long maxAgeSeconds = -1L;
+        long sharedMaxAgeSeconds = -1L;
+        for (String directive : headers.getValuesAsList(HttpHeaders.CACHE_CONTROL)) {
+            String _directive = directive.trim().toLowerCase(Locale.ROOT);
+            if (_directive.equals("no-store") || _directive.equals("private") || _directive.startsWith("private=")
+                    || _directive.equals("no-cache") || _directive.startsWith("no-cache=")) {
+                return -1L;
+            } else if (_directive.startsWith("s-maxage=")) {
+                sharedMaxAgeSeconds = parseSeconds(_directive.substring(9));
+            } else if (_directive.startsWith("max-age=")) {
+                maxAgeSeconds = parseSeconds(_directive.substring(8));
+            }
+        }
+        // The 's-maxage' is preferred by the shared caches.
+        long ageSeconds = sharedMaxAgeSeconds >= 0 ? sharedMaxAgeSeconds : maxAgeSeconds;
+        if (ageSeconds == 0) {
+            return -1L;
+        } else if (ageSeconds > 0) {
+            return now + ageSeconds * 1000L;
+        }
+        long expires = headers.getExpires(); // -1 if absent or invalid
+        if (expires < 0) {
+            // The invalid date (e.g. '0') means already expired.
+            return headers.containsKey(HttpHeaders.EXPIRES) ? -1L : 0L;
+        }
+        // Relative to the upstream date to tolerate the clock skew.
+        long date = getDateQuietly(headers, HttpHeaders.DATE);
+        long expireTime = date > 0 ? now + (expires - date) : expires;
+        return expireTime > now ? expireTime : -1L;
+    }
+
+    /**
+     * Check whether the conditional request matches the cached response, i.e.
+     * the representation of client is still fresh, see:RFC7232#section-6
+     *
+     * @param request
+     * @param cached
+     * @return
+     */
+    public boolean isNotModified(ServerHttpRequest request, CachedResponse cached) {
+        HttpMethod method = request.getMethod();
+        if (!conditionalEnabled || cached.getStatus() != 200 || (method != HttpMethod.GET && method != HttpMethod.HEAD)) {
+            return false;
+        }
+        HttpHeaders requestHeaders = request.getHeaders();
+        List<String> ifNoneMatch = requestHeaders.getValuesAsList(HttpHeaders.IF_NONE_MATCH);
+        if (!ifNoneMatch.isEmpty()) {
+            // The 'If-Modified-Since' is ignored if 'If-None-Match' present.
+            String etag = cached.getHeaders().getETag();
+            for (String tag : ifNoneMatch) {
+                if ("*".equals(tag) || (!isNull(etag) && weakEtag(tag).equals(weakEtag(etag)))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long ifModifiedSince = getDateQuietly(requestHeaders, HttpHeaders.IF_MODIFIED_SINCE);
+        long lastModified = cached.getHeaders().getLastModified();
+        // The HTTP date is accurate to seconds.
+        return ifModifiedSince > 0 && lastModified > 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    /**
+     * Copy the headers of cached response that required by the '304 Not
+     * Modified' response, see:RFC7232#section-4.1
+     */
+    public void copyNotModifiedHeaders(CachedResponse cached, HttpHeaders headers) {
+        for (String name : NOT_MODIFIED_HEADERS) {
+            List<String> values = cached.getHeaders().get(name);
+            if (!isNull(values)) {
+                headers.put(name, values);
+            }
+        }
+    }
+
+    private static long parseSeconds(String value) {
+        try {
+            // Tolerate the quoted value, e.g: max-age="60"
+            return Math.max(0L, Long.parseLong(value.replace("\"", "").trim()));
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    private static long getDateQuietly(HttpHeaders headers, String name) {
+        try {
+            return headers.getFirstDate(name);
+        } catch (IllegalArgumentException e) {
+            return -1L;
+        }
+    }
+
+    private static String weakEtag(String etag) {
+        String _etag = etag.trim();
+        return _etag.startsWith("W/") ? _etag.substring(2) : _etag;
+    }
+
+    /**
+     * The hop-by-hop headers and the headers that are recomputed or must not
+     * be shared when responding with cached.
+     */
+    private static final List<String> EXCLUDE_HEADERS = Collections.unmodifiableList(Arrays.asList(
+            HttpHeaders.CONNECTION, "Keep-Alive", HttpHeaders.PROXY_AUTHENTICATE, HttpHeaders.PROXY_AUTHORIZATION,
+            HttpHeaders.TE, HttpHeaders.TRAILER, HttpHeaders.TRANSFER_ENCODING, HttpHeaders.UPGRADE,
+            HttpHeaders.CONTENT_LENGTH, HttpHeaders.SET_COOKIE, HttpHeaders.DATE, HttpHeaders.AGE));
+
+    private static final List<String> NOT_MODIFIED_HEADERS = Collections
+            .unmodifiableList(Arrays.asList(HttpHeaders.ETAG, HttpHeaders.CACHE_CONTROL, HttpHeaders.EXPIRES,
+                    HttpHeaders.LAST_MODIFIED, HttpHeaders.VARY, HttpHeaders.CONTENT_LOCATION));
+
+}
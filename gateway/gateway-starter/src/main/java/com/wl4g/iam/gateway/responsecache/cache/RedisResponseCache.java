@@ -59,7 +59,7 @@ public class RedisResponseCache implements ResponseCache {
     @Override
     public Mono<Boolean> put(String key, byte[] value) {
         return hashOperation.put(getBytes(config.getCachePrefix()), getBytes(key), value)
-                .then(redisTemplate.expire(getBytes(key), Duration.ofMillis(config.getExpireMs())));
+                .then(redisTemplate.expire(getBytes(config.getCachePrefix()), Duration.ofMillis(config.getExpireMs())));
     }
 
     @Override
@@ -51,6 +51,17 @@ public interface ResponseCache {
      */
     Mono<Boolean> put(String key, byte[] value);
 
+    /**
+     * Associates {@code value} with {@code key} in this cache, and the value
+     * should be expired at {@code expireTime} (the absolute milliseconds), or
+     * 0 means by the cache expiration configuration. The implementations
+     * without per-entry expiration may ignore it, the expired entries are
+     * discarded when read.
+     */
+    default Mono<Boolean> put(String key, byte[] value, long expireTime) {
+        return put(key, value);
+    }
+
     /** Discards any cached value for key {@code key}. */
     Mono<Long> invalidate(String key);
 
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.responsecache.cache;
+
+import static com.wl4g.infra.common.lang.Assert2.hasTextOf;
+import static com.wl4g.infra.common.lang.Assert2.notNullOf;
+import static com.wl4g.infra.common.lang.FastTimeClock.currentTimeMillis;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.nonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wl4g.iam.gateway.config.ReactiveByteArrayRedisTemplate;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsName;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsTag;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.RouteCounter;
+import com.wl4g.iam.gateway.responsecache.config.ResponseCacheProperties.TieredCacheProperties;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * The two-tier response cache of the route, i.e. the size-bounded local
+ * near-cache (Caffeine W-TinyLFU) in front of redis. The redis entries are
+ * stored as the individual keys of '{keyPrefix}:{routeId}:{hashKey}' with
+ * their own TTL, and tracked by the index sorted set of
+ * '{keyPrefix}:index:{routeId}' (scored by the expire time), so that the
+ * entries of the route are counted and invalidated without scanning the
+ * keyspace. All the commands are single key, i.e. safe on the redis cluster.
+ * The invalidations are broadcast to the other nodes by pub/sub to invalidate
+ * their near-cache entries, but the puts are not, since a response is only
+ * put after missed in redis, and the staleness of the other near-caches is
+ * bounded by {@link TieredCacheProperties#getNearExpireMs()}.
+ * 
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+@Getter
+@Slf4j
+public class TieredResponseCache implements ResponseCache {
+
+    private final TieredCacheProperties config;
+    private final String routeId;
+    private final String nodeId;
+    private final ReactiveByteArrayRedisTemplate redisTemplate;
+    private final Cache<String, byte[]> nearCache;
+    private final String keyPrefix;
+    private final byte[] indexKey;
+    private volatile long nextPruneTime;
+    private final RouteCounter nearRequestsCounter;
+    private final RouteCounter nearHitsCounter;
+    private final RouteCounter remoteRequestsCounter;
+    private final RouteCounter remoteHitsCounter;
+    private final LongAdder nearRequests = new LongAdder();
+    private final LongAdder nearHits = new LongAdder();
+    private final LongAdder remoteRequests = new LongAdder();
+    private final LongAdder remoteHits = new LongAdder();
+
+    public TieredResponseCache(@NotNull TieredCacheProperties config, @NotBlank String routeId, @NotBlank String nodeId,
+            @NotNull ReactiveByteArrayRedisTemplate redisTemplate, @NotNull IamGatewayMetricsFacade metricsFacade) {
+        this.config = notNullOf(config, "config");
+        this.routeId = hasTextOf(routeId, "routeId");
+        this.nodeId = hasTextOf(nodeId, "nodeId");
+        this.redisTemplate = notNullOf(redisTemplate, "redisTemplate");
+        notNullOf(metricsFacade, "metricsFacade");
+        this.keyPrefix = config.getKeyPrefix().concat(":").concat(routeId).concat(":");
+        this.indexKey = config.getKeyPrefix().concat(":index:").concat(routeId).getBytes(UTF_8);
+        // The default eviction policy of caffeine is W-TinyLFU.
+        this.nearCache = Caffeine.newBuilder()
+                .maximumWeight(config.getNearMaximumSize().toBytes())
+                .weigher((String key, byte[] value) -> key.length() + value.length)
+                .expireAfterWrite(config.getNearExpireMs(), MILLISECONDS)
+                .build();
+        this.nearRequestsCounter = metricsFacade.routeCounter(MetricsName.RESPONSE_CACHE_TIER_REQUESTS_TOTAL,
+                MetricsTag.CACHE_TIER, TIER_NEAR);
+        this.nearHitsCounter = metricsFacade.routeCounter(MetricsName.RESPONSE_CACHE_TIER_HITS_TOTAL, MetricsTag.CACHE_TIER,
+                TIER_NEAR);
+        this.remoteRequestsCounter = metricsFacade.routeCounter(MetricsName.RESPONSE_CACHE_TIER_REQUESTS_TOTAL,
+                MetricsTag.CACHE_TIER, TIER_REMOTE);
+        this.remoteHitsCounter = metricsFacade.routeCounter(MetricsName.RESPONSE_CACHE_TIER_HITS_TOTAL, MetricsTag.CACHE_TIER,
+                TIER_REMOTE);
+        metricsFacade.gauge(MetricsName.RESPONSE_CACHE_TIER_HIT_RATIO, () -> ratio(nearHits, nearRequests),
+                MetricsTag.ROUTE_ID, routeId, MetricsTag.CACHE_TIER, TIER_NEAR);
+        metricsFacade.gauge(MetricsName.RESPONSE_CACHE_TIER_HIT_RATIO, () -> ratio(remoteHits, remoteRequests),
+                MetricsTag.ROUTE_ID, routeId, MetricsTag.CACHE_TIER, TIER_REMOTE);
+    }
+
+    @Override
+    public Object getOriginalCache() {
+        return nearCache;
+    }
+
+    @Override
+    public Mono<byte[]> get(@NotNull String key) {
+        notNullOf(key, "key");
+        nearRequests.increment();
+        nearRequestsCounter.increment(routeId, 1d);
+        byte[] value = nearCache.getIfPresent(key);
+        if (nonNull(value)) {
+            nearHits.increment();
+            nearHitsCounter.increment(routeId, 1d);
+            return Mono.just(value);
+        }
+        remoteRequests.increment();
+        remoteRequestsCounter.increment(routeId, 1d);
+        return redisTemplate.opsForValue().get(toRedisKey(key)).doOnNext(remoteValue -> {
+            remoteHits.increment();
+            remoteHitsCounter.increment(routeId, 1d);
+            nearCache.put(key, remoteValue);
+        }).onErrorResume(e -> {
+            log.warn("Unable to get the response cache from redis, fallback as missed. - {}", e.getMessage());
+            return Mono.empty();
+        });
+    }
+
+    @Override
+    public Mono<Boolean> put(@NotNull String key, @NotNull byte[] value) {
+        return put(key, value, 0L);
+    }
+
+    @Override
+    public Mono<Boolean> put(@NotNull String key, @NotNull byte[] value, long expireTime) {
+        notNullOf(key, "key");
+        notNullOf(value, "value");
+        long ttlMs = config.getExpireMs();
+        if (expireTime > 0) {
+            ttlMs = Math.min(ttlMs, expireTime - currentTimeMillis());
+        }
+        if (ttlMs <= 0) {
+            return Mono.just(false);
+        }
+        nearCache.put(key, value);
+        long now = currentTimeMillis();
+        return redisTemplate.opsForValue()
+                .set(toRedisKey(key), value, Duration.ofMillis(ttlMs))
+                .flatMap(success -> redisTemplate.opsForZSet()
+                        .add(indexKey, key.getBytes(UTF_8), now + ttlMs)
+                        // The index outlives all the entries of it.
+                        .then(redisTemplate.expire(indexKey, Duration.ofMillis(config.getExpireMs())))
+                        .then(now >= nextPruneTime ? pruneIndex(now) : Mono.just(0L))
+                        .thenReturn(success));
+    }
+
+    @Override
+    public Mono<Long> invalidate(@NotNull String key) {
+        notNullOf(key, "key");
+        nearCache.invalidate(key);
+        return redisTemplate.delete(toRedisKey(key))
+                .flatMap(deleted -> redisTemplate.opsForZSet()
+                        .remove(indexKey, key.getBytes(UTF_8))
+                        .then(publishInvalidation(key))
+                        .thenReturn(deleted));
+    }
+
+    /**
+     * Invalidate all the entries of the route tracked by the index, which
+     * deletes the keys one by one (they are in the different slots).
+     */
+    @Override
+    public Mono<Boolean> invalidateAll() {
+        nearCache.invalidateAll();
+        return redisTemplate.opsForZSet()
+                .scan(indexKey, ScanOptions.scanOptions().count(SCAN_BATCH).build())
+                .map(TypedTuple::getValue)
+                .flatMap(member -> redisTemplate.delete(toRedisKey(member)), DELETE_CONCURRENCY)
+                .then(redisTemplate.delete(indexKey))
+                .then(publishInvalidation(INVALIDATE_ALL))
+                .thenReturn(true);
+    }
+
+    /**
+     * Returns the number of the unexpired entries in redis, i.e. the size of
+     * index after pruned.
+     */
+    @Override
+    public Mono<Long> size() {
+        return pruneIndex(currentTimeMillis()).then(redisTemplate.opsForZSet().size(indexKey));
+    }
+
+    @Override
+    public Mono<Boolean> cleanUp() {
+        nearCache.cleanUp();
+        return Mono.just(true);
+    }
+
+    /**
+     * Invalidate the near-cache entry by the message from the other nodes.
+     *
+     * @param key
+     *            The cache key, or '*' to invalidate all.
+     */
+    public void onRemoteInvalidate(String key) {
+        if (INVALIDATE_ALL.equals(key)) {
+            nearCache.invalidateAll();
+        } else {
+            nearCache.invalidate(key);
+        }
+    }
+
+    private Mono<Long> publishInvalidation(String key) {
+        String message = nodeId.concat(MESSAGE_SEPARATOR).concat(routeId).concat(MESSAGE_SEPARATOR).concat(key);
+        return redisTemplate.convertAndSend(config.getInvalidateChannel(), message.getBytes(UTF_8)).onErrorResume(e -> {
+            log.warn("Unable to publish the response cache invalidation. - {}", e.getMessage());
+            return Mono.just(0L);
+        });
+    }
+
+    /**
+     * Remove the expired entries from the index, at most once per near-cache
+     * expiration on the puts.
+     */
+    private Mono<Long> pruneIndex(long now) {
+        this.nextPruneTime = now + config.getNearExpireMs();
+        return redisTemplate.opsForZSet().removeRangeByScore(indexKey, Range.closed(0d, (double) now)).onErrorResume(e -> {
+            log.warn("Unable to prune the response cache index. - {}", e.getMessage());
+            return Mono.just(0L);
+        });
+    }
+
+    private byte[] toRedisKey(String key) {
+        return keyPrefix.concat(key).getBytes(UTF_8);
+    }
+
+    private byte[] toRedisKey(byte[] member) {
+        return toRedisKey(new String(member, UTF_8));
+    }
+
+    private static double ratio(LongAdder hits, LongAdder requests) {
+        long total = requests.sum();
+        return total == 0 ? 0d : (double) hits.sum() / total;
+    }
+
+    public static final String TIER_NEAR = "near";
+    public static final String TIER_REMOTE = "remote";
+    public static final String INVALIDATE_ALL = "*";
+    public static final String MESSAGE_SEPARATOR = "\n";
+    private static final int SCAN_BATCH = 500;
+    private static final int DELETE_CONCURRENCY = 16;
+
+}
@@ -22,6 +22,7 @@ import com.wl4g.iam.common.constant.GatewayIAMConstants;
 import com.wl4g.iam.gateway.config.ReactiveByteArrayRedisTemplate;
 import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
 import com.wl4g.iam.gateway.responsecache.ResponseCacheFilterFactory;
+import com.wl4g.iam.gateway.util.matcher.RequestMatcherEngine;
 
 /**
  * {@link ResponseCacheAutoConfiguration}
@@ -42,8 +43,9 @@ public class ResponseCacheAutoConfiguration {
     public ResponseCacheFilterFactory responseCacheFilterFactory(
             ResponseCacheProperties config,
             ReactiveByteArrayRedisTemplate redisTemplate,
-            IamGatewayMetricsFacade metricsFacade) {
-        return new ResponseCacheFilterFactory(config, redisTemplate, metricsFacade);
+            IamGatewayMetricsFacade metricsFacade,
+            RequestMatcherEngine requestMatcherEngine) {
+        return new ResponseCacheFilterFactory(config, redisTemplate, metricsFacade, requestMatcherEngine);
     }
 
 }
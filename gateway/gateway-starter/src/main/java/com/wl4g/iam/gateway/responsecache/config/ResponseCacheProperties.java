@@ -15,12 +15,16 @@
  */
 package com.wl4g.iam.gateway.responsecache.config;
 
+import static com.wl4g.iam.common.constant.GatewayIAMConstants.CACHE_PREFIX_IAM_GATEWAY_RESPONSECACHE_INVALIDATE;
+import static com.wl4g.iam.common.constant.GatewayIAMConstants.CACHE_PREFIX_IAM_GATEWAY_RESPONSECACHE_TIERED;
 import static com.wl4g.iam.common.constant.GatewayIAMConstants.CACHE_SUFFIX_IAM_GATEWAY_RESPONSECACHE;
+import static java.util.Arrays.asList;
 
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.util.unit.DataSize;
 import org.springframework.validation.annotation.Validated;
 
@@ -64,14 +68,10 @@ public class ResponseCacheProperties {
     private String responseCachedHeader = RESPONSE_CACHED_HEADER;
 
     /**
-     * The initial capacity of the temporary buffer size.
+     * The maximum bytes of the response body to be cached, the larger
+     * responses are streamed to the client without being cached.
      */
-    private int tmpBufferInitialCapacity = 1024;
-
-    /**
-     * The maximum capacity of the temporary buffer size.
-     */
-    private int tmpBufferMaxCapacity = 1024 * 1024;
+    private int maxCachedBodySize = 1024 * 1024;
 
     /**
      * The default cached filter configuration properties.
@@ -103,12 +103,71 @@ public class ResponseCacheProperties {
          * The request to redis configuration properties.
          */
         private RedisCacheProperties redis = new RedisCacheProperties();
+
+        /**
+         * The request to two-tier (local near-cache and redis) cache
+         * configuration properties.
+         */
+        private TieredCacheProperties tiered = new TieredCacheProperties();
+
+        /**
+         * The request headers included in the cache key, i.e. the request
+         * headers that the responses vary by.
+         */
+        private List<String> keyVaryHeaders = new ArrayList<>(asList(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING));
+
+        /**
+         * Whether to include the request host in the cache key.
+         */
+        private boolean keyIncludeHost = true;
+
+        /**
+         * The query parameters excluded from the cache key, e.g. the cache
+         * busting parameters.
+         */
+        private List<String> keyExcludeQueryParams = new ArrayList<>();
+
+        /**
+         * Whether to coalesce the concurrent missed requests of the same cache
+         * key, that only one of them requests the upstream and the others wait
+         * for its response.
+         */
+        private boolean coalesceEnabled = true;
+
+        /**
+         * The maximum milliseconds of the coalesced requests waiting for the
+         * leading request, after which they request the upstream by
+         * themselves.
+         */
+        private long coalesceTimeoutMs = 10_000L;
+
+        /**
+         * The response status codes that are allowed to be cached, the error
+         * responses are never cached by default.
+         */
+        private List<Integer> cacheableStatusCodes = new ArrayList<>(asList(200, 203, 300, 301));
+
+        /**
+         * Whether to honor the upstream response 'Cache-Control' and 'Expires'
+         * headers, i.e. not to cache the responses with 'no-store', 'no-cache'
+         * or 'private', and to take 's-maxage', 'max-age' or 'Expires' as the
+         * entry TTL (bounded by the cache provider expiration).
+         */
+        private boolean honorCacheControl = true;
+
+        /**
+         * Whether to respond '304 Not Modified' directly from the gateway for
+         * the conditional requests ('If-None-Match' or 'If-Modified-Since')
+         * that match the cached response.
+         */
+        private boolean conditionalEnabled = true;
     }
 
     @Getter
     @AllArgsConstructor
     public static enum CacheProvider {
-        SimpleCache(SimpleCacheProperties.class), EhCache(SimpleCacheProperties.class), RedisCache(RedisCacheProperties.class);
+        SimpleCache(SimpleCacheProperties.class), EhCache(SimpleCacheProperties.class), RedisCache(
+                RedisCacheProperties.class), TieredCache(TieredCacheProperties.class);
         private final Class<?> providerClass;
     }
 
@@ -193,5 +252,45 @@ public class ResponseCacheProperties {
         private long expireMs = 60_000L;
     }
 
+    @Getter
+    @Setter
+    @Validated
+    @ToString
+    public static class TieredCacheProperties {
+
+        /**
+         * The maximum total bytes of the entries in the local near-cache, the
+         * entries are evicted by W-TinyLFU when exceeded.
+         */
+        private DataSize nearMaximumSize = DataSize.ofMegabytes(64);
+
+        /**
+         * The expiration milliseconds of the local near-cache entries, which
+         * bounds the staleness if the invalidation messages are lost.
+         */
+        private long nearExpireMs = 10_000L;
+
+        /**
+         * The redis key prefix, the entries are stored as the individual keys
+         * of '{keyPrefix}:{routeId}:{hashKey}', so that they are spread over
+         * the cluster slots and expired individually, and tracked by the
+         * sorted set of '{keyPrefix}:index:{routeId}'.
+         */
+        private String keyPrefix = CACHE_PREFIX_IAM_GATEWAY_RESPONSECACHE_TIERED;
+
+        /**
+         * The maximum expiration milliseconds of the redis entries, the
+         * shorter expiration of the upstream 'Cache-Control' or 'Expires' is
+         * preferred.
+         */
+        private long expireMs = 60_000L;
+
+        /**
+         * The redis pub/sub channel to broadcast the invalidation of the
+         * near-cache entries to the other gateway nodes.
+         */
+        private String invalidateChannel = CACHE_PREFIX_IAM_GATEWAY_RESPONSECACHE_INVALIDATE;
+    }
+
     public static String RESPONSE_CACHED_HEADER = "X-Iscg-Cached";
 }
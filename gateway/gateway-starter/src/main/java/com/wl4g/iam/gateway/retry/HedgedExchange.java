@@ -0,0 +1,265 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.retry;
+
+import static com.wl4g.infra.common.lang.Assert2.notNullOf;
+import static java.util.Objects.isNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseCookie;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebExchangeDecorator;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * The hedged attempts of one exchange, each attempt is routed with its own
+ * copy of attributes and a buffered response status/headers, the first
+ * attempt that writes the response claims the original response (the
+ * buffered status/headers and attributes are applied to the original
+ * exchange), and the other attempts are cancelled at once, which disposes
+ * their upstream connections instead of draining the upstream bodies.
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+public class HedgedExchange {
+
+    private static final int NO_WINNER = -1;
+
+    private final ServerWebExchange exchange;
+    private final AtomicInteger attempts = new AtomicInteger(0);
+    private final AtomicInteger winner = new AtomicInteger(NO_WINNER);
+    private final Sinks.One<Integer> claimed = Sinks.one();
+
+    public HedgedExchange(ServerWebExchange exchange) {
+        this.exchange = notNullOf(exchange, "exchange");
+    }
+
+    /**
+     * Routes a new attempt of the exchange, the returned mono is cancelled
+     * (i.e. completes empty) as soon as the other attempt has claimed the
+     * response, and the errors of the attempt that are not
+     * {@link #isErrorPropagable(int)} are ignored.
+     */
+    public Mono<Void> route(Function<ServerWebExchange, Mono<Void>> routing) {
+        AttemptExchange attempt = new AttemptExchange(exchange, attempts.getAndIncrement());
+        // Only emits for the losers, the winner must run until it completes.
+        Mono<Integer> lost = claimed.asMono().flatMap(index -> index == attempt.index ? Mono.never() : Mono.just(index));
+        return Mono.defer(() -> routing.apply(attempt))
+                .onErrorResume(ex -> isErrorPropagable(attempt.index) ? Mono.error(ex) : Mono.empty())
+                .takeUntilOther(lost);
+    }
+
+    /**
+     * Gets the mono that emits the index of the winner once the response has
+     * been claimed.
+     */
+    public Mono<Integer> onClaimed() {
+        return claimed.asMono();
+    }
+
+    public boolean isClaimed() {
+        return winner.get() != NO_WINNER;
+    }
+
+    /**
+     * Gets the index of the attempt that won the response, 0 is the primary
+     * request, or -1 if none has responded.
+     */
+    public int getWinner() {
+        return winner.get();
+    }
+
+    /**
+     * Whether the error of the attempt should be propagated, i.e. the attempt
+     * is the winner, or is the primary while none has responded. The errors of
+     * the other attempts are ignored.
+     */
+    public boolean isErrorPropagable(int attempt) {
+        int current = winner.get();
+        return current == attempt || (current == NO_WINNER && attempt == 0);
+    }
+
+    private boolean claim(AttemptExchange attempt) {
+        if (winner.get() == attempt.index) {
+            return true;
+        }
+        if (!winner.compareAndSet(NO_WINNER, attempt.index)) {
+            return false;
+        }
+        // Apply the routing results of the winner to original exchange.
+        exchange.getAttributes().putAll(attempt.attributes);
+        AttemptResponse response = attempt.response;
+        ServerHttpResponse original = exchange.getResponse();
+        if (!isNull(response.rawStatusCode)) {
+            original.setRawStatusCode(response.rawStatusCode);
+        }
+        original.getHeaders().putAll(response.headers);
+        response.cookies.values().forEach(cookies -> cookies.forEach(original::addCookie));
+        response.commitActions.forEach(original::beforeCommit);
+        response.won = true;
+        claimed.tryEmitValue(attempt.index);
+        return true;
+    }
+
+    class AttemptExchange extends ServerWebExchangeDecorator {
+        private final int index;
+        private final Map<String, Object> attributes;
+        private final AttemptResponse response;
+
+        AttemptExchange(ServerWebExchange delegate, int index) {
+            super(delegate);
+            this.index = index;
+            this.attributes = new ConcurrentHashMap<>(delegate.getAttributes());
+            this.response = new AttemptResponse(this);
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public ServerHttpResponse getResponse() {
+            return response;
+        }
+    }
+
+    class AttemptResponse extends ServerHttpResponseDecorator {
+        private final AttemptExchange attempt;
+        private final HttpHeaders headers = new HttpHeaders();
+        private final MultiValueMap<String, ResponseCookie> cookies = new LinkedMultiValueMap<>(2);
+        private final List<Supplier<? extends Mono<Void>>> commitActions = new ArrayList<>(2);
+        private volatile Integer rawStatusCode;
+        private volatile boolean won;
+
+        AttemptResponse(AttemptExchange attempt) {
+            super(exchange.getResponse());
+            this.attempt = attempt;
+        }
+
+        @Override
+        public boolean setStatusCode(HttpStatus status) {
+            return setRawStatusCode(isNull(status) ? null : status.value());
+        }
+
+        @Override
+        public boolean setRawStatusCode(Integer value) {
+            if (won) {
+                return getDelegate().setRawStatusCode(value);
+            }
+            this.rawStatusCode = value;
+            return true;
+        }
+
+        @Override
+        public HttpStatus getStatusCode() {
+            Integer value = getRawStatusCode();
+            return isNull(value) ? null : HttpStatus.resolve(value);
+        }
+
+        @Override
+        public Integer getRawStatusCode() {
+            return won ? getDelegate().getRawStatusCode() : rawStatusCode;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return won ? getDelegate().getHeaders() : headers;
+        }
+
+        @Override
+        public MultiValueMap<String, ResponseCookie> getCookies() {
+            return won ? getDelegate().getCookies() : cookies;
+        }
+
+        @Override
+        public void addCookie(ResponseCookie cookie) {
+            if (won) {
+                getDelegate().addCookie(cookie);
+            } else {
+                cookies.add(cookie.getName(), cookie);
+            }
+        }
+
+        @Override
+        public void beforeCommit(Supplier<? extends Mono<Void>> action) {
+            if (won) {
+                getDelegate().beforeCommit(action);
+            } else {
+                commitActions.add(action);
+            }
+        }
+
+        @Override
+        public boolean isCommitted() {
+            return won && getDelegate().isCommitted();
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            if (claim(attempt)) {
+                return getDelegate().writeWith(body);
+            }
+            return discard(body);
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            if (claim(attempt)) {
+                return getDelegate().writeAndFlushWith(body);
+            }
+            return discard(body);
+        }
+
+        @Override
+        public Mono<Void> setComplete() {
+            if (claim(attempt)) {
+                return getDelegate().setComplete();
+            }
+            return Mono.empty();
+        }
+
+        /**
+         * Cancels the upstream body of the losing attempt right after
+         * subscribing, rather than reading it to the end.
+         */
+        private Mono<Void> discard(Publisher<?> body) {
+            return Flux.from(body).doOnDiscard(DataBuffer.class, DataBufferUtils::release).take(0).then();
+        }
+    }
+
+}
@@ -16,6 +16,10 @@
 
 package com.wl4g.iam.gateway.retry;
 
+import static com.wl4g.infra.common.lang.Assert2.notNullOf;
+import static com.wl4g.infra.common.lang.FastTimeClock.currentTimeMillis;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 import static org.springframework.cloud.gateway.support.GatewayToStringStyler.filterToStringCreator;
 
 import java.io.IOException;
@@ -23,29 +27,45 @@ import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.reactivestreams.Publisher;
 import org.springframework.cloud.gateway.event.EnableBodyCachingEvent;
+import org.springframework.cloud.gateway.event.RefreshRoutesResultEvent;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteLocator;
 import org.springframework.cloud.gateway.support.HasRouteId;
 import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.cloud.gateway.support.TimeoutException;
+import org.springframework.context.ApplicationListener;
 import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatus.Series;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.util.Assert;
 import org.springframework.web.server.ServerWebExchange;
 
+import com.wl4g.iam.gateway.loadbalance.stats.LoadBalancerStats;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsName;
 import com.wl4g.iam.gateway.util.IamGatewayUtil.SafeFilterOrdered;
 
 import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import reactor.core.publisher.Mono;
 import reactor.netty.Connection;
 import reactor.retry.Backoff;
@@ -55,7 +75,8 @@ import reactor.retry.Retry;
 import reactor.retry.RetryContext;
 
 @SuppressWarnings({ "unchecked", "unused", "deprecation" })
-public class IamRetryGatewayFilterFactory extends AbstractGatewayFilterFactory<IamRetryGatewayFilterFactory.RetryConfig> {
+public class IamRetryGatewayFilterFactory extends AbstractGatewayFilterFactory<IamRetryGatewayFilterFactory.RetryConfig>
+        implements ApplicationListener<RefreshRoutesResultEvent> {
 
     /**
      * Retry iteration key.
@@ -64,8 +85,20 @@ public class IamRetryGatewayFilterFactory extends AbstractGatewayFilterFactory<I
 
     private static final Log log = LogFactory.getLog(IamRetryGatewayFilterFactory.class);
 
-    public IamRetryGatewayFilterFactory() {
+    private final LoadBalancerStats loadBalancerStats;
+    private final IamGatewayMetricsFacade metricsFacade;
+
+    /**
+     * The retry budgets of routes, which are kept across the routes refreshing
+     * (unless the budget configuration changed), and removed when the routes
+     * are deleted.
+     */
+    private final Map<String, RetryBudget> routeBudgets = new ConcurrentHashMap<>(16);
+
+    public IamRetryGatewayFilterFactory(LoadBalancerStats loadBalancerStats, IamGatewayMetricsFacade metricsFacade) {
         super(RetryConfig.class);
+        this.loadBalancerStats = notNullOf(loadBalancerStats, "loadBalancerStats");
+        this.metricsFacade = notNullOf(metricsFacade, "metricsFacade");
     }
 
     @Override
@@ -81,6 +114,8 @@ public class IamRetryGatewayFilterFactory extends AbstractGatewayFilterFactory<I
     public GatewayFilter apply(RetryConfig retryConfig) {
         retryConfig.validate();
 
+        RetryBudget budget = obtainRetryBudget(retryConfig);
+
         Repeat<ServerWebExchange> statusCodeRepeat = null;
         if (!retryConfig.getStatuses().isEmpty() || !retryConfig.getSeries().isEmpty()) {
             Predicate<RepeatContext<ServerWebExchange>> repeatPredicate = context -> {
@@ -108,7 +143,7 @@ public class IamRetryGatewayFilterFactory extends AbstractGatewayFilterFactory<I
 
                 trace("retryableMethod: %b, httpMethod %s, configured methods %s", () -> retryableMethod, () -> httpMethod,
                         retryConfig::getMethods);
-                return retryableMethod && finalRetryableStatusCode;
+                return retryableMethod && finalRetryableStatusCode && tryWithdrawBudget(exchange, retryConfig, budget);
             };
 
             statusCodeRepeat = Repeat.onlyIf(repeatPredicate).doOnRepeat(context -> reset(context.applicationContext()));
@@ -142,7 +177,7 @@ public class IamRetryGatewayFilterFactory extends AbstractGatewayFilterFactory<I
                         boolean retryableMethod = retryConfig.getMethods().contains(httpMethod);
                         trace("retryableMethod: %b, httpMethod %s, configured methods %s", () -> retryableMethod,
                                 () -> httpMethod, retryConfig::getMethods);
-                        return retryableMethod;
+                        return retryableMethod && tryWithdrawBudget(exchange, retryConfig, budget);
                     }
                 }
                 trace("exception or its cause is not retryable %s, configured exceptions %s",
@@ -158,7 +193,7 @@ public class IamRetryGatewayFilterFactory extends AbstractGatewayFilterFactory<I
             }
         }
 
-        GatewayFilter gatewayFilter = apply(retryConfig.getRouteId(), statusCodeRepeat, exceptionRetry);
+        GatewayFilter gatewayFilter = apply(retryConfig, budget, statusCodeRepeat, exceptionRetry);
         return new GatewayFilter() {
             @Override
             public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
@@ -172,6 +207,8 @@ public class IamRetryGatewayFilterFactory extends AbstractGatewayFilterFactory<I
                         .append("statuses", retryConfig.getStatuses())
                         .append("methods", retryConfig.getMethods())
                         .append("exceptions", retryConfig.getExceptions())
+                        .append("budget", retryConfig.getBudget())
+                        .append("hedge", retryConfig.getHedge())
                         .toString();
             }
         };
@@ -218,12 +255,142 @@ public class IamRetryGatewayFilterFactory extends AbstractGatewayFilterFactory<I
         ServerWebExchangeUtils.reset(exchange);
     }
 
+    /**
+     * Gets the retry budget of the route, which is kept if the budget
+     * configuration is not changed, so that the routes refreshing does not
+     * reset the balance.
+     */
+    protected RetryBudget obtainRetryBudget(RetryConfig retryConfig) {
+        BudgetConfig config = retryConfig.getBudget();
+        if (!config.isEnabled()) {
+            return null;
+        }
+        if (isNull(retryConfig.getRouteId())) {
+            return config.newRetryBudget();
+        }
+        return routeBudgets.compute(retryConfig.getRouteId(),
+                (routeId, existing) -> (nonNull(existing) && existing.isConfiguredBy(config.getPercentOfSuccess(),
+                        config.getMinRetriesPerSecond(), config.getMaxRetryBalance())) ? existing : config.newRetryBudget());
+    }
+
+    /**
+     * Prune the retry budgets of the deleted routes after the routes are
+     * refreshed.
+     */
+    @Override
+    public void onApplicationEvent(RefreshRoutesResultEvent event) {
+        if (!event.isSuccess() || !(event.getSource() instanceof RouteLocator) || routeBudgets.isEmpty()) {
+            return;
+        }
+        ((RouteLocator) event.getSource()).getRoutes()
+                .map(Route::getId)
+                .collect(Collectors.toSet())
+                .subscribe(this::pruneRetryBudgets, e -> log.warn("Failed to prune the retry budgets of deleted routes.", e));
+    }
+
+    protected void pruneRetryBudgets(Set<String> routeIds) {
+        routeBudgets.keySet().retainAll(routeIds);
+    }
+
+    protected boolean tryWithdrawBudget(ServerWebExchange exchange, RetryConfig retryConfig, RetryBudget budget) {
+        if (isNull(budget) || budget.tryWithdraw(currentTimeMillis())) {
+            return true;
+        }
+        trace("retry budget exhausted, routeId %s", retryConfig::getRouteId);
+        metricsFacade.counter(exchange, MetricsName.RETRY_BUDGET_EXHAUSTED_TOTAL, 1);
+        return false;
+    }
+
+    /**
+     * Gets the delay before sending the hedged request, which is the p95 cost
+     * time of the route from the load balancer stats, or the configured
+     * default delay if there are no stats (e.g. the non load balanced route).
+     */
+    protected Duration resolveHedgeDelay(RetryConfig retryConfig) {
+        HedgeConfig hedge = retryConfig.getHedge();
+        double p95CostTime = isNull(retryConfig.getRouteId()) ? 0d : loadBalancerStats.getP95CostTime(retryConfig.getRouteId());
+        long delayMs = p95CostTime > 0 ? (long) p95CostTime : hedge.getDelay().toMillis();
+        delayMs = Math.max(hedge.getMinDelay().toMillis(), delayMs);
+        if (nonNull(hedge.getMaxDelay())) {
+            delayMs = Math.min(hedge.getMaxDelay().toMillis(), delayMs);
+        }
+        return Duration.ofMillis(delayMs);
+    }
+
+    protected boolean isHedgeable(ServerWebExchange exchange, RetryConfig retryConfig) {
+        HedgeConfig hedge = retryConfig.getHedge();
+        if (!hedge.isEnabled()) {
+            return false;
+        }
+        ServerHttpRequest request = exchange.getRequest();
+        // Only the idempotent requests without body can be sent twice.
+        return hedge.getMethods().contains(request.getMethod()) && request.getHeaders().getContentLength() <= 0
+                && !request.getHeaders().containsKey(HttpHeaders.TRANSFER_ENCODING);
+    }
+
+    /**
+     * Send the primary request, and if it has not responded after the hedge
+     * delay, send a hedged request in parallel, the one that responds first
+     * wins the client response and the other is cancelled immediately. The
+     * error of the primary is propagated until the hedged request has won.
+     */
+    protected Mono<Void> filterWithHedging(
+            ServerWebExchange exchange,
+            GatewayFilterChain chain,
+            RetryConfig retryConfig,
+            RetryBudget budget) {
+        return Mono.defer(() -> {
+            HedgedExchange hedged = new HedgedExchange(exchange);
+            Mono<Void> primary = hedged.route(chain::filter);
+
+            Duration delay = resolveHedgeDelay(retryConfig);
+            // Don't send the hedged request once the primary has responded.
+            Mono<Void> hedge = Mono.delay(delay).takeUntilOther(hedged.onClaimed()).flatMap(d -> {
+                if (hedged.isClaimed() || !tryWithdrawBudget(exchange, retryConfig, budget)) {
+                    return Mono.<Void> empty();
+                }
+                trace("sending hedged request after %s, routeId %s", () -> delay, retryConfig::getRouteId);
+                metricsFacade.counter(exchange, MetricsName.RETRY_HEDGED_TOTAL, 1);
+                return hedged.route(chain::filter);
+            });
+
+            // The loser is cancelled as soon as the winner claims the response.
+            return Mono.when(primary, hedge).doOnSuccess(v -> {
+                if (hedged.getWinner() == 1) {
+                    metricsFacade.counter(exchange, MetricsName.RETRY_HEDGED_WINS_TOTAL, 1);
+                }
+            });
+        });
+    }
+
+    protected void depositBudget(ServerWebExchange exchange, RetryBudget budget) {
+        if (nonNull(budget)) {
+            HttpStatus status = exchange.getResponse().getStatusCode();
+            if (isNull(status) || !status.is5xxServerError()) {
+                budget.deposit();
+            }
+        }
+    }
+
     @Deprecated
     public GatewayFilter apply(Repeat<ServerWebExchange> repeat, Retry<ServerWebExchange> retry) {
         return apply(null, repeat, retry);
     }
 
+    @Deprecated
     public GatewayFilter apply(String routeId, Repeat<ServerWebExchange> repeat, Retry<ServerWebExchange> retry) {
+        RetryConfig retryConfig = new RetryConfig();
+        retryConfig.setRouteId(routeId);
+        retryConfig.getBudget().setEnabled(false);
+        return apply(retryConfig, null, repeat, retry);
+    }
+
+    public GatewayFilter apply(
+            RetryConfig retryConfig,
+            RetryBudget budget,
+            Repeat<ServerWebExchange> repeat,
+            Retry<ServerWebExchange> retry) {
+        String routeId = retryConfig.getRouteId();
         if (routeId != null && getPublisher() != null) {
             // send an event to enable caching
             getPublisher().publishEvent(new EnableBodyCachingEvent(this, routeId));
@@ -257,7 +424,7 @@ public class IamRetryGatewayFilterFactory extends AbstractGatewayFilterFactory<I
         //
         // [Begin] Modified to Ordered gateway filter.
         //
-        return new IamRetryGatewayFailter(routeId, repeat, retry);
+        return new IamRetryGatewayFailter(retryConfig, budget, repeat, retry);
         //
         // [End] Modified to Ordered gateway filter.
         //
@@ -299,6 +466,10 @@ public class IamRetryGatewayFilterFactory extends AbstractGatewayFilterFactory<I
 
         private BackoffConfig backoff;
 
+        private BudgetConfig budget = new BudgetConfig();
+
+        private HedgeConfig hedge = new HedgeConfig();
+
         public RetryConfig allMethods() {
             return setMethods(HttpMethod.values());
         }
@@ -311,6 +482,10 @@ public class IamRetryGatewayFilterFactory extends AbstractGatewayFilterFactory<I
             if (this.backoff != null) {
                 this.backoff.validate();
             }
+            Assert.notNull(this.budget, "budget must be present");
+            this.budget.validate();
+            Assert.notNull(this.hedge, "hedge must be present");
+            this.hedge.validate();
         }
 
         public BackoffConfig getBackoff() {
@@ -327,6 +502,24 @@ public class IamRetryGatewayFilterFactory extends AbstractGatewayFilterFactory<I
             return this;
         }
 
+        public BudgetConfig getBudget() {
+            return budget;
+        }
+
+        public RetryConfig setBudget(BudgetConfig budget) {
+            this.budget = budget;
+            return this;
+        }
+
+        public HedgeConfig getHedge() {
+            return hedge;
+        }
+
+        public RetryConfig setHedge(HedgeConfig hedge) {
+            this.hedge = hedge;
+            return this;
+        }
+
         @Override
         public void setRouteId(String routeId) {
             this.routeId = routeId;
@@ -442,10 +635,89 @@ public class IamRetryGatewayFilterFactory extends AbstractGatewayFilterFactory<I
 
     }
 
+    /**
+     * The per-route retry budget shared by all requests of the node, see
+     * {@link RetryBudget}
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class BudgetConfig {
+
+        /**
+         * Whether to bound the retries by the per-route budget, which is
+         * disabled by default to keep the retries unchanged.
+         */
+        private boolean enabled = false;
+
+        /**
+         * The retry tokens deposited by each successful request, as the
+         * percentage of a whole retry.
+         */
+        private int percentOfSuccess = 20;
+
+        /**
+         * The reserve retries per second, so that the low traffic routes can
+         * still retry.
+         */
+        private int minRetriesPerSecond = 10;
+
+        /**
+         * The maximum number of retries can be accumulated.
+         */
+        private int maxRetryBalance = 100;
+
+        public void validate() {
+            Assert.isTrue(this.percentOfSuccess >= 0, "percentOfSuccess must be greater than or equal to 0");
+            Assert.isTrue(this.minRetriesPerSecond >= 0, "minRetriesPerSecond must be greater than or equal to 0");
+            Assert.isTrue(this.maxRetryBalance > 0, "maxRetryBalance must be greater than 0");
+        }
+
+        public RetryBudget newRetryBudget() {
+            return new RetryBudget(percentOfSuccess, minRetriesPerSecond, maxRetryBalance, currentTimeMillis());
+        }
+
+    }
+
+    /**
+     * The hedged requests, i.e. if the idempotent request has not responded
+     * after the p95 cost time of the route, a second request is sent and the
+     * one that responds first wins.
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class HedgeConfig {
+
+        private boolean enabled = false;
+
+        private List<HttpMethod> methods = toList(HttpMethod.GET, HttpMethod.HEAD);
+
+        /**
+         * The delay used when the route has no load balancer stats (e.g. not
+         * the load balanced route or no samples yet).
+         */
+        private Duration delay = Duration.ofMillis(500);
+
+        private Duration minDelay = Duration.ofMillis(10);
+
+        private Duration maxDelay = Duration.ofSeconds(5);
+
+        public void validate() {
+            Assert.notEmpty(this.methods, "hedge methods may not be empty");
+            Assert.isTrue(this.methods.stream().allMatch(m -> m == HttpMethod.GET || m == HttpMethod.HEAD
+                    || m == HttpMethod.OPTIONS), "hedge methods must be idempotent and without body");
+            Assert.notNull(this.delay, "hedge delay must be present");
+            Assert.notNull(this.minDelay, "hedge minDelay must be present");
+        }
+
+    }
+
     @AllArgsConstructor
     class IamRetryGatewayFailter implements GatewayFilter, Ordered {
 
-        private final String routeId;
+        private final RetryConfig retryConfig;
+        private final RetryBudget budget;
         private final Repeat<ServerWebExchange> repeat;
         private final Retry<ServerWebExchange> retry;
 
@@ -459,7 +731,10 @@ public class IamRetryGatewayFilterFactory extends AbstractGatewayFilterFactory<I
             trace("Entering retry-filter");
 
             // chain.filter returns a Mono<Void>
-            Publisher<Void> publisher = chain.filter(exchange)
+            Mono<Void> attempt = isHedgeable(exchange, retryConfig)
+                    ? filterWithHedging(exchange, chain, retryConfig, budget)
+                    : chain.filter(exchange);
+            Publisher<Void> publisher = attempt
                     // .log("retry-filter", Level.INFO)
                     .doOnSuccess(aVoid -> updateIteration(exchange))
                     .doOnError(throwable -> updateIteration(exchange));
@@ -476,7 +751,7 @@ public class IamRetryGatewayFilterFactory extends AbstractGatewayFilterFactory<I
                 publisher = ((Mono<Void>) publisher).repeatWhen(repeat.withApplicationContext(exchange));
             }
 
-            return Mono.fromDirect(publisher);
+            return Mono.fromDirect(publisher).doOnSuccess(v -> depositBudget(exchange, budget));
         }
 
     }
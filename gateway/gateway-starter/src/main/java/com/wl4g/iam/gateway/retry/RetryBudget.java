@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.retry;
+
+import static com.wl4g.infra.common.lang.Assert2.isTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The retry budget of one route which is shared by all requests of the node,
+ * every successful request deposits {@code percentOfSuccess}% of a retry
+ * token, and every retry (or hedged request) withdraws a whole token, so the
+ * retries are bounded to the percentage of successful traffic instead of
+ * amplifying the load by (retries+1)x during an upstream brownout. </br>
+ * </br>
+ * A small reserve of {@code minRetriesPerSecond} is replenished by the time,
+ * so that the low traffic routes can still retry. The tokens are scaled by
+ * 1000 and updated by CAS, which does not block the request hot path.
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+public class RetryBudget {
+
+    private static final long SCALE = 1000L;
+
+    private final int percentOfSuccess;
+    private final int minRetriesPerSecond;
+    private final int maxRetryBalance;
+    private final long depositAmount;
+    private final long reservePerMillis;
+    private final long maxBalance;
+    private final AtomicLong balance;
+    private final AtomicLong lastRefillTime;
+
+    public RetryBudget(int percentOfSuccess, int minRetriesPerSecond, int maxRetryBalance, long now) {
+        isTrue(percentOfSuccess >= 0, "percentOfSuccess must be greater than or equal to 0");
+        isTrue(minRetriesPerSecond >= 0, "minRetriesPerSecond must be greater than or equal to 0");
+        isTrue(maxRetryBalance > 0, "maxRetryBalance must be greater than 0");
+        this.percentOfSuccess = percentOfSuccess;
+        this.minRetriesPerSecond = minRetriesPerSecond;
+        this.maxRetryBalance = maxRetryBalance;
+        this.depositAmount = percentOfSuccess * SCALE / 100;
+        // i.e. minRetriesPerSecond * SCALE / 1000ms
+        this.reservePerMillis = minRetriesPerSecond;
+        this.maxBalance = maxRetryBalance * SCALE;
+        // Allows the reserve retries for the cold start.
+        this.balance = new AtomicLong(Math.min(maxBalance, minRetriesPerSecond * SCALE));
+        this.lastRefillTime = new AtomicLong(now);
+    }
+
+    /**
+     * Deposit on a successful request.
+     */
+    public void deposit() {
+        add(depositAmount);
+    }
+
+    /**
+     * Try to withdraw a retry token.
+     *
+     * @param now
+     * @return Whether the budget is enough to retry.
+     */
+    public boolean tryWithdraw(long now) {
+        refill(now);
+        for (;;) {
+            long current = balance.get();
+            if (current < SCALE) {
+                return false;
+            }
+            if (balance.compareAndSet(current, current - SCALE)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of retries currently available.
+     */
+    public double getBalance() {
+        return (double) balance.get() / SCALE;
+    }
+
+    public boolean isConfiguredBy(int percentOfSuccess, int minRetriesPerSecond, int maxRetryBalance) {
+        return this.percentOfSuccess == percentOfSuccess && this.minRetriesPerSecond == minRetriesPerSecond
+                && this.maxRetryBalance == maxRetryBalance;
+    }
+
+    private void refill(long now) {
+        if (reservePerMillis <= 0) {
+            return;
+        }
+        long last = lastRefillTime.get();
+        long elapsed = now - last;
+        // Only one of the concurrent callers refills the elapsed period.
+        if (elapsed > 0 && lastRefillTime.compareAndSet(last, now)) {
+            add(elapsed * reservePerMillis);
+        }
+    }
+
+    private void add(long amount) {
+        if (amount <= 0) {
+            return;
+        }
+        for (;;) {
+            long current = balance.get();
+            long next = Math.min(maxBalance, current + amount);
+            if (next <= current || balance.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+}
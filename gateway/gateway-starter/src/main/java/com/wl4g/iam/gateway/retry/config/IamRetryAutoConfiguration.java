@@ -19,6 +19,8 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 
 import com.wl4g.iam.common.constant.GatewayIAMConstants;
+import com.wl4g.iam.gateway.loadbalance.stats.LoadBalancerStats;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
 import com.wl4g.iam.gateway.retry.IamRetryGatewayFilterFactory;
 
 /**
@@ -37,8 +39,10 @@ public class IamRetryAutoConfiguration {
     }
 
     @Bean
-    public IamRetryGatewayFilterFactory iamRetryGatewayFilterFactory() {
-        return new IamRetryGatewayFilterFactory();
+    public IamRetryGatewayFilterFactory iamRetryGatewayFilterFactory(
+            LoadBalancerStats loadBalancerStats,
+            IamGatewayMetricsFacade metricsFacade) {
+        return new IamRetryGatewayFilterFactory(loadBalancerStats, metricsFacade);
     }
 
 }
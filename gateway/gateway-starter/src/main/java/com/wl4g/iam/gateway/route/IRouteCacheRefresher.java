@@ -27,7 +27,8 @@ import reactor.core.publisher.Mono;
 public interface IRouteCacheRefresher {
 
     /**
-     * Refresh routing information in memory configuration.
+     * Refresh routing information in memory configuration, which is lazy until
+     * subscribed.
      * 
      * @return
      */
@@ -43,7 +43,9 @@ public class RefreshRouteApplicationListener implements ApplicationListener<Refr
         try {
             log.info(format("Routes refresh :: %s", event.getSource().toString()));
             if (event.getSource() instanceof GatewayControllerEndpoint || RefreshType.PERMANENT.equals(event.getSource())) {
-                applicationContext.getBean(IRouteCacheRefresher.class).refreshRoutes();
+                applicationContext.getBean(IRouteCacheRefresher.class)
+                        .refreshRoutes()
+                        .subscribe(null, e -> log.warn("Failed to refresh routes.", e));
             }
         } catch (Exception e) {
             log.warn("", e);
@@ -87,7 +87,8 @@ public class TimeBasedRouteRefresher extends ApplicationTaskRunner<RunnerPropert
         this.future = getWorker().scheduleWithFixedDelay(() -> {
             try {
                 log.debug("Refreshing routes ...");
-                refresher.refreshRoutes();
+                // Only loads the routes if the revision changed.
+                refresher.refreshRoutes().block();
             } catch (Exception e) {
                 log.error("Failed to refreshing routes.", e);
             }
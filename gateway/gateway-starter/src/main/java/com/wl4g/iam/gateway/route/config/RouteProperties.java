@@ -21,6 +21,24 @@ public class RouteProperties {
      */
     private boolean forwaredHttpsToHttp = true;
 
+    /**
+     * The delay of the periodic refresh, which only loads the route
+     * definitions when the stored revision changed (or the force full refresh
+     * is due), so it can be kept short as the fallback of the change events.
+     */
     private Long refreshDelayMs = 30_000L;
 
+    /**
+     * The interval of the force full refresh, i.e. load and diff all the route
+     * definitions even if the revision is unchanged, in case of the route
+     * definitions modified without increasing the revision.
+     */
+    private Long forceFullRefreshMs = 300_000L;
+
+    /**
+     * Whether to subscribe the route definitions changed events (published
+     * when saved or deleted) to refresh immediately.
+     */
+    private boolean changedNotifyEnabled = true;
+
 }
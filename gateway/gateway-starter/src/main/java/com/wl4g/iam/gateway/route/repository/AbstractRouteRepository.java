@@ -15,7 +15,10 @@
  */
 package com.wl4g.iam.gateway.route.repository;
 
+import static com.wl4g.infra.common.lang.FastTimeClock.currentTimeMillis;
 import static com.wl4g.infra.common.log.SmartLoggerFactory.getLogger;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 
 import java.util.Map;
 
@@ -27,16 +30,23 @@ import org.springframework.cloud.gateway.route.InMemoryRouteDefinitionRepository
 import org.springframework.cloud.gateway.route.RouteDefinition;
 import org.springframework.context.ApplicationEventPublisher;
 
-import com.google.common.collect.Maps;
 import com.wl4g.iam.gateway.route.IRouteCacheRefresher;
 import com.wl4g.iam.gateway.route.RefreshRouteApplicationListener.RefreshType;
+import com.wl4g.iam.gateway.route.config.RouteProperties;
 import com.wl4g.infra.common.log.SmartLogger;
 
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
 /**
  * Abstract routes configuration repository. </br>
+ * </br>
+ * The refresh first checks the revision of the persistent routes, and only
+ * when it changed, loads all the route definitions and updates the changed
+ * ones in memory (diffing by route id), the {@link RefreshRoutesEvent} that
+ * rebuilds all the routes and filters is published only if any route actually
+ * changed.
  *
  * @author James Wong<jamewong1376@gmail.com>
  * @version v1.0 2020-07-04
@@ -46,41 +56,113 @@ public abstract class AbstractRouteRepository extends InMemoryRouteDefinitionRep
 
     protected final SmartLogger log = getLogger(getClass());
     protected @Autowired ApplicationEventPublisher publisher;
+    protected @Autowired RouteProperties routeConfig;
+
+    private final Object refreshLock = new Object();
+    private Sinks.Empty<Void> inFlightRefresh; // guarded by refreshLock
+    private Sinks.Empty<Void> pendingRefresh; // guarded by refreshLock
+    private volatile long lastRevision = REVISION_UNKNOWN;
+    private volatile long lastFullRefreshTime;
 
     @PostConstruct
-    public synchronized Mono<Void> init() {
-        return refreshRoutes();
+    public void init() {
+        refreshRoutes().block();
     }
 
     /**
      * Refresh the routes configuration in memory and update it by comparing the
-     * routing differences in memory and persistent storage.
+     * routing differences in memory and persistent storage. The concurrent
+     * refresh requests are coalesced into one more refresh after the current,
+     * and complete when it is done, so that the changes that triggered them
+     * are visible. Note that the refresh is shared by the callers, so it is
+     * not cancelled with any of them.
      */
     @Override
-    public synchronized Mono<Void> refreshRoutes() {
-        Flux<RouteDefinition> memeryRoutes = getRouteDefinitions();
-        Flux<RouteDefinition> permanentRoutes = loadPermanentRouteDefinitions();
+    public Mono<Void> refreshRoutes() {
+        return Mono.defer(() -> {
+            Sinks.Empty<Void> refresh;
+            synchronized (refreshLock) {
+                if (nonNull(inFlightRefresh)) {
+                    if (isNull(pendingRefresh)) {
+                        pendingRefresh = Sinks.empty();
+                    }
+                    return pendingRefresh.asMono();
+                }
+                refresh = inFlightRefresh = Sinks.empty();
+            }
+            runRefresh(refresh);
+            return refresh.asMono();
+        });
+    }
 
-        Map<RouteDefinition, Boolean> newMemRoutes = Maps.newHashMap();
-        memeryRoutes.subscribe(route -> newMemRoutes.put(route, false));
+    private void runRefresh(Sinks.Empty<Void> refresh) {
+        Mono.defer(this::doRefreshRoutes).subscribe(null, e -> onRefreshFinished(refresh, e),
+                () -> onRefreshFinished(refresh, null));
+    }
 
-        Map<RouteDefinition, Boolean> newPermanentRoutes = Maps.newHashMap();
-        permanentRoutes.subscribe(route -> newPermanentRoutes.put(route, false));
+    private void onRefreshFinished(Sinks.Empty<Void> refresh, Throwable error) {
+        Sinks.Empty<Void> next;
+        synchronized (refreshLock) {
+            next = inFlightRefresh = pendingRefresh;
+            pendingRefresh = null;
+        }
+        if (isNull(error)) {
+            refresh.tryEmitEmpty();
+        } else {
+            refresh.tryEmitError(error);
+        }
+        if (nonNull(next)) {
+            runRefresh(next);
+        }
+    }
 
-        // ADD routes.
-        Flux.fromIterable(newPermanentRoutes.keySet())
-                .filter(perRoute -> !newMemRoutes.containsKey(perRoute))
-                .flatMap(route -> super.save(Mono.just(route)))
-                .subscribe();
+    private Mono<Void> doRefreshRoutes() {
+        return loadPermanentRevision().defaultIfEmpty(REVISION_UNKNOWN).flatMap(revision -> {
+            long now = currentTimeMillis();
+            boolean fullRefreshDue = (now - lastFullRefreshTime) >= routeConfig.getForceFullRefreshMs();
+            if (revision != REVISION_UNKNOWN && revision == lastRevision && !fullRefreshDue) {
+                log.debug("Skip refresh routes, the revision is unchanged: {}", revision);
+                return Mono.empty();
+            }
+            Mono<Map<String, RouteDefinition>> memoryRoutes = getRouteDefinitions().collectMap(RouteDefinition::getId);
+            Mono<Map<String, RouteDefinition>> permanentRoutes = loadPermanentRouteDefinitions()
+                    .collectMap(RouteDefinition::getId);
+            return Mono.zip(memoryRoutes, permanentRoutes).flatMap(routes -> {
+                int changed = applyChangedRoutes(routes.getT1(), routes.getT2());
+                this.lastRevision = revision;
+                this.lastFullRefreshTime = now;
+                if (changed > 0) {
+                    log.info("Refreshed {} changed routes of revision: {}", changed, revision);
+                    publisher.publishEvent(new RefreshRoutesEvent(RefreshType.STATE));
+                }
+                return Mono.empty();
+            });
+        });
+    }
 
+    /**
+     * Update the added, modified and removed routes in memory.
+     *
+     * @return The number of changed routes.
+     */
+    private int applyChangedRoutes(Map<String, RouteDefinition> memoryRoutes, Map<String, RouteDefinition> permanentRoutes) {
+        int changed = 0;
+        // ADD or UPDATE routes.
+        for (RouteDefinition route : permanentRoutes.values()) {
+            RouteDefinition memoryRoute = memoryRoutes.get(route.getId());
+            if (isNull(memoryRoute) || !memoryRoute.equals(route)) {
+                super.save(Mono.just(route)).subscribe();
+                ++changed;
+            }
+        }
         // REMOVE routes.
-        Flux.fromIterable(newMemRoutes.keySet())
-                .filter(perRoute -> !newPermanentRoutes.containsKey(perRoute))
-                .flatMap(route -> super.delete(Mono.just(route.getId())))
-                .subscribe();
-
-        publisher.publishEvent(new RefreshRoutesEvent(RefreshType.STATE));
-        return Mono.empty();
+        for (String routeId : memoryRoutes.keySet()) {
+            if (!permanentRoutes.containsKey(routeId)) {
+                super.delete(Mono.just(routeId)).subscribe();
+                ++changed;
+            }
+        }
+        return changed;
     }
 
     /**
@@ -88,4 +170,17 @@ public abstract class AbstractRouteRepository extends InMemoryRouteDefinitionRep
      */
     protected abstract Flux<RouteDefinition> loadPermanentRouteDefinitions();
 
-}
\ No newline at end of file
+    /**
+     * Load the revision of routes configuration from persistent store, which
+     * must be increased when any route saved or deleted.
+     *
+     * @return The revision, or {@link #REVISION_UNKNOWN} if not supported,
+     *         i.e. always load and diff all the routes.
+     */
+    protected Mono<Long> loadPermanentRevision() {
+        return Mono.just(REVISION_UNKNOWN);
+    }
+
+    public static final long REVISION_UNKNOWN = -1L;
+
+}
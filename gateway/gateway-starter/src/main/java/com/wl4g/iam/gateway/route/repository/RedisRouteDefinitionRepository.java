@@ -16,53 +16,106 @@
 package com.wl4g.iam.gateway.route.repository;
 
 import static com.wl4g.iam.common.constant.GatewayIAMConstants.CACHE_PREFIX_IAM_GWTEWAY_ROUTES;
+import static com.wl4g.iam.common.constant.GatewayIAMConstants.CACHE_PREFIX_IAM_GWTEWAY_ROUTES_CHANGED;
+import static com.wl4g.iam.common.constant.GatewayIAMConstants.CACHE_PREFIX_IAM_GWTEWAY_ROUTES_REVISION;
 import static com.wl4g.infra.common.serialize.JacksonUtils.parseJSON;
 import static com.wl4g.infra.common.serialize.JacksonUtils.toJSONString;
-import static java.util.stream.Collectors.toList;
+import static java.util.Objects.nonNull;
 
+import java.time.Duration;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cloud.gateway.route.RouteDefinition;
-import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveHashOperations;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.ReactiveRedisMessageListenerContainer;
 
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
 /**
  * Redis routes information persistence class This class contains route
- * persistence and route refresh of distributed cluster.
+ * persistence and route refresh of distributed cluster. </br>
+ * </br>
+ * The saving or deleting increases the revision counter and publishes it to
+ * the changed channel, so that all the gateway nodes refresh immediately, and
+ * the periodic refresh only loads all the routes if the revision changed.
  *
  * @author James Wong<jamewong1376@gmail.com>
  * @version v1.0 2020-07-21
  * @since
  */
-public class RedisRouteDefinitionRepository extends AbstractRouteRepository {
+public class RedisRouteDefinitionRepository extends AbstractRouteRepository implements InitializingBean, DisposableBean {
+
+    private @Autowired ReactiveStringRedisTemplate redisTemplate;
+    private ReactiveRedisMessageListenerContainer listenerContainer;
+    private Disposable subscription;
 
-    private @Autowired StringRedisTemplate stringTemplate;
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (routeConfig.isChangedNotifyEnabled()) {
+            this.listenerContainer = new ReactiveRedisMessageListenerContainer(redisTemplate.getConnectionFactory());
+            this.subscription = listenerContainer.receive(ChannelTopic.of(CACHE_PREFIX_IAM_GWTEWAY_ROUTES_CHANGED))
+                    .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                    .flatMap(message -> {
+                        log.debug("Received routes changed of revision: {}", message.getMessage());
+                        return refreshRoutes().onErrorResume(e -> {
+                            log.error("Failed to refresh routes on changed.", e);
+                            return Mono.empty();
+                        });
+                    })
+                    .subscribe(null, e -> log.error("Failed to subscribe the routes changed.", e));
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (nonNull(subscription)) {
+            subscription.dispose();
+        }
+        if (nonNull(listenerContainer)) {
+            listenerContainer.destroy();
+        }
+    }
 
     @Override
     protected Flux<RouteDefinition> loadPermanentRouteDefinitions() {
-        return Flux.fromIterable(stringTemplate.opsForHash()
-                .values(CACHE_PREFIX_IAM_GWTEWAY_ROUTES)
-                .stream()
-                .map(routeDefinition -> parseJSON(routeDefinition.toString(), RouteDefinition.class))
-                .collect(toList()));
+        return getOperation().values(CACHE_PREFIX_IAM_GWTEWAY_ROUTES)
+                .map(routeDefinition -> parseJSON(routeDefinition, RouteDefinition.class));
+    }
+
+    @Override
+    protected Mono<Long> loadPermanentRevision() {
+        return redisTemplate.opsForValue().get(CACHE_PREFIX_IAM_GWTEWAY_ROUTES_REVISION).map(Long::parseLong);
     }
 
     @Override
     public Mono<Void> save(Mono<RouteDefinition> route) {
-        return route.flatMap(routeDefinition -> {
-            stringTemplate.opsForHash().put(CACHE_PREFIX_IAM_GWTEWAY_ROUTES, routeDefinition.getId(),
-                    toJSONString(routeDefinition));
-            return Mono.empty();
-        });
+        return route.flatMap(routeDefinition -> getOperation()
+                .put(CACHE_PREFIX_IAM_GWTEWAY_ROUTES, routeDefinition.getId(), toJSONString(routeDefinition))
+                .then(publishChanged()));
     }
 
     @Override
     public Mono<Void> delete(Mono<String> routeId) {
-        return routeId.flatMap(id -> {
-            stringTemplate.opsForHash().delete(CACHE_PREFIX_IAM_GWTEWAY_ROUTES, id);
-            return Mono.empty();
-        });
+        return routeId
+                .flatMap(id -> getOperation().remove(CACHE_PREFIX_IAM_GWTEWAY_ROUTES, id).then(publishChanged()));
+    }
+
+    private Mono<Void> publishChanged() {
+        return redisTemplate.opsForValue()
+                .increment(CACHE_PREFIX_IAM_GWTEWAY_ROUTES_REVISION)
+                .flatMap(revision -> redisTemplate.convertAndSend(CACHE_PREFIX_IAM_GWTEWAY_ROUTES_CHANGED, String.valueOf(revision)))
+                .then();
+    }
+
+    private ReactiveHashOperations<String, String, String> getOperation() {
+        return redisTemplate.opsForHash();
     }
 
-}
\ No newline at end of file
+}
@@ -18,7 +18,7 @@ package com.wl4g.iam.gateway.security.config;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
-import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 
 import com.wl4g.iam.common.constant.GatewayIAMConstants;
 import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
@@ -51,10 +51,10 @@ public class IamSecurityAutoConfiguration {
     @Bean
     public SimpleSignAuthingFilterFactory simpleSignAuthingFilterFactory(
             IamSecurityProperties authingConfig,
-            StringRedisTemplate stringTemplate,
+            ReactiveStringRedisTemplate reactiveStringTemplate,
             IamGatewayMetricsFacade metricsFacade,
             @Qualifier(BEAN_SIMPLE_SIGN_EVENTBUS) EventBusSupport eventBus) {
-        return new SimpleSignAuthingFilterFactory(authingConfig, stringTemplate, metricsFacade, eventBus);
+        return new SimpleSignAuthingFilterFactory(authingConfig, reactiveStringTemplate, metricsFacade, eventBus);
     }
 
     // Simple signature authorizer event recorder
@@ -48,6 +48,25 @@ public class IamSecurityProperties {
          */
         private long secretLocalCacheSeconds = 6L;
 
+        /**
+         * Refresh the cached signing key in the background when its remaining
+         * lifetime is less than this, so that the hot appIds never wait for
+         * loading from the stored.
+         */
+        private long secretRefreshAheadSeconds = 2L;
+
+        /**
+         * Local cache expiration time for the unknown appIds (the signing key
+         * not found), which avoids the invalid requests penetrating to the
+         * stored.
+         */
+        private long secretNegativeCacheSeconds = 3L;
+
+        /**
+         * Local cache maximum size of signing keys.
+         */
+        private long secretLocalCacheMaxSize = 100_000L;
+
         /**
          * Ignore authentication in JVM debug mode, often used for rapid
          * development and testing environments.
@@ -120,6 +139,29 @@ public class IamSecurityProperties {
          */
         private String cumulatorSuffixOfDatePattern = CACHE_SUFFIX_IAM_GATEWAY_EVENT_YYMMDD;
 
+        /**
+         * The interval of flushing the locally aggregated counters to
+         * redis.
+         */
+        private long flushIntervalMs = 1000L;
+
+        /**
+         * The maximum number of commands per pipeline of flushing.
+         */
+        private int flushBatchSize = 500;
+
+        /**
+         * The maximum number of locally pending counter keys, exceeding it
+         * will trigger the flush in advance.
+         */
+        private int maxPendingKeys = 100_000;
+
+        /**
+         * The expiration seconds of the date bucket accumulator hashes, 0
+         * means never expire.
+         */
+        private long cumulatorExpireSeconds = 90 * 24 * 60 * 60L;
+
     }
 
 }
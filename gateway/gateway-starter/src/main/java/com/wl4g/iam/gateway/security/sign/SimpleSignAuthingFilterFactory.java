@@ -16,7 +16,6 @@
 package com.wl4g.iam.gateway.security.sign;
 
 import static com.google.common.base.Charsets.UTF_8;
-import static com.google.common.cache.CacheBuilder.newBuilder;
 import static com.wl4g.infra.common.collection.CollectionUtils2.safeList;
 import static com.wl4g.infra.common.lang.Assert2.hasText;
 import static com.wl4g.infra.common.lang.Assert2.notNullOf;
@@ -26,20 +25,25 @@ import static java.lang.String.format;
 import static java.lang.System.nanoTime;
 import static java.security.MessageDigest.isEqual;
 import static java.util.Objects.isNull;
-import static java.util.Objects.nonNull;
-import static java.util.concurrent.TimeUnit.SECONDS;
-import static java.util.stream.Collectors.toList;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static reactor.core.publisher.Flux.just;
 
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.Principal;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 import javax.validation.constraints.NotNull;
 
 import org.apache.commons.codec.DecoderException;
@@ -51,20 +55,20 @@ import org.springframework.cloud.gateway.route.Route;
 import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.core.Ordered;
 import org.springframework.core.io.buffer.DataBuffer;
-import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.server.ServerWebExchange;
 
-import com.google.common.cache.Cache;
 import com.google.common.hash.Funnel;
-import com.google.common.hash.Hashing;
 import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
 import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsName;
 import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsTag;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.RouteCounter;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.RouteTimer;
 import com.wl4g.iam.gateway.security.config.IamSecurityProperties;
-import com.wl4g.iam.gateway.security.config.IamSecurityProperties.SecretStore;
 import com.wl4g.iam.gateway.security.sign.event.SignAuthingFailureEvent;
 import com.wl4g.iam.gateway.security.sign.event.SignAuthingSuccessEvent;
 import com.wl4g.iam.gateway.util.IamGatewayUtil;
@@ -117,22 +121,21 @@ public class SimpleSignAuthingFilterFactory extends AbstractGatewayFilterFactory
 
     private final SmartLogger log = getLogger(getClass());
     private final IamSecurityProperties authingConfig;
-    private final StringRedisTemplate redisTemplate;
-    private final Cache<String, String> secretCacheStore;
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final SimpleSignSecretProvider secretProvider;
     private final IamGatewayMetricsFacade metricsFacade;
     private final EventBusSupport eventBus;
     private final Map<String, RedisBloomFilter<String>> cachedBloomFilters = new ConcurrentHashMap<>(8);
 
     public SimpleSignAuthingFilterFactory(@NotNull IamSecurityProperties authingConfig,
-            @NotNull StringRedisTemplate redisTemplate, @NotNull IamGatewayMetricsFacade metricsFacade,
+            @NotNull ReactiveStringRedisTemplate redisTemplate, @NotNull IamGatewayMetricsFacade metricsFacade,
             EventBusSupport eventBus) {
         super(SimpleSignAuthingFilterFactory.Config.class);
         this.authingConfig = notNullOf(authingConfig, "authingConfig");
         this.redisTemplate = notNullOf(redisTemplate, "redisTemplate");
         this.metricsFacade = notNullOf(metricsFacade, "metricsFacade");
         this.eventBus = notNullOf(eventBus, "eventBus");
-        this.secretCacheStore = newBuilder().expireAfterWrite(authingConfig.getSimpleSign().getSecretLocalCacheSeconds(), SECONDS)
-                .build();
+        this.secretProvider = new SimpleSignSecretProvider(authingConfig.getSimpleSign(), redisTemplate);
     }
 
     @Override
@@ -161,6 +164,8 @@ public class SimpleSignAuthingFilterFactory extends AbstractGatewayFilterFactory
      */
     @Override
     public GatewayFilter apply(SimpleSignAuthingFilterFactory.Config config) {
+        // Precompile the hashing plan of route.
+        config.getHashingPlan();
         return new SimpleSignAuthingGatewayFilter(config);
     }
 
@@ -173,10 +178,14 @@ public class SimpleSignAuthingFilterFactory extends AbstractGatewayFilterFactory
         if (isNull(bloomFilter)) {
             synchronized (this) {
                 if (isNull(bloomFilter = cachedBloomFilters.get(routeId))) {
-                    // Initial bloom filter.
-                    bloomFilter = new RedisBloomFilter<String>(redisTemplate, new BloomConfig<>(
-                            (Funnel<String>) (from, into) -> into.putString(from, UTF_8), Integer.MAX_VALUE, 0.01));
-                    bloomFilter.bloomExpire(getBloomKey(exchange), config.getSignReplayVerifyBloomExpireSeconds());
+                    // Initial bloom filter, each slice is sized from the
+                    // expected signing rate instead of a huge fixed bitmap.
+                    bloomFilter = new RedisBloomFilter<String>(redisTemplate,
+                            new BloomConfig<>((Funnel<String>) (from, into) -> into.putString(from, UTF_8),
+                                    config.getSignReplayVerifyExpectedRate(), config.getSignReplayVerifyBloomFpp(),
+                                    config.getSignReplayVerifyBloomExpireSeconds(), config.getSignReplayVerifyBloomSlices(),
+                                    config.getSignReplayVerifyBloomMaxBytes()),
+                            config.isSignReplayVerifyLocalFrontEnabled() ? config.getSignReplayVerifyLocalFrontMaxSize() : 0);
                     cachedBloomFilters.put(routeId, bloomFilter);
                 }
             }
@@ -189,13 +198,16 @@ public class SimpleSignAuthingFilterFactory extends AbstractGatewayFilterFactory
         if (isBlank(routeId)) {
             throw new Error(format("Should't be here, cannot to get routeId"));
         }
-        return authingConfig.getSimpleSign().getSignReplayVerifyBloomLoadPrefix().concat(":").concat(routeId);
+        // Use the hash tag of redis cluster, so that all slices of the route
+        // are located in the same slot and can be checked in one script.
+        return authingConfig.getSimpleSign().getSignReplayVerifyBloomLoadPrefix().concat(":{").concat(routeId).concat("}");
     }
 
-    private byte[] doSignature(SimpleSignAuthingFilterFactory.Config config, ServerWebExchange exchange, String appId) {
-        // Load stored secret.
-        byte[] storedAppSecret = loadStoredSecret(config, appId);
-
+    private byte[] doSignature(
+            SimpleSignAuthingFilterFactory.Config config,
+            ServerWebExchange exchange,
+            byte[] storedAppSecret,
+            RouteTimer signTimer) {
         long beginTime = nanoTime();
         try {
             // Make signature plain text.
@@ -205,42 +217,7 @@ public class SimpleSignAuthingFilterFactory extends AbstractGatewayFilterFactory
             return config.getSignAlgorithm().getFunction().apply(new byte[][] { storedAppSecret, signPlainBytes });
         } finally {
             // Add time metrics.
-            addTimerMetrics(exchange, MetricsName.SIMPLE_SIGN_TIME, config, beginTime);
-        }
-    }
-
-    private byte[] loadStoredSecret(SimpleSignAuthingFilterFactory.Config config, String appId) {
-        String loadKey = authingConfig.getSimpleSign().getSecretStorePrefix().concat(":").concat(appId);
-        switch (authingConfig.getSimpleSign().getSecretStore()) {
-        case ENV:
-            String storedSecret = System.getenv(loadKey);
-            // Downgrade acquisition, for example, during integration testing,
-            // process environment variables cannot be modified.
-            storedSecret = isBlank(storedSecret) ? System.getProperty(loadKey) : null;
-            if (isBlank(storedSecret)) {
-                log.warn("No found client secret from {} via '{}'", SecretStore.ENV, loadKey);
-                throw new IllegalArgumentException(format("No enables client secret?"));
-            }
-            return storedSecret.getBytes(UTF_8);
-        case REDIS:
-            storedSecret = secretCacheStore.asMap().get(loadKey);
-            if (isBlank(storedSecret)) {
-                synchronized (loadKey) {
-                    storedSecret = secretCacheStore.asMap().get(loadKey);
-                    if (isBlank(storedSecret)) {
-                        storedSecret = redisTemplate.opsForValue().get(loadKey);
-                        if (isBlank(storedSecret)) {
-                            log.warn("No found client secret from {} via '{}'", SecretStore.REDIS, loadKey);
-                            throw new IllegalArgumentException(format("No enables client secret?"));
-                        }
-                        secretCacheStore.asMap().put(loadKey, storedSecret);
-                        return storedSecret.getBytes(UTF_8);
-                    }
-                }
-            }
-            return storedSecret.getBytes(UTF_8);
-        default:
-            throw new Error("Shouldn't be here");
+            signTimer.record(exchange, beginTime);
         }
     }
 
@@ -279,23 +256,6 @@ public class SimpleSignAuthingFilterFactory extends AbstractGatewayFilterFactory
         return chain.filter(exchange.mutate().principal(Mono.just(new SimpleSignPrincipal(appId))).request(request).build());
     }
 
-    private void addCounterMetrics(
-            ServerWebExchange exchange,
-            MetricsName metricsName,
-            SimpleSignAuthingFilterFactory.Config config) {
-        metricsFacade.counter(exchange, metricsName, 1, MetricsTag.SIGN_ALG, config.getSignAlgorithm().name(),
-                MetricsTag.SIGN_HASH, config.getSignHashingMode().name());
-    }
-
-    private void addTimerMetrics(
-            ServerWebExchange exchange,
-            MetricsName metricsName,
-            SimpleSignAuthingFilterFactory.Config config,
-            long beginNanoTime) {
-        metricsFacade.timer(exchange, metricsName, beginNanoTime, MetricsTag.SIGN_ALG, config.getSignAlgorithm().name(),
-                MetricsTag.SIGN_HASH, config.getSignHashingMode().name());
-    }
-
     private void publishSuccessEvent(String appId, SimpleSignAuthingFilterFactory.Config config, ServerWebExchange exchange) {
         eventBus.post(new SignAuthingSuccessEvent(appId, config.getAppIdExtractor(), config.getSignAlgorithm(),
                 config.getSignHashingMode(), IamGatewayUtil.getRouteId(exchange), exchange.getRequest().getURI().getPath()));
@@ -343,6 +303,46 @@ public class SimpleSignAuthingFilterFactory extends AbstractGatewayFilterFactory
          */
         private Integer signReplayVerifyBloomExpireSeconds = 7 * 24 * 60 * 60;
 
+        /**
+         * The number of time slices of the bloom filter expiration window, each
+         * slice is a separate bitmap that expires automatically, so the old
+         * signatures are rotated out instead of accumulating forever.
+         */
+        private int signReplayVerifyBloomSlices = 7;
+
+        /**
+         * The expected signed requests rate (per second) of the route, which
+         * is used to size the bitmap of each slice. The redis memory of a route
+         * is about (slices + 1) * rate * (expireSeconds / slices) * 9.6 bits
+         * at the fpp of 0.01, i.e. about 8MB with the defaults.
+         */
+        private long signReplayVerifyExpectedRate = 10;
+
+        /**
+         * The expected false positive probability of the bloom filter.
+         */
+        private double signReplayVerifyBloomFpp = 0.01;
+
+        /**
+         * The upper bound of the redis memory bytes of the bloom filter of a
+         * route (all the live slices), the slices are truncated to this bound
+         * when the expected rate is too large, at the cost of a higher false
+         * positive probability.
+         */
+        private long signReplayVerifyBloomMaxBytes = 16 * 1024 * 1024;
+
+        /**
+         * Whether to enable the local front filter of recently seen signatures,
+         * the replays hitting on the local front filter are rejected directly
+         * without round trip to redis.
+         */
+        private boolean signReplayVerifyLocalFrontEnabled = true;
+
+        /**
+         * The maximum number of signatures of the local front filter.
+         */
+        private long signReplayVerifyLocalFrontMaxSize = 100_000;
+
         /*
          * Signature parameters configuration.
          */
@@ -364,16 +364,85 @@ public class SimpleSignAuthingFilterFactory extends AbstractGatewayFilterFactory
         // Temporary fields.
         //
         @Setter(lombok.AccessLevel.NONE)
-        private transient Boolean isIncludeAll;
+        @ToString.Exclude
+        private transient SignHashingPlan hashingPlan;
 
         public boolean isIncludeAll() {
-            if (nonNull(isIncludeAll)) {
-                return isIncludeAll;
+            return getHashingPlan().isIncludeAll();
+        }
+
+        /**
+         * Gets the hashing plan resolved from this configuration, the route
+         * configuration is immutable after binding, so it is compiled once.
+         */
+        public SignHashingPlan getHashingPlan() {
+            SignHashingPlan plan = hashingPlan;
+            if (isNull(plan)) {
+                hashingPlan = plan = new SignHashingPlan(this);
             }
-            return (isIncludeAll = safeList(getSignHashingIncludeParams()).stream().anyMatch(n -> eqIgnCase("*", n)));
+            return plan;
         }
     }
 
+    /**
+     * The precompiled signature hashing plan of the route, the include/exclude
+     * parameters are resolved to sets, so that selecting the hashing parameters
+     * no longer scans the lists for each request parameter.
+     */
+    @Getter
+    @ToString
+    public static class SignHashingPlan {
+        private final boolean includeAll;
+        private final Set<String> includeParams;
+        private final Set<String> excludeParams;
+        private final Set<String> requiredIncludeParams;
+
+        SignHashingPlan(Config config) {
+            this.includeAll = safeList(config.getSignHashingIncludeParams()).stream().anyMatch(n -> eqIgnCase("*", n));
+            this.includeParams = new HashSet<>(safeList(config.getSignHashingIncludeParams()));
+            this.excludeParams = new HashSet<>(safeList(config.getSignHashingExcludeParams()));
+            this.requiredIncludeParams = new HashSet<>(safeList(config.getSignHashingRequiredIncludeParams()));
+        }
+
+        /**
+         * Gets the effective hashing parameter names (in request order) of the
+         * request query parameters.
+         */
+        String[] getEffectiveHashingParamNames(Config config, MultiValueMap<String, String> queryParams) {
+            String[] names = new String[queryParams.size()];
+            int count = 0, requiredCount = 0;
+            for (String name : queryParams.keySet()) {
+                if ((includeAll || includeParams.contains(name)) && !excludeParams.contains(name)) {
+                    names[count++] = name;
+                    if (requiredIncludeParams.contains(name)) {
+                        ++requiredCount;
+                    }
+                }
+            }
+            // Validation required parameters.
+            if (requiredCount < requiredIncludeParams.size()) {
+                throw new IllegalArgumentException(format("Parameters missing, These parameters are required: %s",
+                        config.getSignHashingRequiredIncludeParams()));
+            }
+            return count == names.length ? names : Arrays.copyOf(names, count);
+        }
+
+        /**
+         * Gets the reusable plain text builder of the current thread.
+         */
+        static StringBuilder localPlainBuilder() {
+            StringBuilder builder = LOCAL_PLAIN_BUILDER.get();
+            if (builder.capacity() > MAX_REUSE_BUILDER_CAPACITY) {
+                LOCAL_PLAIN_BUILDER.set(builder = new StringBuilder(256));
+            }
+            builder.setLength(0);
+            return builder;
+        }
+
+        private static final int MAX_REUSE_BUILDER_CAPACITY = 8192;
+        private static final ThreadLocal<StringBuilder> LOCAL_PLAIN_BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+    }
+
     @Getter
     @AllArgsConstructor
     public static enum AppIdExtractor {
@@ -402,29 +471,82 @@ public class SimpleSignAuthingFilterFactory extends AbstractGatewayFilterFactory
         private final Function<Object[], String> function;
     }
 
-    @SuppressWarnings("deprecation")
     @Getter
-    @AllArgsConstructor
     public static enum SignAlgorithm {
-        MD5(input -> Hashing.md5().hashBytes(input[1]).asBytes()),
+        MD5("MD5", false),
 
-        S1(input -> Hashing.sha1().hashBytes(input[1]).asBytes()),
+        S1("SHA-1", false),
 
-        S256(input -> Hashing.sha256().hashBytes(input[1]).asBytes()),
+        S256("SHA-256", false),
 
-        S384(input -> Hashing.sha384().hashBytes(input[1]).asBytes()),
+        S384("SHA-384", false),
 
-        S512(input -> Hashing.sha512().hashBytes(input[1]).asBytes()),
+        S512("SHA-512", false),
 
-        HMD5(input -> Hashing.hmacMd5(input[0]).hashBytes(input[1]).asBytes()),
+        HMD5("HmacMD5", true),
 
-        HS1(input -> Hashing.hmacSha1(input[0]).hashBytes(input[1]).asBytes()),
+        HS1("HmacSHA1", true),
 
-        HS256(input -> Hashing.hmacSha256(input[0]).hashBytes(input[1]).asBytes()),
+        HS256("HmacSHA256", true),
 
-        HS512(input -> Hashing.hmacSha512(input[0]).hashBytes(input[1]).asBytes());
+        HS512("HmacSHA512", true);
 
+        private final String algorithm;
+        private final boolean hmac;
         private final Function<byte[][], byte[]> function;
+        @Getter(lombok.AccessLevel.NONE)
+        private final ThreadLocal<MessageDigest> localDigest;
+        @Getter(lombok.AccessLevel.NONE)
+        private final ThreadLocal<KeyedMac> localMac;
+
+        private SignAlgorithm(String algorithm, boolean hmac) {
+            this.algorithm = algorithm;
+            this.hmac = hmac;
+            this.function = input -> sign(input[0], input[1]);
+            // The digest/mac instances are not thread-safe and expensive to
+            // create, so they are reused per thread.
+            this.localDigest = hmac ? null : ThreadLocal.withInitial(() -> {
+                try {
+                    return MessageDigest.getInstance(algorithm);
+                } catch (NoSuchAlgorithmException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            this.localMac = !hmac ? null : ThreadLocal.withInitial(() -> {
+                try {
+                    return new KeyedMac(Mac.getInstance(algorithm));
+                } catch (NoSuchAlgorithmException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        }
+
+        public byte[] sign(byte[] key, byte[] plain) {
+            if (!hmac) {
+                return localDigest.get().digest(plain);
+            }
+            KeyedMac keyedMac = localMac.get();
+            // The cached secret instance is reused, so only re-initialize the
+            // mac when the key is switched.
+            if (keyedMac.key != key) {
+                try {
+                    keyedMac.mac.init(new SecretKeySpec(key, algorithm));
+                } catch (InvalidKeyException e) {
+                    throw new IllegalArgumentException(e);
+                }
+                keyedMac.key = key;
+            }
+            return keyedMac.mac.doFinal(plain);
+        }
+
+        static class KeyedMac {
+            final Mac mac;
+            byte[] key;
+
+            KeyedMac(Mac mac) {
+                this.mac = mac;
+            }
+        }
     }
 
     @Getter
@@ -435,12 +557,12 @@ public class SimpleSignAuthingFilterFactory extends AbstractGatewayFilterFactory
             Config config = (Config) args[0];
             byte[] storedAppSecret = (byte[]) args[1];
             ServerHttpRequest request = (ServerHttpRequest) args[2];
-            Map<String, String> queryParams = request.getQueryParams().toSingleValueMap();
-            String[] params = getEffectiveHashingParamNames(config, queryParams);
-            StringBuffer signPlaintext = new StringBuffer();
-            for (Object key : params) {
-                if (!config.getSignParam().equals(key)) {
-                    signPlaintext.append(queryParams.get(key));
+            MultiValueMap<String, String> queryParams = request.getQueryParams();
+            String[] params = config.getHashingPlan().getEffectiveHashingParamNames(config, queryParams);
+            StringBuilder signPlaintext = SignHashingPlan.localPlainBuilder();
+            for (String name : params) {
+                if (!config.getSignParam().equals(name)) {
+                    signPlaintext.append(queryParams.getFirst(name));
                 }
             }
             // Add stored secret.
@@ -455,14 +577,14 @@ public class SimpleSignAuthingFilterFactory extends AbstractGatewayFilterFactory
             Config config = (Config) args[0];
             byte[] storedAppSecret = (byte[]) args[1];
             ServerHttpRequest request = (ServerHttpRequest) args[2];
-            Map<String, String> queryParams = request.getQueryParams().toSingleValueMap();
-            String[] params = getEffectiveHashingParamNames(config, queryParams);
+            MultiValueMap<String, String> queryParams = request.getQueryParams();
+            String[] params = config.getHashingPlan().getEffectiveHashingParamNames(config, queryParams);
             // ASCII sort by parameters key.
             Arrays.sort(params);
-            StringBuffer signPlaintext = new StringBuffer();
-            for (Object name : params) {
+            StringBuilder signPlaintext = SignHashingPlan.localPlainBuilder();
+            for (String name : params) {
                 if (!config.getSignParam().equals(name)) {
-                    signPlaintext.append(name).append("=").append(queryParams.get(name)).append("&");
+                    signPlaintext.append(name).append("=").append(queryParams.getFirst(name)).append("&");
                 }
             }
             // Add stored secret.
@@ -471,23 +593,6 @@ public class SimpleSignAuthingFilterFactory extends AbstractGatewayFilterFactory
         });
 
         private final Function<Object[], byte[]> function;
-
-        private static String[] getEffectiveHashingParamNames(Config config, Map<String, String> queryParams) {
-            List<String> hashingParamNames = queryParams.keySet()
-                    .stream()
-                    .filter(n -> config.isIncludeAll() || safeList(config.getSignHashingIncludeParams()).contains(n))
-                    .filter(n -> !safeList(config.getSignHashingExcludeParams()).contains(n))
-                    .collect(toList());
-
-            // Validation required parameters.
-            boolean allMatch = safeList(config.getSignHashingRequiredIncludeParams()).stream()
-                    .allMatch(p -> hashingParamNames.contains(p));
-            if (!allMatch) {
-                throw new IllegalArgumentException(format("Parameters missing, These parameters are required: %s",
-                        config.getSignHashingRequiredIncludeParams()));
-            }
-            return hashingParamNames.toArray(new String[0]);
-        }
     }
 
     @AllArgsConstructor
@@ -500,9 +605,29 @@ public class SimpleSignAuthingFilterFactory extends AbstractGatewayFilterFactory
         }
     }
 
-    @AllArgsConstructor
     class SimpleSignAuthingGatewayFilter implements GatewayFilter, Ordered {
         private final Config config;
+        private final RouteTimer signTimer;
+        private final RouteCounter successCounter;
+        private final RouteCounter failCounter;
+        private final RouteCounter bloomSuccessCounter;
+        private final RouteCounter bloomFailCounter;
+
+        SimpleSignAuthingGatewayFilter(Config config) {
+            this.config = config;
+            // Resolve the metrics handles of route.
+            String alg = config.getSignAlgorithm().name();
+            String hash = config.getSignHashingMode().name();
+            this.signTimer = metricsFacade.routeTimer(MetricsName.SIMPLE_SIGN_TIME, MetricsTag.SIGN_ALG, alg,
+                    MetricsTag.SIGN_HASH, hash);
+            this.successCounter = metricsFacade.routeCounter(MetricsName.SIMPLE_SIGN_SUCCCESS_TOTAL);
+            this.failCounter = metricsFacade.routeCounter(MetricsName.SIMPLE_SIGN_FAIL_TOTAL, MetricsTag.SIGN_ALG, alg,
+                    MetricsTag.SIGN_HASH, hash);
+            this.bloomSuccessCounter = metricsFacade.routeCounter(MetricsName.SIMPLE_SIGN_BLOOM_SUCCESS_TOTAL,
+                    MetricsTag.SIGN_ALG, alg, MetricsTag.SIGN_HASH, hash);
+            this.bloomFailCounter = metricsFacade.routeCounter(MetricsName.SIMPLE_SIGN_BLOOM_FAIL_TOTAL, MetricsTag.SIGN_ALG,
+                    alg, MetricsTag.SIGN_HASH, hash);
+        }
 
         @Override
         public int getOrder() {
@@ -535,37 +660,36 @@ public class SimpleSignAuthingFilterFactory extends AbstractGatewayFilterFactory
                 return writeResponse(HttpStatus.BAD_REQUEST, exchange, "bad_request - hint '%s'", e.getMessage());
             }
 
-            // Check replay attacks.
-            if (config.isSignReplayVerifyEnabled()) {
-                if (obtainBloomFilter(exchange, config).bloomExist(getBloomKey(exchange), sign)) {
-                    log.warn("Illegal signature locked. - sign={}, appId={}", sign, appId);
-                    addCounterMetrics(exchange, MetricsName.SIMPLE_SIGN_BLOOM_FAIL_TOTAL, config);
+            // Load stored secret (non-blocking) and verify signature.
+            final String _sign = sign, _appId = appId;
+            return secretProvider.loadSecret(appId)
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .flatMap(storedAppSecret -> verifySignature(exchange, chain, config, _sign, _appId, storedAppSecret));
+        }
 
-                    publishFailureEvent(appId, config, exchange, "illegal_signature");
-                    return writeResponse(HttpStatus.LOCKED, exchange, "illegal_signature");
-                }
+        private Mono<Void> verifySignature(
+                ServerWebExchange exchange,
+                GatewayFilterChain chain,
+                Config config,
+                String sign,
+                String appId,
+                Optional<byte[]> storedAppSecret) {
+            if (!storedAppSecret.isPresent()) {
+                publishFailureEvent(appId, config, exchange, "bad_request");
+                return writeResponse(HttpStatus.BAD_REQUEST, exchange, "bad_request - hint '%s'", "No enables client secret?");
             }
-
-            // Verify signature.
             try {
-                byte[] _sign = doSignature(config, exchange, appId);
-                if (!isEqual(_sign, Hex.decodeHex(sign.toCharArray()))) {
-                    log.warn("Invalid request sign='{}', sign='{}'", sign, Hex.encodeHexString(_sign));
-                    addCounterMetrics(exchange, MetricsName.SIMPLE_SIGN_FAIL_TOTAL, config);
+                byte[] signed = doSignature(config, exchange, storedAppSecret.get(), signTimer);
+                if (!isEqual(signed, Hex.decodeHex(sign.toCharArray()))) {
+                    log.warn("Invalid request sign='{}', sign='{}'", sign, Hex.encodeHexString(signed));
+                    failCounter.increment(exchange);
                     // Publish failure event.
                     publishFailureEvent(appId, config, exchange, "invalid_signature");
                     return writeResponse(HttpStatus.UNAUTHORIZED, exchange, "invalid_signature");
                 }
-                log.info("Verified request of path: '{}', appId='{}', sign='{}'", exchange.getRequest().getURI().getPath(), appId,
-                        sign);
-
-                metricsFacade.counter(exchange, MetricsName.SIMPLE_SIGN_SUCCCESS_TOTAL, 1);
-                if (config.isSignReplayVerifyEnabled()) {
-                    obtainBloomFilter(exchange, config).bloomAdd(getBloomKey(exchange), sign);
-                    addCounterMetrics(exchange, MetricsName.SIMPLE_SIGN_BLOOM_SUCCESS_TOTAL, config);
-                }
-
-                publishSuccessEvent(appId, config, exchange);
+                log.info("Verified request of path: '{}', appId='{}', sign='{}'", exchange.getRequest().getURI().getPath(),
+                        appId, sign);
             } catch (DecoderException e) {
                 publishFailureEvent(appId, config, exchange, "unavailable");
                 return writeResponse(HttpStatus.INTERNAL_SERVER_ERROR, exchange, "unavailable");
@@ -573,7 +697,36 @@ public class SimpleSignAuthingFilterFactory extends AbstractGatewayFilterFactory
                 publishFailureEvent(appId, config, exchange, "bad_request");
                 return writeResponse(HttpStatus.BAD_REQUEST, exchange, "bad_request - hint '%s'", e.getMessage());
             }
+            return checkReplayAndBind(exchange, chain, config, sign, appId);
+        }
+
+        private Mono<Void> checkReplayAndBind(
+                ServerWebExchange exchange,
+                GatewayFilterChain chain,
+                Config config,
+                String sign,
+                String appId) {
+            // Check replay attacks, the check and add are atomically done in
+            // one round trip, so that concurrent replays cannot both pass.
+            if (config.isSignReplayVerifyEnabled()) {
+                return obtainBloomFilter(exchange, config).bloomCheckAndAdd(getBloomKey(exchange), sign).flatMap(existed -> {
+                    if (existed) {
+                        log.warn("Illegal signature locked. - sign={}, appId={}", sign, appId);
+                        bloomFailCounter.increment(exchange);
+
+                        publishFailureEvent(appId, config, exchange, "illegal_signature");
+                        return writeResponse(HttpStatus.LOCKED, exchange, "illegal_signature");
+                    }
+                    bloomSuccessCounter.increment(exchange);
+                    return onSignVerified(exchange, chain, config, appId);
+                });
+            }
+            return onSignVerified(exchange, chain, config, appId);
+        }
 
+        private Mono<Void> onSignVerified(ServerWebExchange exchange, GatewayFilterChain chain, Config config, String appId) {
+            successCounter.increment(exchange);
+            publishSuccessEvent(appId, config, exchange);
             return bindSignedToContext(exchange, chain, config, appId);
         }
     }
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.security.sign;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.wl4g.infra.common.lang.Assert2.notNullOf;
+import static com.wl4g.infra.common.lang.FastTimeClock.currentTimeMillis;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.wl4g.iam.gateway.security.config.IamSecurityProperties.SimpleSignAuthingProperties;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking signing keys provider of {@link SimpleSignAuthingFilterFactory},
+ * the keys are loaded from the stored with reactive redis template, and cached
+ * locally with refresh-ahead (the hot appIds are refreshed in the background
+ * before expiration), the concurrent loads of the same appId are merged into
+ * one, and the unknown appIds are negatively cached for a short time.
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-06 v3.1.0
+ * @since v3.1.0
+ */
+@Slf4j
+public class SimpleSignSecretProvider {
+
+    private final SimpleSignAuthingProperties signConfig;
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final Cache<String, SecretEntry> cachedSecrets;
+    private final Map<String, Mono<SecretEntry>> loadings = new ConcurrentHashMap<>(16);
+
+    public SimpleSignSecretProvider(@NotNull SimpleSignAuthingProperties signConfig,
+            @NotNull ReactiveStringRedisTemplate redisTemplate) {
+        this.signConfig = notNullOf(signConfig, "signConfig");
+        this.redisTemplate = notNullOf(redisTemplate, "redisTemplate");
+        this.cachedSecrets = CacheBuilder.newBuilder()
+                .maximumSize(signConfig.getSecretLocalCacheMaxSize())
+                .expireAfterWrite(Math.max(signConfig.getSecretLocalCacheSeconds(), signConfig.getSecretNegativeCacheSeconds()),
+                        SECONDS)
+                .build();
+    }
+
+    /**
+     * Load the signing key of the appId.
+     *
+     * @param appId
+     * @return The signing key, or empty if not found.
+     */
+    public Mono<byte[]> loadSecret(@NotBlank String appId) {
+        String loadKey = signConfig.getSecretStorePrefix().concat(":").concat(appId);
+        long now = currentTimeMillis();
+        SecretEntry entry = cachedSecrets.getIfPresent(loadKey);
+        if (nonNull(entry) && now < entry.expireTime) {
+            if (now >= entry.refreshTime && entry.refreshing.compareAndSet(false, true)) {
+                load(loadKey).subscribe(null, e -> {
+                    entry.refreshing.set(false);
+                    log.warn("Failed to refresh the signing key of '{}', keep the previous. reason: {}", loadKey,
+                            e.getMessage());
+                });
+            }
+            return entry.toMono();
+        }
+        return load(loadKey).flatMap(SecretEntry::toMono);
+    }
+
+    private Mono<SecretEntry> load(String loadKey) {
+        return loadings.computeIfAbsent(loadKey, key -> doLoad(key).map(this::newEntry)
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    log.warn("No found client secret from {} via '{}'", signConfig.getSecretStore(), key);
+                    return newEntry(null);
+                }))
+                .doOnNext(e -> cachedSecrets.put(key, e))
+                .doFinally(signal -> loadings.remove(key))
+                .cache());
+    }
+
+    private Mono<String> doLoad(String loadKey) {
+        switch (signConfig.getSecretStore()) {
+        case ENV:
+            return Mono.fromSupplier(() -> {
+                String storedSecret = System.getenv(loadKey);
+                // Downgrade acquisition, for example, during integration
+                // testing, process environment variables cannot be modified.
+                return isBlank(storedSecret) ? System.getProperty(loadKey) : storedSecret;
+            }).filter(s -> !isBlank(s));
+        case REDIS:
+            return redisTemplate.opsForValue().get(loadKey).filter(s -> !isBlank(s));
+        default:
+            throw new Error("Shouldn't be here");
+        }
+    }
+
+    private SecretEntry newEntry(String storedSecret) {
+        long now = currentTimeMillis();
+        if (isNull(storedSecret)) {
+            long expireTime = now + signConfig.getSecretNegativeCacheSeconds() * 1000;
+            return new SecretEntry(null, expireTime, expireTime);
+        }
+        long expireTime = now + signConfig.getSecretLocalCacheSeconds() * 1000;
+        return new SecretEntry(storedSecret.getBytes(UTF_8), expireTime - signConfig.getSecretRefreshAheadSeconds() * 1000,
+                expireTime);
+    }
+
+    static class SecretEntry {
+        final byte[] secret;
+        final long refreshTime;
+        final long expireTime;
+        final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+        SecretEntry(byte[] secret, long refreshTime, long expireTime) {
+            this.secret = secret;
+            this.refreshTime = refreshTime;
+            this.expireTime = expireTime;
+        }
+
+        Mono<byte[]> toMono() {
+            return isNull(secret) ? Mono.empty() : Mono.just(secret);
+        }
+    }
+
+}
@@ -17,32 +17,49 @@ package com.wl4g.iam.gateway.security.sign.event;
 
 import static java.lang.String.valueOf;
 
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.BoundHashOperations;
 import org.springframework.data.redis.core.StringRedisTemplate;
 
 import com.google.common.eventbus.Subscribe;
 import com.wl4g.iam.gateway.security.config.IamSecurityProperties;
 import com.wl4g.iam.gateway.security.config.IamSecurityProperties.RedisEventRecorderProperties;
+import com.wl4g.iam.gateway.util.redis.RedisHashCounterBatcher;
 import com.wl4g.infra.common.lang.DateUtils2;
 
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * Redis-based signature authentication event accumulator, usually used in API
- * gateway billing business scenarios.
+ * gateway billing business scenarios. The events are aggregated locally and
+ * flushed to redis asynchronously in batches, see
+ * {@link RedisHashCounterBatcher}
  * 
  * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
  * @version 2022-04-18 v3.0.0
  * @since v3.0.0
  */
 @Slf4j
-public class DefaultRedisSignAuthingEventRecoder {
+public class DefaultRedisSignAuthingEventRecoder implements InitializingBean, DisposableBean {
     public static final String LOG_SIGN_EVENT_SUCCESS_PREFIX = "SIGN_SUCCESS_EVENT";
     public static final String LOG_SIGN_EVENT_FAILURE_PREFIX = "SIGN_FAILURE_EVENT";
 
     private @Autowired IamSecurityProperties authingConfig;
     private @Autowired StringRedisTemplate redisTemplate;
+    private RedisHashCounterBatcher batcher;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        RedisEventRecorderProperties redis = authingConfig.getSimpleSign().getEventRecorder().getRedis();
+        this.batcher = new RedisHashCounterBatcher("sign-authing-event", redisTemplate, redis.getFlushIntervalMs(),
+                redis.getFlushBatchSize(), redis.getMaxPendingKeys(), redis.getCumulatorExpireSeconds());
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        batcher.close();
+    }
 
     @Subscribe
     public void onSuccess(SignAuthingSuccessEvent event) {
@@ -50,12 +67,13 @@ public class DefaultRedisSignAuthingEventRecoder {
             return;
         }
         String appId = valueOf(event.getSource());
-        Long incr = null;
+        Long pending = null;
         try {
-            incr = getSuccessCumulator(event).increment(appId, 1);
+            RedisEventRecorderProperties redis = authingConfig.getSimpleSign().getEventRecorder().getRedis();
+            pending = batcher.increment(getCumulatorKey(redis.getSuccessCumulatorPrefix(), event), appId, 1);
         } finally {
             if (authingConfig.getSimpleSign().getEventRecorder().isLocalLogEnabled() && log.isInfoEnabled()) {
-                log.info("{} {}->{}", LOG_SIGN_EVENT_SUCCESS_PREFIX, appId, incr);
+                log.info("{} {}->pending:{}", LOG_SIGN_EVENT_SUCCESS_PREFIX, appId, pending);
             }
         }
     }
@@ -66,30 +84,20 @@ public class DefaultRedisSignAuthingEventRecoder {
             return;
         }
         String appId = valueOf(event.getSource());
-        Long incr = null;
+        Long pending = null;
         try {
-            incr = getFailureCumulator(event).increment(appId, 1);
+            RedisEventRecorderProperties redis = authingConfig.getSimpleSign().getEventRecorder().getRedis();
+            pending = batcher.increment(getCumulatorKey(redis.getFailureCumulatorPrefix(), event), appId, 1);
         } finally {
             if (authingConfig.getSimpleSign().getEventRecorder().isLocalLogEnabled() && log.isInfoEnabled()) {
-                log.info("{} {}->{}", LOG_SIGN_EVENT_FAILURE_PREFIX, appId, incr);
+                log.info("{} {}->pending:{}", LOG_SIGN_EVENT_FAILURE_PREFIX, appId, pending);
             }
         }
     }
 
-    private BoundHashOperations<String, Object, Object> getSuccessCumulator(BaseSignAuthingFailureEvent event) {
-        RedisEventRecorderProperties redis = authingConfig.getSimpleSign().getEventRecorder().getRedis();
-        String prefix = redis.getSuccessCumulatorPrefix();
-        String suffix = redis.getCumulatorSuffixOfDatePattern();
-        String key = prefix.concat(":").concat(event.getRouteId()).concat(":").concat(DateUtils2.getDate(suffix));
-        return redisTemplate.boundHashOps(key);
-    }
-
-    private BoundHashOperations<String, Object, Object> getFailureCumulator(BaseSignAuthingFailureEvent event) {
-        RedisEventRecorderProperties redis = authingConfig.getSimpleSign().getEventRecorder().getRedis();
-        String prefix = redis.getFailureCumulatorPrefix();
-        String suffix = redis.getCumulatorSuffixOfDatePattern();
-        String key = prefix.concat(":").concat(event.getRouteId()).concat(":").concat(DateUtils2.getDate(suffix));
-        return redisTemplate.boundHashOps(key);
+    private String getCumulatorKey(String prefix, BaseSignAuthingFailureEvent event) {
+        String suffix = authingConfig.getSimpleSign().getEventRecorder().getRedis().getCumulatorSuffixOfDatePattern();
+        return prefix.concat(":").concat(event.getRouteId()).concat(":").concat(DateUtils2.getDate(suffix));
     }
 
 }
@@ -32,8 +32,8 @@ import org.springframework.web.server.WebFilterChain;
 
 import com.wl4g.iam.gateway.trace.config.GrayTraceProperties;
 import com.wl4g.iam.gateway.util.IamGatewayUtil;
-import com.wl4g.infra.context.utils.web.ReactiveRequestExtractor;
-import com.wl4g.infra.context.web.matcher.SpelRequestMatcher;
+import com.wl4g.iam.gateway.util.matcher.CompiledRequestMatcher;
+import com.wl4g.iam.gateway.util.matcher.RequestMatcherEngine;
 
 import lombok.CustomLog;
 import reactor.core.publisher.Mono;
@@ -68,14 +68,16 @@ import reactor.core.publisher.Mono;
 public class GrayTraceWebFilter extends TraceWebFilter {
 
     private final GrayTraceProperties grayTraceConfig;
-    private final SpelRequestMatcher requestMatcher;
+    private final CompiledRequestMatcher requestMatcher;
 
     public GrayTraceWebFilter(GrayTraceProperties grayTraceConfig, Tracer tracer, HttpServerHandler handler,
-            CurrentTraceContext currentTraceContext) {
+            CurrentTraceContext currentTraceContext, RequestMatcherEngine requestMatcherEngine) {
         super(tracer, handler, currentTraceContext);
         this.grayTraceConfig = notNullOf(grayTraceConfig, "grayTraceConfig");
-        // Build canary request matcher.
-        this.requestMatcher = new SpelRequestMatcher(grayTraceConfig.getPreferMatchRuleDefinitions());
+        // Build canary request matcher and pre-compile expression.
+        this.requestMatcher = notNullOf(requestMatcherEngine, "requestMatcherEngine").compile(
+                RequestMatcherEngine.MATCHER_TRACE, grayTraceConfig.getPreferMatchRuleDefinitions(),
+                grayTraceConfig.getPreferOpenMatchExpression());
     }
 
     @Override
@@ -110,8 +112,7 @@ public class GrayTraceWebFilter extends TraceWebFilter {
         if (!grayTraceConfig.isEnabled()) {
             return false;
         }
-        return requestMatcher.matches(new ReactiveRequestExtractor(exchange.getRequest()),
-                grayTraceConfig.getPreferOpenMatchExpression());
+        return requestMatcher.matches(exchange, grayTraceConfig.getPreferOpenMatchExpression());
     }
 
     protected Tracer getTracer() {
@@ -60,6 +60,7 @@ import org.springframework.web.reactive.HandlerAdapter;
 import org.springframework.web.reactive.function.server.support.HandlerFunctionAdapter;
 
 import com.wl4g.iam.gateway.trace.GrayTraceWebFilter;
+import com.wl4g.iam.gateway.util.matcher.RequestMatcherEngine;
 
 import io.opentelemetry.instrumentation.api.instrumenter.http.HttpClientAttributesGetter;
 import io.opentelemetry.instrumentation.api.instrumenter.http.HttpServerAttributesGetter;
@@ -99,9 +100,10 @@ public class GrayTraceAutoConfiguration {
             Tracer tracer,
             HttpServerHandler httpServerHandler,
             CurrentTraceContext currentTraceContext,
-            SleuthWebProperties sleuthWebProperties) {
+            SleuthWebProperties sleuthWebProperties,
+            RequestMatcherEngine requestMatcherEngine) {
         GrayTraceWebFilter traceWebFilter = new GrayTraceWebFilter(grayTraceConfig, tracer, httpServerHandler,
-                currentTraceContext);
+                currentTraceContext, requestMatcherEngine);
         traceWebFilter.setOrder(sleuthWebProperties.getFilterOrder());
         return traceWebFilter;
     }
@@ -18,6 +18,8 @@ package com.wl4g.iam.gateway.traffic;
 import static com.wl4g.infra.common.collection.CollectionUtils2.safeList;
 import static com.wl4g.infra.common.lang.Assert2.notNullOf;
 import static java.lang.String.format;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 import static org.apache.commons.lang3.StringUtils.equalsAnyIgnoreCase;
 import static org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter.filterRequest;
 import static org.springframework.cloud.gateway.support.RouteMetadataUtils.CONNECT_TIMEOUT_ATTR;
@@ -29,32 +31,23 @@ import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.P
 import java.net.URI;
 import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.function.Function;
 
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.cloud.gateway.config.HttpClientCustomizer;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
-import org.springframework.cloud.gateway.filter.factory.rewrite.CachedBodyOutputMessage;
 import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
-import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter.Type;
 import org.springframework.cloud.gateway.route.Route;
-import org.springframework.cloud.gateway.support.BodyInserterContext;
 import org.springframework.cloud.gateway.support.TimeoutException;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.ReactiveHttpOutputMessage;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
-import org.springframework.util.StringUtils;
-import org.springframework.web.reactive.function.BodyInserter;
-import org.springframework.web.reactive.function.BodyInserters;
-import org.springframework.web.reactive.function.server.HandlerStrategies;
-import org.springframework.web.reactive.function.server.ServerRequest;
-import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.server.ServerWebExchange;
 
 import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
@@ -63,13 +56,13 @@ import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsTag;
 import com.wl4g.iam.gateway.traffic.config.TrafficProperties;
 import com.wl4g.iam.gateway.traffic.config.TrafficProperties.ReplicationProperties;
 import com.wl4g.iam.gateway.util.IamGatewayUtil;
+import com.wl4g.iam.gateway.util.http.DataBufferCapture;
 import com.wl4g.iam.gateway.util.http.ReactiveHttpClientBuilder;
 import com.wl4g.infra.common.bean.ConfigBeanUtils;
 
 import io.netty.channel.ChannelOption;
 import io.netty.handler.codec.http.DefaultHttpHeaders;
 import io.netty.handler.codec.http.HttpMethod;
-import lombok.AllArgsConstructor;
 import lombok.CustomLog;
 import lombok.Getter;
 import lombok.Setter;
@@ -133,10 +126,15 @@ public class TrafficReplicationFilterFactory extends AbstractGatewayFilterFactor
     public static class Config extends ReplicationProperties {
     }
 
-    @AllArgsConstructor
-    class TrafficReplicationGatewayFilter implements GatewayFilter {
+    class TrafficReplicationGatewayFilter implements GatewayFilter, TrafficReplicationQueue.Listener {
         private final Config config;
         private final HttpClient customizedRouteBasedHttpClient;
+        private final Map<String, TrafficReplicationQueue> replicationQueues = new ConcurrentHashMap<>(4);
+
+        TrafficReplicationGatewayFilter(Config config, HttpClient customizedRouteBasedHttpClient) {
+            this.config = config;
+            this.customizedRouteBasedHttpClient = customizedRouteBasedHttpClient;
+        }
 
         @Override
         public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
@@ -149,26 +147,41 @@ public class TrafficReplicationFilterFactory extends AbstractGatewayFilterFactor
             }
 
             // Add metrics of total.
-            metricsFacade.counter(exchange, MetricsName.TRAFFIC_REPLICATION_TOTAL, 1, MetricsTag.ROUTE_ID,
-                    IamGatewayUtil.getRouteId(exchange));
-
-            return decorateRequest(exchange, chain, body -> {
-                // Replication image requests.
-                try {
-                    safeList(config.getTargetUris()).forEach(targetUri -> {
-                        try {
-                            doAsyncReplicationRequest(exchange, body, targetUri);
-                        } catch (Exception e) {
-                            log.warn(format("Failed to replication traffic mirror for request uri: '{}' to target uri: '{}'",
-                                    exchange.getRequest().getURI(), targetUri), e);
-                        }
-                    });
-                } catch (Exception e) {
-                    log.warn(format("Failed to replication traffic mirror for request uri: '%s'", exchange.getRequest().getURI()),
-                            e);
-                }
-                return Mono.just(body);
-            });
+            String routeId = IamGatewayUtil.getRouteId(exchange);
+            metricsFacade.counter(exchange, MetricsName.TRAFFIC_REPLICATION_TOTAL, 1, MetricsTag.ROUTE_ID, routeId);
+
+            HttpHeaders headers = exchange.getRequest().getHeaders();
+            if (isBodiless(exchange.getRequest())) {
+                // No request body, replicate immediately.
+                submitReplications(exchange, routeId, EMPTY_BODY);
+                return chain.filter(exchange);
+            }
+            long maxBodySize = config.getMaxBodySize().toBytes();
+            if (headers.getContentLength() > maxBodySize) {
+                dropped(routeId, ALL_TARGETS, DROP_REASON_BODY_TOO_LARGE);
+                return chain.filter(exchange);
+            }
+            return chain.filter(exchange.mutate()
+                    .request(decorateRequest(exchange, routeId, new DataBufferCapture((int) Math.min(maxBodySize,
+                            Integer.MAX_VALUE))))
+                    .build());
+        }
+
+        @Override
+        public void onDropped(TrafficReplicationQueue queue) {
+            dropped(queue.getRouteId(), queue.getTargetUri(), DROP_REASON_QUEUE_FULL);
+        }
+
+        @Override
+        public void onDequeued(TrafficReplicationQueue queue, long enqueueNanoTime) {
+            metricsFacade.timer(MetricsName.TRAFFIC_REPLICATION_LAG_TIME, queue.getRouteId(), enqueueNanoTime,
+                    MetricsTag.TRAFFIC_TARGET, queue.getTargetUri());
+        }
+
+        private void dropped(String routeId, String targetUri, String reason) {
+            log.debug("Dropped replication of routeId: {}, targetUri: {}, reason: {}", routeId, targetUri, reason);
+            metricsFacade.counter(MetricsName.TRAFFIC_REPLICATION_DROPPED_TOTAL, routeId, 1, MetricsTag.TRAFFIC_TARGET, targetUri,
+                    MetricsTag.TRAFFIC_DROP_REASON, reason);
         }
 
         private boolean isReplicationWithPercentage(Config config) {
@@ -178,172 +191,106 @@ public class TrafficReplicationFilterFactory extends AbstractGatewayFilterFactor
         }
 
         /**
-         * Refer to
-         * {@link org.springframework.cloud.gateway.filter.NettyRoutingFilter#filter()},
-         * the request forwarding logic of mirror traffic should be consistent
-         * with it.
+         * Submit the replication requests of all the targets to their queues,
+         * the replication request snapshots the necessary request data, so
+         * that the exchange is not retained while queuing.
          */
-        private void doAsyncReplicationRequest(ServerWebExchange exchange, byte[] body, String targetUri) {
-            ServerHttpRequest request = exchange.getRequest();
-            HttpMethod method = HttpMethod.valueOf(request.getMethodValue());
-
-            HttpHeaders filtered = filterRequest(getHeadersFilters(), exchange);
-            DefaultHttpHeaders httpHeaders = new DefaultHttpHeaders();
-            filtered.forEach(httpHeaders::set);
-
-            boolean preserveHost = exchange.getAttributeOrDefault(PRESERVE_HOST_HEADER_ATTRIBUTE, false);
-            Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
-
-            Flux<HttpClientResponse> responseFlux = getCustomizedRouteBasedHttpClient(route, exchange).headers(headers -> {
-                headers.add(httpHeaders);
+        private void submitReplications(ServerWebExchange exchange, String routeId, byte[] body) {
+            try {
+                ServerHttpRequest request = exchange.getRequest();
+                HttpMethod method = HttpMethod.valueOf(request.getMethodValue());
+                String requestUri = request.getURI().toString();
+
+                HttpHeaders filtered = filterRequest(getHeadersFilters(), exchange);
+                DefaultHttpHeaders httpHeaders = new DefaultHttpHeaders();
+                filtered.forEach(httpHeaders::set);
                 // Will either be set below, or later by Netty
-                headers.remove(HttpHeaders.HOST);
+                httpHeaders.remove(HttpHeaders.HOST);
+                boolean preserveHost = exchange.getAttributeOrDefault(PRESERVE_HOST_HEADER_ATTRIBUTE, false);
                 if (preserveHost) {
-                    String host = request.getHeaders().getFirst(HttpHeaders.HOST);
-                    headers.add(HttpHeaders.HOST, host);
+                    httpHeaders.add(HttpHeaders.HOST, request.getHeaders().getFirst(HttpHeaders.HOST));
                 }
-            }).request(method).uri(targetUri).send((req, nettyOutbound) -> {
-                if (log.isTraceEnabled()) {
-                    nettyOutbound.withConnection(connection -> log.trace("Image request outbound route: {}, inbound: {}",
-                            connection.channel().id().asShortText(), exchange.getLogPrefix()));
-                }
-                //
-                // Note: Solve the problem that the byte stream data of the
-                // request body can only be read once.
-                //
-                // return
-                // nettyOutbound.send(request.getBody().map(this::getByteBuf));
-                return nettyOutbound.sendByteArray(Mono.just(body));
-            }).responseConnection((res, connection) -> {
-                //
-                // Note: Non actual forwarding requests, no need to set response
-                // headers.
-                //
-                // Defer committing the response until all route filters have
-                // run Put client response as ServerWebExchange attribute and
-                // write response later NettyWriteResponseFilter
-                // exchange.getAttributes().put(CLIENT_RESPONSE_ATTR, res);
-                // exchange.getAttributes().put(CLIENT_RESPONSE_CONN_ATTR,connection);
-                // ServerHttpResponse response = exchange.getResponse();
-
-                // put headers and status so filters can modify the response
-                HttpHeaders headers = new HttpHeaders();
-                res.responseHeaders().forEach(entry -> headers.add(entry.getKey(), entry.getValue()));
-
-                String contentTypeValue = headers.getFirst(HttpHeaders.CONTENT_TYPE);
-                if (StringUtils.hasLength(contentTypeValue)) {
-                    //
-                    // Note: Non actual forwarding requests, no need to set
-                    // response headers.
-                    //
-                    // exchange.getAttributes().put(ORIGINAL_RESPONSE_CONTENT_TYPE_ATTR,contentTypeValue);
-                }
-                int statusCode = getResponseStatusCode(res, targetUri);
-
-                // make sure headers filters run after setting status so it is
-                // available in response
-                HttpHeaders filteredResponseHeaders = HttpHeadersFilter.filter(getHeadersFilters(), headers, exchange,
-                        Type.RESPONSE);
-                log.debug("Replication request URI: {}, response statusCode: {}, headers: {}", request.getURI(), statusCode,
-                        filteredResponseHeaders);
-
-                //
-                // Note: Non actual forwarding requests, no need to set response
-                // headers.
-                //
-                // if
-                // (!filteredResponseHeaders.containsKey(HttpHeaders.TRANSFER_ENCODING)&&
-                // filteredResponseHeaders.containsKey(HttpHeaders.CONTENT_LENGTH)){
-                // // It is not valid to have both the transfer-encoding header
-                // // and the content-length header.
-                // // Remove the transfer-encoding header in the response if
-                // // the content-length header is present.
-                // response.getHeaders().remove(HttpHeaders.TRANSFER_ENCODING);
-                // }
-                // //
-                // exchange.getAttributes().put(CLIENT_RESPONSE_HEADER_NAMES,filteredResponseHeaders.keySet());
-                // // response.getHeaders().putAll(filteredResponseHeaders);
-
-                return Mono.just(res);
-            });
-
-            Duration responseTimeout = getResponseTimeout(route);
-            if (responseTimeout != null) {
-                responseFlux = responseFlux
-                        .timeout(responseTimeout,
-                                Mono.error(new TimeoutException(
-                                        "Replication response took longer than timeout: " + responseTimeout)))
-                        .onErrorMap(TimeoutException.class,
-                                th -> new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, th.getMessage(), th));
+
+                Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+                HttpClient httpClient = getCustomizedRouteBasedHttpClient(route, exchange);
+                Duration responseTimeout = getResponseTimeout(route);
+
+                safeList(config.getTargetUris()).forEach(targetUri -> obtainReplicationQueue(routeId, targetUri)
+                        .submit(() -> doReplicationRequest(httpClient, method, httpHeaders, body, requestUri, targetUri,
+                                responseTimeout)));
+            } catch (Exception e) {
+                log.warn(format("Failed to replication traffic mirror for request uri: '%s'", exchange.getRequest().getURI()),
+                        e);
             }
+        }
 
-            responseFlux.subscribe(response -> {
-                log.debug("Replication request success for URI: {}, response: {}", request.getURI(), response);
-            }, ex -> {
-                log.debug("Replication request error for URI: {}", request.getURI());
-            }, () -> {
-                log.debug("Replication request completion for URI: {}", request.getURI());
-            });
+        private TrafficReplicationQueue obtainReplicationQueue(String routeId, String targetUri) {
+            String key = routeId.concat(" ").concat(targetUri);
+            TrafficReplicationQueue queue = replicationQueues.get(key);
+            if (isNull(queue)) {
+                queue = replicationQueues.computeIfAbsent(key, _key -> new TrafficReplicationQueue(routeId, targetUri,
+                        config.getQueueCapacity(), config.getMaxInflight(), config.getOverflowPolicy(), this));
+            }
+            return queue;
         }
 
         /**
-         * The request object decorated as an editable request body to solve the
-         * problem that the request body can only be read once.
+         * Refer to
+         * {@link org.springframework.cloud.gateway.filter.NettyRoutingFilter#filter()},
+         * the request forwarding logic of mirror traffic should be consistent
+         * with it. The response body is drained (and released) but not
+         * aggregated.
+         */
+        private Mono<Void> doReplicationRequest(
+                HttpClient httpClient,
+                HttpMethod method,
+                DefaultHttpHeaders httpHeaders,
+                byte[] body,
+                String requestUri,
+                String targetUri,
+                Duration responseTimeout) {
+            Mono<Integer> responseMono = httpClient.headers(headers -> headers.add(httpHeaders))
+                    .request(method)
+                    .uri(targetUri)
+                    .send((req, nettyOutbound) -> nettyOutbound.sendByteArray(Mono.just(body)))
+                    .response((res, resBody) -> resBody.then(Mono.just(getResponseStatusCode(res, targetUri))))
+                    .next();
+
+            if (nonNull(responseTimeout)) {
+                responseMono = responseMono.timeout(responseTimeout, Mono.error(
+                        new TimeoutException("Replication response took longer than timeout: " + responseTimeout)));
+            }
+            return responseMono.doOnNext(statusCode -> log.debug(
+                    "Replication request success for URI: {}, target uri: {}, response statusCode: {}", requestUri, targetUri,
+                    statusCode)).then();
+        }
+
+        /**
+         * The request object decorated to copy the request body chunks
+         * (tee-style) while streaming to the upstream, and submit the
+         * replications once the body completed.
          * 
-         * @see {@link com.wl4g.iam.gateway.logging.RequestLoggingGlobalFilter#decorateRequest()}
-         * @see {@link org.springframework.cloud.gateway.filter.factory.rewrite.ModifyRequestBodyGatewayFilterFactory#apply()}
-         *
          * @param exchange
-         * @param chain
-         * @param transformer
+         * @param routeId
+         * @param capture
          * @return
          */
-        private Mono<Void> decorateRequest(
-                ServerWebExchange exchange,
-                GatewayFilterChain chain,
-                Function<? super byte[], ? extends Mono<? extends byte[]>> transformer) {
-
-            // Tip: String type can also be used.
-            // Class<String> inClass = String.class;
-            // Class<String> outClass = String.class;
-            Class<byte[]> inClass = byte[].class;
-            Class<byte[]> outClass = byte[].class;
-            ServerRequest serverRequest = ServerRequest.create(exchange, HandlerStrategies.withDefaults().messageReaders());
-
-            // ServerRequest serverRequest = new
-            // org.springframework.cloud.gateway.support.DefaultServerRequest(exchange);
-            Mono<byte[]> modifiedBody = serverRequest.bodyToMono(inClass).flatMap(transformer);
-
-            BodyInserter<Mono<byte[]>, ReactiveHttpOutputMessage> bodyInserter = BodyInserters.fromPublisher(modifiedBody,
-                    outClass);
-            HttpHeaders newHeaders = new HttpHeaders();
-            newHeaders.putAll(exchange.getRequest().getHeaders());
-            newHeaders.remove(HttpHeaders.CONTENT_LENGTH);
-
-            CachedBodyOutputMessage outputMessage = new CachedBodyOutputMessage(exchange, newHeaders);
-            ServerHttpRequestDecorator decorator = new ServerHttpRequestDecorator(exchange.getRequest()) {
-                @Override
-                public HttpHeaders getHeaders() {
-                    long contentLength = newHeaders.getContentLength();
-                    HttpHeaders _newHeaders = new HttpHeaders();
-                    _newHeaders.putAll(newHeaders);
-                    if (contentLength > 0) {
-                        _newHeaders.setContentLength(contentLength);
-                    } else {
-                        _newHeaders.set(HttpHeaders.TRANSFER_ENCODING, "chunked");
-                    }
-                    return _newHeaders;
-                }
-
+        private ServerHttpRequest decorateRequest(ServerWebExchange exchange, String routeId, DataBufferCapture capture) {
+            return new ServerHttpRequestDecorator(exchange.getRequest()) {
                 @Override
                 public Flux<DataBuffer> getBody() {
-                    return outputMessage.getBody();
+                    return super.getBody().doOnNext(capture::append).doOnComplete(() -> {
+                        byte[] body = capture.toBytesAndRelease();
+                        if (nonNull(body)) {
+                            submitReplications(exchange, routeId, body);
+                        } else if (capture.isAborted()) {
+                            dropped(routeId, ALL_TARGETS, DROP_REASON_BODY_TOO_LARGE);
+                        }
+                        // Otherwise the body is re-subscribed (e.g. retry)
+                        // and already replicated.
+                    }).doFinally(signal -> capture.release());
                 }
             };
-
-            return bodyInserter.insert(outputMessage, new BodyInserterContext())
-                    .then(Mono.defer(() -> chain.filter(exchange.mutate().request(decorator).build())))
-                    .onErrorResume((Function<Throwable, Mono<Void>>) ex -> Mono.error(ex));
         }
 
         private List<HttpHeadersFilter> getHeadersFilters() {
@@ -412,5 +359,24 @@ public class TrafficReplicationFilterFactory extends AbstractGatewayFilterFactor
         }
     }
 
+    /**
+     * Whether the request has no body. The HTTP/2 request body may be framed
+     * without 'Content-Length' or 'Transfer-Encoding', so unless the length is
+     * declared, only the request of the methods that have no body semantics
+     * is treated as bodiless.
+     */
+    static boolean isBodiless(ServerHttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        long contentLength = headers.getContentLength();
+        if (contentLength >= 0 || headers.containsKey(HttpHeaders.TRANSFER_ENCODING)) {
+            return contentLength == 0;
+        }
+        return equalsAnyIgnoreCase(request.getMethodValue(), "GET", "HEAD", "OPTIONS", "TRACE");
+    }
+
     public static final String BEAN_NAME = "TrafficReplicator";
+    private static final byte[] EMPTY_BODY = new byte[0];
+    private static final String ALL_TARGETS = "*";
+    private static final String DROP_REASON_QUEUE_FULL = "queueFull";
+    private static final String DROP_REASON_BODY_TOO_LARGE = "bodyTooLarge";
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.traffic;
+
+import static com.wl4g.infra.common.lang.Assert2.hasTextOf;
+import static com.wl4g.infra.common.lang.Assert2.isTrue;
+import static com.wl4g.infra.common.lang.Assert2.notNullOf;
+import static java.lang.System.nanoTime;
+import static java.util.Objects.isNull;
+
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import com.wl4g.iam.gateway.traffic.config.TrafficProperties.OverflowPolicy;
+
+import lombok.CustomLog;
+import lombok.Getter;
+import reactor.core.publisher.Mono;
+
+/**
+ * The bounded replication queue of one target of the route, at most
+ * {@code maxInflight} replication requests are executing concurrently and the
+ * others are waiting in the queue, when the queue is full, the oldest or the
+ * newest replication is dropped according to the {@link OverflowPolicy}, so
+ * the slow target never piles up the memory and connections.
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+@CustomLog
+@Getter
+public class TrafficReplicationQueue {
+
+    private final String routeId;
+    private final String targetUri;
+    private final int maxInflight;
+    private final OverflowPolicy overflowPolicy;
+    private final Queue<Task> queue;
+    private final AtomicInteger inflight = new AtomicInteger(0);
+    private final Listener listener;
+
+    public TrafficReplicationQueue(String routeId, String targetUri, int capacity, int maxInflight,
+            OverflowPolicy overflowPolicy, Listener listener) {
+        isTrue(capacity > 0, "capacity must be greater than 0");
+        isTrue(maxInflight > 0, "maxInflight must be greater than 0");
+        this.routeId = hasTextOf(routeId, "routeId");
+        this.targetUri = hasTextOf(targetUri, "targetUri");
+        this.maxInflight = maxInflight;
+        this.overflowPolicy = notNullOf(overflowPolicy, "overflowPolicy");
+        this.listener = notNullOf(listener, "listener");
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Submit the replication, which never blocks the caller.
+     *
+     * @param request
+     *            The replication request, which is executed lazily when
+     *            dequeued.
+     * @return Whether the replication is accepted, i.e. false if the newest is
+     *         dropped.
+     */
+    public boolean submit(Supplier<Mono<Void>> request) {
+        Task task = new Task(request, nanoTime());
+        while (!queue.offer(task)) {
+            if (overflowPolicy == OverflowPolicy.DROP_NEWEST) {
+                listener.onDropped(this);
+                return false;
+            }
+            if (!isNull(queue.poll())) {
+                listener.onDropped(this);
+            }
+        }
+        drain();
+        return true;
+    }
+
+    public int getPending() {
+        return queue.size();
+    }
+
+    private void drain() {
+        for (;;) {
+            int current = inflight.get();
+            if (current >= maxInflight || queue.isEmpty()) {
+                return;
+            }
+            if (!inflight.compareAndSet(current, current + 1)) {
+                continue;
+            }
+            Task task = queue.poll();
+            if (isNull(task)) {
+                inflight.decrementAndGet();
+                // The tasks may be enqueued after polled.
+                if (queue.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+            listener.onDequeued(this, task.getEnqueueNanoTime());
+            Mono<Void> replication;
+            try {
+                replication = task.getRequest().get();
+            } catch (Exception e) {
+                log.warn("Failed to create replication request to target uri: {}. - {}", targetUri, e.getMessage());
+                replication = Mono.empty();
+            }
+            replication.doFinally(signal -> {
+                inflight.decrementAndGet();
+                drain();
+            }).subscribe(null, e -> log.debug("Replication request error to target uri: {}. - {}", targetUri, e.getMessage()));
+        }
+    }
+
+    @Getter
+    static class Task {
+        private final Supplier<Mono<Void>> request;
+        private final long enqueueNanoTime;
+
+        Task(Supplier<Mono<Void>> request, long enqueueNanoTime) {
+            this.request = request;
+            this.enqueueNanoTime = enqueueNanoTime;
+        }
+    }
+
+    public static interface Listener {
+
+        /**
+         * Called when a replication is dropped since the queue is full.
+         */
+        void onDropped(TrafficReplicationQueue queue);
+
+        /**
+         * Called when a replication begins executing, i.e. the lagging since
+         * enqueued.
+         */
+        void onDequeued(TrafficReplicationQueue queue, long enqueueNanoTime);
+    }
+
+}
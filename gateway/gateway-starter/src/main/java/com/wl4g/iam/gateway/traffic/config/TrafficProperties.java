@@ -62,6 +62,30 @@ public class TrafficProperties {
          */
         private double percentage = 1d;
 
+        /**
+         * The maximum number of the replications waiting in the queue of each
+         * target (per route).
+         */
+        private int queueCapacity = 1000;
+
+        /**
+         * The maximum number of the concurrently executing replications of
+         * each target (per route).
+         */
+        private int maxInflight = 64;
+
+        /**
+         * The policy of dropping the replications when the queue is full.
+         */
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_NEWEST;
+
+        /**
+         * The maximum request body size to be replicated, the larger requests
+         * are forwarded to the upstream only. The body is copied while
+         * streaming to the upstream, instead of being aggregated in advance.
+         */
+        private DataSize maxBodySize = DataSize.ofMegabytes(1);
+
         /** Enables wiretap debugging for Netty HttpClient. */
         private boolean wiretap = false;
 
@@ -100,4 +124,8 @@ public class TrafficProperties {
         }
     }
 
+    public static enum OverflowPolicy {
+        DROP_OLDEST, DROP_NEWEST;
+    }
+
 }
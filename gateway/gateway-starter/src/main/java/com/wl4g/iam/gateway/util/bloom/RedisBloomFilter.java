@@ -15,19 +15,34 @@
  */
 package com.wl4g.iam.gateway.util.bloom;
 
+import static com.wl4g.infra.common.lang.Assert2.isTrue;
 import static com.wl4g.infra.common.lang.Assert2.notNullOf;
+import static com.wl4g.infra.common.lang.FastTimeClock.currentTimeMillis;
 import static com.wl4g.infra.common.log.SmartLoggerFactory.getLogger;
+import static java.util.Objects.nonNull;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
-import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.List;
 
+import javax.annotation.Nullable;
 import javax.validation.constraints.NotNull;
 
-import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scripting.support.ResourceScriptSource;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.hash.Funnel;
 import com.google.common.hash.Hashing;
 import com.wl4g.infra.common.log.SmartLogger;
 
+import lombok.Getter;
+import reactor.core.publisher.Mono;
+
 /**
  * {@link RedisBloomFilter}
  * 
@@ -78,6 +93,14 @@ import com.wl4g.infra.common.log.SmartLogger;
  * Counting Bloom Filter can be used
  * </p>
  * 
+ * <p>
+ * 4. The bitmap is time-sliced into rotating keys (e.g.
+ * {@code prefix:{routeId}:19145}), each slice is sized from the expected
+ * insertion rate and expires automatically, and the check of all live slices
+ * and the add to the current slice is done atomically in one round trip of
+ * Lua script, see: {@link #bloomCheckAndAdd(String, Object)}
+ * </p>
+ * 
  * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
  * @version 2021-09-05 v3.0.0
  * @since v3.0.0
@@ -85,75 +108,94 @@ import com.wl4g.infra.common.log.SmartLogger;
 public class RedisBloomFilter<T> {
 
     private final SmartLogger log = getLogger(getClass());
-    // TODO use ReactiveStringRedisTemplate
-    private final StringRedisTemplate redisTemplate;
+    private final ReactiveStringRedisTemplate redisTemplate;
     private final BloomConfig<T> bloomConfig;
+    private final @Nullable Cache<T, Boolean> localFrontFilter;
 
-    public RedisBloomFilter(@NotNull StringRedisTemplate redisTemplate, @NotNull BloomConfig<T> bloomConfig) {
-        this.redisTemplate = notNullOf(redisTemplate, "redisTemplate");
-        this.bloomConfig = notNullOf(bloomConfig, "bloomConfig");
+    public RedisBloomFilter(@NotNull ReactiveStringRedisTemplate redisTemplate, @NotNull BloomConfig<T> bloomConfig) {
+        this(redisTemplate, bloomConfig, 0);
     }
 
     /**
-     * Add value based on given bloom filter configuration.
-     * 
-     * @param key
-     * @param value
+     * @param redisTemplate
+     * @param bloomConfig
+     * @param localFrontMaxSize
+     *            The maximum size of the local front filter of recently added
+     *            values (which will be rejected directly without round trip to
+     *            redis), less than or equal to 0 means disabled.
      */
-    public void bloomAdd(String key, T value) {
-        log.debug("bloomAdd {}: {}", key, value);
-
-        int[] offset = bloomConfig.murmurHashOffset(value);
-        for (int i : offset) {
-            redisTemplate.opsForValue().setBit(key, i, true);
+    public RedisBloomFilter(@NotNull ReactiveStringRedisTemplate redisTemplate, @NotNull BloomConfig<T> bloomConfig,
+            long localFrontMaxSize) {
+        this.redisTemplate = notNullOf(redisTemplate, "redisTemplate");
+        this.bloomConfig = notNullOf(bloomConfig, "bloomConfig");
+        this.localFrontFilter = localFrontMaxSize <= 0 ? null
+                : CacheBuilder.newBuilder()
+                        .maximumSize(localFrontMaxSize)
+                        .expireAfterWrite(bloomConfig.getWindowSeconds(), SECONDS)
+                        .build();
+        if (bloomConfig.isBounded()) {
+            log.warn("The bloom filter slices are bounded to {} bytes, the false positive probability will be higher.",
+                    bloomConfig.getMemoryBytes());
         }
     }
 
     /**
-     * Determines whether a value exists based on the given bloom filter
+     * Atomically check whether the value exists in any of the live slices and
+     * add it to the current slice if not, based on the given bloom filter
      * configuration.
      * 
      * @param key
+     *            The base key of the slices.
      * @param value
+     * @return Whether the value (probably) already existed before.
      */
-    public boolean bloomExist(String key, T value) {
-        log.debug("bloomExist {}: {}", key, value);
+    public Mono<Boolean> bloomCheckAndAdd(String key, T value) {
+        log.debug("bloomCheckAndAdd {}: {}", key, value);
 
-        int[] offset = bloomConfig.murmurHashOffset(value);
-        for (int i : offset) {
-            if (!redisTemplate.opsForValue().getBit(key, i)) {
-                return false;
-            }
+        // Short-circuit the obvious replays seen by this node.
+        if (nonNull(localFrontFilter) && nonNull(localFrontFilter.getIfPresent(value))) {
+            return Mono.just(true);
+        }
+
+        long currentSlice = currentTimeMillis() / 1000 / bloomConfig.getSliceSeconds();
+        List<String> keys = new ArrayList<>(bloomConfig.getSlices() + 1);
+        for (int i = 0; i <= bloomConfig.getSlices(); i++) {
+            keys.add(getSliceKey(key, currentSlice - i));
+        }
+        int[] offsets = bloomConfig.murmurHashOffset(value);
+        List<String> args = new ArrayList<>(offsets.length + 1);
+        args.add(String.valueOf(bloomConfig.getSliceSeconds() * (bloomConfig.getSlices() + 1)));
+        for (int offset : offsets) {
+            args.add(String.valueOf(offset));
         }
 
-        return true;
+        return redisTemplate.execute(CHECK_AND_ADD_SCRIPT, keys, args).next().map(result -> result == 1L).doOnNext(existed -> {
+            if (nonNull(localFrontFilter)) {
+                localFrontFilter.put(value, Boolean.TRUE);
+            }
+        });
     }
 
     /**
-     * Expiration bloom filter elements.
+     * Remove the live slices of bloom filter.
      * 
      * @param key
-     * @param value
      */
-    public void bloomExpire(String key, long expireMs) {
-        log.debug("bloomExpire {}", key);
-        // In order to allow setting the expiration time, the key needs to be
-        // initialized when it does not exist.
-        if (!redisTemplate.hasKey(key)) {
-            redisTemplate.opsForValue().setBit(key, 0, true);
+    public Mono<Long> bloomRemove(String key) {
+        log.debug("bloomRemove {}", key);
+        if (nonNull(localFrontFilter)) {
+            localFrontFilter.invalidateAll();
+        }
+        long currentSlice = currentTimeMillis() / 1000 / bloomConfig.getSliceSeconds();
+        List<String> keys = new ArrayList<>(bloomConfig.getSlices() + 1);
+        for (int i = 0; i <= bloomConfig.getSlices(); i++) {
+            keys.add(getSliceKey(key, currentSlice - i));
         }
-        redisTemplate.opsForValue().getOperations().expire(key, expireMs, TimeUnit.SECONDS);
+        return redisTemplate.delete(keys.toArray(new String[0]));
     }
 
-    /**
-     * Remove bloom filter elements.
-     * 
-     * @param key
-     * @param value
-     */
-    public void bloomRemove(String key) {
-        log.debug("bloomRemove {}", key);
-        redisTemplate.opsForValue().getOperations().delete(key);
+    private String getSliceKey(String key, long slice) {
+        return key.concat(":").concat(String.valueOf(slice));
     }
 
     /**
@@ -208,26 +250,82 @@ public class RedisBloomFilter<T> {
      * judgment of other elements. break. Counting Bloom Filter can be used
      * </p>
      */
+    @Getter
     public static class BloomConfig<T> {
         private final Funnel<T> funnel;
         private final int numHashFunctions;
         private final int bitSize;
+        private final long sliceSeconds;
+        private final int slices;
+        private final boolean bounded;
+
+        /**
+         * Build of {@link BloomGenerator} instance.
+         * 
+         * @param funnel
+         * @param expectedRate
+         *            Estimated insertion volume per second
+         * @param fpp
+         *            error tolerance rate
+         * @param windowSeconds
+         *            The minimum duration that the added values are retained.
+         * @param slices
+         *            The number of slices of the window, each slice is a
+         *            separate bitmap sized from the expected rate.
+         */
+        public BloomConfig(@NotNull Funnel<T> funnel, long expectedRate, double fpp, long windowSeconds, int slices) {
+            this(funnel, expectedRate, fpp, windowSeconds, slices, Long.MAX_VALUE);
+        }
 
         /**
          * Build of {@link BloomGenerator} instance.
          * 
          * @param funnel
-         * @param expectedInsertions
-         *            Estimated insertion volume
+         * @param expectedRate
+         *            Estimated insertion volume per second
          * @param fpp
          *            error tolerance rate
+         * @param windowSeconds
+         *            The minimum duration that the added values are retained.
+         * @param slices
+         *            The number of slices of the window, each slice is a
+         *            separate bitmap sized from the expected rate.
+         * @param maxBytes
+         *            The upper bound of the memory of all the live slices (i.e.
+         *            slices + 1 bitmaps), when the optimal size exceeds it, the
+         *            slices are truncated and the actual false positive
+         *            probability will be higher than the expected.
          */
-        public BloomConfig(@NotNull Funnel<T> funnel, int expectedInsertions, double fpp) {
+        public BloomConfig(@NotNull Funnel<T> funnel, long expectedRate, double fpp, long windowSeconds, int slices,
+                long maxBytes) {
+            isTrue(expectedRate > 0, "expectedRate must be greater than 0");
+            isTrue(maxBytes > 0, "maxBytes must be greater than 0");
+            isTrue(windowSeconds > 0, "windowSeconds must be greater than 0");
+            isTrue(slices > 0, "slices must be greater than 0");
             this.funnel = notNullOf(funnel, "funnel");
-            this.bitSize = optimalNumOfBits(expectedInsertions, fpp);
+            this.slices = slices;
+            this.sliceSeconds = Math.max(1, (windowSeconds + slices - 1) / slices);
+            // Redis bitmap offset is limited to 2^32, and the hash offsets is
+            // computed with int.
+            long expectedInsertions = Math.max(1, Math.min(expectedRate * sliceSeconds, Integer.MAX_VALUE / 16));
+            int optimalBits = optimalNumOfBits(expectedInsertions, fpp);
+            long maxBits = Math.max(Long.SIZE, Math.min(Integer.MAX_VALUE, maxBytes / (slices + 1)) * Byte.SIZE);
+            this.bounded = optimalBits > maxBits;
+            this.bitSize = (int) Math.min(optimalBits, Math.min(maxBits, Integer.MAX_VALUE));
             this.numHashFunctions = optimalNumOfHashFunctions(expectedInsertions, bitSize);
         }
 
+        public long getWindowSeconds() {
+            return sliceSeconds * slices;
+        }
+
+        /**
+         * Gets the maximum memory bytes of all the live slices in redis.
+         */
+        public long getMemoryBytes() {
+            return ((long) bitSize + Byte.SIZE - 1) / Byte.SIZE * (slices + 1);
+        }
+
         public int[] murmurHashOffset(T value) {
             int[] offset = new int[numHashFunctions];
             long hash64 = Hashing.murmur3_128().hashObject(value, funnel).asLong();
@@ -269,4 +367,18 @@ public class RedisBloomFilter<T> {
         }
     }
 
+    /**
+     * The script of check and add, see:
+     * {@code classpath:/META-INF/scripts/iam_gateway_bloom_check_and_add.lua}
+     */
+    public static final RedisScript<Long> CHECK_AND_ADD_SCRIPT;
+
+    static {
+        DefaultRedisScript<Long> script = new DefaultRedisScript<>();
+        script.setScriptSource(
+                new ResourceScriptSource(new ClassPathResource("META-INF/scripts/iam_gateway_bloom_check_and_add.lua")));
+        script.setResultType(Long.class);
+        CHECK_AND_ADD_SCRIPT = script;
+    }
+
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.util.http;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+/**
+ * The tee-style capture of the (request or response) body chunks. The chunks
+ * are forwarded to the downstream as is, and only the retained slices (sharing
+ * the pooled memory, without copying) are kept until the body completed. Once
+ * the captured size exceeds the threshold, the capture is aborted and all the
+ * retained slices are released immediately.
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+public class DataBufferCapture {
+
+    private final int maxSize;
+    private final List<DataBuffer> slices = new ArrayList<>(4);
+    private int size;
+    private boolean aborted;
+    private boolean released;
+
+    public DataBufferCapture(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Capture the chunk, must be called before the chunk is written (i.e.
+     * released by the downstream).
+     *
+     * @param buffer
+     */
+    public synchronized void append(DataBuffer buffer) {
+        if (aborted || released) {
+            return;
+        }
+        int length = buffer.readableByteCount();
+        if (size + length > maxSize) {
+            abort();
+            return;
+        }
+        if (length > 0) {
+            // The slice has its own read/write positions, so the write of the
+            // original chunk does not affect it.
+            slices.add(buffer.retainedSlice(buffer.readPosition(), length));
+            size += length;
+        }
+    }
+
+    /**
+     * Abort the capture, e.g. the declared 'Content-Length' exceeds the
+     * threshold.
+     */
+    public synchronized void abort() {
+        this.aborted = true;
+        releaseSlices();
+    }
+
+    public synchronized boolean isAborted() {
+        return aborted;
+    }
+
+    public synchronized int getSize() {
+        return size;
+    }
+
+    /**
+     * Copy the captured body out and release the retained slices.
+     *
+     * @return The captured body bytes, or null if aborted.
+     */
+    public synchronized byte[] toBytesAndRelease() {
+        if (aborted || released) {
+            return null;
+        }
+        byte[] bytes = new byte[size];
+        int offset = 0;
+        for (DataBuffer slice : slices) {
+            int length = slice.readableByteCount();
+            slice.read(bytes, offset, length);
+            offset += length;
+        }
+        release();
+        return bytes;
+    }
+
+    public synchronized void release() {
+        this.released = true;
+        releaseSlices();
+    }
+
+    private void releaseSlices() {
+        for (DataBuffer slice : slices) {
+            DataBufferUtils.release(slice);
+        }
+        slices.clear();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.util.matcher;
+
+import static com.wl4g.infra.common.lang.Assert2.hasTextOf;
+import static com.wl4g.infra.common.lang.Assert2.notNullOf;
+import static java.lang.String.format;
+import static java.lang.System.nanoTime;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonMap;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import javax.validation.constraints.NotNull;
+
+import org.springframework.expression.EvaluationException;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.google.common.base.Predicates;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsName;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsTag;
+import com.wl4g.iam.gateway.util.IamGatewayUtil;
+import com.wl4g.infra.common.web.WebUtils.WebRequestExtractor;
+import com.wl4g.infra.context.utils.web.ReactiveRequestExtractor;
+import com.wl4g.infra.context.web.matcher.SpelRequestMatcher;
+import com.wl4g.infra.context.web.matcher.SpelRequestMatcher.MatchHttpRequestRule;
+
+import lombok.Getter;
+
+/**
+ * {@link CompiledRequestMatcher}, A named and pre-compiled rule set of
+ * {@link SpelRequestMatcher}, the configured expressions are parsed and
+ * checked once at startup, and the evaluation results are memorized in the
+ * exchange, so that no matter how many filters evaluate the same rule set
+ * (e.g. request/response logging), each request is only matched once, and all
+ * matchers share one request extractor per request. </br>
+ * </br>
+ * Note: The cache is bound to the {@link ServerHttpRequest} instance, it is
+ * invalidated automatically when the request is mutated by the downstream
+ * filters. The evaluation cost is timed per pre-compiled rule expression
+ * (tagged by the hash of it) and route, all the other expressions (e.g. the
+ * ones carried by the request) are tagged as {@link #RULE_TAG_DYNAMIC}, so
+ * that the request can not create unlimited metrics series.
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-04 v3.1.0
+ * @since v3.1.0
+ */
+@Getter
+public class CompiledRequestMatcher {
+
+    private final String name;
+    private final SpelRequestMatcher delegate;
+    private final IamGatewayMetricsFacade metricsFacade;
+    private final Map<String, Map<String, Supplier<Predicate<String>>>> routeVariables = new ConcurrentHashMap<>(16);
+    private final Map<String, String> ruleTags = new ConcurrentHashMap<>(4);
+
+    public CompiledRequestMatcher(@NotNull String name, @NotNull List<MatchHttpRequestRule> rules,
+            @NotNull IamGatewayMetricsFacade metricsFacade) {
+        this.name = hasTextOf(name, "name");
+        this.delegate = new SpelRequestMatcher(notNullOf(rules, "rules"));
+        this.metricsFacade = notNullOf(metricsFacade, "metricsFacade");
+    }
+
+    /**
+     * Pre-compile and warm up to evaluate checks at service startup, and avoid
+     * performance issues at runtime for unexpected errors, such as throwing
+     * stack information when evaluating exceptions.
+     *
+     * @param expression
+     */
+    public void precompile(String expression) {
+        if (isBlank(expression)) {
+            return;
+        }
+        Map<String, Supplier<Predicate<String>>> routeIdPredicateSupplier = singletonMap(VAR_ROUTE_ID,
+                () -> (Predicate<String>) Predicates.<String> alwaysFalse());
+        try {
+            delegate.matches(new WebRequestExtractor() {
+            }, expression, routeIdPredicateSupplier);
+        } catch (EvaluationException e) {
+            throw new EvaluationException(format("Invalid evaluation expression of matcher '%s' for reason: %s", name,
+                    e.getMessage()), e);
+        }
+        ruleTags.put(expression, Integer.toHexString(expression.hashCode()));
+    }
+
+    /**
+     * Check whether the current request matches the expression, the variable
+     * {@link #VAR_ROUTE_ID} is available when the route has been resolved.
+     *
+     * @param exchange
+     * @param expression
+     * @return
+     */
+    public boolean matches(@NotNull ServerWebExchange exchange, String expression) {
+        MatchContext context = MatchContext.get(exchange);
+        Map<String, Object> results = context.getResults(name);
+        Boolean matched = (Boolean) results.get(expression);
+        if (isNull(matched)) {
+            final long beginTime = nanoTime();
+            matched = delegate.matches(context.getExtractor(), expression, getRouteVariables(exchange));
+            results.put(expression, matched);
+            metricsFacade.timer(exchange, MetricsName.REQUEST_MATCHER_TIME, beginTime, MetricsTag.MATCHER, name,
+                    MetricsTag.MATCHER_RULE, getRuleTag(expression));
+        }
+        return matched;
+    }
+
+    /**
+     * Find all the rules matched of the current request by the expression.
+     *
+     * @param exchange
+     * @param expression
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public List<MatchHttpRequestRule> find(@NotNull ServerWebExchange exchange, String expression) {
+        MatchContext context = MatchContext.get(exchange);
+        Map<String, Object> results = context.getResults(name.concat(FIND_SUFFIX));
+        List<MatchHttpRequestRule> rules = (List<MatchHttpRequestRule>) results.get(expression);
+        if (isNull(rules)) {
+            final long beginTime = nanoTime();
+            rules = delegate.find(context.getExtractor(), expression);
+            results.put(expression, rules);
+            metricsFacade.timer(exchange, MetricsName.REQUEST_MATCHER_TIME, beginTime, MetricsTag.MATCHER,
+                    name.concat(FIND_SUFFIX), MetricsTag.MATCHER_RULE, getRuleTag(expression));
+        }
+        return rules;
+    }
+
+    private String getRuleTag(String expression) {
+        return isNull(expression) ? RULE_TAG_DYNAMIC : ruleTags.getOrDefault(expression, RULE_TAG_DYNAMIC);
+    }
+
+    private Map<String, Supplier<Predicate<String>>> getRouteVariables(ServerWebExchange exchange) {
+        String routeId = IamGatewayUtil.getRouteId(exchange);
+        if (isNull(routeId)) {
+            return emptyMap();
+        }
+        return routeVariables.computeIfAbsent(routeId,
+                _routeId -> singletonMap(VAR_ROUTE_ID, () -> (Predicate<String>) Predicates.equalTo(_routeId)));
+    }
+
+    /**
+     * The per-request matching context, which is shared by all the matchers.
+     */
+    static class MatchContext {
+        private final ServerHttpRequest request;
+        private final @Getter ReactiveRequestExtractor extractor;
+        private final Map<String, Map<String, Object>> results = new HashMap<>(8);
+
+        MatchContext(ServerHttpRequest request) {
+            this.request = request;
+            this.extractor = new ReactiveRequestExtractor(request);
+        }
+
+        Map<String, Object> getResults(String matcherName) {
+            return results.computeIfAbsent(matcherName, _name -> new HashMap<>(4));
+        }
+
+        static MatchContext get(ServerWebExchange exchange) {
+            ServerHttpRequest request = exchange.getRequest();
+            MatchContext context = exchange.getAttribute(KEY_MATCH_CONTEXT);
+            if (nonNull(context) && context.request == request) {
+                return context;
+            }
+            context = new MatchContext(request);
+            exchange.getAttributes().put(KEY_MATCH_CONTEXT, context);
+            return context;
+        }
+    }
+
+    public static final String VAR_ROUTE_ID = "routeId";
+    static final String KEY_MATCH_CONTEXT = CompiledRequestMatcher.class.getName().concat(".matchContext");
+    static final String FIND_SUFFIX = "#find";
+    public static final String RULE_TAG_DYNAMIC = "dynamic";
+
+}
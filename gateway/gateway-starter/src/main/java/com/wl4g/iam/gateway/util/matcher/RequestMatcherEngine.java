@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.util.matcher;
+
+import static com.wl4g.infra.common.lang.Assert2.notNullOf;
+import static java.util.Collections.unmodifiableMap;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
+import com.wl4g.infra.context.web.matcher.SpelRequestMatcher.MatchHttpRequestRule;
+
+/**
+ * Gateway-wide request matching engine, which compiles the rule definitions of
+ * logging, response cache, fault injection, gray trace and canary loadbalancer
+ * once, and the same named rule set is shared by all the filters.
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-04 v3.1.0
+ * @since v3.1.0
+ */
+public class RequestMatcherEngine {
+
+    private final IamGatewayMetricsFacade metricsFacade;
+    private final Map<String, CompiledRequestMatcher> matchers = new ConcurrentHashMap<>(8);
+
+    public RequestMatcherEngine(@NotNull IamGatewayMetricsFacade metricsFacade) {
+        this.metricsFacade = notNullOf(metricsFacade, "metricsFacade");
+    }
+
+    /**
+     * Compile the named rule set, and pre-compile the given expressions.
+     *
+     * @param name
+     *            The name that identifies of the rule set, the rule set of
+     *            the same name is compiled only once.
+     * @param rules
+     * @param expressions
+     * @return
+     */
+    public CompiledRequestMatcher compile(
+            @NotBlank String name,
+            @NotNull List<MatchHttpRequestRule> rules,
+            String... expressions) {
+        CompiledRequestMatcher matcher = matchers.computeIfAbsent(name,
+                _name -> new CompiledRequestMatcher(_name, rules, metricsFacade));
+        for (String expression : expressions) {
+            matcher.precompile(expression);
+        }
+        return matcher;
+    }
+
+    public Map<String, CompiledRequestMatcher> getMatchers() {
+        return unmodifiableMap(matchers);
+    }
+
+    public static final String MATCHER_LOGGING = "logging";
+    public static final String MATCHER_RESPONSE_CACHE = "responseCache";
+    public static final String MATCHER_FAULT = "fault";
+    public static final String MATCHER_TRACE = "trace";
+    public static final String MATCHER_CANARY_LB = "canaryLoadBalancer";
+
+}
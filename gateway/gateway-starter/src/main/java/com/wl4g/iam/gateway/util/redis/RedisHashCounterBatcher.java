@@ -0,0 +1,324 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.util.redis;
+
+import static com.wl4g.infra.common.lang.Assert2.isTrue;
+import static com.wl4g.infra.common.lang.Assert2.notNullOf;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.isNull;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * The asynchronous batching redis hash counter, the increments are aggregated
+ * into the in-memory counters keyed by (hash key, field), and periodically
+ * flushed to redis with the pipelined
+ * {@code HINCRBY} (and {@code EXPIRE} of each hash key), so that the event
+ * publisher never waits for redis. </br>
+ * </br>
+ * The memory is bounded by the number of distinct keys instead of events, the
+ * sums failed to flush are merged back and retried by the next flush, and the
+ * pending sums are flushed on close. The idle counters are evicted by retiring
+ * them atomically (only when their pending sum is zero), and the writers that
+ * see a retired counter retry with a new one, so no increment is lost. </br>
+ * </br>
+ * Note: The delivery is at-least-once, when the pipeline fails after some of
+ * its {@code HINCRBY} have been applied by redis, the whole batch is merged
+ * back and those fields are counted again by the next flush. The counters are
+ * meant for statistics (e.g. the traffic hits) where a rare over-count is
+ * acceptable, they are not suitable for the exact accounting.
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+@Slf4j
+public class RedisHashCounterBatcher implements Closeable {
+
+    /**
+     * The counters idle for this number of flushes are evicted, which leaves
+     * enough time for the writers that have just obtained the counter.
+     */
+    private static final int EVICT_IDLE_FLUSHES = 2;
+
+    private final StringRedisTemplate redisTemplate;
+    private final long flushIntervalMs;
+    private final int flushBatchSize;
+    private final int maxPendingKeys;
+    private final long expireSeconds;
+    private final Map<CounterKey, Counter> counters = new ConcurrentHashMap<>(64);
+    private final AtomicBoolean flushing = new AtomicBoolean(false);
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final ScheduledExecutorService scheduler;
+
+    public RedisHashCounterBatcher(String name, StringRedisTemplate redisTemplate, long flushIntervalMs, int flushBatchSize,
+            int maxPendingKeys, long expireSeconds) {
+        isTrue(flushIntervalMs > 0, "flushIntervalMs must be greater than 0");
+        isTrue(flushBatchSize > 0, "flushBatchSize must be greater than 0");
+        isTrue(maxPendingKeys > 0, "maxPendingKeys must be greater than 0");
+        this.redisTemplate = redisTemplate;
+        this.flushIntervalMs = flushIntervalMs;
+        this.flushBatchSize = flushBatchSize;
+        this.maxPendingKeys = maxPendingKeys;
+        this.expireSeconds = expireSeconds;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, notNullOf(name, "name").concat("-flusher"));
+            t.setDaemon(true);
+            return t;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Increment the field of hash key, non-blocking.
+     *
+     * @param hashKey
+     * @param field
+     * @param delta
+     * @return The pending (not yet flushed) delta of the field, which is not
+     *         the total in redis.
+     */
+    public long increment(String hashKey, String field, long delta) {
+        CounterKey key = new CounterKey(hashKey, field);
+        for (;;) {
+            Counter counter = counters.get(key);
+            if (isNull(counter)) {
+                counter = counters.computeIfAbsent(key, k -> new Counter());
+                // Flush in advance to bound the memory, e.g. under the attack
+                // of random keys, at most one early flush is queued.
+                if (counters.size() > maxPendingKeys && !closed.get() && flushScheduled.compareAndSet(false, true)) {
+                    try {
+                        scheduler.execute(() -> {
+                            flushScheduled.set(false);
+                            flushQuietly();
+                        });
+                    } catch (RejectedExecutionException e) {
+                        // Ignore, closing.
+                        flushScheduled.set(false);
+                    }
+                }
+            }
+            long pending = counter.add(delta);
+            if (pending != RETIRED) {
+                return pending;
+            }
+            // Evicted concurrently, retry with the new counter.
+            counters.remove(key, counter);
+        }
+    }
+
+    public int getPendingKeys() {
+        return counters.size();
+    }
+
+    public long getFlushIntervalMs() {
+        return flushIntervalMs;
+    }
+
+    /**
+     * Flush the pending counters to redis, at most one flush runs at a time.
+     *
+     * @return The number of flushed fields.
+     */
+    public int flush() {
+        if (!flushing.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            List<Increment> batch = new ArrayList<>(Math.min(flushBatchSize, counters.size()));
+            int flushed = 0;
+            for (Map.Entry<CounterKey, Counter> entry : counters.entrySet()) {
+                Counter counter = entry.getValue();
+                long delta = counter.drain();
+                if (delta == RETIRED) {
+                    counters.remove(entry.getKey(), counter);
+                    continue;
+                }
+                if (delta == 0) {
+                    // Only retired if no increment since the drain.
+                    if (++counter.idleFlushes >= EVICT_IDLE_FLUSHES && counter.retire()) {
+                        counters.remove(entry.getKey(), counter);
+                    }
+                    continue;
+                }
+                counter.idleFlushes = 0;
+                batch.add(new Increment(entry.getKey(), delta));
+                if (batch.size() >= flushBatchSize) {
+                    flushed += writeOrMergeBack(batch);
+                    batch = new ArrayList<>(flushBatchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                flushed += writeOrMergeBack(batch);
+            }
+            return flushed;
+        } finally {
+            flushing.set(false);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(flushIntervalMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // Flush the pending on shutdown.
+            flushQuietly();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            int flushed = flush();
+            if (flushed > 0 && log.isDebugEnabled()) {
+                log.debug("Flushed {} pending counters to redis.", flushed);
+            }
+        } catch (Throwable ex) {
+            log.warn("Failed to flush the pending counters to redis.", ex);
+        }
+    }
+
+    private int writeOrMergeBack(List<Increment> batch) {
+        try {
+            write(batch);
+            return batch.size();
+        } catch (Exception ex) {
+            // Retry by the next flush, the increments that had been applied
+            // before the failure are counted again (at-least-once).
+            for (Increment incr : batch) {
+                increment(incr.getKey().getHashKey(), incr.getKey().getField(), incr.getDelta());
+            }
+            log.warn("Failed to write the {} counters to redis, they will be retried by the next flush. cause: {}",
+                    batch.size(), ex.toString());
+            return 0;
+        }
+    }
+
+    /**
+     * Write the increments with the pipelined {@code HINCRBY}, and refresh the
+     * TTL of each hash key once.
+     *
+     * @param batch
+     */
+    protected void write(List<Increment> batch) {
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            writePipelined(connection, batch);
+            return null;
+        });
+    }
+
+    private void writePipelined(RedisConnection connection, List<Increment> batch) {
+        Set<String> expiredHashKeys = new HashSet<>();
+        for (Increment incr : batch) {
+            byte[] hashKey = incr.getKey().getHashKey().getBytes(UTF_8);
+            connection.hashCommands().hIncrBy(hashKey, incr.getKey().getField().getBytes(UTF_8), incr.getDelta());
+            if (expireSeconds > 0 && expiredHashKeys.add(incr.getKey().getHashKey())) {
+                connection.keyCommands().expire(hashKey, expireSeconds);
+            }
+        }
+    }
+
+    /**
+     * The pending sum of the counter that has been evicted.
+     */
+    static final long RETIRED = Long.MIN_VALUE;
+
+    /**
+     * Note: The {@link AtomicLong} rather than
+     * {@link java.util.concurrent.atomic.LongAdder}, because the
+     * eviction must retire the counter only if its sum is still zero, which
+     * needs the compare-and-set that LongAdder doesn't provide, the
+     * contention is low since the increments are spread over distinct keys.
+     */
+    static class Counter {
+        final AtomicLong pending = new AtomicLong();
+        // Only accessed by the flushing thread.
+        int idleFlushes;
+
+        /**
+         * @return The pending sum, or {@link #RETIRED} if evicted.
+         */
+        long add(long delta) {
+            for (;;) {
+                long current = pending.get();
+                if (current == RETIRED) {
+                    return RETIRED;
+                }
+                if (pending.compareAndSet(current, current + delta)) {
+                    return current + delta;
+                }
+            }
+        }
+
+        long drain() {
+            for (;;) {
+                long current = pending.get();
+                if (current == RETIRED || pending.compareAndSet(current, 0L)) {
+                    return current;
+                }
+            }
+        }
+
+        boolean retire() {
+            return pending.compareAndSet(0L, RETIRED);
+        }
+    }
+
+    @Getter
+    @ToString
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    public static class CounterKey {
+        private final String hashKey;
+        private final String field;
+    }
+
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class Increment {
+        private final CounterKey key;
+        private final long delta;
+    }
+
+}
@@ -0,0 +1,27 @@
+-- Atomically check whether the value exists in any live slice of the
+-- time-sliced bloom filter, and add it to the current slice if not.
+--
+-- KEYS[1]: the current slice key, KEYS[2..n]: the previous slice keys.
+-- ARGV[1]: the TTL seconds of the current slice, ARGV[2..n]: the bit offsets.
+-- Returns 1 if the value (probably) existed, otherwise 0.
+
+for i = 1, #KEYS do
+  local exists = true
+  for j = 2, #ARGV do
+    if redis.call('getbit', KEYS[i], ARGV[j]) == 0 then
+      exists = false
+      break
+    end
+  end
+  if exists then
+    return 1
+  end
+end
+
+for j = 2, #ARGV do
+  redis.call('setbit', KEYS[1], ARGV[j], 1)
+end
+if redis.call('ttl', KEYS[1]) < 0 then
+  redis.call('expire', KEYS[1], ARGV[1])
+end
+return 0
@@ -0,0 +1,30 @@
+-- The GCRA (generic cell rate algorithm) limiter, only a single theoretical
+-- arrival time (TAT) is stored per key, which expires when the bucket would
+-- be full again.
+--
+-- KEYS[1]: the TAT key.
+-- ARGV[1]: the emission interval millis (period / limit), ARGV[2]: the burst
+-- tolerance millis (emission interval * burst), ARGV[3]: now (epoch millis),
+-- ARGV[4]: requested tokens.
+-- Returns {allowed (1|0), remaining, retry after millis}.
+
+local tat_key = KEYS[1]
+
+local emission = tonumber(ARGV[1])
+local tolerance = tonumber(ARGV[2])
+local now = tonumber(ARGV[3])
+local requested = tonumber(ARGV[4])
+
+local tat = tonumber(redis.call("get", tat_key))
+if tat == nil or tat < now then
+  tat = now
+end
+
+local new_tat = tat + emission * requested
+local allow_at = new_tat - tolerance
+if allow_at > now then
+  return { 0, 0, math.ceil(allow_at - now) }
+end
+
+redis.call("set", tat_key, string.format("%.3f", new_tat), "PX", math.max(1, math.ceil(new_tat - now)))
+return { 1, math.floor((now - allow_at) / emission), 0 }
@@ -0,0 +1,47 @@
+-- Lease a batch of tokens from the token bucket, which is compatible with
+-- the keys and refilling of the spring cloud gateway 'request_rate_limiter.lua',
+-- so the nodes of leasing and the nodes of per-request checking can share
+-- the same bucket.
+--
+-- KEYS[1]: the tokens key, KEYS[2]: the timestamp key.
+-- ARGV[1]: replenish rate, ARGV[2]: burst capacity, ARGV[3]: now (epoch seconds),
+-- ARGV[4]: requested tokens (per request), ARGV[5]: the expected lease tokens.
+-- Returns {granted tokens, tokens left}, the granted is a multiple of the
+-- requested tokens, or 0 if the bucket has not enough tokens.
+
+local tokens_key = KEYS[1]
+local timestamp_key = KEYS[2]
+
+local rate = tonumber(ARGV[1])
+local capacity = tonumber(ARGV[2])
+local now = tonumber(ARGV[3])
+local requested = tonumber(ARGV[4])
+local lease = math.max(tonumber(ARGV[5]), requested)
+
+local fill_time = capacity / rate
+local ttl = math.floor(fill_time * 2)
+
+local last_tokens = tonumber(redis.call("get", tokens_key))
+if last_tokens == nil then
+  last_tokens = capacity
+end
+
+local last_refreshed = tonumber(redis.call("get", timestamp_key))
+if last_refreshed == nil then
+  last_refreshed = 0
+end
+
+local delta = math.max(0, now - last_refreshed)
+local filled_tokens = math.min(capacity, last_tokens + (delta * rate))
+local granted = 0
+if filled_tokens >= requested then
+  granted = math.floor(math.min(filled_tokens, lease) / requested) * requested
+end
+local new_tokens = filled_tokens - granted
+
+if ttl > 0 then
+  redis.call("setex", tokens_key, ttl, new_tokens)
+  redis.call("setex", timestamp_key, ttl, now)
+end
+
+return { granted, new_tokens }
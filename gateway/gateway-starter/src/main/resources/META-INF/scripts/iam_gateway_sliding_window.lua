@@ -0,0 +1,28 @@
+-- The sliding window counter limiter, the count of the sliding window is
+-- estimated by the current fixed window counter plus the previous window
+-- counter weighted by its overlap, so only two counters are stored per key,
+-- and each expires after two windows.
+--
+-- KEYS[1]: the current window counter key, KEYS[2]: the previous window counter key.
+-- ARGV[1]: request capacity, ARGV[2]: window millis, ARGV[3]: now (epoch millis),
+-- ARGV[4]: requested tokens.
+-- Returns {allowed (1|0), remaining}.
+
+local capacity = tonumber(ARGV[1])
+local window = tonumber(ARGV[2])
+local now = tonumber(ARGV[3])
+local requested = tonumber(ARGV[4])
+
+local current = tonumber(redis.call("get", KEYS[1])) or 0
+local previous = tonumber(redis.call("get", KEYS[2])) or 0
+local weighted = previous * ((window - (now % window)) / window)
+
+if weighted + current + requested > capacity then
+  return { 0, math.max(0, math.floor(capacity - weighted - current)) }
+end
+
+current = redis.call("incrby", KEYS[1], requested)
+if current == requested then
+  redis.call("pexpire", KEYS[1], window * 2)
+end
+return { 1, math.max(0, math.floor(capacity - weighted - current)) }
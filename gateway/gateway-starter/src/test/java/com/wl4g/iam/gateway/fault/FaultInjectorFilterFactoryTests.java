@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.fault;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.commons.util.InetUtils;
+import org.springframework.cloud.commons.util.InetUtilsProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.handler.AsyncPredicate;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import com.wl4g.iam.gateway.fault.config.FaultProperties;
+import com.wl4g.iam.gateway.fault.config.FaultProperties.InjectorProvider;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsName;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsTag;
+import com.wl4g.iam.gateway.util.matcher.RequestMatcherEngine;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link FaultInjectorFilterFactoryTests}
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+public class FaultInjectorFilterFactoryTests {
+
+    static final String TEST_ROUTE_ID = "my-test-route";
+
+    private PrometheusMeterRegistry meterRegistry;
+    private IamGatewayMetricsFacade metricsFacade;
+    private MockServerWebExchange exchange;
+    private AtomicInteger chainCalls;
+    private GatewayFilterChain chain;
+
+    @Before
+    public void init() throws Exception {
+        MockEnvironment env = new MockEnvironment();
+        env.setProperty("spring.application.name", "test-iam-gateway");
+        env.setProperty("server.port", "12345");
+        this.meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        this.metricsFacade = new IamGatewayMetricsFacade(meterRegistry, new InetUtils(new InetUtilsProperties()), env);
+        metricsFacade.afterPropertiesSet();
+
+        this.exchange = MockServerWebExchange.from(MockServerHttpRequest.get("http://localhost/hello").build());
+        Route route = Route.async()
+                .asyncPredicate(AsyncPredicate.from(_exchange -> true))
+                .id(TEST_ROUTE_ID)
+                .uri("http://localhost")
+                .build();
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+
+        this.chainCalls = new AtomicInteger(0);
+        this.chain = _exchange -> {
+            chainCalls.incrementAndGet();
+            return Mono.empty();
+        };
+    }
+
+    @Test
+    public void testNotMatchedPassThrough() {
+        FaultProperties faultConfig = new FaultProperties();
+        faultConfig.setPreferOpenMatchExpression("#{false}");
+        GatewayFilter filter = newFilter(faultConfig);
+
+        filter.filter(exchange, chain).block();
+
+        assertEquals(1, chainCalls.get());
+        assertNull(exchange.getResponse().getHeaders().getFirst(faultConfig.getFaultInjectedHeader()));
+        assertNull(meterRegistry.find(MetricsName.FAULT_TOTAL.getName()).counter());
+        // The matcher evaluation is timed by rule.
+        assertEquals(1, meterRegistry.get(MetricsName.REQUEST_MATCHER_TIME.getName())
+                .tag(MetricsTag.MATCHER, RequestMatcherEngine.MATCHER_FAULT)
+                .tag(MetricsTag.MATCHER_RULE, Integer.toHexString("#{false}".hashCode()))
+                .timer()
+                .count());
+    }
+
+    @Test
+    public void testMatchedAbort() {
+        FaultProperties faultConfig = new FaultProperties();
+        faultConfig.setPreferOpenMatchExpression("#{true}");
+        GatewayFilter filter = newFilter(faultConfig);
+
+        filter.filter(exchange, chain).block();
+
+        assertEquals(0, chainCalls.get());
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, exchange.getResponse().getStatusCode());
+        assertEquals(InjectorProvider.Abort.name(),
+                exchange.getResponse().getHeaders().getFirst(faultConfig.getFaultInjectedHeader()));
+        assertEquals(1d, meterRegistry.get(MetricsName.FAULT_TOTAL.getName())
+                .tag(MetricsTag.FAULT_INJECTOR, InjectorProvider.Abort.name())
+                .counter()
+                .count());
+    }
+
+    private GatewayFilter newFilter(FaultProperties faultConfig) {
+        FaultInjectorFilterFactory factory = new FaultInjectorFilterFactory(faultConfig, metricsFacade,
+                new RequestMatcherEngine(metricsFacade));
+        return factory.apply(new FaultInjectorFilterFactory.Config());
+    }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.ipfilter;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.wl4g.infra.common.net.CIDR;
+
+import io.netty.handler.ipfilter.IpFilterRuleType;
+import io.netty.handler.ipfilter.IpSubnetFilterRule;
+
+/**
+ * Compare the matching throughput of the compiled {@link CidrRadixTrie} and
+ * the previous linear scan of {@link IpSubnetFilterRule} with 100k random
+ * IPv4 prefixes. </br>
+ * </br>
+ * Usages: run {@link #main(String[])} directly in the IDE, or
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=com.wl4g.iam.gateway.ipfilter.CidrRadixTrieBenchmark
+ * </pre>
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-05 v3.1.0
+ * @since v3.1.0
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class CidrRadixTrieBenchmark {
+
+    @Param({ "100000" })
+    int prefixCount;
+
+    CidrRadixTrie trie;
+    List<IpSubnetFilterRule> rules;
+    byte[][] addresses;
+    InetSocketAddress[] socketAddresses;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Random random = new Random(20220605L);
+        this.trie = new CidrRadixTrie();
+        this.rules = new ArrayList<>(prefixCount);
+        for (int i = 0; i < prefixCount; i++) {
+            int prefixLen = 8 + random.nextInt(25); // [8,32]
+            String cidr = toIPv4(random.nextInt()) + "/" + prefixLen;
+            boolean allow = random.nextInt(10) == 0;
+            trie.insert(cidr, allow);
+            CIDR _cidr = CIDR.newCIDR(cidr);
+            rules.add(new IpSubnetFilterRule(_cidr.getBaseAddress(), _cidr.getMask(),
+                    allow ? IpFilterRuleType.ACCEPT : IpFilterRuleType.REJECT));
+        }
+        this.addresses = new byte[1024][];
+        this.socketAddresses = new InetSocketAddress[addresses.length];
+        for (int i = 0; i < addresses.length; i++) {
+            String ip = toIPv4(random.nextInt());
+            socketAddresses[i] = IpSubnetFilterFactory.createInetSocketAddress(ip, 0, false);
+            addresses[i] = socketAddresses[i].getAddress().getAddress();
+        }
+    }
+
+    @Benchmark
+    public int radixTrieMatch() {
+        return trie.match(addresses[ThreadLocalRandom.current().nextInt(addresses.length)]);
+    }
+
+    @Benchmark
+    public boolean linearScanMatch() {
+        InetSocketAddress address = socketAddresses[ThreadLocalRandom.current().nextInt(socketAddresses.length)];
+        for (IpSubnetFilterRule rule : rules) {
+            if (rule.matches(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String toIPv4(int value) {
+        return ((value >>> 24) & 0xff) + "." + ((value >>> 16) & 0xff) + "." + ((value >>> 8) & 0xff) + "." + (value & 0xff);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(CidrRadixTrieBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
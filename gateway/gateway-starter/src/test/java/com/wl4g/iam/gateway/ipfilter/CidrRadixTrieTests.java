@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.ipfilter;
+
+import static com.wl4g.iam.gateway.ipfilter.CidrRadixTrie.ANY_ALLOW;
+import static com.wl4g.iam.gateway.ipfilter.CidrRadixTrie.ANY_REJECT;
+import static com.wl4g.iam.gateway.ipfilter.CidrRadixTrie.LONGEST_ALLOW;
+import static com.wl4g.iam.gateway.ipfilter.CidrRadixTrie.LONGEST_REJECT;
+
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+import io.netty.util.NetUtil;
+
+/**
+ * {@link CidrRadixTrieTests}
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-05 v3.1.0
+ * @since v3.1.0
+ */
+public class CidrRadixTrieTests {
+
+    @Test
+    public void testMatchIPv4NestedPrefixes() {
+        CidrRadixTrie trie = new CidrRadixTrie();
+        trie.insert("192.168.0.0/16", false);
+        trie.insert("192.168.3.0/24", true);
+        trie.insert("10.88.3.0/24", true);
+        trie.insert("192.168.3.128/25", false);
+
+        int matched = trie.match(ip("192.168.3.2"));
+        Assertions.assertEquals(ANY_ALLOW | ANY_REJECT | LONGEST_ALLOW, matched);
+
+        matched = trie.match(ip("192.168.3.200"));
+        Assertions.assertEquals(ANY_ALLOW | ANY_REJECT | LONGEST_REJECT, matched);
+
+        matched = trie.match(ip("192.168.9.1"));
+        Assertions.assertEquals(ANY_REJECT | LONGEST_REJECT, matched);
+
+        matched = trie.match(ip("10.88.3.255"));
+        Assertions.assertEquals(ANY_ALLOW | LONGEST_ALLOW, matched);
+
+        Assertions.assertEquals(0, trie.match(ip("10.88.4.1")));
+        Assertions.assertEquals(0, trie.match(ip("172.16.0.1")));
+    }
+
+    @Test
+    public void testMatchSamePrefixConflict() {
+        CidrRadixTrie trie = new CidrRadixTrie();
+        trie.insert("1.1.1.0/24", false);
+        trie.insert("1.1.1.0/24", true);
+
+        int matched = trie.match(ip("1.1.1.1"));
+        Assertions.assertEquals(ANY_ALLOW | ANY_REJECT | LONGEST_ALLOW | LONGEST_REJECT, matched);
+    }
+
+    @Test
+    public void testMatchIPv6AndDefaultRoute() {
+        CidrRadixTrie trie = new CidrRadixTrie();
+        trie.insert("0.0.0.0/0", false);
+        trie.insert("fd00::/8", true);
+        trie.insert("fd00:1:2::/48", false);
+
+        Assertions.assertEquals(ANY_REJECT | LONGEST_REJECT, trie.match(ip("8.8.8.8")));
+        Assertions.assertEquals(ANY_ALLOW | LONGEST_ALLOW, trie.match(ip("fd12::1")));
+        Assertions.assertEquals(ANY_ALLOW | ANY_REJECT | LONGEST_REJECT, trie.match(ip("fd00:1:2:3::1")));
+        Assertions.assertEquals(0, trie.match(ip("2001:db8::1")));
+    }
+
+    static byte[] ip(String address) {
+        return NetUtil.createByteArrayFromIpAddressString(address);
+    }
+
+}
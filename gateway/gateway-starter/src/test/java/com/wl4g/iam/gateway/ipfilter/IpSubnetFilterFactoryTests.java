@@ -16,6 +16,7 @@
 package com.wl4g.iam.gateway.ipfilter;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.singleton;
 
 import java.time.Duration;
 import java.util.ArrayList;
@@ -27,6 +28,7 @@ import org.junit.Test;
 import org.junit.jupiter.api.Assertions;
 import org.springframework.cloud.commons.util.InetUtils;
 import org.springframework.cloud.commons.util.InetUtilsProperties;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.handler.AsyncPredicate;
 import org.springframework.cloud.gateway.route.Route;
@@ -117,7 +119,42 @@ public class IpSubnetFilterFactoryTests {
         Assertions.assertFalse(allowed);
     }
 
+    @Test
+    public void testAllowedWithLongestPrefixMatch() {
+        List<IPSubnet> subnets = new ArrayList<>();
+        subnets.add(new IPSubnet(false, asList("192.168.0.0/16")));
+        subnets.add(new IPSubnet(true, asList("192.168.3.0/24")));
+
+        IpSubnetFilterFactory.Config config = new IpSubnetFilterFactory.Config();
+        config.setLongestPrefixMatch(true);
+        config.setIPSubnets(subnets);
+
+        Assertions.assertTrue(doTestIpFilter(config, "192.168.3.2"));
+        Assertions.assertFalse(doTestIpFilter(config, "192.168.4.2"));
+    }
+
+    @Test
+    public void testRecompiledOffRequestPathOnDefaultsChanged() {
+        IpFilterProperties ipFilterConfig = new IpFilterProperties();
+        IpSubnetFilterFactory factory = new IpSubnetFilterFactory(ipFilterConfig, mockMetricsFacade);
+        GatewayFilter ipFilter = factory.apply(new IpSubnetFilterFactory.Config());
+        Assertions.assertTrue(doTestIpFilter(ipFilter, "10.88.3.2"));
+
+        ipFilterConfig.getDefaultStrategy().setIPSubnets(asList(new IPSubnet(false, asList("10.88.0.0/16"))));
+        factory.onApplicationEvent(new EnvironmentChangeEvent(singleton("spring.iam.gateway.ipfilter.default-strategy")));
+        // Requests are never blocked by compiling, the previous trie is used
+        // until the new one is published.
+        factory.recompileAll();
+
+        Assertions.assertFalse(doTestIpFilter(ipFilter, "10.88.3.2"));
+    }
+
     boolean doTestIpFilter(IpSubnetFilterFactory.Config config, String remoteIp) {
+        IpSubnetFilterFactory factory = new IpSubnetFilterFactory(new IpFilterProperties(), mockMetricsFacade);
+        return doTestIpFilter(factory.apply(config), remoteIp);
+    }
+
+    boolean doTestIpFilter(GatewayFilter ipFilter, String remoteIp) {
         AtomicBoolean allowedFlag = new AtomicBoolean(false);
 
         MockServerHttpRequest request = MockServerHttpRequest.get("http://httpbin.org/hello")
@@ -134,15 +171,12 @@ public class IpSubnetFilterFactoryTests {
                 .build();
         exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
 
-        IpSubnetFilterFactory factory = new IpSubnetFilterFactory(new IpFilterProperties(), mockMetricsFacade);
-
         GatewayFilter tailFilter = (_exchange, chain) -> {
             System.out.println(">>>>> Accpeted !");
             allowedFlag.set(true);
             return chain.filter(_exchange);
         };
 
-        GatewayFilter ipFilter = factory.apply(config);
         Mono<Void> mono = new MockGatewayFilterChain(asList(ipFilter, tailFilter)).filter(exchange);
 
         System.out.println(">>>>> Await ...");
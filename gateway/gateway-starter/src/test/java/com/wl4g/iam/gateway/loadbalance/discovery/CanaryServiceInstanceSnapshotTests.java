@@ -0,0 +1,206 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.loadbalance.discovery;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+
+import com.wl4g.iam.gateway.loadbalance.config.CanaryLoadBalancerProperties;
+import com.wl4g.iam.gateway.loadbalance.discovery.CanaryServiceInstanceSnapshot.CandidateGroup;
+import com.wl4g.iam.gateway.loadbalance.stats.LoadBalancerStats;
+import com.wl4g.iam.gateway.loadbalance.stats.LoadBalancerStats.InstanceStatus;
+
+/**
+ * {@link CanaryServiceInstanceSnapshotTests}
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+public class CanaryServiceInstanceSnapshotTests {
+
+    static final String LABEL_PREFIX = "Iscg-Canary-Label";
+    static final String SERVICE_ID = "portal-service";
+    static final String ROUTE_ID = "portal-route";
+
+    @Test
+    public void testCandidatesByCanaryIndex() {
+        CanaryServiceInstanceSnapshot snapshot = new CanaryServiceInstanceSnapshot(SERVICE_ID, newInstances(), LABEL_PREFIX);
+
+        assertEquals(3, snapshot.getAllInstances().getInstances().size());
+        assertEquals(singletonList("n1"), instanceIds(snapshot.getCandidates(singletonList("v1-canary-header"))));
+        assertEquals(singletonList("n1"), instanceIds(snapshot.getCandidates(singletonList("V1-CANARY-QUERY"))));
+        assertEquals(asList("n2", "n3"), instanceIds(snapshot.getCandidates(singletonList("v2-canary-header"))));
+        assertSame(CandidateGroup.EMPTY, snapshot.getCandidates(singletonList("no-such-label")));
+    }
+
+    @Test
+    public void testMergedCandidatesAreDistinctAndMemoized() {
+        CanaryServiceInstanceSnapshot snapshot = new CanaryServiceInstanceSnapshot(SERVICE_ID, newInstances(), LABEL_PREFIX);
+
+        List<String> names = asList("v1-canary-header", "v1-canary-query", "v2-canary-header");
+        CandidateGroup merged = snapshot.getCandidates(names);
+        assertEquals(asList("n1", "n2", "n3"), instanceIds(merged));
+        assertSame(merged, snapshot.getCandidates(new ArrayList<>(names)));
+        assertThrows(UnsupportedOperationException.class, () -> merged.getInstances().clear());
+    }
+
+    @Test
+    public void testIndexKeyIsLocaleIndependent() {
+        Locale defaultLocale = Locale.getDefault();
+        try {
+            // The dotted/dotless 'i' of the turkish locale.
+            Locale.setDefault(new Locale("tr", "TR"));
+            Map<String, String> metadata = new HashMap<>();
+            metadata.put(LABEL_PREFIX + "-Header", "INTERNAL");
+            CanaryServiceInstanceSnapshot snapshot = new CanaryServiceInstanceSnapshot(SERVICE_ID,
+                    singletonList(newInstance("n1", metadata)), LABEL_PREFIX);
+
+            assertEquals(singletonList("n1"), instanceIds(snapshot.getCandidates(singletonList("internal"))));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    public void testAvailableInstancesRecomputedOnlyOnReachableVersionChanged() {
+        CanaryServiceInstanceSnapshot snapshot = new CanaryServiceInstanceSnapshot(SERVICE_ID, newInstances(), LABEL_PREFIX);
+        List<InstanceStatus> reachable = new ArrayList<>();
+        snapshot.getAllInstances().getInstances().forEach(i -> reachable.add(new InstanceStatus(i)));
+        AtomicLong version = new AtomicLong(1);
+        AtomicInteger lookups = new AtomicInteger(0);
+        LoadBalancerStats stats = newStats(version, lookups, reachable);
+
+        CandidateGroup group = snapshot.getCandidates(singletonList("v2-canary-header"));
+        List<InstanceStatus> available = group.getAvailableInstances(ROUTE_ID, stats);
+        assertEquals(2, available.size());
+        assertSame(available, group.getAvailableInstances(ROUTE_ID, stats));
+        assertEquals(1, lookups.get());
+
+        // e.g. The instance n3 is dead.
+        reachable.remove(2);
+        version.incrementAndGet();
+        assertEquals(1, group.getAvailableInstances(ROUTE_ID, stats).size());
+        assertEquals(2, lookups.get());
+
+        // Other route of the same service is not shared.
+        group.getAvailableInstances("other-route", stats);
+        assertEquals(3, lookups.get());
+    }
+
+    @Test
+    public void testSnapshotCacheLoadsOnceAndRefreshesCachedServices() {
+        Map<String, List<ServiceInstance>> discovered = new HashMap<>();
+        discovered.put(SERVICE_ID, newInstances());
+        AtomicInteger calls = new AtomicInteger(0);
+        CanaryServiceInstanceCache cache = new CanaryServiceInstanceCache(new CanaryLoadBalancerProperties());
+        setField(cache, "discoveryClient", newDiscoveryClient(discovered, calls));
+
+        CanaryServiceInstanceSnapshot snapshot = cache.getSnapshot(SERVICE_ID);
+        assertEquals(3, snapshot.getAllInstances().getInstances().size());
+        assertSame(snapshot, cache.getSnapshot(SERVICE_ID));
+        assertEquals(1, calls.get());
+
+        discovered.put(SERVICE_ID, newInstances().subList(0, 1));
+        cache.refreshAll(false);
+        assertEquals(1, cache.getSnapshot(SERVICE_ID).getAllInstances().getInstances().size());
+        assertEquals(2, calls.get());
+
+        // The previous snapshot is kept if the refresh fails.
+        setField(cache, "discoveryClient", newDiscoveryClient(null, calls));
+        cache.refreshAll(false);
+        assertEquals(1, cache.getSnapshot(SERVICE_ID).getAllInstances().getInstances().size());
+    }
+
+    static List<ServiceInstance> newInstances() {
+        Map<String, String> metadata1 = new HashMap<>();
+        metadata1.put(LABEL_PREFIX + "-Header", "v1-canary-header");
+        metadata1.put(LABEL_PREFIX + "-Query", "v1-canary-query");
+        Map<String, String> metadata2 = new HashMap<>();
+        metadata2.put(LABEL_PREFIX + "-Header", "v2-canary-header");
+        metadata2.put("Other-Label", "v1-canary-header");
+        Map<String, String> metadata3 = new HashMap<>();
+        metadata3.put(LABEL_PREFIX + "-Header", "v2-canary-header");
+        return new ArrayList<>(asList(newInstance("n1", metadata1), newInstance("n2", metadata2), newInstance("n3", metadata3)));
+    }
+
+    static ServiceInstance newInstance(String instanceId, Map<String, String> metadata) {
+        return new DefaultServiceInstance(instanceId, SERVICE_ID, instanceId + ".portal.wl4g.io", 8080, false, metadata);
+    }
+
+    static List<String> instanceIds(CandidateGroup group) {
+        List<String> instanceIds = new ArrayList<>();
+        group.getInstances().forEach(i -> instanceIds.add(i.getInstanceId()));
+        return instanceIds;
+    }
+
+    static LoadBalancerStats newStats(AtomicLong version, AtomicInteger lookups, List<InstanceStatus> reachable) {
+        return (LoadBalancerStats) Proxy.newProxyInstance(LoadBalancerStats.class.getClassLoader(),
+                new Class<?>[] { LoadBalancerStats.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "getReachableVersion":
+                        return version.get();
+                    case "getReachableInstances":
+                        lookups.incrementAndGet();
+                        return new ArrayList<>(reachable);
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    static DiscoveryClient newDiscoveryClient(Map<String, List<ServiceInstance>> discovered, AtomicInteger calls) {
+        return new DiscoveryClient() {
+            @Override
+            public String description() {
+                return "test";
+            }
+
+            @Override
+            public List<ServiceInstance> getInstances(String serviceId) {
+                calls.incrementAndGet();
+                if (discovered == null) {
+                    throw new IllegalStateException("Discovery server is unavailable");
+                }
+                return discovered.get(serviceId);
+            }
+
+            @Override
+            public List<String> getServices() {
+                return new ArrayList<>(discovered.keySet());
+            }
+        };
+    }
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.loadbalance.stats;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.commons.util.InetUtils;
+import org.springframework.cloud.commons.util.InetUtilsProperties;
+import org.springframework.mock.env.MockEnvironment;
+
+import com.wl4g.iam.gateway.loadbalance.CanaryLoadBalancerFilterFactory;
+import com.wl4g.iam.gateway.loadbalance.config.CanaryLoadBalancerProperties;
+import com.wl4g.iam.gateway.loadbalance.config.CanaryLoadBalancerProperties.ProbeProperties;
+import com.wl4g.iam.gateway.loadbalance.stats.DefaultLoadBalancerStats.RouteProbeTask;
+import com.wl4g.iam.gateway.loadbalance.stats.LoadBalancerStats.ActiveProbe;
+import com.wl4g.iam.gateway.loadbalance.stats.LoadBalancerStats.InstanceStatus;
+import com.wl4g.iam.gateway.loadbalance.stats.ReachableStrategy.DefaultLatestReachableStrategy;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.netty.handler.codec.http.HttpResponseStatus;
+
+/**
+ * {@link LoadBalancerProbeSchedulerTests}
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+public class LoadBalancerProbeSchedulerTests {
+
+    static final String ROUTE_ID = "my-probe-route";
+    static final int INSTANCE_COUNT = 4;
+
+    private ScheduledThreadPoolExecutor scheduler;
+    private AtomicInteger submittedProbes;
+    private DefaultLoadBalancerStats stats;
+    private CanaryLoadBalancerFilterFactory.Config config;
+
+    @Before
+    public void init() throws Exception {
+        MockEnvironment env = new MockEnvironment();
+        env.setProperty("spring.application.name", "test-iam-gateway");
+        env.setProperty("server.port", "12345");
+        IamGatewayMetricsFacade metricsFacade = new IamGatewayMetricsFacade(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT),
+                new InetUtils(new InetUtilsProperties()), env);
+        metricsFacade.afterPropertiesSet();
+
+        this.scheduler = new ScheduledThreadPoolExecutor(1);
+        scheduler.setRemoveOnCancelPolicy(true);
+        this.submittedProbes = new AtomicInteger(0);
+        this.stats = new DefaultLoadBalancerStats(new CanaryLoadBalancerProperties()) {
+            @Override
+            protected ScheduledExecutorService getProbeScheduler() {
+                return scheduler;
+            }
+
+            @Override
+            protected void submitProbe(String routeId, ProbeProperties probe, InstanceStatus instance) {
+                submittedProbes.incrementAndGet();
+            }
+        };
+        InMemoryLoadBalancerRegistry registry = new InMemoryLoadBalancerRegistry();
+        setField(stats, "loadBalancerRegistry", registry);
+        setField(stats, "metricsFacade", metricsFacade);
+        DefaultLatestReachableStrategy reachableStrategy = new DefaultLatestReachableStrategy();
+        setField(reachableStrategy, "metricsFacade", metricsFacade);
+        setField(stats, "reachableStrategy", reachableStrategy);
+
+        this.config = new CanaryLoadBalancerFilterFactory.Config();
+        config.getProbe().setInitialSeconds(0);
+        // The one-shot probes stay pending during the tests.
+        config.getProbe().setDelaySeconds(600);
+        for (int i = 0; i < INSTANCE_COUNT; i++) {
+            registry.register(ROUTE_ID, config,
+                    new InstanceStatus(new DefaultServiceInstance("instance-" + i, "my-service", "10.0.0." + i, 8080, false)));
+        }
+    }
+
+    @After
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testProbesSpreadAcrossInterval() {
+        Map<String, InstanceStatus> instances = stats.getAllRouteServices().get(ROUTE_ID).getInstances();
+        List<ScheduledFuture<?>> futures = stats.scheduleProbes(ROUTE_ID, config.getProbe(), instances);
+        assertEquals(INSTANCE_COUNT, futures.size());
+
+        long slotMs = SECONDS.toMillis(config.getProbe().getDelaySeconds()) / INSTANCE_COUNT;
+        for (int i = 0; i < futures.size(); i++) {
+            long delayMs = futures.get(i).getDelay(MILLISECONDS);
+            // Each probe is within its own slot (minus the elapsed time).
+            assertTrue(delayMs < (i + 1) * slotMs, "probe " + i + " delay " + delayMs);
+            assertTrue(delayMs > i * slotMs - 1000L, "probe " + i + " delay " + delayMs);
+        }
+    }
+
+    @Test
+    public void testRestartCancelsPendingProbes() throws Exception {
+        stats.restartProbeTask();
+        RouteProbeTask task1 = awaitPendingProbes(INSTANCE_COUNT);
+        // The periodic task and its one-shot probes.
+        assertTrue(scheduler.getQueue().size() <= INSTANCE_COUNT + 1);
+
+        stats.restartProbeTask(ROUTE_ID);
+        RouteProbeTask task2 = awaitPendingProbes(INSTANCE_COUNT);
+        assertNotSame(task1, task2);
+        assertTrue(task1.isDone());
+        assertEquals(0, task1.getPendingProbes());
+        // The cancelled probes do not pile up.
+        assertTrue(scheduler.getQueue().size() <= INSTANCE_COUNT + 1, "queued " + scheduler.getQueue().size());
+        assertEquals(0, submittedProbes.get());
+    }
+
+    @Test
+    public void testCancelledTaskSchedulesNothing() {
+        RouteProbeTask task = stats.new RouteProbeTask(ROUTE_ID, config.getProbe(),
+                stats.getAllRouteServices().get(ROUTE_ID).getInstances());
+        task.cancel();
+        task.run();
+        assertEquals(0, task.getPendingProbes());
+        assertEquals(0, scheduler.getQueue().size());
+    }
+
+    @Test
+    public void testReachableVersionChangesOnlyOnAliveTransition() {
+        InstanceStatus status = stats.getAllRouteServices().get(ROUTE_ID).getInstances().values().iterator().next();
+        long version = stats.getReachableVersion();
+
+        stats.save(config.getProbe(), status, new ActiveProbe(1L, false, false, HttpResponseStatus.OK, null));
+        assertEquals(version + 1, stats.getReachableVersion());
+        // The alive status is not changed, even if it is a different boolean instance.
+        status.getStats().setAlive(new Boolean(true));
+        stats.save(config.getProbe(), status, new ActiveProbe(2L, false, false, HttpResponseStatus.OK, null));
+        assertEquals(version + 1, stats.getReachableVersion());
+
+        stats.save(config.getProbe(), status, new ActiveProbe(3L, true, null, null, null));
+        assertEquals(version + 2, stats.getReachableVersion());
+    }
+
+    private RouteProbeTask awaitPendingProbes(int expected) throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            RouteProbeTask task = stats.getProbeTask(ROUTE_ID);
+            if (task != null && !task.isDone() && task.getPendingProbes() == expected) {
+                return task;
+            }
+            Thread.sleep(10L);
+        }
+        throw new AssertionError("The probes are not scheduled in time");
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.loadbalance.stats;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * {@link PassiveLatencyWindowTests}
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+public class PassiveLatencyWindowTests {
+
+    @Test
+    public void testRecordReturnsStoredEwma() {
+        PassiveLatencyWindow window = new PassiveLatencyWindow(4, 0.5d);
+        assertEquals(0d, window.ewma());
+
+        assertEquals(100d, window.record(100));
+        assertEquals(100d, window.ewma());
+        assertEquals(150d, window.record(200));
+        assertEquals(150d, window.ewma());
+        assertEquals(75d, window.record(0));
+        assertEquals(75d, window.ewma());
+
+        assertEquals(3, window.count());
+        assertEquals(0L, window.latest());
+        assertEquals(100L, window.oldest());
+    }
+
+    /**
+     * Under contention, a lost CAS is retried against the latest average, so
+     * each sample moves the EWMA exactly one step, and the values returned by
+     * the concurrent records are exactly the ones of the sequential records.
+     */
+    @Test
+    public void testConcurrentRecordNotDropSamples() throws Exception {
+        int threads = 8, perThread = 10_000;
+        // Each sample halves the distance from 0 to 1000, the sequential steps
+        // before the double saturates to 1000.
+        Set<Double> expected = new HashSet<>();
+        PassiveLatencyWindow sequential = new PassiveLatencyWindow(64, 0.5d);
+        sequential.record(0);
+        for (int i = 0; i < threads * perThread; i++) {
+            double ewma = sequential.record(1000);
+            if (ewma < 1000d) {
+                expected.add(ewma);
+            }
+        }
+
+        PassiveLatencyWindow window = new PassiveLatencyWindow(64, 0.5d);
+        window.record(0);
+        Queue<Double> returned = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < threads; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int j = 0; j < perThread; j++) {
+                    double ewma = window.record(1000);
+                    if (ewma < 1000d) {
+                        returned.add(ewma);
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(threads * perThread + 1, window.count());
+        assertEquals(sequential.ewma(), window.ewma());
+        // No two records returned the same step (i.e. one of them was lost).
+        assertEquals(expected.size(), returned.size());
+        assertEquals(expected, new HashSet<>(returned));
+    }
+
+}
@@ -29,6 +29,7 @@ import com.wl4g.iam.gateway.loadbalance.CanaryLoadBalancerFilterFactory;
 import com.wl4g.iam.gateway.loadbalance.chooser.AbstractCanaryLoadBalancerChooser;
 import com.wl4g.iam.gateway.loadbalance.config.CanaryLoadBalancerProperties;
 import com.wl4g.iam.gateway.loadbalance.stats.LoadBalancerStats;
+import com.wl4g.iam.gateway.loadbalance.stats.LoadBalancerStats.InstanceStatus;
 
 /**
  * {@link CannaryLoadBalancerRuleTests}
@@ -82,7 +83,7 @@ public class CannaryLoadBalancerRuleTests {
                     ServerWebExchange exchange,
                     LoadBalancerStats stats,
                     String serviceId,
-                    List<ServiceInstance> candidateInstances) {
+                    List<InstanceStatus> availableInstances) {
                 return null; // Ignore
             }
 
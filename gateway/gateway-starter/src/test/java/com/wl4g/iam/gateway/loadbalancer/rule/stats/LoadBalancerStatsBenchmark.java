@@ -0,0 +1,159 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.loadbalancer.rule.stats;
+
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.commons.util.InetUtils;
+import org.springframework.cloud.commons.util.InetUtilsProperties;
+import org.springframework.cloud.gateway.handler.AsyncPredicate;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import com.wl4g.iam.gateway.loadbalance.CanaryLoadBalancerFilterFactory;
+import com.wl4g.iam.gateway.loadbalance.config.CanaryLoadBalancerProperties;
+import com.wl4g.iam.gateway.loadbalance.stats.DefaultLoadBalancerStats;
+import com.wl4g.iam.gateway.loadbalance.stats.InMemoryLoadBalancerRegistry;
+import com.wl4g.iam.gateway.loadbalance.stats.LoadBalancerStats;
+import com.wl4g.iam.gateway.loadbalance.stats.LoadBalancerStats.InstanceStatus;
+import com.wl4g.iam.gateway.loadbalance.stats.LockFreeLoadBalancerStats;
+import com.wl4g.iam.gateway.loadbalance.stats.ReachableStrategy.DefaultLatestReachableStrategy;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+
+/**
+ * Compare the connect/disconnect throughput of {@link DefaultLoadBalancerStats}
+ * and {@link LockFreeLoadBalancerStats} under 16 concurrent threads. </br>
+ * </br>
+ * Usages: run {@link #main(String[])} directly in the IDE, or
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=com.wl4g.iam.gateway.loadbalancer.rule.stats.LoadBalancerStatsBenchmark
+ * </pre>
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-02 v3.1.0
+ * @since v3.1.0
+ */
+@Fork(1)
+@Threads(16)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LoadBalancerStatsBenchmark {
+
+    static final String ROUTE_ID = "my-benchmark-route";
+    static final String SERVICE_ID = "my-benchmark-service";
+
+    @State(Scope.Benchmark)
+    public static class StatsState {
+        @Param({ "Default", "LockFree" })
+        String provider;
+
+        @Param({ "4" })
+        int instanceCount;
+
+        LoadBalancerStats stats;
+        ServiceInstance[] instances;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            MockEnvironment env = new MockEnvironment();
+            env.setProperty("spring.application.name", "test-iam-gateway");
+            env.setProperty("server.port", "12345");
+            IamGatewayMetricsFacade metricsFacade = new IamGatewayMetricsFacade(
+                    new PrometheusMeterRegistry(PrometheusConfig.DEFAULT), new InetUtils(new InetUtilsProperties()), env);
+            try {
+                metricsFacade.afterPropertiesSet();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+
+            CanaryLoadBalancerProperties loadBalancerConfig = new CanaryLoadBalancerProperties();
+            this.stats = "Default".equals(provider) ? new DefaultLoadBalancerStats(loadBalancerConfig)
+                    : new LockFreeLoadBalancerStats(loadBalancerConfig);
+
+            InMemoryLoadBalancerRegistry registry = new InMemoryLoadBalancerRegistry();
+            DefaultLatestReachableStrategy reachableStrategy = new DefaultLatestReachableStrategy();
+            setField(reachableStrategy, "metricsFacade", metricsFacade);
+            setField(stats, "loadBalancerRegistry", registry);
+            setField(stats, "reachableStrategy", reachableStrategy);
+            setField(stats, "metricsFacade", metricsFacade);
+
+            CanaryLoadBalancerFilterFactory.Config config = new CanaryLoadBalancerFilterFactory.Config();
+            this.instances = new ServiceInstance[instanceCount];
+            for (int i = 0; i < instanceCount; i++) {
+                instances[i] = new DefaultServiceInstance("instance-" + i, SERVICE_ID, "10.0.0." + i, 8080, false);
+                registry.register(ROUTE_ID, config, new InstanceStatus(instances[i]));
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ExchangeState {
+        MockServerWebExchange exchange;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            this.exchange = MockServerWebExchange.from(MockServerHttpRequest.get("http://localhost/hello").build());
+            Route route = Route.async()
+                    .asyncPredicate(AsyncPredicate.from(_exchange -> true))
+                    .id(ROUTE_ID)
+                    .uri("lb://" + SERVICE_ID)
+                    .build();
+            exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+        }
+    }
+
+    @Benchmark
+    public int connectAndDisconnect(StatsState state, ExchangeState exchangeState) {
+        ServiceInstance instance = state.instances[ThreadLocalRandom.current().nextInt(state.instances.length)];
+        state.stats.connect(exchangeState.exchange, instance);
+        return state.stats.disconnect(exchangeState.exchange, instance);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(LoadBalancerStatsBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
@@ -15,6 +15,17 @@
  */
 package com.wl4g.iam.gateway.loadbalancer.rule.stats;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.jupiter.api.Assertions;
+
+import com.wl4g.iam.gateway.loadbalance.stats.LoadBalancerStats.Stats;
+import com.wl4g.iam.gateway.loadbalance.stats.PassiveLatencyWindow;
+
 /**
  * {@link LoadBalancerStatsTests}
  * 
@@ -24,4 +35,61 @@ package com.wl4g.iam.gateway.loadbalancer.rule.stats;
  */
 public class LoadBalancerStatsTests {
 
+    @Test
+    public void testPassiveLatencyWindowRecordAndFold() {
+        PassiveLatencyWindow window = new PassiveLatencyWindow(3, 0.5);
+        Assertions.assertEquals(4, window.capacity());
+
+        for (long costTime : new long[] { 10, 20, 30, 40, 50 }) {
+            window.record(costTime);
+        }
+        Assertions.assertEquals(5, window.count());
+        Assertions.assertEquals(50, window.latest());
+        Assertions.assertEquals(20, window.oldest());
+
+        Stats stats = new Stats();
+        window.fold(stats);
+        Assertions.assertEquals(20d, stats.getMinCostTime());
+        Assertions.assertEquals(50d, stats.getMaxCostTime());
+        Assertions.assertEquals(50d, stats.getLatestCostTime());
+        // 10 -> 15 -> 22.5 -> 31.25 -> 40.625
+        Assertions.assertEquals(40.625d, stats.getAvgCostTime(), 0.0001d);
+        Assertions.assertEquals(50d, stats.getP95CostTime());
+    }
+
+    @Test
+    public void testPassiveLatencyWindowPercentile() {
+        PassiveLatencyWindow window = new PassiveLatencyWindow(128, 0.5);
+        Assertions.assertEquals(0L, window.percentile(0.95d));
+
+        // Out of order records.
+        for (long costTime = 100; costTime > 0; costTime--) {
+            window.record(costTime);
+        }
+        Assertions.assertEquals(95L, window.percentile(0.95d));
+        Assertions.assertEquals(50L, window.percentile(0.5d));
+        Assertions.assertEquals(100L, window.percentile(1d));
+    }
+
+    @Test
+    public void testPassiveLatencyWindowConcurrentRecord() throws Exception {
+        PassiveLatencyWindow window = new PassiveLatencyWindow(8, 0.3);
+        int threads = 16, perThread = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch latch = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            executor.execute(() -> {
+                for (int j = 0; j < perThread; j++) {
+                    window.record(100);
+                }
+                latch.countDown();
+            });
+        }
+        Assertions.assertTrue(latch.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        Assertions.assertEquals((long) threads * perThread, window.count());
+        Assertions.assertEquals(100d, window.ewma(), 0.0001d);
+    }
+
 }
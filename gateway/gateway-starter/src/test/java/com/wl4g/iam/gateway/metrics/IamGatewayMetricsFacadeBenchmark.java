@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.cloud.commons.util.InetUtils;
+import org.springframework.cloud.commons.util.InetUtilsProperties;
+import org.springframework.cloud.gateway.handler.AsyncPredicate;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsName;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsTag;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.RouteCounter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+
+/**
+ * Compare the counter increments of the registering per call (the previous
+ * implementation), the cached lookup of
+ * {@link IamGatewayMetricsFacade#counter(org.springframework.web.server.ServerWebExchange, MetricsName, double, String...)}
+ * and the pre-bound {@link RouteCounter} handle. </br>
+ * </br>
+ * Usages: run {@link #main(String[])} directly in the IDE, or
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacadeBenchmark
+ * </pre>
+ *
+ * Note: Add {@code -prof gc} to the runner options to compare the allocation
+ * rate.
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-07 v3.1.0
+ * @since v3.1.0
+ */
+@Fork(1)
+@Threads(8)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class IamGatewayMetricsFacadeBenchmark {
+
+    static final String ROUTE_ID = "my-benchmark-route";
+
+    @State(Scope.Benchmark)
+    public static class FacadeState {
+        PrometheusMeterRegistry meterRegistry;
+        IamGatewayMetricsFacade metricsFacade;
+        RouteCounter handle;
+        MockServerWebExchange exchange;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            MockEnvironment env = new MockEnvironment();
+            env.setProperty("spring.application.name", "test-iam-gateway");
+            env.setProperty("server.port", "12345");
+            this.meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+            this.metricsFacade = new IamGatewayMetricsFacade(meterRegistry, new InetUtils(new InetUtilsProperties()), env);
+            metricsFacade.afterPropertiesSet();
+            this.handle = metricsFacade.routeCounter(MetricsName.SIMPLE_SIGN_SUCCCESS_TOTAL, MetricsTag.SIGN_ALG, "S256",
+                    MetricsTag.SIGN_HASH, "UriParamsKeySortedHashing");
+
+            this.exchange = MockServerWebExchange.from(MockServerHttpRequest.get("http://localhost/hello").build());
+            Route route = Route.async()
+                    .asyncPredicate(AsyncPredicate.from(_exchange -> true))
+                    .id(ROUTE_ID)
+                    .uri("http://localhost")
+                    .build();
+            exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+        }
+    }
+
+    @Benchmark
+    public void registerPerCall(FacadeState state) {
+        MetricsName metricsName = MetricsName.SIMPLE_SIGN_SUCCCESS_TOTAL;
+        Counter.builder(metricsName.getName())
+                .description(metricsName.getHelp())
+                .tags(MetricsTag.SIGN_ALG, "S256", MetricsTag.SIGN_HASH, "UriParamsKeySortedHashing",
+                        MetricsTag.SELF_INSTANCE_ID, state.metricsFacade.getLocalInstanceId(), MetricsTag.ROUTE_ID, ROUTE_ID)
+                .register(state.meterRegistry)
+                .increment();
+    }
+
+    @Benchmark
+    public void cachedLookup(FacadeState state) {
+        state.metricsFacade.counter(state.exchange, MetricsName.SIMPLE_SIGN_SUCCCESS_TOTAL, 1, MetricsTag.SIGN_ALG, "S256",
+                MetricsTag.SIGN_HASH, "UriParamsKeySortedHashing");
+    }
+
+    @Benchmark
+    public void preBoundHandle(FacadeState state) {
+        state.handle.increment(state.exchange);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(IamGatewayMetricsFacadeBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
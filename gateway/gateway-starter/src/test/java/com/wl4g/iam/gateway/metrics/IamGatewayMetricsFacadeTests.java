@@ -0,0 +1,190 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.commons.util.InetUtils;
+import org.springframework.cloud.commons.util.InetUtilsProperties;
+import org.springframework.cloud.gateway.handler.AsyncPredicate;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsName;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsTag;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.RouteCounter;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.RouteTimer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+
+/**
+ * {@link IamGatewayMetricsFacadeTests}
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-07 v3.1.0
+ * @since v3.1.0
+ */
+public class IamGatewayMetricsFacadeTests {
+
+    static final String TEST_ROUTE_ID = "my-test-route";
+
+    private PrometheusMeterRegistry meterRegistry;
+    private IamGatewayMetricsFacade metricsFacade;
+    private MockServerWebExchange exchange;
+
+    @Before
+    public void init() throws Exception {
+        MockEnvironment env = new MockEnvironment();
+        env.setProperty("spring.application.name", "test-iam-gateway");
+        env.setProperty("server.port", "12345");
+        this.meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        this.metricsFacade = new IamGatewayMetricsFacade(meterRegistry, new InetUtils(new InetUtilsProperties()), env);
+        metricsFacade.afterPropertiesSet();
+
+        this.exchange = MockServerWebExchange.from(MockServerHttpRequest.get("http://localhost/hello").build());
+        Route route = Route.async()
+                .asyncPredicate(AsyncPredicate.from(_exchange -> true))
+                .id(TEST_ROUTE_ID)
+                .uri("http://localhost")
+                .build();
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+    }
+
+    @Test
+    public void testCounterHandleSharedWithFacadeCounter() {
+        RouteCounter handle = metricsFacade.routeCounter(MetricsName.IPFILTER_TOTAL);
+        handle.increment(exchange);
+        handle.increment(exchange, 2);
+        metricsFacade.counter(exchange, MetricsName.IPFILTER_TOTAL, 1);
+
+        Counter counter = meterRegistry.get(MetricsName.IPFILTER_TOTAL.getName())
+                .tag(MetricsTag.ROUTE_ID, TEST_ROUTE_ID)
+                .counter();
+        assertEquals(4d, counter.count());
+        // The self instance tag of counters is disabled by default.
+        assertNull(counter.getId().getTag(MetricsTag.SELF_INSTANCE_ID));
+        assertEquals(1, meterRegistry.find(MetricsName.IPFILTER_TOTAL.getName()).counters().size());
+    }
+
+    @Test
+    public void testCounterSelfInstanceTagEnabled() throws Exception {
+        MockEnvironment env = new MockEnvironment();
+        env.setProperty("spring.application.name", "test-iam-gateway");
+        env.setProperty("server.port", "12345");
+        env.setProperty(IamGatewayMetricsFacade.PROP_COUNTER_SELF_INSTANCE_TAG, "true");
+        IamGatewayMetricsFacade facade = new IamGatewayMetricsFacade(meterRegistry, new InetUtils(new InetUtilsProperties()),
+                env);
+        facade.afterPropertiesSet();
+
+        facade.counter(exchange, MetricsName.IPFILTER_HITS_TOTAL, 1);
+        Counter counter = meterRegistry.get(MetricsName.IPFILTER_HITS_TOTAL.getName())
+                .tag(MetricsTag.ROUTE_ID, TEST_ROUTE_ID)
+                .counter();
+        assertNotNull(counter.getId().getTag(MetricsTag.SELF_INSTANCE_ID));
+    }
+
+    @Test
+    public void testRouteTimerSelfInstanceTagged() {
+        metricsFacade.timer(exchange, MetricsName.SIMPLE_SIGN_TIME, System.nanoTime());
+        assertNotNull(meterRegistry.get(MetricsName.SIMPLE_SIGN_TIME.getName())
+                .tag(MetricsTag.ROUTE_ID, TEST_ROUTE_ID)
+                .timer()
+                .getId()
+                .getTag(MetricsTag.SELF_INSTANCE_ID));
+    }
+
+    @Test
+    public void testRouteTagsBounded() {
+        int routes = IamGatewayMetricsFacade.DEFAULT_MAX_ROUTE_TAGS + 10;
+        for (int i = 0; i < routes; i++) {
+            metricsFacade.counter(MetricsName.IPFILTER_TOTAL, "route-" + i, 1);
+        }
+        // The meters of exceeded routeIds are denied.
+        assertEquals(IamGatewayMetricsFacade.DEFAULT_MAX_ROUTE_TAGS,
+                meterRegistry.find(MetricsName.IPFILTER_TOTAL.getName()).counters().size());
+    }
+
+    @Test
+    public void testGetCounterCached() {
+        Counter c1 = metricsFacade.getCounter(MetricsName.CANARY_LB_STATS_TOTAL, MetricsTag.LB, "R");
+        Counter c2 = metricsFacade.getCounter(MetricsName.CANARY_LB_STATS_TOTAL, MetricsTag.LB, "R");
+        assertSame(c1, c2);
+    }
+
+    @Test
+    public void testTimerHandle() {
+        RouteTimer timer = metricsFacade.routeTimer(MetricsName.SIMPLE_SIGN_TIME, MetricsTag.SIGN_ALG, "S256");
+        timer.record(exchange, System.nanoTime());
+        timer.record(TEST_ROUTE_ID, System.nanoTime());
+        assertEquals(2, meterRegistry.get(MetricsName.SIMPLE_SIGN_TIME.getName())
+                .tag(MetricsTag.SIGN_ALG, "S256")
+                .timer()
+                .count());
+    }
+
+    /**
+     * The increments of pre-bound handle should be allocation-free after the
+     * route counter is bound.
+     */
+    @Test
+    public void testCounterHandleAllocationRate() {
+        java.lang.management.ThreadMXBean mxBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(mxBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) mxBean;
+        Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported() && threadMXBean.isThreadAllocatedMemoryEnabled());
+
+        RouteCounter handle = metricsFacade.routeCounter(MetricsName.IPFILTER_TOTAL);
+        int iterations = 100_000;
+        // Warmup (bind and JIT).
+        for (int i = 0; i < iterations; i++) {
+            handle.increment(exchange);
+            metricsFacade.counter(exchange, MetricsName.IPFILTER_HITS_TOTAL, 1);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long begin = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            handle.increment(exchange);
+        }
+        double handleBytesPerOp = (double) (threadMXBean.getThreadAllocatedBytes(threadId) - begin) / iterations;
+
+        begin = threadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; i++) {
+            metricsFacade.counter(exchange, MetricsName.IPFILTER_HITS_TOTAL, 1);
+        }
+        double cachedBytesPerOp = (double) (threadMXBean.getThreadAllocatedBytes(threadId) - begin) / iterations;
+
+        System.out.println(String.format("Allocated bytes/op - handle: %.2f, cached lookup: %.2f", handleBytesPerOp,
+                cachedBytesPerOp));
+        assertTrue(handleBytesPerOp < 1d, "handle increments should not allocate, but " + handleBytesPerOp + " bytes/op");
+        assertEquals(2 * iterations, (long) meterRegistry.get(MetricsName.IPFILTER_TOTAL.getName()).counter().count());
+    }
+
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.requestlimit.configurer;
+
+import static com.wl4g.infra.common.serialize.JacksonUtils.toJSONString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.connection.ReactiveSubscription.ChannelMessage;
+import org.springframework.data.redis.connection.ReactiveSubscription.PatternMessage;
+import org.springframework.data.redis.core.ReactiveHashOperations;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+
+import com.wl4g.iam.gateway.requestlimit.config.IamRequestLimiterProperties;
+import com.wl4g.iam.gateway.requestlimit.config.IamRequestLimiterProperties.LimiterProperties.StrategyCacheProperties;
+import com.wl4g.iam.gateway.requestlimit.limiter.rate.RedisRateRequestLimiterStrategy;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * {@link RedisLimiterStrategyConfigurerTests}
+ * 
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+public class RedisLimiterStrategyConfigurerTests {
+
+    private final Map<String, String> hash = new ConcurrentHashMap<>();
+    private final AtomicInteger reads = new AtomicInteger(0);
+    private final AtomicInteger batchReads = new AtomicInteger(0);
+    private volatile Sinks.Empty<Void> readGate;
+    private IamRequestLimiterProperties requestLimitConfig;
+    private String ratePrefix;
+    private RedisLimiterStrategyConfigurer configurer;
+
+    @Before
+    public void init() throws Exception {
+        this.requestLimitConfig = new IamRequestLimiterProperties();
+        this.ratePrefix = requestLimitConfig.getLimiter().getRate().getConfigPrefix();
+        this.configurer = new RedisLimiterStrategyConfigurer() {
+            @Override
+            protected void subscribeInvalidation(StrategyCacheProperties cacheConfig) {
+                // The messages are delivered by the tests.
+            }
+        };
+        setField(configurer, "requestLimitConfig", requestLimitConfig);
+        setField(configurer, "redisTemplate", newRedisTemplate());
+        configurer.afterPropertiesSet();
+    }
+
+    @Test
+    public void testConcurrentLoadsCoalesced() {
+        hash.put("route1:user1", strategy(100));
+        readGate = Sinks.empty();
+        List<RedisRateRequestLimiterStrategy> loaded = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            configurer.loadRateStrategy("route1", "user1").subscribe(loaded::add);
+        }
+        readGate.tryEmitEmpty();
+
+        assertEquals(10, loaded.size());
+        assertEquals(1, reads.get());
+        // Cached after loaded.
+        assertEquals(100, load("user1").getBurstCapacity());
+        assertEquals(1, reads.get());
+    }
+
+    @Test
+    public void testInvalidatePerConfigKey() {
+        hash.put("route1:user1", strategy(100));
+        hash.put("route1:user2", strategy(200));
+        load("user1");
+        load("user2");
+        assertEquals(2, reads.get());
+
+        hash.put("route1:user1", strategy(101));
+        configurer.onInvalidateMessage(new ChannelMessage<>(getInvalidateChannel(), "route1:user1"));
+        assertEquals(101, load("user1").getBurstCapacity());
+        assertEquals(200, load("user2").getBurstCapacity());
+        assertEquals(3, reads.get());
+    }
+
+    @Test
+    public void testStaleLoadNotCached() {
+        hash.put("route1:user1", strategy(100));
+        readGate = Sinks.empty();
+        List<RedisRateRequestLimiterStrategy> loaded = new ArrayList<>();
+        // The load has read the old strategy, but not yet completed.
+        configurer.loadRateStrategy("route1", "user1").subscribe(loaded::add);
+
+        hash.put("route1:user1", strategy(101));
+        configurer.onInvalidateMessage(new ChannelMessage<>(getInvalidateChannel(), "route1:user1"));
+        readGate.tryEmitEmpty();
+        readGate = null;
+        assertEquals(100, loaded.get(0).getBurstCapacity());
+
+        assertEquals(101, load("user1").getBurstCapacity());
+        assertEquals(2, reads.get());
+    }
+
+    @Test
+    public void testKeyspaceNotificationReloadsWithoutWiping() {
+        hash.put("route1:user1", strategy(100));
+        hash.put("route1:user2", strategy(200));
+        load("user1");
+        load("user2");
+        // Negative cached.
+        assertEquals(null, configurer.loadRateStrategy("route1", "user3").block());
+        assertEquals(3, reads.get());
+
+        hash.put("route1:user1", strategy(101));
+        hash.remove("route1:user2");
+        hash.put("route1:user3", strategy(300));
+        String channel = "__keyspace@0__:".concat(ratePrefix);
+        configurer.onInvalidateMessage(
+                new PatternMessage<>(RedisLimiterStrategyConfigurer.KEYSPACE_CHANNEL_PREFIX.concat(ratePrefix), channel, "hset"));
+
+        assertEquals(1, batchReads.get());
+        assertEquals(101, load("user1").getBurstCapacity());
+        assertEquals(null, configurer.loadRateStrategy("route1", "user2").block());
+        assertEquals(300, load("user3").getBurstCapacity());
+        assertEquals(3, reads.get());
+    }
+
+    @Test
+    public void testReloadOnlyWhenResubscribed() {
+        hash.put("route1:user1", strategy(100));
+        load("user1");
+
+        configurer.onSubscribed();
+        assertEquals(0, batchReads.get());
+
+        hash.put("route1:user1", strategy(101));
+        configurer.onSubscribed();
+        // The 4 limiters are reloaded, but only the rate limiter has cached.
+        assertEquals(1, batchReads.get());
+        assertEquals(101, load("user1").getBurstCapacity());
+        assertEquals(1, reads.get());
+    }
+
+    private RedisRateRequestLimiterStrategy load(String limitKey) {
+        return configurer.loadRateStrategy("route1", limitKey).block();
+    }
+
+    private String getInvalidateChannel() {
+        return requestLimitConfig.getLimiter().getStrategyCache().getInvalidateChannel();
+    }
+
+    private String strategy(int burstCapacity) {
+        return toJSONString(new RedisRateRequestLimiterStrategy(burstCapacity, 20, 1));
+    }
+
+    @SuppressWarnings("unchecked")
+    private ReactiveStringRedisTemplate newRedisTemplate() {
+        ReactiveHashOperations<String, String, String> hashOps = (ReactiveHashOperations<String, String, String>) Proxy
+                .newProxyInstance(getClass().getClassLoader(), new Class[] { ReactiveHashOperations.class },
+                        (proxy, method, args) -> {
+                            switch (method.getName()) {
+                            case "get":
+                                reads.incrementAndGet();
+                                String json = hash.get((String) args[1]);
+                                Sinks.Empty<Void> gate = readGate;
+                                Mono<String> result = Mono.justOrEmpty(json);
+                                return gate == null ? result : result.delayUntil(v -> gate.asMono()).switchIfEmpty(
+                                        gate.asMono().then(Mono.empty()));
+                            case "multiGet":
+                                if (!ratePrefix.equals(args[0])) {
+                                    throw new IllegalStateException("Reloaded the empty limiter cache " + args[0]);
+                                }
+                                batchReads.incrementAndGet();
+                                List<String> values = new ArrayList<>();
+                                ((Collection<String>) args[1]).forEach(configKey -> values.add(hash.get(configKey)));
+                                return Mono.just(values);
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                            }
+                        });
+        ReactiveRedisConnectionFactory connectionFactory = (ReactiveRedisConnectionFactory) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class[] { ReactiveRedisConnectionFactory.class }, (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        return new ReactiveStringRedisTemplate(connectionFactory) {
+            @Override
+            public <HK, HV> ReactiveHashOperations<String, HK, HV> opsForHash() {
+                return (ReactiveHashOperations<String, HK, HV>) hashOps;
+            }
+        };
+    }
+
+}
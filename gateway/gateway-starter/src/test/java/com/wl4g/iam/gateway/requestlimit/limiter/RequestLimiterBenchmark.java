@@ -0,0 +1,237 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.requestlimit.limiter;
+
+import static java.lang.String.format;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.cloud.commons.util.InetUtils;
+import org.springframework.cloud.commons.util.InetUtilsProperties;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.scripting.support.ResourceScriptSource;
+
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
+import com.wl4g.iam.gateway.requestlimit.IamRequestLimiterFilterFactory;
+import com.wl4g.iam.gateway.requestlimit.config.IamRequestLimiterProperties;
+import com.wl4g.iam.gateway.requestlimit.configurer.LimiterStrategyConfigurer;
+import com.wl4g.iam.gateway.requestlimit.limiter.IamRequestLimiter.RequestLimiterPrivoder;
+import com.wl4g.iam.gateway.requestlimit.limiter.gcra.RedisGcraIamRequestLimiter;
+import com.wl4g.iam.gateway.requestlimit.limiter.gcra.RedisGcraRequestLimiterStrategy;
+import com.wl4g.iam.gateway.requestlimit.limiter.quota.RedisQuotaIamRequestLimiter;
+import com.wl4g.iam.gateway.requestlimit.limiter.quota.RedisQuotaRequestLimiterStrategy;
+import com.wl4g.iam.gateway.requestlimit.limiter.rate.RedisRateIamRequestLimiter;
+import com.wl4g.iam.gateway.requestlimit.limiter.rate.RedisRateRequestLimiterStrategy;
+import com.wl4g.iam.gateway.requestlimit.limiter.window.RedisSlidingWindowIamRequestLimiter;
+import com.wl4g.iam.gateway.requestlimit.limiter.window.RedisSlidingWindowRequestLimiterStrategy;
+import com.wl4g.infra.common.eventbus.EventBusSupport;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import reactor.core.publisher.Mono;
+
+/**
+ * Compare the throughput and the redis memory/CPU costs of the request
+ * limiters, each trial randomly requests the limit keys of the key space
+ * (defaults to 1M keys), and reports the redis memory per 1M keys (extrapolated
+ * by the used memory delta and the number of keys) and the redis CPU
+ * microseconds per call (see {@code INFO commandstats}) when torn down. </br>
+ * </br>
+ * Usages: start a local redis server, then run {@link #main(String[])}
+ * directly in the IDE, or
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=com.wl4g.iam.gateway.requestlimit.limiter.RequestLimiterBenchmark \
+ *   -Dredis.host=localhost -Dredis.port=6379 -Dredis.database=15
+ * </pre>
+ *
+ * Note: The redis database (defaults to 15) is flushed before each trial.
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-08 v3.1.0
+ * @since v3.1.0
+ */
+@Fork(1)
+@Threads(8)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RequestLimiterBenchmark {
+
+    static final String ROUTE_ID = "my-benchmark-route";
+
+    @State(Scope.Benchmark)
+    public static class LimiterState {
+        @Param({ "RedisRateLimiter", "RedisQuotaLimiter", "RedisGcraLimiter", "RedisSlidingWindowLimiter" })
+        RequestLimiterPrivoder provider;
+
+        @Param({ "1000000" })
+        int keys;
+
+        LettuceConnectionFactory connectionFactory;
+        IamRequestLimiter limiter;
+        IamRequestLimiterFilterFactory.Config config;
+        MockServerWebExchange exchange;
+        long beginUsedMemory;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            RedisStandaloneConfiguration redisConfig = new RedisStandaloneConfiguration(
+                    System.getProperty("redis.host", "localhost"), Integer.getInteger("redis.port", 6379));
+            redisConfig.setDatabase(Integer.getInteger("redis.database", 15));
+            this.connectionFactory = new LettuceConnectionFactory(redisConfig);
+            connectionFactory.afterPropertiesSet();
+            try (RedisConnection connection = connectionFactory.getConnection()) {
+                connection.serverCommands().flushDb();
+                connection.serverCommands().resetConfigStats();
+                this.beginUsedMemory = getUsedMemory(connection);
+            }
+
+            MockEnvironment env = new MockEnvironment();
+            env.setProperty("spring.application.name", "test-iam-gateway");
+            env.setProperty("server.port", "12345");
+            IamGatewayMetricsFacade metricsFacade = new IamGatewayMetricsFacade(
+                    new PrometheusMeterRegistry(PrometheusConfig.DEFAULT), new InetUtils(new InetUtilsProperties()), env);
+            metricsFacade.afterPropertiesSet();
+
+            IamRequestLimiterProperties requestLimiterConfig = new IamRequestLimiterProperties();
+            requestLimiterConfig.getLimiter().getRate().getDefaultStrategy().setBurstCapacity(100);
+            requestLimiterConfig.getLimiter().getRate().getDefaultStrategy().setReplenishRate(100);
+            requestLimiterConfig.getLimiter().getQuota().getDefaultStrategy().setRequestCapacity(100_000L);
+            ReactiveStringRedisTemplate redisTemplate = new ReactiveStringRedisTemplate(connectionFactory);
+            EventBusSupport eventBus = new EventBusSupport(1);
+            LimiterStrategyConfigurer configurer = new DefaultsLimiterStrategyConfigurer();
+
+            switch (provider) {
+            case RedisRateLimiter:
+                this.limiter = new RedisRateIamRequestLimiter(newRateLimiterScript(), requestLimiterConfig, configurer,
+                        redisTemplate, eventBus, metricsFacade);
+                break;
+            case RedisQuotaLimiter:
+                this.limiter = new RedisQuotaIamRequestLimiter(requestLimiterConfig, configurer, redisTemplate, eventBus,
+                        metricsFacade);
+                break;
+            case RedisGcraLimiter:
+                this.limiter = new RedisGcraIamRequestLimiter(requestLimiterConfig, configurer, redisTemplate, eventBus,
+                        metricsFacade);
+                break;
+            case RedisSlidingWindowLimiter:
+                this.limiter = new RedisSlidingWindowIamRequestLimiter(requestLimiterConfig, configurer, redisTemplate, eventBus,
+                        metricsFacade);
+                break;
+            }
+            this.config = new IamRequestLimiterFilterFactory.Config();
+            config.setProvider(provider);
+            this.exchange = MockServerWebExchange.from(MockServerHttpRequest.get("http://localhost/hello").build());
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            try (RedisConnection connection = connectionFactory.getConnection()) {
+                long dbSize = connection.serverCommands().dbSize();
+                long usedMemory = getUsedMemory(connection) - beginUsedMemory;
+                System.out.println(format("\n[%s] keys: %s, used memory: %s bytes, per 1M limit keys: %.2f MB", provider, dbSize,
+                        usedMemory, dbSize == 0 ? 0d : (double) usedMemory / dbSize * 1_000_000 / 1024 / 1024));
+                Properties stats = connection.serverCommands().info("commandstats");
+                stats.forEach((name, value) -> {
+                    if (String.valueOf(name).matches("cmdstat_(evalsha|eval|hincrby)")) {
+                        System.out.println(format("[%s] %s: %s", provider, name, value));
+                    }
+                });
+            } finally {
+                connectionFactory.destroy();
+            }
+        }
+    }
+
+    @Benchmark
+    public Object isAllowed(LimiterState state) {
+        String limitKey = "user-".concat(String.valueOf(ThreadLocalRandom.current().nextInt(state.keys)));
+        return state.limiter.isAllowed(state.config, state.exchange, ROUTE_ID, limitKey).block();
+    }
+
+    static long getUsedMemory(RedisConnection connection) {
+        return Long.parseLong(connection.serverCommands().info("memory").getProperty("used_memory"));
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static RedisScript<List<Long>> newRateLimiterScript() {
+        DefaultRedisScript script = new DefaultRedisScript<>();
+        script.setScriptSource(new ResourceScriptSource(new ClassPathResource("META-INF/scripts/request_rate_limiter.lua")));
+        script.setResultType(List.class);
+        return script;
+    }
+
+    /**
+     * Always use the default strategies.
+     */
+    static class DefaultsLimiterStrategyConfigurer implements LimiterStrategyConfigurer {
+        @Override
+        public Mono<RedisRateRequestLimiterStrategy> loadRateStrategy(String routeId, String limitKey) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<RedisQuotaRequestLimiterStrategy> loadQuotaStrategy(String routeId, String limitKey) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<RedisGcraRequestLimiterStrategy> loadGcraStrategy(String routeId, String limitKey) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<RedisSlidingWindowRequestLimiterStrategy> loadSlidingWindowStrategy(String routeId, String limitKey) {
+            return Mono.empty();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(RequestLimiterBenchmark.class.getSimpleName()).build()).run();
+    }
+
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.requestlimit.limiter.gcra;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.commons.util.InetUtils;
+import org.springframework.cloud.commons.util.InetUtilsProperties;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsName;
+import com.wl4g.iam.gateway.requestlimit.IamRequestLimiterFilterFactory;
+import com.wl4g.iam.gateway.requestlimit.config.IamRequestLimiterProperties;
+import com.wl4g.iam.gateway.requestlimit.config.IamRequestLimiterProperties.LimiterProperties.RedisGcraLimiterProperties;
+import com.wl4g.iam.gateway.requestlimit.configurer.LimiterStrategyConfigurer;
+import com.wl4g.iam.gateway.requestlimit.limiter.IamRequestLimiter.LimitedResult;
+import com.wl4g.iam.gateway.util.redis.RedisScriptTestSupport;
+import com.wl4g.infra.common.eventbus.EventBusSupport;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link RedisGcraIamRequestLimiterTests}, the script tests are skipped when
+ * the redis is unavailable, see {@link RedisScriptTestSupport}.
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+public class RedisGcraIamRequestLimiterTests {
+
+    static final String TEST_ROUTE_ID = "my-test-route";
+    static final String TEST_TAT_KEY = "test_iam_gateway:gcra.{user1}.tat";
+
+    private PrometheusMeterRegistry meterRegistry;
+    private IamRequestLimiterProperties requestLimiterConfig;
+    private RedisGcraIamRequestLimiter limiter;
+    private final List<List<String>> executedKeys = new ArrayList<>();
+    private final List<List<?>> executedArgs = new ArrayList<>();
+    private Flux<List<Long>> scriptResult;
+
+    @Before
+    public void init() throws Exception {
+        MockEnvironment env = new MockEnvironment();
+        env.setProperty("spring.application.name", "test-iam-gateway");
+        env.setProperty("server.port", "12345");
+        this.meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        IamGatewayMetricsFacade metricsFacade = new IamGatewayMetricsFacade(meterRegistry,
+                new InetUtils(new InetUtilsProperties()), env);
+        metricsFacade.afterPropertiesSet();
+
+        this.requestLimiterConfig = new IamRequestLimiterProperties();
+        RedisGcraRequestLimiterStrategy strategy = requestLimiterConfig.getLimiter().getGcra().getDefaultStrategy();
+        strategy.setLimit(10);
+        strategy.setPeriodMillis(1000L);
+        strategy.setBurst(3);
+        LimiterStrategyConfigurer configurer = (LimiterStrategyConfigurer) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] { LimiterStrategyConfigurer.class }, (proxy, method, args) -> Mono.empty());
+        this.limiter = new RedisGcraIamRequestLimiter(requestLimiterConfig, configurer, newRedisTemplate(),
+                new EventBusSupport(1), metricsFacade);
+    }
+
+    @Test
+    public void testGcraScriptBurstAndRetryAfter() {
+        ReactiveStringRedisTemplate redisTemplate = RedisScriptTestSupport.connectRedisOrSkip();
+        redisTemplate.delete(TEST_TAT_KEY).block();
+        long now = System.currentTimeMillis();
+
+        // 10 requests per 10 seconds with burst of 3: emission interval is
+        // 1000ms, and the burst tolerance is 3000ms.
+        assertEquals(asList(1L, 2L, 0L), gcra(redisTemplate, now, 1));
+        assertEquals(asList(1L, 1L, 0L), gcra(redisTemplate, now, 1));
+        assertEquals(asList(1L, 0L, 0L), gcra(redisTemplate, now, 1));
+        // The bucket is exhausted, retry after one emission interval.
+        assertEquals(asList(0L, 0L, 1000L), gcra(redisTemplate, now, 1));
+        // The rejected request does not consume the bucket.
+        assertEquals(asList(0L, 0L, 1000L), gcra(redisTemplate, now, 1));
+
+        // The TAT key expires when the bucket would be full again.
+        long pttl = redisTemplate.getExpire(TEST_TAT_KEY).block().toMillis();
+        assertTrue(pttl > 0 && pttl <= 3000, "pttl: " + pttl);
+
+        // One token is emitted after the interval.
+        assertEquals(asList(1L, 0L, 0L), gcra(redisTemplate, now + 1000, 1));
+        assertEquals(asList(0L, 0L, 1000L), gcra(redisTemplate, now + 1000, 1));
+
+        // The bucket is full again after the tolerance.
+        assertEquals(asList(1L, 2L, 0L), gcra(redisTemplate, now + 60_000, 1));
+        redisTemplate.delete(TEST_TAT_KEY).block();
+    }
+
+    @Test
+    public void testGcraScriptRequestedTokens() {
+        ReactiveStringRedisTemplate redisTemplate = RedisScriptTestSupport.connectRedisOrSkip();
+        redisTemplate.delete(TEST_TAT_KEY).block();
+        long now = System.currentTimeMillis();
+
+        assertEquals(asList(1L, 0L, 0L), gcra(redisTemplate, now, 3));
+        // Requesting more than the burst is never allowed at once.
+        redisTemplate.delete(TEST_TAT_KEY).block();
+        assertEquals(0L, gcra(redisTemplate, now, 4).get(0));
+        redisTemplate.delete(TEST_TAT_KEY).block();
+    }
+
+    @Test
+    public void testIsAllowedKeysArgsAndHeaders() {
+        this.scriptResult = Flux.just(asList(1L, 2L, 0L));
+        LimitedResult result = limiter.isAllowed(new IamRequestLimiterFilterFactory.Config(), newExchange(), TEST_ROUTE_ID,
+                "user1").block();
+
+        assertTrue(result.isAllowed());
+        assertEquals(2L, result.getTokensLeft());
+        assertEquals("10", result.getHeaders().get(RedisGcraLimiterProperties.GCRA_LIMIT_HEADER));
+        assertEquals("2", result.getHeaders().get(RedisGcraLimiterProperties.GCRA_REMAINING_HEADER));
+        assertNull(result.getHeaders().get(RedisGcraLimiterProperties.GCRA_RETRY_AFTER_HEADER));
+
+        // The key is hash tagged by the limit key.
+        String tatKey = executedKeys.get(0).get(0);
+        assertTrue(tatKey.startsWith(requestLimiterConfig.getLimiter().getGcra().getTokenPrefix()), tatKey);
+        assertTrue(tatKey.endsWith(".{user1}.tat"), tatKey);
+        // emission interval, burst tolerance, now, requested tokens
+        List<?> args = executedArgs.get(0);
+        assertEquals(100d, Double.parseDouble((String) args.get(0)));
+        assertEquals(300d, Double.parseDouble((String) args.get(1)));
+        assertEquals("1", args.get(3));
+    }
+
+    @Test
+    public void testIsAllowedRejected() {
+        this.scriptResult = Flux.just(asList(0L, 0L, 100L));
+        LimitedResult result = limiter.isAllowed(new IamRequestLimiterFilterFactory.Config(), newExchange(), TEST_ROUTE_ID,
+                "user1").block();
+
+        assertFalse(result.isAllowed());
+        assertEquals("100", result.getHeaders().get(RedisGcraLimiterProperties.GCRA_RETRY_AFTER_HEADER));
+        assertEquals(1d, meterRegistry.get(MetricsName.REDIS_GCRALIMIT_HITS_TOTAL.getName()).counter().count());
+    }
+
+    @Test
+    public void testIsAllowedWhenRedisFailed() {
+        this.scriptResult = Flux.error(new IllegalStateException("Connection refused"));
+        LimitedResult result = limiter.isAllowed(new IamRequestLimiterFilterFactory.Config(), newExchange(), TEST_ROUTE_ID,
+                "user1").block();
+
+        // Don't want a hard dependency on redis to allow traffic.
+        assertTrue(result.isAllowed());
+        assertEquals(-1L, result.getTokensLeft());
+    }
+
+    private List<Long> gcra(ReactiveStringRedisTemplate redisTemplate, long now, int requested) {
+        return redisTemplate.execute(RedisGcraIamRequestLimiter.GCRA_SCRIPT, asList(TEST_TAT_KEY),
+                asList("1000.0", "3000.0", String.valueOf(now), String.valueOf(requested))).blockFirst();
+    }
+
+    private MockServerWebExchange newExchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("http://localhost/hello").build());
+    }
+
+    private ReactiveStringRedisTemplate newRedisTemplate() {
+        ReactiveRedisConnectionFactory connectionFactory = (ReactiveRedisConnectionFactory) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class[] { ReactiveRedisConnectionFactory.class }, (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        return new ReactiveStringRedisTemplate(connectionFactory) {
+            @SuppressWarnings("unchecked")
+            @Override
+            public <T> Flux<T> execute(RedisScript<T> script, List<String> keys, List<?> args) {
+                executedKeys.add(keys);
+                executedArgs.add(args);
+                return (Flux<T>) scriptResult;
+            }
+        };
+    }
+
+}
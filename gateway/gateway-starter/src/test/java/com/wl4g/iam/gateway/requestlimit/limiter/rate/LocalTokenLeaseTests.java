@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.requestlimit.limiter.rate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.wl4g.iam.gateway.requestlimit.config.IamRequestLimiterProperties.LimiterProperties.RedisRateLimiterProperties.LocalLeaseProperties;
+
+/**
+ * {@link LocalTokenLeaseTests}
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-08 v3.1.0
+ * @since v3.1.0
+ */
+public class LocalTokenLeaseTests {
+
+    @Test
+    public void testAcquireUntilLeaseRunsOut() {
+        RedisRateRequestLimiterStrategy strategy = newStrategy(1000, 1);
+        LocalTokenLease lease = new LocalTokenLease();
+        assertFalse(lease.tryAcquire(1, 1000L));
+
+        lease.refill(3, 500, strategy, 1000L, 1000L);
+        assertEquals(503, lease.getEstimatedTokensLeft());
+        assertTrue(lease.tryAcquire(1, 1001L));
+        assertTrue(lease.tryAcquire(1, 1001L));
+        assertTrue(lease.tryAcquire(1, 1001L));
+        assertFalse(lease.tryAcquire(1, 1001L));
+        assertEquals(0, lease.getTokens());
+    }
+
+    @Test
+    public void testExpiredLeaseDiscarded() {
+        RedisRateRequestLimiterStrategy strategy = newStrategy(1000, 1);
+        LocalTokenLease lease = new LocalTokenLease();
+        lease.refill(10, 500, strategy, 1000L, 1000L);
+        assertFalse(lease.tryAcquire(1, 2000L));
+
+        lease.refill(2, 500, strategy, 2000L, 1000L);
+        assertEquals(2, lease.getTokens());
+    }
+
+    @Test
+    public void testAdaptiveLeaseSize() {
+        RedisRateRequestLimiterStrategy strategy = newStrategy(1000, 1);
+        LocalLeaseProperties leaseConfig = new LocalLeaseProperties();
+        leaseConfig.setLeaseTargetMillis(100);
+        leaseConfig.setMaxLeaseRatio(0.1);
+        leaseConfig.setLeaseExpireMillis(1000);
+
+        LocalTokenLease lease = new LocalTokenLease();
+        // No history, lease the requested tokens only.
+        assertEquals(1, lease.nextLeaseSize(strategy, leaseConfig, 1000L));
+
+        // 500 tokens per second, expected 50 within 100ms.
+        lease.refill(1000, 0, strategy, 1000L, 1000L);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(lease.tryAcquire(1, 1100L));
+        }
+        assertEquals(50, lease.nextLeaseSize(strategy, leaseConfig, 1200L));
+
+        // Bounded by the 10% of burst capacity.
+        for (int i = 0; i < 800; i++) {
+            assertTrue(lease.tryAcquire(1, 1300L));
+        }
+        assertEquals(100, lease.nextLeaseSize(strategy, leaseConfig, 1400L));
+    }
+
+    private RedisRateRequestLimiterStrategy newStrategy(int burstCapacity, int requestedTokens) {
+        RedisRateRequestLimiterStrategy strategy = new RedisRateRequestLimiterStrategy();
+        strategy.setBurstCapacity(burstCapacity);
+        strategy.setReplenishRate(burstCapacity);
+        strategy.setRequestedTokens(requestedTokens);
+        return strategy;
+    }
+
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.requestlimit.limiter.window;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.commons.util.InetUtils;
+import org.springframework.cloud.commons.util.InetUtilsProperties;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsName;
+import com.wl4g.iam.gateway.requestlimit.IamRequestLimiterFilterFactory;
+import com.wl4g.iam.gateway.requestlimit.config.IamRequestLimiterProperties;
+import com.wl4g.iam.gateway.requestlimit.config.IamRequestLimiterProperties.LimiterProperties.RedisSlidingWindowLimiterProperties;
+import com.wl4g.iam.gateway.requestlimit.configurer.LimiterStrategyConfigurer;
+import com.wl4g.iam.gateway.requestlimit.limiter.IamRequestLimiter.LimitedResult;
+import com.wl4g.iam.gateway.util.redis.RedisScriptTestSupport;
+import com.wl4g.infra.common.eventbus.EventBusSupport;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link RedisSlidingWindowIamRequestLimiterTests}, the script tests are
+ * skipped when the redis is unavailable, see {@link RedisScriptTestSupport}.
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+public class RedisSlidingWindowIamRequestLimiterTests {
+
+    static final String TEST_ROUTE_ID = "my-test-route";
+    static final String TEST_KEY_PREFIX = "test_iam_gateway:window.{user1}.";
+    static final long TEST_WINDOW = 10_000L;
+
+    private PrometheusMeterRegistry meterRegistry;
+    private IamRequestLimiterProperties requestLimiterConfig;
+    private RedisSlidingWindowIamRequestLimiter limiter;
+    private final List<List<String>> executedKeys = new ArrayList<>();
+    private final List<List<?>> executedArgs = new ArrayList<>();
+    private Flux<List<Long>> scriptResult;
+
+    @Before
+    public void init() throws Exception {
+        MockEnvironment env = new MockEnvironment();
+        env.setProperty("spring.application.name", "test-iam-gateway");
+        env.setProperty("server.port", "12345");
+        this.meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        IamGatewayMetricsFacade metricsFacade = new IamGatewayMetricsFacade(meterRegistry,
+                new InetUtils(new InetUtilsProperties()), env);
+        metricsFacade.afterPropertiesSet();
+
+        this.requestLimiterConfig = new IamRequestLimiterProperties();
+        RedisSlidingWindowRequestLimiterStrategy strategy = requestLimiterConfig.getLimiter()
+                .getSlidingWindow()
+                .getDefaultStrategy();
+        strategy.setRequestCapacity(10);
+        strategy.setWindowMillis(TEST_WINDOW);
+        LimiterStrategyConfigurer configurer = (LimiterStrategyConfigurer) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] { LimiterStrategyConfigurer.class }, (proxy, method, args) -> Mono.empty());
+        this.limiter = new RedisSlidingWindowIamRequestLimiter(requestLimiterConfig, configurer, newRedisTemplate(),
+                new EventBusSupport(1), metricsFacade);
+    }
+
+    @Test
+    public void testSlidingWindowScriptWeightedByPrevious() {
+        ReactiveStringRedisTemplate redisTemplate = RedisScriptTestSupport.connectRedisOrSkip();
+        long window = System.currentTimeMillis() / TEST_WINDOW;
+        List<String> keys = windowKeys(window);
+        redisTemplate.delete(keys.toArray(new String[0])).block();
+        redisTemplate.opsForValue().set(keys.get(1), "8").block();
+
+        // A quarter of the current window elapsed, the previous window is
+        // weighted by 0.75, i.e. 6 of the capacity 10.
+        long now = window * TEST_WINDOW + TEST_WINDOW / 4;
+        assertEquals(asList(1L, 3L), slidingWindow(redisTemplate, keys, now, 1));
+        assertEquals(asList(1L, 2L), slidingWindow(redisTemplate, keys, now, 1));
+        assertEquals(asList(1L, 1L), slidingWindow(redisTemplate, keys, now, 1));
+        assertEquals(asList(1L, 0L), slidingWindow(redisTemplate, keys, now, 1));
+        assertEquals(asList(0L, 0L), slidingWindow(redisTemplate, keys, now, 1));
+        // The rejected request is not counted.
+        assertEquals("4", redisTemplate.opsForValue().get(keys.get(0)).block());
+
+        // The current counter expires after two windows.
+        long pttl = redisTemplate.getExpire(keys.get(0)).block().toMillis();
+        assertTrue(pttl > 0 && pttl <= TEST_WINDOW * 2, "pttl: " + pttl);
+
+        // Half of the next window elapsed, the counter of 4 becomes the
+        // previous window, which is weighted by 0.5.
+        List<String> nextKeys = windowKeys(window + 1);
+        long next = (window + 1) * TEST_WINDOW + TEST_WINDOW / 2;
+        assertEquals(asList(1L, 5L), slidingWindow(redisTemplate, nextKeys, next, 3));
+        assertEquals(asList(0L, 5L), slidingWindow(redisTemplate, nextKeys, next, 6));
+
+        redisTemplate.delete(keys.get(0), keys.get(1), nextKeys.get(0)).block();
+    }
+
+    @Test
+    public void testSlidingWindowScriptWithoutPrevious() {
+        ReactiveStringRedisTemplate redisTemplate = RedisScriptTestSupport.connectRedisOrSkip();
+        long window = System.currentTimeMillis() / TEST_WINDOW;
+        List<String> keys = windowKeys(window);
+        redisTemplate.delete(keys.toArray(new String[0])).block();
+
+        long now = window * TEST_WINDOW;
+        assertEquals(asList(1L, 5L), slidingWindow(redisTemplate, keys, now, 5));
+        assertEquals(asList(1L, 0L), slidingWindow(redisTemplate, keys, now, 5));
+        assertEquals(asList(0L, 0L), slidingWindow(redisTemplate, keys, now, 1));
+        redisTemplate.delete(keys.toArray(new String[0])).block();
+    }
+
+    @Test
+    public void testIsAllowedKeysArgsAndHeaders() {
+        this.scriptResult = Flux.just(asList(1L, 9L));
+        LimitedResult result = limiter.isAllowed(new IamRequestLimiterFilterFactory.Config(), newExchange(), TEST_ROUTE_ID,
+                "user1").block();
+
+        assertTrue(result.isAllowed());
+        assertEquals(9L, result.getTokensLeft());
+        assertEquals("10", result.getHeaders().get(RedisSlidingWindowLimiterProperties.SLIDINGWINDOW_REQUEST_CAPACITY_HEADER));
+        assertEquals("9", result.getHeaders().get(RedisSlidingWindowLimiterProperties.SLIDINGWINDOW_REMAINING_HEADER));
+
+        // The current and the previous window counters of the same hash tag.
+        List<String> keys = executedKeys.get(0);
+        String prefix = requestLimiterConfig.getLimiter().getSlidingWindow().getTokenPrefix().concat(".{user1}.");
+        long now = Long.parseLong((String) executedArgs.get(0).get(2));
+        assertEquals(prefix.concat(String.valueOf(now / TEST_WINDOW)), keys.get(0));
+        assertEquals(prefix.concat(String.valueOf(now / TEST_WINDOW - 1)), keys.get(1));
+        // capacity, window, now, requested tokens
+        assertEquals("10", executedArgs.get(0).get(0));
+        assertEquals(String.valueOf(TEST_WINDOW), executedArgs.get(0).get(1));
+        assertEquals("1", executedArgs.get(0).get(3));
+    }
+
+    @Test
+    public void testIsAllowedRejected() {
+        this.scriptResult = Flux.just(asList(0L, 0L));
+        LimitedResult result = limiter.isAllowed(new IamRequestLimiterFilterFactory.Config(), newExchange(), TEST_ROUTE_ID,
+                "user1").block();
+
+        assertFalse(result.isAllowed());
+        assertEquals(1d, meterRegistry.get(MetricsName.REDIS_WINDOWLIMIT_HITS_TOTAL.getName()).counter().count());
+    }
+
+    @Test
+    public void testIsAllowedWhenRedisFailed() {
+        this.scriptResult = Flux.error(new IllegalStateException("Connection refused"));
+        LimitedResult result = limiter.isAllowed(new IamRequestLimiterFilterFactory.Config(), newExchange(), TEST_ROUTE_ID,
+                "user1").block();
+
+        // Don't want a hard dependency on redis to allow traffic.
+        assertTrue(result.isAllowed());
+        assertEquals(-1L, result.getTokensLeft());
+    }
+
+    private List<Long> slidingWindow(ReactiveStringRedisTemplate redisTemplate, List<String> keys, long now, int requested) {
+        return redisTemplate.execute(RedisSlidingWindowIamRequestLimiter.SLIDING_WINDOW_SCRIPT, keys,
+                asList("10", String.valueOf(TEST_WINDOW), String.valueOf(now), String.valueOf(requested))).blockFirst();
+    }
+
+    private List<String> windowKeys(long window) {
+        return asList(TEST_KEY_PREFIX.concat(String.valueOf(window)), TEST_KEY_PREFIX.concat(String.valueOf(window - 1)));
+    }
+
+    private MockServerWebExchange newExchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("http://localhost/hello").build());
+    }
+
+    private ReactiveStringRedisTemplate newRedisTemplate() {
+        ReactiveRedisConnectionFactory connectionFactory = (ReactiveRedisConnectionFactory) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class[] { ReactiveRedisConnectionFactory.class }, (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        return new ReactiveStringRedisTemplate(connectionFactory) {
+            @SuppressWarnings("unchecked")
+            @Override
+            public <T> Flux<T> execute(RedisScript<T> script, List<String> keys, List<?> args) {
+                executedKeys.add(keys);
+                executedArgs.add(args);
+                return (Flux<T>) scriptResult;
+            }
+        };
+    }
+
+}
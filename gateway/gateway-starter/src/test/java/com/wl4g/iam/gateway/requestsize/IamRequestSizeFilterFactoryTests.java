@@ -0,0 +1,138 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.requestsize;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.commons.util.InetUtils;
+import org.springframework.cloud.commons.util.InetUtilsProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.handler.AsyncPredicate;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
+import com.wl4g.iam.gateway.mock.MockGatewayFilterChain;
+import com.wl4g.iam.gateway.requestsize.config.IamRequestSizeProperties;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import reactor.core.publisher.Flux;
+
+/**
+ * {@link IamRequestSizeFilterFactoryTests}
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+public class IamRequestSizeFilterFactoryTests {
+
+    private PrometheusMeterRegistry meterRegistry;
+    private IamRequestSizeFilterFactory factory;
+
+    @Before
+    public void init() throws Exception {
+        MockEnvironment env = new MockEnvironment();
+        env.setProperty("spring.application.name", "test-iam-gateway");
+        env.setProperty("server.port", "12345");
+        this.meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        IamGatewayMetricsFacade metricsFacade = new IamGatewayMetricsFacade(meterRegistry,
+                new InetUtils(new InetUtilsProperties()), env);
+        metricsFacade.afterPropertiesSet();
+        this.factory = new IamRequestSizeFilterFactory(new IamRequestSizeProperties(), metricsFacade);
+    }
+
+    @Test
+    public void testRejectByContentLength() {
+        MockServerWebExchange exchange = newExchange(MockServerHttpRequest.post("http://localhost/upload")
+                .contentLength(11)
+                .body("hello world"));
+        AtomicLong upstreamBytes = new AtomicLong(0);
+        newFilterChain(10, upstreamBytes).filter(exchange).block();
+
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, exchange.getResponse().getStatusCode());
+        assertEquals(0, upstreamBytes.get());
+    }
+
+    @Test
+    public void testRejectChunkedBodyWhileStreaming() {
+        MockServerWebExchange exchange = newExchange(
+                MockServerHttpRequest.post("http://localhost/upload").body(chunks("hello", " ", "world", "!!!")));
+        AtomicLong upstreamBytes = new AtomicLong(0);
+        newFilterChain(10, upstreamBytes).filter(exchange).block();
+
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, exchange.getResponse().getStatusCode());
+        // Aborted at the 3rd chunk, and the exceeded chunk is not forwarded.
+        assertEquals(6, upstreamBytes.get());
+        assertEquals(11d, meterRegistry.get("iscg_request_size_ingress_bytes_total").counter().count());
+        assertEquals(1d, meterRegistry.get("iscg_request_size_rejected_total").counter().count());
+    }
+
+    @Test
+    public void testPassChunkedBodyWithinLimit() {
+        MockServerWebExchange exchange = newExchange(
+                MockServerHttpRequest.post("http://localhost/upload").body(chunks("hello", " ", "world")));
+        AtomicLong upstreamBytes = new AtomicLong(0);
+        newFilterChain(20, upstreamBytes).filter(exchange).block();
+
+        assertNull(exchange.getResponse().getStatusCode());
+        assertEquals(11, upstreamBytes.get());
+        assertEquals(11d, meterRegistry.get("iscg_request_size_ingress_bytes_total").counter().count());
+    }
+
+    private MockGatewayFilterChain newFilterChain(long maxBodySize, AtomicLong upstreamBytes) {
+        IamRequestSizeFilterFactory.Config config = new IamRequestSizeFilterFactory.Config();
+        config.setMaxBodySize(DataSize.ofBytes(maxBodySize));
+        // Mock the routing filter that streams the body to upstream.
+        GatewayFilter upstream = (exchange, chain) -> exchange.getRequest().getBody().doOnNext(buffer -> {
+            upstreamBytes.addAndGet(buffer.readableByteCount());
+            DataBufferUtils.release(buffer);
+        }).then();
+        return new MockGatewayFilterChain(asList(factory.apply(config), upstream));
+    }
+
+    private Flux<DataBuffer> chunks(String... chunks) {
+        return Flux.fromArray(chunks).map(chunk -> DefaultDataBufferFactory.sharedInstance.wrap(chunk.getBytes(UTF_8)));
+    }
+
+    private MockServerWebExchange newExchange(MockServerHttpRequest request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        Route route = Route.async()
+                .asyncPredicate(AsyncPredicate.from(_exchange -> true))
+                .id("upload-route")
+                .uri("http://localhost")
+                .build();
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+        return exchange;
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.responsecache;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.Test;
+import org.springframework.cloud.gateway.handler.AsyncPredicate;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import com.wl4g.iam.gateway.responsecache.config.ResponseCacheProperties.CachedProperties;
+
+/**
+ * {@link ResponseCacheKeyBuilderTests}
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-09 v3.1.0
+ * @since v3.1.0
+ */
+public class ResponseCacheKeyBuilderTests {
+
+    @Test
+    public void testKeyIncludesRouteAndPath() {
+        ResponseCacheKeyBuilder builder = new ResponseCacheKeyBuilder(new CachedProperties());
+        String key1 = builder.build(newExchange("route1", MockServerHttpRequest.get("http://localhost/v1/users?id=1")));
+        String key2 = builder.build(newExchange("route1", MockServerHttpRequest.get("http://localhost/v1/orders?id=1")));
+        String key3 = builder.build(newExchange("route2", MockServerHttpRequest.get("http://localhost/v1/users?id=1")));
+        assertEquals(32, key1.length());
+        assertNotEquals(key1, key2);
+        assertNotEquals(key1, key3);
+    }
+
+    @Test
+    public void testKeyNormalizesQueryOrder() {
+        CachedProperties config = new CachedProperties();
+        config.setKeyExcludeQueryParams(asList("_t"));
+        ResponseCacheKeyBuilder builder = new ResponseCacheKeyBuilder(config);
+        String key1 = builder.build(newExchange("route1", MockServerHttpRequest.get("http://localhost/v1/users?a=1&b=2&_t=1")));
+        String key2 = builder.build(newExchange("route1", MockServerHttpRequest.get("http://localhost/v1/users?b=2&a=1&_t=2")));
+        String key3 = builder.build(newExchange("route1", MockServerHttpRequest.get("http://localhost/v1/users?a=2&b=1")));
+        assertEquals(key1, key2);
+        assertNotEquals(key1, key3);
+    }
+
+    @Test
+    public void testKeyVariesByHeadersAndHost() {
+        ResponseCacheKeyBuilder builder = new ResponseCacheKeyBuilder(new CachedProperties());
+        String key1 = builder.build(newExchange("route1",
+                MockServerHttpRequest.get("http://localhost/v1/users").header(HttpHeaders.ACCEPT_ENCODING, "gzip")));
+        String key2 = builder.build(newExchange("route1", MockServerHttpRequest.get("http://localhost/v1/users")));
+        String key3 = builder.build(newExchange("route1",
+                MockServerHttpRequest.get("http://localhost/v1/users").header("X-Other", "any")));
+        String key4 = builder.build(newExchange("route1", MockServerHttpRequest.get("http://127.0.0.1/v1/users")));
+        assertNotEquals(key1, key2);
+        assertEquals(key2, key3);
+        assertNotEquals(key2, key4);
+    }
+
+    @Test
+    public void testVariantKeyByResponseVary() {
+        ResponseCacheKeyBuilder builder = new ResponseCacheKeyBuilder(new CachedProperties());
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.setVary(asList("Accept-Encoding", "X-Tenant", "Accept-Language", "x-tenant"));
+        // The configured vary headers are already included in the base key.
+        assertEquals(asList("accept-language", "x-tenant"), builder.getExtraVaryHeaders(responseHeaders));
+        assertTrue(builder.getExtraVaryHeaders(new HttpHeaders()).isEmpty());
+
+        MockServerWebExchange exchange1 = newExchange("route1",
+                MockServerHttpRequest.get("http://localhost/v1/users").header("X-Tenant", "t1"));
+        MockServerWebExchange exchange2 = newExchange("route1",
+                MockServerHttpRequest.get("http://localhost/v1/users").header("X-Tenant", "t2"));
+        MockServerWebExchange exchange3 = newExchange("route1",
+                MockServerHttpRequest.get("http://localhost/v1/users").header("x-tenant", "t1").header("X-Other", "any"));
+        String baseKey = builder.build(exchange1);
+        assertEquals(baseKey, builder.build(exchange2));
+
+        String variantKey1 = builder.buildVariant(baseKey, exchange1.getRequest(), builder.getExtraVaryHeaders(responseHeaders));
+        String variantKey2 = builder.buildVariant(baseKey, exchange2.getRequest(), builder.getExtraVaryHeaders(responseHeaders));
+        String variantKey3 = builder.buildVariant(baseKey, exchange3.getRequest(), builder.getExtraVaryHeaders(responseHeaders));
+        assertNotEquals(baseKey, variantKey1);
+        assertNotEquals(variantKey1, variantKey2);
+        assertEquals(variantKey1, variantKey3);
+    }
+
+    private MockServerWebExchange newExchange(String routeId, MockServerHttpRequest.BaseBuilder<?> request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request.build());
+        Route route = Route.async()
+                .asyncPredicate(AsyncPredicate.from(_exchange -> true))
+                .id(routeId)
+                .uri("http://localhost")
+                .build();
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+        return exchange;
+    }
+
+}
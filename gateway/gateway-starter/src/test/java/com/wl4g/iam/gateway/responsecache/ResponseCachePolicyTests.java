@@ -0,0 +1,195 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.responsecache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+
+import com.wl4g.iam.gateway.responsecache.config.ResponseCacheProperties;
+import com.wl4g.iam.gateway.responsecache.config.ResponseCacheProperties.CachedProperties;
+
+/**
+ * {@link ResponseCachePolicyTests}
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-09 v3.1.0
+ * @since v3.1.0
+ */
+public class ResponseCachePolicyTests {
+
+    private final ResponseCachePolicy policy = new ResponseCachePolicy(new CachedProperties(),
+            ResponseCacheProperties.RESPONSE_CACHED_HEADER);
+
+    @Test
+    public void testEncodeAndDecode() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setETag("\"v1\"");
+        headers.add("X-Multi", "a");
+        headers.add("X-Multi", "b");
+        CachedResponse cached = new CachedResponse(203, headers, "{\"id\":1}".getBytes(UTF_8), 1000L, 2000L);
+
+        CachedResponse decoded = CachedResponse.decode(cached.encode());
+        assertNotNull(decoded);
+        assertEquals(203, decoded.getStatus());
+        assertEquals(headers, decoded.getHeaders());
+        assertArrayEquals(cached.getBody(), decoded.getBody());
+        assertEquals(1000L, decoded.getCreateTime());
+        assertEquals(2000L, decoded.getExpireTime());
+        assertTrue(decoded.isExpired(2000L));
+
+        // The raw body cached by the older versions.
+        assertNull(CachedResponse.decode("{\"id\":1}".getBytes(UTF_8)));
+        assertNull(CachedResponse.decode(new byte[] { CachedResponse.MAGIC, CachedResponse.VERSION, 0, 1 }));
+    }
+
+    @Test
+    public void testDecodeCorrupted() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("x-a", "1");
+        byte[] data = new CachedResponse(200, headers, "{}".getBytes(UTF_8), 0L, 0L).encode();
+        int bodyLengthOffset = data.length - 2 - 4;
+
+        // Truncated at every position.
+        for (int i = 0; i < data.length; i++) {
+            assertNull(CachedResponse.decode(Arrays.copyOf(data, i)));
+        }
+        // Negative body length.
+        byte[] negative = data.clone();
+        negative[bodyLengthOffset] = (byte) 0x80;
+        assertNull(CachedResponse.decode(negative));
+        // Huge body length is not allocated.
+        byte[] huge = data.clone();
+        huge[bodyLengthOffset] = (byte) 0x7f;
+        assertNull(CachedResponse.decode(huge));
+        // Header name length exceeds the remaining bytes.
+        byte[] longName = data.clone();
+        longName[1 + 1 + 2 + 8 + 8 + 2] = (byte) 0xff;
+        assertNull(CachedResponse.decode(longName));
+        // Header value count exceeds the remaining bytes.
+        byte[] manyValues = data.clone();
+        manyValues[1 + 1 + 2 + 8 + 8 + 2 + 2 + 3] = (byte) 0xff;
+        assertNull(CachedResponse.decode(manyValues));
+    }
+
+    @Test
+    public void testEncodeLongHeaders() {
+        char[] value = new char[40_000];
+        Arrays.fill(value, 'a');
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("X-Long", new String(value));
+        CachedResponse decoded = CachedResponse.decode(new CachedResponse(200, headers, new byte[0], 0L, 0L).encode());
+        assertEquals(40_000, decoded.getHeaders().getFirst("X-Long").length());
+
+        // Exceeded the unsigned 2 bytes length, the response is not cached
+        // instead of truncated.
+        HttpHeaders tooLong = new HttpHeaders();
+        tooLong.add("X-Too-Long", new String(new char[70_000]).replace('\0', 'a'));
+        assertThrows(IllegalArgumentException.class, () -> new CachedResponse(200, tooLong, new byte[0], 0L, 0L).encode());
+
+        HttpHeaders tooMany = new HttpHeaders();
+        tooMany.put("X-Too-Many", Collections.nCopies(70_000, "a"));
+        assertThrows(IllegalArgumentException.class, () -> new CachedResponse(200, tooMany, new byte[0], 0L, 0L).encode());
+    }
+
+    @Test
+    public void testEncodeAndDecodeVariants() {
+        CachedResponse variants = CachedResponse.newVariants(Arrays.asList("accept-language", "x-tenant"), 1000L, 2000L);
+        CachedResponse decoded = CachedResponse.decode(variants.encode());
+        assertTrue(decoded.isVariants());
+        assertEquals(Arrays.asList("accept-language", "x-tenant"), decoded.getHeaders().getVary());
+        assertEquals(2000L, decoded.getExpireTime());
+        assertFalse(new CachedResponse(200, new HttpHeaders(), new byte[0], 0L, 0L).isVariants());
+    }
+
+    @Test
+    public void testNotCacheableResponses() {
+        long now = System.currentTimeMillis();
+        assertNull(policy.toCachedResponse(500, new HttpHeaders(), new byte[0], now));
+        assertNull(policy.toCachedResponse(404, new HttpHeaders(), new byte[0], now));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl("private, max-age=60");
+        assertNull(policy.toCachedResponse(200, headers, new byte[0], now));
+
+        headers = new HttpHeaders();
+        headers.add(HttpHeaders.SET_COOKIE, "sid=1");
+        assertNull(policy.toCachedResponse(200, headers, new byte[0], now));
+
+        headers = new HttpHeaders();
+        headers.setCacheControl("max-age=0");
+        assertNull(policy.toCachedResponse(200, headers, new byte[0], now));
+    }
+
+    @Test
+    public void testExpireTimeAndFilteredHeaders() {
+        long now = 1_000_000L;
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl("public, max-age=60, s-maxage=30");
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setContentLength(2);
+        headers.set(HttpHeaders.CONNECTION, "keep-alive");
+        CachedResponse cached = policy.toCachedResponse(200, headers, "{}".getBytes(UTF_8), now);
+        assertNotNull(cached);
+        assertEquals(now + 30_000L, cached.getExpireTime());
+        assertFalse(cached.getHeaders().containsKey(HttpHeaders.CONTENT_LENGTH));
+        assertFalse(cached.getHeaders().containsKey(HttpHeaders.CONNECTION));
+        assertEquals(MediaType.APPLICATION_JSON, cached.getHeaders().getContentType());
+
+        headers = new HttpHeaders();
+        headers.setDate(now);
+        headers.setExpires(now + 120_000L);
+        assertEquals(now + 5000L + 120_000L, policy.toCachedResponse(200, headers, new byte[0], now + 5000L).getExpireTime());
+
+        // No freshness information, depends on the cache provider.
+        assertEquals(0L, policy.toCachedResponse(200, new HttpHeaders(), new byte[0], now).getExpireTime());
+    }
+
+    @Test
+    public void testConditionalRequests() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag("\"v1\"");
+        headers.setLastModified(1_600_000_000_000L);
+        CachedResponse cached = new CachedResponse(200, headers, new byte[0], 0L, 0L);
+
+        assertTrue(policy.isNotModified(MockServerHttpRequest.get("/").ifNoneMatch("W/\"v1\"").build(), cached));
+        assertTrue(policy.isNotModified(MockServerHttpRequest.get("/").ifNoneMatch("\"v0\", \"v1\"").build(), cached));
+        assertFalse(policy.isNotModified(MockServerHttpRequest.get("/").ifNoneMatch("\"v2\"").build(), cached));
+        assertTrue(policy.isNotModified(MockServerHttpRequest.get("/").ifModifiedSince(1_600_000_000_000L).build(), cached));
+        assertFalse(policy.isNotModified(MockServerHttpRequest.get("/").ifModifiedSince(1_500_000_000_000L).build(), cached));
+        // The 'If-Modified-Since' is ignored if 'If-None-Match' present.
+        assertFalse(policy.isNotModified(MockServerHttpRequest.get("/")
+                .ifNoneMatch("\"v2\"")
+                .ifModifiedSince(1_600_000_000_000L)
+                .build(), cached));
+        assertFalse(policy.isNotModified(MockServerHttpRequest.post("/").ifNoneMatch("\"v1\"").build(), cached));
+    }
+
+}
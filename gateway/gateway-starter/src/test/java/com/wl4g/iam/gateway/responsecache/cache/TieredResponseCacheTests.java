@@ -0,0 +1,233 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.responsecache.cache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.commons.util.InetUtils;
+import org.springframework.cloud.commons.util.InetUtilsProperties;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.DefaultTypedTuple;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.core.ReactiveZSetOperations;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.mock.env.MockEnvironment;
+
+import com.wl4g.iam.gateway.config.ReactiveByteArrayRedisTemplate;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
+import com.wl4g.iam.gateway.responsecache.config.ResponseCacheProperties.TieredCacheProperties;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link TieredResponseCacheTests}
+ * 
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+public class TieredResponseCacheTests {
+
+    private final Map<String, byte[]> values = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Double>> zsets = new ConcurrentHashMap<>();
+    private final List<String> published = new ArrayList<>();
+    private TieredCacheProperties config;
+    private TieredResponseCache cache;
+    private String indexKey;
+
+    @Before
+    public void init() throws Exception {
+        MockEnvironment env = new MockEnvironment();
+        env.setProperty("spring.application.name", "test-iam-gateway");
+        env.setProperty("server.port", "12345");
+        IamGatewayMetricsFacade metricsFacade = new IamGatewayMetricsFacade(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT),
+                new InetUtils(new InetUtilsProperties()), env);
+        metricsFacade.afterPropertiesSet();
+        this.config = new TieredCacheProperties();
+        this.cache = new TieredResponseCache(config, "route1", "node1", newRedisTemplate(), metricsFacade);
+        this.indexKey = config.getKeyPrefix().concat(":index:route1");
+    }
+
+    @Test
+    public void testPutTracksIndexWithoutPublishing() {
+        assertTrue(cache.put("key1", bytes("value1")).block());
+        assertTrue(cache.put("key2", bytes("value2")).block());
+
+        assertArrayEquals(bytes("value1"), values.get(config.getKeyPrefix().concat(":route1:key1")));
+        assertEquals(2, zsets.get(indexKey).size());
+        assertEquals(2L, cache.size().block());
+        assertTrue(published.isEmpty());
+    }
+
+    @Test
+    public void testSizeExcludesExpiredEntries() {
+        cache.put("key1", bytes("value1")).block();
+        // The entry of 'key0' has expired in redis.
+        zsets.get(indexKey).put("key0", 1d);
+
+        assertEquals(1L, cache.size().block());
+        assertFalse(zsets.get(indexKey).containsKey("key0"));
+    }
+
+    @Test
+    public void testInvalidate() {
+        cache.put("key1", bytes("value1")).block();
+        cache.put("key2", bytes("value2")).block();
+
+        assertEquals(1L, cache.invalidate("key1").block());
+        assertNull(values.get(config.getKeyPrefix().concat(":route1:key1")));
+        assertFalse(zsets.get(indexKey).containsKey("key1"));
+        assertNull(cache.get("key1").block());
+        assertArrayEquals(bytes("value2"), cache.get("key2").block());
+        assertEquals(1, published.size());
+        assertEquals("node1\nroute1\nkey1", published.get(0));
+    }
+
+    @Test
+    public void testInvalidateAllWithoutScanningKeyspace() {
+        for (int i = 0; i < 10; i++) {
+            cache.put("key" + i, bytes("value" + i)).block();
+        }
+        values.put("other-route-key", bytes("other"));
+
+        assertTrue(cache.invalidateAll().block());
+        assertEquals(1, values.size());
+        assertFalse(zsets.containsKey(indexKey));
+        assertEquals(0L, cache.size().block());
+        assertNull(cache.get("key1").block());
+        assertEquals("node1\nroute1\n*", published.get(published.size() - 1));
+    }
+
+    @Test
+    public void testNearCacheInvalidatedByRemote() {
+        cache.put("key1", bytes("value1")).block();
+        values.clear();
+        // Near-cache hit.
+        assertArrayEquals(bytes("value1"), cache.get("key1").block());
+
+        cache.onRemoteInvalidate("key1");
+        assertNull(cache.get("key1").block());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(UTF_8);
+    }
+
+    private static String string(Object key) {
+        return new String((byte[]) key, UTF_8);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ReactiveByteArrayRedisTemplate newRedisTemplate() {
+        ReactiveValueOperations<byte[], byte[]> valueOps = (ReactiveValueOperations<byte[], byte[]>) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class[] { ReactiveValueOperations.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "get":
+                        return Mono.justOrEmpty(values.get(string(args[0])));
+                    case "set":
+                        values.put(string(args[0]), (byte[]) args[1]);
+                        return Mono.just(true);
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        ReactiveZSetOperations<byte[], byte[]> zsetOps = (ReactiveZSetOperations<byte[], byte[]>) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class[] { ReactiveZSetOperations.class }, (proxy, method, args) -> {
+                    Map<String, Double> zset = zsets.computeIfAbsent(string(args[0]), key -> new ConcurrentHashMap<>());
+                    switch (method.getName()) {
+                    case "add":
+                        return Mono.just(zset.put(string(args[1]), (Double) args[2]) == null);
+                    case "remove":
+                        long removed = 0;
+                        for (Object member : (Object[]) args[1]) {
+                            removed += zset.remove(string(member)) != null ? 1 : 0;
+                        }
+                        return Mono.just(removed);
+                    case "removeRangeByScore":
+                        Range<Double> range = (Range<Double>) args[1];
+                        int before = zset.size();
+                        zset.values().removeIf(range::contains);
+                        return Mono.just((long) (before - zset.size()));
+                    case "size":
+                        return Mono.just((long) zset.size());
+                    case "scan":
+                        return Flux.fromIterable(new ArrayList<>(zset.entrySet()))
+                                .map(e -> new DefaultTypedTuple<>(bytes(e.getKey()), e.getValue()));
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        ReactiveRedisConnectionFactory connectionFactory = (ReactiveRedisConnectionFactory) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class[] { ReactiveRedisConnectionFactory.class }, (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        return new ReactiveByteArrayRedisTemplate(connectionFactory) {
+            @Override
+            public ReactiveValueOperations<byte[], byte[]> opsForValue() {
+                return valueOps;
+            }
+
+            @Override
+            public ReactiveZSetOperations<byte[], byte[]> opsForZSet() {
+                return zsetOps;
+            }
+
+            @Override
+            public Mono<Long> delete(byte[]... keys) {
+                long deleted = 0;
+                for (byte[] key : keys) {
+                    deleted += (values.remove(string(key)) != null || zsets.remove(string(key)) != null) ? 1 : 0;
+                }
+                return Mono.just(deleted);
+            }
+
+            @Override
+            public Mono<Boolean> expire(byte[] key, Duration timeout) {
+                return Mono.just(true);
+            }
+
+            @Override
+            public Flux<byte[]> scan(ScanOptions options) {
+                throw new UnsupportedOperationException("The keyspace should not be scanned");
+            }
+
+            @Override
+            public Mono<Long> convertAndSend(String destination, byte[] message) {
+                published.add(string(message));
+                return Mono.just(1L);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.retry;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.commons.util.InetUtils;
+import org.springframework.cloud.commons.util.InetUtilsProperties;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.wl4g.iam.gateway.loadbalance.stats.LoadBalancerStats;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
+import com.wl4g.iam.gateway.retry.IamRetryGatewayFilterFactory.RetryConfig;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link HedgedExchangeTests}
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+public class HedgedExchangeTests {
+
+    private IamRetryGatewayFilterFactory factory;
+    private RetryConfig retryConfig;
+
+    @Before
+    public void init() throws Exception {
+        MockEnvironment env = new MockEnvironment();
+        env.setProperty("spring.application.name", "test-iam-gateway");
+        env.setProperty("server.port", "12345");
+        IamGatewayMetricsFacade metricsFacade = new IamGatewayMetricsFacade(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT),
+                new InetUtils(new InetUtilsProperties()), env);
+        metricsFacade.afterPropertiesSet();
+        // The route without id has no load balancer stats.
+        LoadBalancerStats loadBalancerStats = (LoadBalancerStats) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] { LoadBalancerStats.class }, (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        this.factory = new IamRetryGatewayFilterFactory(loadBalancerStats, metricsFacade);
+        this.retryConfig = new RetryConfig();
+        retryConfig.getHedge().setEnabled(true);
+        retryConfig.getHedge().setDelay(Duration.ofMillis(20));
+        retryConfig.getHedge().setMinDelay(Duration.ofMillis(20));
+    }
+
+    @Test
+    public void testHedgedRequestWinsWhenPrimaryIsSlow() {
+        AtomicBoolean primaryCancelled = new AtomicBoolean(false);
+        MockServerWebExchange exchange = newExchange();
+        factory.filterWithHedging(exchange, newChain(attempt -> {
+            if (attempt == 0) {
+                return Mono.delay(Duration.ofSeconds(10)).then().doOnCancel(() -> primaryCancelled.set(true));
+            }
+            return Mono.empty();
+        }), retryConfig, null).block(Duration.ofSeconds(5));
+
+        assertEquals("attempt-1", exchange.getResponse().getBodyAsString().block());
+        assertEquals("1", exchange.getResponse().getHeaders().getFirst("X-Attempt"));
+        assertTrue(primaryCancelled.get());
+    }
+
+    @Test
+    public void testPrimaryWinsAndCancelsInflightHedge() {
+        AtomicBoolean hedgeCancelled = new AtomicBoolean(false);
+        MockServerWebExchange exchange = newExchange();
+        factory.filterWithHedging(exchange, newChain(attempt -> {
+            if (attempt == 0) {
+                return Mono.delay(Duration.ofMillis(100)).then();
+            }
+            // The hedged upstream never responds.
+            return Mono.<Void> never().doOnCancel(() -> hedgeCancelled.set(true));
+        }), retryConfig, null).block(Duration.ofSeconds(5));
+
+        assertEquals("attempt-0", exchange.getResponse().getBodyAsString().block());
+        assertTrue(hedgeCancelled.get());
+    }
+
+    @Test
+    public void testPrimaryWinsBeforeHedgeIsSent() {
+        AtomicInteger attempts = new AtomicInteger(0);
+        MockServerWebExchange exchange = newExchange();
+        factory.filterWithHedging(exchange, newChain(attempt -> {
+            attempts.incrementAndGet();
+            return Mono.empty();
+        }), retryConfig, null).block(Duration.ofSeconds(5));
+
+        assertEquals("attempt-0", exchange.getResponse().getBodyAsString().block());
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void testPrimaryErrorPropagatedWithoutWinner() {
+        IllegalStateException error = new IllegalStateException("primary failed");
+        MockServerWebExchange exchange = newExchange();
+        Mono<Void> result = factory.filterWithHedging(exchange, newChain(attempt -> Mono.error(error)), retryConfig, null);
+
+        assertSame(error, assertThrows(IllegalStateException.class, () -> result.block(Duration.ofSeconds(5))));
+    }
+
+    @Test
+    public void testLoserErrorIgnored() {
+        MockServerWebExchange exchange = newExchange();
+        factory.filterWithHedging(exchange, newChain(attempt -> {
+            if (attempt == 0) {
+                return Mono.delay(Duration.ofMillis(100)).then();
+            }
+            return Mono.error(new IllegalStateException("hedge failed"));
+        }), retryConfig, null).block(Duration.ofSeconds(5));
+
+        assertEquals("attempt-0", exchange.getResponse().getBodyAsString().block());
+    }
+
+    @Test
+    public void testLoserBodyCancelledWithoutDraining() {
+        HedgedExchange hedged = new HedgedExchange(newExchange());
+        AtomicReference<ServerWebExchange> loser = new AtomicReference<>();
+        AtomicBoolean loserDone = new AtomicBoolean(false);
+        hedged.route(attempt -> {
+            loser.set(attempt);
+            return Mono.never();
+        }).doOnSuccess(v -> loserDone.set(true)).subscribe();
+        assertFalse(hedged.isClaimed());
+
+        hedged.route(attempt -> attempt.getResponse().setComplete()).block(Duration.ofSeconds(5));
+        assertEquals(1, hedged.getWinner());
+        // The losing attempt is cancelled as soon as the winner claimed.
+        assertTrue(loserDone.get());
+
+        AtomicInteger emitted = new AtomicInteger(0);
+        AtomicBoolean bodyCancelled = new AtomicBoolean(false);
+        Flux<DataBuffer> body = Flux.range(0, 100)
+                .map(i -> DefaultDataBufferFactory.sharedInstance.wrap(("chunk-" + i).getBytes(UTF_8)))
+                .doOnNext(buffer -> emitted.incrementAndGet())
+                .doOnCancel(() -> bodyCancelled.set(true));
+        loser.get().getResponse().writeWith(body).block(Duration.ofSeconds(5));
+        assertEquals(0, emitted.get());
+        assertTrue(bodyCancelled.get());
+    }
+
+    /**
+     * Mock the routing filter, that writes the response of the attempt after
+     * the upstream completed.
+     */
+    private GatewayFilterChain newChain(Function<Integer, Mono<Void>> upstream) {
+        AtomicInteger attempts = new AtomicInteger(0);
+        return exchange -> {
+            int attempt = attempts.getAndIncrement();
+            return upstream.apply(attempt).then(Mono.defer(() -> {
+                exchange.getResponse().getHeaders().set("X-Attempt", String.valueOf(attempt));
+                DataBuffer buffer = exchange.getResponse().bufferFactory().wrap(("attempt-" + attempt).getBytes(UTF_8));
+                return exchange.getResponse().writeWith(Mono.just(buffer));
+            }));
+        };
+    }
+
+    private MockServerWebExchange newExchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("http://localhost/api/hello"));
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.retry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+
+import org.junit.Test;
+import org.springframework.cloud.commons.util.InetUtils;
+import org.springframework.cloud.commons.util.InetUtilsProperties;
+import org.springframework.mock.env.MockEnvironment;
+
+import com.wl4g.iam.gateway.loadbalance.stats.LoadBalancerStats;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
+import com.wl4g.iam.gateway.retry.IamRetryGatewayFilterFactory.RetryConfig;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+
+/**
+ * {@link RetryBudgetTests}
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+public class RetryBudgetTests {
+
+    @Test
+    public void testRetriesBoundedByPercentOfSuccess() {
+        RetryBudget budget = new RetryBudget(20, 0, 100, 0L);
+        assertFalse(budget.tryWithdraw(0L));
+
+        for (int i = 0; i < 10; i++) {
+            budget.deposit();
+        }
+        assertEquals(2d, budget.getBalance(), 0.0001d);
+        assertTrue(budget.tryWithdraw(0L));
+        assertTrue(budget.tryWithdraw(0L));
+        assertFalse(budget.tryWithdraw(0L));
+    }
+
+    @Test
+    public void testReserveRefillAndMaxBalance() {
+        RetryBudget budget = new RetryBudget(20, 10, 5, 0L);
+        // Cold start reserve is bounded by max balance.
+        assertEquals(5d, budget.getBalance(), 0.0001d);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(budget.tryWithdraw(0L));
+        }
+        assertFalse(budget.tryWithdraw(0L));
+
+        // 10 retries per second, i.e. 1 retry per 100ms.
+        assertFalse(budget.tryWithdraw(50L));
+        assertTrue(budget.tryWithdraw(100L));
+        assertFalse(budget.tryWithdraw(100L));
+
+        budget.tryWithdraw(60_000L);
+        assertEquals(4d, budget.getBalance(), 0.0001d);
+    }
+
+    @Test
+    public void testConfiguredBy() {
+        RetryBudget budget = new RetryBudget(20, 10, 100, 0L);
+        assertTrue(budget.isConfiguredBy(20, 10, 100));
+        assertFalse(budget.isConfiguredBy(10, 10, 100));
+    }
+
+    @Test
+    public void testRouteBudgetsPruned() throws Exception {
+        IamRetryGatewayFilterFactory factory = newFactory();
+        RetryConfig retryConfig = new RetryConfig();
+        retryConfig.setRouteId("route-1");
+        // The budget is disabled by default.
+        assertNull(factory.obtainRetryBudget(retryConfig));
+
+        retryConfig.getBudget().setEnabled(true);
+        RetryBudget budget = factory.obtainRetryBudget(retryConfig);
+        assertNotNull(budget);
+        factory.pruneRetryBudgets(Collections.singleton("route-1"));
+        assertSame(budget, factory.obtainRetryBudget(retryConfig));
+
+        // The route is deleted.
+        factory.pruneRetryBudgets(Collections.singleton("route-2"));
+        assertNotSame(budget, factory.obtainRetryBudget(retryConfig));
+    }
+
+    private IamRetryGatewayFilterFactory newFactory() throws Exception {
+        MockEnvironment env = new MockEnvironment();
+        env.setProperty("spring.application.name", "test-iam-gateway");
+        env.setProperty("server.port", "12345");
+        IamGatewayMetricsFacade metricsFacade = new IamGatewayMetricsFacade(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT),
+                new InetUtils(new InetUtilsProperties()), env);
+        metricsFacade.afterPropertiesSet();
+        LoadBalancerStats loadBalancerStats = (LoadBalancerStats) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] { LoadBalancerStats.class }, (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        return new IamRetryGatewayFilterFactory(loadBalancerStats, metricsFacade);
+    }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.route.repository;
+
+import static java.util.Objects.isNull;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.cloud.gateway.event.RefreshRoutesEvent;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+
+import com.wl4g.iam.gateway.route.config.RouteProperties;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * {@link AbstractRouteRepositoryTests}
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+public class AbstractRouteRepositoryTests {
+
+    @Test
+    public void testRefreshOnlyPublishOnChanged() {
+        TestRouteRepository repository = new TestRouteRepository();
+        repository.permanentRoutes.put("r1", newRoute("r1", "http://localhost:8080"));
+        repository.permanentRoutes.put("r2", newRoute("r2", "http://localhost:8081"));
+
+        repository.refreshRoutes().block();
+        assertEquals(1, repository.events.get());
+        assertEquals(2, repository.getRouteDefinitions().count().block());
+
+        // The revision unchanged, nothing loaded.
+        repository.refreshRoutes().block();
+        assertEquals(1, repository.loads.get());
+
+        // The revision changed but routes unchanged.
+        repository.revision = 2L;
+        repository.refreshRoutes().block();
+        assertEquals(2, repository.loads.get());
+        assertEquals(1, repository.events.get());
+
+        // Modified and removed.
+        repository.permanentRoutes.put("r1", newRoute("r1", "http://localhost:9090"));
+        repository.permanentRoutes.remove("r2");
+        repository.revision = 3L;
+        repository.refreshRoutes().block();
+        assertEquals(2, repository.events.get());
+        assertEquals(URI.create("http://localhost:9090"), repository.getRouteDefinitions().blockFirst().getUri());
+        assertEquals(1, repository.getRouteDefinitions().count().block());
+    }
+
+    @Test
+    public void testConcurrentRefreshJoinInFlight() {
+        TestRouteRepository repository = new TestRouteRepository();
+        repository.permanentRoutes.put("r1", newRoute("r1", "http://localhost:8080"));
+        Sinks.Empty<Void> gate = Sinks.empty();
+        repository.revisionGate = gate.asMono();
+
+        AtomicInteger completed = new AtomicInteger();
+        repository.refreshRoutes().subscribe(null, null, completed::incrementAndGet);
+        // Changed while the refresh is in progress.
+        repository.permanentRoutes.put("r2", newRoute("r2", "http://localhost:8081"));
+        repository.revision = 2L;
+        repository.refreshRoutes().subscribe(null, null, completed::incrementAndGet);
+        repository.refreshRoutes().subscribe(null, null, completed::incrementAndGet);
+        assertEquals(0, completed.get());
+
+        repository.revisionGate = null;
+        gate.tryEmitEmpty();
+
+        // The concurrent requests are coalesced into one more refresh, and
+        // complete after it.
+        assertEquals(3, completed.get());
+        assertEquals(2, repository.loads.get());
+        assertEquals(2, repository.getRouteDefinitions().count().block());
+
+        // The next refresh is not blocked.
+        repository.refreshRoutes().block();
+        assertEquals(2, repository.loads.get());
+    }
+
+    @Test
+    public void testRefreshErrorPropagated() {
+        TestRouteRepository repository = new TestRouteRepository();
+        repository.revisionGate = Mono.error(new IllegalStateException("Connection refused"));
+        assertThrows(IllegalStateException.class, () -> repository.refreshRoutes().block());
+
+        repository.revisionGate = null;
+        repository.permanentRoutes.put("r1", newRoute("r1", "http://localhost:8080"));
+        repository.refreshRoutes().block();
+        assertEquals(1, repository.getRouteDefinitions().count().block());
+    }
+
+    private static RouteDefinition newRoute(String id, String uri) {
+        RouteDefinition route = new RouteDefinition();
+        route.setId(id);
+        route.setUri(URI.create(uri));
+        return route;
+    }
+
+    static class TestRouteRepository extends AbstractRouteRepository {
+        final Map<String, RouteDefinition> permanentRoutes = new ConcurrentHashMap<>();
+        final AtomicInteger loads = new AtomicInteger();
+        final AtomicInteger events = new AtomicInteger();
+        volatile long revision = 1L;
+        volatile Mono<Void> revisionGate;
+
+        TestRouteRepository() {
+            this.routeConfig = new RouteProperties();
+            this.publisher = event -> {
+                if (event instanceof RefreshRoutesEvent) {
+                    events.incrementAndGet();
+                }
+            };
+        }
+
+        @Override
+        protected Flux<RouteDefinition> loadPermanentRouteDefinitions() {
+            loads.incrementAndGet();
+            return Flux.fromIterable(permanentRoutes.values());
+        }
+
+        @Override
+        protected Mono<Long> loadPermanentRevision() {
+            Mono<Void> gate = revisionGate;
+            return isNull(gate) ? Mono.just(revision) : gate.then(Mono.just(revision));
+        }
+    }
+
+}
@@ -31,7 +31,7 @@ import org.springframework.cloud.gateway.route.RouteLocator;
 import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.core.Ordered;
-import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.context.junit4.SpringRunner;
@@ -66,7 +66,7 @@ public class SimpleSignAuthingFilterTests {
     @TestConfiguration
     public static class TestEnvParameterSimpleParamsBytesSortedHashingS256Configuration {
         private @Autowired IamSecurityProperties authingConfig;
-        private @Autowired StringRedisTemplate redisTemplate;
+        private @Autowired ReactiveStringRedisTemplate redisTemplate;
         private @Autowired IamGatewayMetricsFacade metricsFacade;
         private EventBusSupport eventBus = EventBusSupport.getDefault();
 
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.security.sign;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+
+import com.google.common.hash.Hashing;
+import com.wl4g.iam.gateway.security.sign.SimpleSignAuthingFilterFactory.Config;
+import com.wl4g.iam.gateway.security.sign.SimpleSignAuthingFilterFactory.SignAlgorithm;
+import com.wl4g.iam.gateway.security.sign.SimpleSignAuthingFilterFactory.SignHashingMode;
+
+/**
+ * {@link SimpleSignHashingTests}
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-06 v3.1.0
+ * @since v3.1.0
+ */
+public class SimpleSignHashingTests {
+
+    static final byte[] TEST_SECRET = "5aUpyX5X7wzC8iLgFNJuxqj3xJdNQw8yS".getBytes(UTF_8);
+    static final byte[] TEST_PLAIN = "appId=oi554a94bc&nonce=0L9GyULPfwsD3Swg&timestamp=1599637679878".getBytes(UTF_8);
+
+    @SuppressWarnings("deprecation")
+    @Test
+    public void testSignAlgorithmCompatibleWithGuavaHashing() {
+        assertArrayEquals(Hashing.md5().hashBytes(TEST_PLAIN).asBytes(), SignAlgorithm.MD5.sign(TEST_SECRET, TEST_PLAIN));
+        assertArrayEquals(Hashing.sha1().hashBytes(TEST_PLAIN).asBytes(), SignAlgorithm.S1.sign(TEST_SECRET, TEST_PLAIN));
+        assertArrayEquals(Hashing.sha256().hashBytes(TEST_PLAIN).asBytes(), SignAlgorithm.S256.sign(TEST_SECRET, TEST_PLAIN));
+        assertArrayEquals(Hashing.sha384().hashBytes(TEST_PLAIN).asBytes(), SignAlgorithm.S384.sign(TEST_SECRET, TEST_PLAIN));
+        assertArrayEquals(Hashing.sha512().hashBytes(TEST_PLAIN).asBytes(), SignAlgorithm.S512.sign(TEST_SECRET, TEST_PLAIN));
+        assertArrayEquals(Hashing.hmacMd5(TEST_SECRET).hashBytes(TEST_PLAIN).asBytes(),
+                SignAlgorithm.HMD5.sign(TEST_SECRET, TEST_PLAIN));
+        assertArrayEquals(Hashing.hmacSha1(TEST_SECRET).hashBytes(TEST_PLAIN).asBytes(),
+                SignAlgorithm.HS1.sign(TEST_SECRET, TEST_PLAIN));
+        assertArrayEquals(Hashing.hmacSha256(TEST_SECRET).hashBytes(TEST_PLAIN).asBytes(),
+                SignAlgorithm.HS256.sign(TEST_SECRET, TEST_PLAIN));
+        assertArrayEquals(Hashing.hmacSha512(TEST_SECRET).hashBytes(TEST_PLAIN).asBytes(),
+                SignAlgorithm.HS512.sign(TEST_SECRET, TEST_PLAIN));
+    }
+
+    @Test
+    public void testHmacSignWithSwitchedKey() {
+        byte[] otherSecret = "anotherSecret".getBytes(UTF_8);
+        byte[] signed1 = SignAlgorithm.HS256.sign(TEST_SECRET, TEST_PLAIN);
+        byte[] signed2 = SignAlgorithm.HS256.sign(otherSecret, TEST_PLAIN);
+        byte[] signed3 = SignAlgorithm.HS256.sign(TEST_SECRET, TEST_PLAIN);
+        assertArrayEquals(Hashing.hmacSha256(otherSecret).hashBytes(TEST_PLAIN).asBytes(), signed2);
+        assertArrayEquals(signed1, signed3);
+    }
+
+    @Test
+    public void testUriParamsKeySortedHashingWithPlan() {
+        Config config = new Config();
+        config.setSignHashingIncludeParams(asList("*"));
+        config.setSignHashingExcludeParams(asList("__iscg_log"));
+        config.setSignHashingRequiredIncludeParams(asList("appId", "nonce"));
+
+        MockServerHttpRequest request = MockServerHttpRequest
+                .get("http://localhost/v2/get?timestamp=1599637679878&nonce=0L9GyULP&appId=oi554a94bc&__iscg_log=y&sign=abcd")
+                .build();
+        byte[] plain = SignHashingMode.UriParamsKeySortedHashing.getFunction()
+                .apply(new Object[] { config, TEST_SECRET, request });
+        assertEquals("appId=oi554a94bc&nonce=0L9GyULP&timestamp=1599637679878&appSecret=5aUpyX5X7wzC8iLgFNJuxqj3xJdNQw8yS",
+                new String(plain, UTF_8));
+    }
+
+    @Test
+    public void testMissingRequiredParams() {
+        Config config = new Config();
+        config.setSignHashingIncludeParams(asList("appId", "timestamp", "nonce"));
+        config.setSignHashingRequiredIncludeParams(asList("appId", "timestamp", "nonce"));
+
+        MockServerHttpRequest request = MockServerHttpRequest.get("http://localhost/v2/get?appId=oi554a94bc&nonce=0L9GyULP")
+                .build();
+        assertThrows(IllegalArgumentException.class, () -> SignHashingMode.SimpleParamsBytesSortedHashing.getFunction()
+                .apply(new Object[] { config, TEST_SECRET, request }));
+    }
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.traffic;
+
+import static com.wl4g.iam.gateway.traffic.TrafficReplicationFilterFactory.isBodiless;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+
+/**
+ * {@link TrafficReplicationFilterFactoryTests}
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+public class TrafficReplicationFilterFactoryTests {
+
+    @Test
+    public void testBodilessRequests() {
+        assertTrue(isBodiless(MockServerHttpRequest.get("http://localhost/api").build()));
+        assertTrue(isBodiless(MockServerHttpRequest.head("http://localhost/api").build()));
+        assertTrue(isBodiless(MockServerHttpRequest.options("http://localhost/api").build()));
+        assertTrue(isBodiless(MockServerHttpRequest.post("http://localhost/api").contentLength(0).build()));
+    }
+
+    @Test
+    public void testRequestsWithBody() {
+        assertFalse(isBodiless(MockServerHttpRequest.post("http://localhost/api").contentLength(11).body("hello world")));
+        assertFalse(isBodiless(MockServerHttpRequest.get("http://localhost/api").contentLength(11).body("hello world")));
+        assertFalse(isBodiless(
+                MockServerHttpRequest.put("http://localhost/api").header(HttpHeaders.TRANSFER_ENCODING, "chunked").build()));
+        // e.g. the HTTP/2 request body is framed by DATA frames, without
+        // 'Content-Length' or 'Transfer-Encoding'.
+        assertFalse(isBodiless(MockServerHttpRequest.post("http://localhost/api").body("hello world")));
+        assertFalse(isBodiless(MockServerHttpRequest.patch("http://localhost/api").build()));
+        assertFalse(isBodiless(MockServerHttpRequest.delete("http://localhost/api").build()));
+    }
+
+}
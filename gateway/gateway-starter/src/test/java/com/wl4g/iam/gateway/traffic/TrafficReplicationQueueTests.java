@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.traffic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.wl4g.iam.gateway.traffic.config.TrafficProperties.OverflowPolicy;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * {@link TrafficReplicationQueueTests}
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+public class TrafficReplicationQueueTests {
+
+    @Test
+    public void testDropNewestWhenFull() {
+        CountingListener listener = new CountingListener();
+        TrafficReplicationQueue queue = new TrafficReplicationQueue("route1", "http://localhost:8888", 2, 1,
+                OverflowPolicy.DROP_NEWEST, listener);
+        List<String> executed = new ArrayList<>();
+        Sinks.Empty<Void> blocking = Sinks.empty();
+
+        assertTrue(queue.submit(() -> {
+            executed.add("r1");
+            return blocking.asMono();
+        }));
+        assertTrue(queue.submit(() -> Mono.fromRunnable(() -> executed.add("r2"))));
+        assertTrue(queue.submit(() -> Mono.fromRunnable(() -> executed.add("r3"))));
+        assertFalse(queue.submit(() -> Mono.fromRunnable(() -> executed.add("r4"))));
+        assertEquals(1, queue.getInflight().get());
+        assertEquals(2, queue.getPending());
+        assertEquals(1, listener.dropped.get());
+
+        // The in-flight completed, drain the pending.
+        blocking.tryEmitEmpty();
+        assertEquals(3, executed.size());
+        assertEquals("r3", executed.get(2));
+        assertEquals(0, queue.getInflight().get());
+        assertEquals(3, listener.dequeued.get());
+    }
+
+    @Test
+    public void testDropOldestWhenFull() {
+        CountingListener listener = new CountingListener();
+        TrafficReplicationQueue queue = new TrafficReplicationQueue("route1", "http://localhost:8888", 2, 1,
+                OverflowPolicy.DROP_OLDEST, listener);
+        List<String> executed = new ArrayList<>();
+        Sinks.Empty<Void> blocking = Sinks.empty();
+
+        queue.submit(() -> blocking.asMono());
+        queue.submit(() -> Mono.fromRunnable(() -> executed.add("r2")));
+        queue.submit(() -> Mono.fromRunnable(() -> executed.add("r3")));
+        assertTrue(queue.submit(() -> Mono.fromRunnable(() -> executed.add("r4"))));
+        assertEquals(1, listener.dropped.get());
+
+        blocking.tryEmitEmpty();
+        assertEquals(2, executed.size());
+        assertEquals("r3", executed.get(0));
+        assertEquals("r4", executed.get(1));
+    }
+
+    static class CountingListener implements TrafficReplicationQueue.Listener {
+        final AtomicInteger dropped = new AtomicInteger();
+        final AtomicInteger dequeued = new AtomicInteger();
+
+        @Override
+        public void onDropped(TrafficReplicationQueue queue) {
+            dropped.incrementAndGet();
+        }
+
+        @Override
+        public void onDequeued(TrafficReplicationQueue queue, long enqueueNanoTime) {
+            dequeued.incrementAndGet();
+        }
+    }
+
+}
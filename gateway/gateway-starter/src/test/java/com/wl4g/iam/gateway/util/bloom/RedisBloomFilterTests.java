@@ -0,0 +1,204 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.util.bloom;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import com.google.common.hash.Funnel;
+import com.wl4g.iam.gateway.util.bloom.RedisBloomFilter.BloomConfig;
+import com.wl4g.iam.gateway.util.redis.RedisScriptTestSupport;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * {@link RedisBloomFilterTests}, the script tests are skipped when the redis
+ * is unavailable, see {@link RedisScriptTestSupport}.
+ * 
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+public class RedisBloomFilterTests {
+
+    static final Funnel<String> FUNNEL = (from, into) -> into.putString(from, UTF_8);
+    static final String TEST_KEY = "test_iam_gateway:bloom:{route1}";
+
+    private final Map<String, BitSet> bitmaps = new ConcurrentHashMap<>();
+    private final List<List<String>> executedKeys = new ArrayList<>();
+    private final AtomicInteger executeCount = new AtomicInteger(0);
+
+    @Test
+    public void testBloomConfigDefaultSizing() {
+        // The defaults of the sign replay filter: 7 days window of 7 slices,
+        // 10 signatures per second and fpp of 0.01.
+        BloomConfig<String> config = new BloomConfig<>(FUNNEL, 10, 0.01, 7 * 24 * 60 * 60, 7, 16 * 1024 * 1024);
+        assertFalse(config.isBounded());
+        assertEquals(24 * 60 * 60, config.getSliceSeconds());
+        assertEquals(7, config.getNumHashFunctions());
+        assertTrue(config.getMemoryBytes() < 9 * 1024 * 1024, "memoryBytes: " + config.getMemoryBytes());
+    }
+
+    @Test
+    public void testBloomConfigBoundedByMaxBytes() {
+        BloomConfig<String> config = new BloomConfig<>(FUNNEL, 1000, 0.01, 7 * 24 * 60 * 60, 7, 16 * 1024 * 1024);
+        assertTrue(config.isBounded());
+        assertTrue(config.getMemoryBytes() <= 16 * 1024 * 1024, "memoryBytes: " + config.getMemoryBytes());
+        assertTrue(config.getNumHashFunctions() >= 1);
+        for (int offset : config.murmurHashOffset("sign-1")) {
+            assertTrue(offset >= 0 && offset < config.getBitSize());
+        }
+    }
+
+    @Test
+    public void testCheckAndAddKeysAndArgs() {
+        BloomConfig<String> config = new BloomConfig<>(FUNNEL, 10, 0.01, 60, 3);
+        RedisBloomFilter<String> filter = new RedisBloomFilter<>(newRedisTemplate(), config);
+
+        assertFalse(filter.bloomCheckAndAdd(TEST_KEY, "sign-1").block());
+        assertTrue(filter.bloomCheckAndAdd(TEST_KEY, "sign-1").block());
+        assertFalse(filter.bloomCheckAndAdd(TEST_KEY, "sign-2").block());
+
+        // The current slice and all the previous live slices of the same
+        // hash tag, so that one script can touch all of them in cluster.
+        List<String> keys = executedKeys.get(0);
+        assertEquals(config.getSlices() + 1, keys.size());
+        for (String key : keys) {
+            assertTrue(key.startsWith(TEST_KEY.concat(":")), key);
+        }
+        long current = Long.parseLong(keys.get(0).substring(TEST_KEY.length() + 1));
+        assertEquals(current - 1, Long.parseLong(keys.get(1).substring(TEST_KEY.length() + 1)));
+        // Only the current slice is written.
+        assertTrue(bitmaps.containsKey(keys.get(0)));
+        assertFalse(bitmaps.containsKey(keys.get(1)));
+    }
+
+    @Test
+    public void testLocalFrontFilterShortCircuit() {
+        RedisBloomFilter<String> filter = new RedisBloomFilter<>(newRedisTemplate(), new BloomConfig<>(FUNNEL, 10, 0.01, 60, 3),
+                100);
+        assertFalse(filter.bloomCheckAndAdd(TEST_KEY, "sign-1").block());
+        assertTrue(filter.bloomCheckAndAdd(TEST_KEY, "sign-1").block());
+        assertTrue(filter.bloomCheckAndAdd(TEST_KEY, "sign-1").block());
+        // The replays seen by this node are rejected without round trip.
+        assertEquals(1, executeCount.get());
+
+        assertFalse(filter.bloomCheckAndAdd(TEST_KEY, "sign-2").block());
+        assertEquals(2, executeCount.get());
+    }
+
+    @Test
+    public void testCheckAndAddScript() {
+        ReactiveStringRedisTemplate redisTemplate = RedisScriptTestSupport.connectRedisOrSkip();
+        BloomConfig<String> config = new BloomConfig<>(FUNNEL, 10, 0.01, 60, 3);
+        List<String> args = new ArrayList<>();
+        args.add("120");
+        for (int offset : config.murmurHashOffset("sign-1")) {
+            args.add(String.valueOf(offset));
+        }
+        List<String> slices = Arrays.asList(TEST_KEY.concat(":3"), TEST_KEY.concat(":2"), TEST_KEY.concat(":1"),
+                TEST_KEY.concat(":0"));
+        redisTemplate.delete(slices.toArray(new String[0])).block();
+        redisTemplate.delete(TEST_KEY.concat(":4")).block();
+
+        assertEquals(0L, redisTemplate.execute(RedisBloomFilter.CHECK_AND_ADD_SCRIPT, slices, args).blockFirst());
+        assertEquals(1L, redisTemplate.execute(RedisBloomFilter.CHECK_AND_ADD_SCRIPT, slices, args).blockFirst());
+        // Only the current slice is written and expires by itself.
+        assertTrue(redisTemplate.hasKey(TEST_KEY.concat(":3")).block());
+        assertFalse(redisTemplate.hasKey(TEST_KEY.concat(":2")).block());
+        long ttl = redisTemplate.getExpire(TEST_KEY.concat(":3")).block().getSeconds();
+        assertTrue(ttl > 0 && ttl <= 120, "ttl: " + ttl);
+
+        // After rotated to the next slice, the value is still found in the
+        // previous slice and is not added again.
+        List<String> rotated = Arrays.asList(TEST_KEY.concat(":4"), TEST_KEY.concat(":3"), TEST_KEY.concat(":2"),
+                TEST_KEY.concat(":1"));
+        assertEquals(1L, redisTemplate.execute(RedisBloomFilter.CHECK_AND_ADD_SCRIPT, rotated, args).blockFirst());
+        assertFalse(redisTemplate.hasKey(TEST_KEY.concat(":4")).block());
+
+        // The value that was not added.
+        List<String> args2 = new ArrayList<>();
+        args2.add("120");
+        for (int offset : config.murmurHashOffset("sign-2")) {
+            args2.add(String.valueOf(offset));
+        }
+        assertEquals(0L, redisTemplate.execute(RedisBloomFilter.CHECK_AND_ADD_SCRIPT, rotated, args2).blockFirst());
+        assertTrue(redisTemplate.hasKey(TEST_KEY.concat(":4")).block());
+
+        redisTemplate.delete(rotated.toArray(new String[0])).block();
+        redisTemplate.delete(TEST_KEY.concat(":0")).block();
+    }
+
+    @Test
+    public void testBloomCheckAndAddWithRedis() {
+        ReactiveStringRedisTemplate redisTemplate = RedisScriptTestSupport.connectRedisOrSkip();
+        RedisBloomFilter<String> filter = new RedisBloomFilter<>(redisTemplate, new BloomConfig<>(FUNNEL, 10, 0.01, 60, 3));
+        filter.bloomRemove(TEST_KEY).block();
+
+        assertFalse(filter.bloomCheckAndAdd(TEST_KEY, "sign-1").block());
+        assertTrue(filter.bloomCheckAndAdd(TEST_KEY, "sign-1").block());
+        assertFalse(filter.bloomCheckAndAdd(TEST_KEY, "sign-2").block());
+
+        filter.bloomRemove(TEST_KEY).block();
+        assertFalse(filter.bloomCheckAndAdd(TEST_KEY, "sign-1").block());
+        filter.bloomRemove(TEST_KEY).block();
+    }
+
+    /**
+     * The in-memory template, which emulates the check and add script.
+     */
+    private ReactiveStringRedisTemplate newRedisTemplate() {
+        ReactiveRedisConnectionFactory connectionFactory = (ReactiveRedisConnectionFactory) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class[] { ReactiveRedisConnectionFactory.class }, (proxy, method, args) -> {
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        return new ReactiveStringRedisTemplate(connectionFactory) {
+            @SuppressWarnings("unchecked")
+            @Override
+            public <T> Flux<T> execute(RedisScript<T> script, List<String> keys, List<?> args) {
+                executeCount.incrementAndGet();
+                executedKeys.add(keys);
+                for (String key : keys) {
+                    BitSet bitmap = bitmaps.get(key);
+                    if (bitmap != null
+                            && args.stream().skip(1).allMatch(offset -> bitmap.get(Integer.parseInt((String) offset)))) {
+                        return (Flux<T>) Flux.just(1L);
+                    }
+                }
+                BitSet current = bitmaps.computeIfAbsent(keys.get(0), key -> new BitSet());
+                args.stream().skip(1).forEach(offset -> current.set(Integer.parseInt((String) offset)));
+                return (Flux<T>) Flux.just(0L);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.util.http;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.Test;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+
+import io.netty.buffer.PooledByteBufAllocator;
+
+/**
+ * {@link DataBufferCaptureTests}
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+public class DataBufferCaptureTests {
+
+    private final NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+
+    @Test
+    public void testCaptureWithoutAffectingWrite() {
+        DataBufferCapture capture = new DataBufferCapture(1024);
+        NettyDataBuffer chunk1 = bufferFactory.wrap("hello ".getBytes(UTF_8));
+        NettyDataBuffer chunk2 = bufferFactory.wrap("world".getBytes(UTF_8));
+        capture.append(chunk1);
+        capture.append(chunk2);
+
+        // Simulate the downstream writing and releasing the chunks.
+        chunk1.read(new byte[chunk1.readableByteCount()]);
+        DataBufferUtils.release(chunk1);
+        DataBufferUtils.release(chunk2);
+        assertEquals(1, chunk1.getNativeBuffer().refCnt());
+
+        assertEquals("hello world", new String(capture.toBytesAndRelease(), UTF_8));
+        assertEquals(0, chunk1.getNativeBuffer().refCnt());
+        assertEquals(0, chunk2.getNativeBuffer().refCnt());
+    }
+
+    @Test
+    public void testAbortOnceExceeded() {
+        DataBufferCapture capture = new DataBufferCapture(8);
+        NettyDataBuffer chunk1 = bufferFactory.wrap("12345".getBytes(UTF_8));
+        NettyDataBuffer chunk2 = bufferFactory.wrap("67890".getBytes(UTF_8));
+        capture.append(chunk1);
+        capture.append(chunk2);
+        assertTrue(capture.isAborted());
+        // The retained slices released immediately.
+        assertEquals(1, chunk1.getNativeBuffer().refCnt());
+        assertEquals(1, chunk2.getNativeBuffer().refCnt());
+        assertNull(capture.toBytesAndRelease());
+        DataBufferUtils.release(chunk1);
+        DataBufferUtils.release(chunk2);
+    }
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.util.matcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.commons.util.InetUtils;
+import org.springframework.cloud.commons.util.InetUtilsProperties;
+import org.springframework.cloud.gateway.handler.AsyncPredicate;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsName;
+import com.wl4g.iam.gateway.metrics.IamGatewayMetricsFacade.MetricsTag;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+
+/**
+ * {@link CompiledRequestMatcherTests}
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+public class CompiledRequestMatcherTests {
+
+    static final String TEST_ROUTE_ID = "my-test-route";
+
+    private PrometheusMeterRegistry meterRegistry;
+    private RequestMatcherEngine engine;
+    private MockServerWebExchange exchange;
+
+    @Before
+    public void init() throws Exception {
+        MockEnvironment env = new MockEnvironment();
+        env.setProperty("spring.application.name", "test-iam-gateway");
+        env.setProperty("server.port", "12345");
+        this.meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        IamGatewayMetricsFacade metricsFacade = new IamGatewayMetricsFacade(meterRegistry,
+                new InetUtils(new InetUtilsProperties()), env);
+        metricsFacade.afterPropertiesSet();
+        this.engine = new RequestMatcherEngine(metricsFacade);
+        this.exchange = newExchange(TEST_ROUTE_ID);
+    }
+
+    @Test
+    public void testCompileSharedByName() {
+        CompiledRequestMatcher m1 = engine.compile(RequestMatcherEngine.MATCHER_FAULT, new ArrayList<>(), "#{true}");
+        CompiledRequestMatcher m2 = engine.compile(RequestMatcherEngine.MATCHER_FAULT, new ArrayList<>(), "#{false}");
+        assertSame(m1, m2);
+        assertEquals(1, engine.getMatchers().size());
+    }
+
+    @Test
+    public void testMatchesMemoizedPerRequest() {
+        CompiledRequestMatcher matcher = engine.compile(RequestMatcherEngine.MATCHER_LOGGING, new ArrayList<>(), "#{true}");
+        for (int i = 0; i < 5; i++) {
+            assertTrue(matcher.matches(exchange, "#{true}"));
+        }
+        // Evaluated (and timed) only once for the same request.
+        assertEquals(1, ruleTimer(RequestMatcherEngine.MATCHER_LOGGING, "#{true}").count());
+
+        // The mutated request is evaluated again.
+        ServerWebExchange mutated = exchange.mutate()
+                .request(exchange.getRequest().mutate().header("X-Test", "1").build())
+                .build();
+        assertTrue(matcher.matches(mutated, "#{true}"));
+        assertEquals(2, ruleTimer(RequestMatcherEngine.MATCHER_LOGGING, "#{true}").count());
+    }
+
+    @Test
+    public void testMatchesTimedPerRule() {
+        CompiledRequestMatcher matcher = engine.compile(RequestMatcherEngine.MATCHER_FAULT, new ArrayList<>(), "#{true}",
+                "#{false}");
+        assertTrue(matcher.matches(exchange, "#{true}"));
+        assertFalse(matcher.matches(exchange, "#{false}"));
+        assertFalse(matcher.matches(exchange, "#{false}"));
+
+        assertEquals(1, ruleTimer(RequestMatcherEngine.MATCHER_FAULT, "#{true}").count());
+        assertEquals(1, ruleTimer(RequestMatcherEngine.MATCHER_FAULT, "#{false}").count());
+        assertEquals(2, meterRegistry.find(MetricsName.REQUEST_MATCHER_TIME.getName())
+                .tag(MetricsTag.MATCHER, RequestMatcherEngine.MATCHER_FAULT)
+                .tag(MetricsTag.ROUTE_ID, TEST_ROUTE_ID)
+                .timers()
+                .size());
+    }
+
+    @Test
+    public void testNotPrecompiledTimedAsDynamic() {
+        CompiledRequestMatcher matcher = engine.compile(RequestMatcherEngine.MATCHER_LOGGING, new ArrayList<>(), "#{true}");
+        // e.g. the expressions carried by the request headers.
+        for (int i = 0; i < 10; i++) {
+            assertFalse(matcher.matches(exchange, "#{" + i + " > 100}"));
+        }
+        assertEquals(10, meterRegistry.get(MetricsName.REQUEST_MATCHER_TIME.getName())
+                .tag(MetricsTag.MATCHER, RequestMatcherEngine.MATCHER_LOGGING)
+                .tag(MetricsTag.MATCHER_RULE, CompiledRequestMatcher.RULE_TAG_DYNAMIC)
+                .timer()
+                .count());
+        assertEquals(1, meterRegistry.find(MetricsName.REQUEST_MATCHER_TIME.getName()).timers().size());
+    }
+
+    @Test
+    public void testMatchesRouteIdVariable() {
+        String expression = "#{routeId.get().test('" + TEST_ROUTE_ID + "')}";
+        CompiledRequestMatcher matcher = engine.compile(RequestMatcherEngine.MATCHER_TRACE, new ArrayList<>(), expression);
+        assertTrue(matcher.matches(exchange, expression));
+        assertFalse(matcher.matches(newExchange("other-route"), expression));
+    }
+
+    @Test
+    public void testNotTimedWithoutRoute() {
+        CompiledRequestMatcher matcher = engine.compile(RequestMatcherEngine.MATCHER_LOGGING, new ArrayList<>(), "#{true}");
+        MockServerWebExchange noRouteExchange = MockServerWebExchange
+                .from(MockServerHttpRequest.get("http://localhost/hello").build());
+        assertTrue(matcher.matches(noRouteExchange, "#{true}"));
+        assertNull(meterRegistry.find(MetricsName.REQUEST_MATCHER_TIME.getName()).timer());
+    }
+
+    private Timer ruleTimer(String matcherName, String expression) {
+        return meterRegistry.get(MetricsName.REQUEST_MATCHER_TIME.getName())
+                .tag(MetricsTag.MATCHER, matcherName)
+                .tag(MetricsTag.MATCHER_RULE, Integer.toHexString(expression.hashCode()))
+                .tag(MetricsTag.ROUTE_ID, TEST_ROUTE_ID)
+                .timer();
+    }
+
+    static MockServerWebExchange newExchange(String routeId) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("http://localhost/hello").build());
+        Route route = Route.async()
+                .asyncPredicate(AsyncPredicate.from(_exchange -> true))
+                .id(routeId)
+                .uri("http://localhost")
+                .build();
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+        return exchange;
+    }
+
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.util.redis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.wl4g.iam.gateway.util.redis.RedisHashCounterBatcher.Increment;
+
+/**
+ * {@link RedisHashCounterBatcherTests}
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+public class RedisHashCounterBatcherTests {
+
+    @Test
+    public void testAggregateIncrementsIntoBatches() {
+        CapturingBatcher batcher = new CapturingBatcher(2);
+        try {
+            for (int i = 0; i < 100; i++) {
+                batcher.increment("hits:route1", "user1", 1);
+            }
+            batcher.increment("hits:route1", "user2", 3);
+            batcher.increment("hits:route2", "user1", 5);
+
+            assertEquals(3, batcher.flush());
+            // 3 fields are split into the batches of at most 2.
+            assertEquals(2, batcher.batches.size());
+            assertEquals(100L, batcher.sum("hits:route1", "user1"));
+            assertEquals(3L, batcher.sum("hits:route1", "user2"));
+            assertEquals(5L, batcher.sum("hits:route2", "user1"));
+
+            // Nothing pending.
+            assertEquals(0, batcher.flush());
+        } finally {
+            batcher.close();
+        }
+    }
+
+    @Test
+    public void testMergeBackOnWriteFailure() {
+        CapturingBatcher batcher = new CapturingBatcher(10);
+        try {
+            batcher.increment("hits:route1", "user1", 7);
+            batcher.failing = true;
+            assertEquals(0, batcher.flush());
+            assertTrue(batcher.batches.isEmpty());
+
+            batcher.increment("hits:route1", "user1", 1);
+            batcher.failing = false;
+            assertEquals(1, batcher.flush());
+            assertEquals(8L, batcher.sum("hits:route1", "user1"));
+        } finally {
+            batcher.close();
+        }
+    }
+
+    @Test
+    public void testEvictIdleCounters() {
+        CapturingBatcher batcher = new CapturingBatcher(10);
+        try {
+            batcher.increment("hits:route1", "user1", 1);
+            assertEquals(1, batcher.getPendingKeys());
+            batcher.flush();
+            batcher.flush();
+            batcher.flush();
+            assertEquals(0, batcher.getPendingKeys());
+        } finally {
+            batcher.close();
+        }
+    }
+
+    @Test
+    public void testIncrementReturnsPendingDelta() {
+        CapturingBatcher batcher = new CapturingBatcher(10);
+        try {
+            assertEquals(3L, batcher.increment("hits:route1", "user1", 3));
+            batcher.flush();
+            // Not the total in redis.
+            assertEquals(1L, batcher.increment("hits:route1", "user1", 1));
+        } finally {
+            batcher.close();
+        }
+    }
+
+    @Test
+    public void testNoIncrementLostWhileEvicting() throws Exception {
+        CapturingBatcher batcher = new CapturingBatcher(10);
+        int threads = 8, increments = 20_000;
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch started = new CountDownLatch(1);
+        try {
+            // Flush continuously, so that the counters are idle and evicted
+            // frequently while the writers are incrementing them.
+            Thread flusher = new Thread(() -> {
+                started.countDown();
+                while (running.get()) {
+                    batcher.flush();
+                }
+            });
+            flusher.start();
+            started.await();
+
+            List<Thread> writers = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                String field = "user" + (t % 4);
+                Thread writer = new Thread(() -> {
+                    for (int i = 0; i < increments; i++) {
+                        batcher.increment("hits:route1", field, 1);
+                        if (i % 64 == 0) {
+                            Thread.yield();
+                        }
+                    }
+                });
+                writers.add(writer);
+                writer.start();
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            running.set(false);
+            flusher.join();
+            batcher.flush();
+
+            for (int f = 0; f < 4; f++) {
+                assertEquals(2L * increments, batcher.sum("hits:route1", "user" + f));
+            }
+        } finally {
+            running.set(false);
+            batcher.close();
+        }
+    }
+
+    @Test
+    public void testFlushPendingOnClose() {
+        CapturingBatcher batcher = new CapturingBatcher(10);
+        batcher.increment("hits:route1", "user1", 2);
+        batcher.close();
+        assertEquals(2L, batcher.sum("hits:route1", "user1"));
+    }
+
+    @Test
+    public void testEarlyFlushesCoalesced() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger flushes = new AtomicInteger();
+        CapturingBatcher batcher = new CapturingBatcher(10, 1) {
+            @Override
+            public int flush() {
+                flushes.incrementAndGet();
+                return super.flush();
+            }
+
+            @Override
+            protected void write(List<Increment> batch) {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.write(batch);
+            }
+        };
+        batcher.increment("hits:route1", "user0", 1);
+        batcher.increment("hits:route1", "user1", 1);
+        // The first early flush is blocked in writing.
+        writing.await();
+        for (int i = 2; i < 100; i++) {
+            batcher.increment("hits:route1", "user" + i, 1);
+        }
+        release.countDown();
+        batcher.close();
+
+        // The blocked one, at most one queued and the final on close.
+        assertTrue(flushes.get() <= 3, "flushes: " + flushes.get());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(1L, batcher.sum("hits:route1", "user" + i));
+        }
+    }
+
+    static class CapturingBatcher extends RedisHashCounterBatcher {
+        final List<List<Increment>> batches = new ArrayList<>();
+        volatile boolean failing;
+
+        CapturingBatcher(int flushBatchSize) {
+            this(flushBatchSize, 1000);
+        }
+
+        CapturingBatcher(int flushBatchSize, int maxPendingKeys) {
+            super("test", null, 60_000L, flushBatchSize, maxPendingKeys, 0L);
+        }
+
+        @Override
+        protected synchronized void write(List<Increment> batch) {
+            if (failing) {
+                throw new IllegalStateException("Mock redis unavailable");
+            }
+            batches.add(new ArrayList<>(batch));
+        }
+
+        synchronized long sum(String hashKey, String field) {
+            Map<String, Long> sums = new HashMap<>();
+            for (List<Increment> batch : batches) {
+                for (Increment incr : batch) {
+                    sums.merge(incr.getKey().getHashKey() + "/" + incr.getKey().getField(), incr.getDelta(), Long::sum);
+                }
+            }
+            return sums.getOrDefault(hashKey + "/" + field, 0L);
+        }
+    }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.gateway.util.redis;
+
+import org.junit.Assume;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+
+/**
+ * The support of tests of the lua scripts, which are run against the redis of
+ * {@code -Dredis.host/-Dredis.port/-Dredis.database} (default by
+ * localhost:6379/15), and skipped when it is unavailable.
+ *
+ * @author James Wong &lt;wanglsir@gmail.com, 983708408@qq.com&gt;
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+public abstract class RedisScriptTestSupport {
+
+    public static ReactiveStringRedisTemplate connectRedisOrSkip() {
+        RedisStandaloneConfiguration redisConfig = new RedisStandaloneConfiguration(System.getProperty("redis.host", "localhost"),
+                Integer.getInteger("redis.port", 6379));
+        redisConfig.setDatabase(Integer.getInteger("redis.database", 15));
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(redisConfig);
+        connectionFactory.afterPropertiesSet();
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.ping();
+        } catch (Exception e) {
+            connectionFactory.destroy();
+            Assume.assumeNoException("The redis is unavailable, skip the script tests.", e);
+        }
+        return new ReactiveStringRedisTemplate(connectionFactory);
+    }
+
+}
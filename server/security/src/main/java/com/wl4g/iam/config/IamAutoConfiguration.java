@@ -77,7 +77,9 @@ import com.wl4g.iam.filter.SmsAuthenticationFilter;
 import com.wl4g.iam.filter.TwitterAuthenticationFilter;
 import com.wl4g.iam.filter.WechatAuthenticationFilter;
 import com.wl4g.iam.filter.WechatMpAuthenticationFilter;
+import com.wl4g.iam.handler.fastcas.FastCasLogoutNotifier;
 import com.wl4g.iam.handler.fastcas.FastCasServerAuthenticatingHandler;
+import com.wl4g.iam.handler.fastcas.GrantTicketSigner;
 import com.wl4g.iam.handler.risk.SimpleRiskEvaluateHandler;
 import com.wl4g.iam.realm.AbstractAuthorizingRealm;
 import com.wl4g.iam.realm.DingtalkAuthorizingRealm;
@@ -93,6 +95,7 @@ import com.wl4g.iam.realm.TwitterAuthorizingRealm;
 import com.wl4g.iam.realm.WechatAuthorizingRealm;
 import com.wl4g.iam.realm.WechatMpAuthorizingRealm;
 import com.wl4g.iam.session.mgt.IamServerSessionManager;
+import com.wl4g.iam.session.mgt.SessionRevocationLog;
 import com.wl4g.iam.verify.CompositeSecurityVerifierAdapter;
 import com.wl4g.iam.verify.SecurityVerifier;
 import com.wl4g.iam.verify.SimpleImageSecurityVerifier;
@@ -104,6 +107,8 @@ import com.wl4g.infra.common.framework.operator.GenericOperatorAdapter;
 import com.wl4g.infra.common.locks.JedisLockManager;
 import com.wl4g.infra.core.kit.access.IPAccessControl;
 
+import okhttp3.OkHttpClient;
+
 /**
  * IAM server auto configuration.
  * 
@@ -551,6 +556,24 @@ public class IamAutoConfiguration extends AbstractIamConfiguration {
         return new FastCasServerAuthenticatingHandler();
     }
 
+    @Bean
+    public SessionRevocationLog sessionRevocationLog(JedisIamCacheManager cacheManager) {
+        return new SessionRevocationLog(cacheManager);
+    }
+
+    @Bean
+    public FastCasLogoutNotifier fastCasLogoutNotifier(
+            IamProperties config,
+            JedisIamCacheManager cacheManager,
+            @Qualifier(BEAN_IAM_OKHTTP3_CLIENT) OkHttpClient httpClient) {
+        return new FastCasLogoutNotifier(config, cacheManager, httpClient);
+    }
+
+    @Bean
+    public GrantTicketSigner grantTicketSigner(IamProperties config, JedisIamCacheManager cacheManager) {
+        return new GrantTicketSigner(config.getTicket(), cacheManager);
+    }
+
     @Bean
     public SimpleRiskEvaluateHandler simpleRcmEvaluatorHandler() {
         return new SimpleRiskEvaluateHandler();
@@ -111,6 +111,11 @@ public class IamProperties extends AbstractIamProperties<ServerParamProperties>
      */
     private V1OidcProperties v1Oidc = new V1OidcProperties();
 
+    /**
+     * IAM fast-CAS single logout configuration properties.
+     */
+    private LogoutProperties logout = new LogoutProperties();
+
     public void setLoginUri(String loginUri) {
         this.loginUri = cleanURI(loginUri);
     }
@@ -147,6 +152,7 @@ public class IamProperties extends AbstractIamProperties<ServerParamProperties>
         super.validation();
         hasText(getSuccessService(), "Success service must not be empty.");
         hasText(getSuccessUri(), "SuccessUri must not be empty, e.g. http://localhost:14041");
+        getLogout().validate();
     }
 
     @Override
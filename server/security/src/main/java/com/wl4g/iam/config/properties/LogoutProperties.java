@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.config.properties;
+
+import static com.wl4g.infra.common.serialize.JacksonUtils.toJSONString;
+import static org.springframework.util.Assert.isTrue;
+
+import java.io.Serializable;
+
+/**
+ * IAM fast-CAS single logout(notifying all logged-in applications)
+ * configuration properties
+ *
+ * @author James Wong<jamewong1376@gmail.com>
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+public class LogoutProperties implements Serializable {
+    private static final long serialVersionUID = -1238407316548871206L;
+
+    /**
+     * The timeout of notifying each application to logout.
+     */
+    private long notifyTimeoutMs = 3_000L;
+
+    /**
+     * The deadline of notifying each application to logout, the notification
+     * not completed before that is retried in the background. It must be
+     * greater than the {@link #notifyTimeoutMs}, otherwise the late responses
+     * are ignored.
+     */
+    private long deadlineMs = 5_000L;
+
+    /**
+     * The max number of concurrent notifications.
+     */
+    private int maxConcurrency = 64;
+
+    /**
+     * The max number of concurrent notifications of each application host.
+     */
+    private int maxConcurrencyPerHost = 8;
+
+    /**
+     * The max attempts of retrying the failed notification.
+     */
+    private int retryMaxAttempts = 5;
+
+    /**
+     * The initial backoff of retrying the failed notification, doubled after
+     * each attempt.
+     */
+    private long retryBackoffMs = 10_000L;
+
+    /**
+     * The interval of scanning the due retrying notifications.
+     */
+    private long retryScanIntervalMs = 5_000L;
+
+    /**
+     * The max number of retrying notifications per scanning.
+     */
+    private int retryBatchSize = 100;
+
+    public long getNotifyTimeoutMs() {
+        return notifyTimeoutMs;
+    }
+
+    public void setNotifyTimeoutMs(long notifyTimeoutMs) {
+        isTrue(notifyTimeoutMs > 0, "notifyTimeoutMs must >0");
+        this.notifyTimeoutMs = notifyTimeoutMs;
+    }
+
+    public long getDeadlineMs() {
+        return deadlineMs;
+    }
+
+    public void setDeadlineMs(long deadlineMs) {
+        isTrue(deadlineMs > 0, "deadlineMs must >0");
+        this.deadlineMs = deadlineMs;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        isTrue(maxConcurrency > 0, "maxConcurrency must >0");
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public int getMaxConcurrencyPerHost() {
+        return maxConcurrencyPerHost;
+    }
+
+    public void setMaxConcurrencyPerHost(int maxConcurrencyPerHost) {
+        isTrue(maxConcurrencyPerHost > 0, "maxConcurrencyPerHost must >0");
+        this.maxConcurrencyPerHost = maxConcurrencyPerHost;
+    }
+
+    public int getRetryMaxAttempts() {
+        return retryMaxAttempts;
+    }
+
+    public void setRetryMaxAttempts(int retryMaxAttempts) {
+        isTrue(retryMaxAttempts >= 0, "retryMaxAttempts must >=0");
+        this.retryMaxAttempts = retryMaxAttempts;
+    }
+
+    public long getRetryBackoffMs() {
+        return retryBackoffMs;
+    }
+
+    public void setRetryBackoffMs(long retryBackoffMs) {
+        isTrue(retryBackoffMs > 0, "retryBackoffMs must >0");
+        this.retryBackoffMs = retryBackoffMs;
+    }
+
+    public long getRetryScanIntervalMs() {
+        return retryScanIntervalMs;
+    }
+
+    public void setRetryScanIntervalMs(long retryScanIntervalMs) {
+        isTrue(retryScanIntervalMs > 0, "retryScanIntervalMs must >0");
+        this.retryScanIntervalMs = retryScanIntervalMs;
+    }
+
+    public int getRetryBatchSize() {
+        return retryBatchSize;
+    }
+
+    public void setRetryBatchSize(int retryBatchSize) {
+        isTrue(retryBatchSize > 0, "retryBatchSize must >0");
+        this.retryBatchSize = retryBatchSize;
+    }
+
+    /**
+     * Validates the properties that depend on each other, which can't be
+     * checked by the setters since the binding order is undefined.
+     *
+     * @return
+     */
+    public LogoutProperties validate() {
+        isTrue(deadlineMs > notifyTimeoutMs, "deadlineMs must > notifyTimeoutMs");
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName().concat(" - ").concat(toJSONString(this));
+    }
+
+}
@@ -16,9 +16,12 @@
 package com.wl4g.iam.config.properties;
 
 import static com.wl4g.infra.common.serialize.JacksonUtils.toJSONString;
+import static org.springframework.util.Assert.isTrue;
 
 import java.io.Serializable;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 /**
  * IAM fast-CAS ticket authentication configuration properties
  *
@@ -30,6 +33,69 @@ import java.io.Serializable;
 public class TicketProperties implements Serializable {
     private static final long serialVersionUID = -2694422471852860689L;
 
+    /**
+     * Whether to issue the signed grantTickets (ES256), which can be verified
+     * by the fast-CAS clients locally without remote ticket validation. </br>
+     * Notes: It only takes effect when the data cipher and access token
+     * validity are disabled (their keys cannot be carried by the ticket), and
+     * all fast-CAS clients must be upgraded to recognize signed grantTickets.
+     */
+    private boolean signingEnabled = false;
+
+    /**
+     * The expiration time of signed grantTicket (for login only).
+     */
+    private long signedExpireMs = 60_000L;
+
+    /**
+     * The rotation interval of signing keys, the previous key is still
+     * published for verifying until the next rotation.
+     */
+    private long signingKeyRotationMs = 24 * 60 * 60_000L;
+
+    /**
+     * The key encryption key (base64 of 128/192/256 bits AES key) for
+     * encrypting the signing private keys that are shared by all nodes in
+     * redis, it's required when the signing is enabled. e.g. generated by:
+     * 'openssl rand -base64 32'
+     */
+    private String signingKeyEncryptionKey;
+
+    public boolean isSigningEnabled() {
+        return signingEnabled;
+    }
+
+    public void setSigningEnabled(boolean signingEnabled) {
+        this.signingEnabled = signingEnabled;
+    }
+
+    public long getSignedExpireMs() {
+        return signedExpireMs;
+    }
+
+    public void setSignedExpireMs(long signedExpireMs) {
+        isTrue(signedExpireMs > 0, "signedExpireMs must >0");
+        this.signedExpireMs = signedExpireMs;
+    }
+
+    public long getSigningKeyRotationMs() {
+        return signingKeyRotationMs;
+    }
+
+    public void setSigningKeyRotationMs(long signingKeyRotationMs) {
+        isTrue(signingKeyRotationMs >= 60_000L, "signingKeyRotationMs must >=60000");
+        this.signingKeyRotationMs = signingKeyRotationMs;
+    }
+
+    @JsonIgnore
+    public String getSigningKeyEncryptionKey() {
+        return signingKeyEncryptionKey;
+    }
+
+    public void setSigningKeyEncryptionKey(String signingKeyEncryptionKey) {
+        this.signingKeyEncryptionKey = signingKeyEncryptionKey;
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName().concat(" - ").concat(toJSONString(this));
@@ -0,0 +1,385 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.handler.fastcas;
+
+import static com.wl4g.infra.common.lang.Assert2.hasText;
+import static com.wl4g.infra.common.lang.Assert2.notNullOf;
+import static com.wl4g.infra.common.log.SmartLoggerFactory.getLogger;
+import static com.wl4g.infra.common.serialize.JacksonUtils.parseJSON;
+import static com.wl4g.infra.common.serialize.JacksonUtils.toJSONString;
+import static com.wl4g.iam.common.constant.FastCasIAMConstants.CACHE_PREFIX_IAM_LOGOUT_RETRY;
+import static com.wl4g.iam.common.constant.FastCasIAMConstants.CACHE_PREFIX_IAM_LOGOUT_TICKET;
+import static com.wl4g.iam.common.constant.FastCasIAMConstants.URI_IAM_CLIENT_BASE;
+import static com.wl4g.iam.common.constant.FastCasIAMConstants.URI_IAM_CLIENT_LOGOUT;
+import static java.lang.System.currentTimeMillis;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.wl4g.iam.common.bean.FastCasClientInfo;
+import com.wl4g.iam.common.model.LogoutModel;
+import com.wl4g.iam.config.properties.IamProperties;
+import com.wl4g.iam.config.properties.LogoutProperties;
+import com.wl4g.iam.core.cache.CacheKey;
+import com.wl4g.iam.core.cache.IamCacheManager;
+import com.wl4g.iam.core.cache.JedisIamCacheManager;
+import com.wl4g.iam.core.session.GrantCredentialsInfo;
+import com.wl4g.iam.core.session.GrantCredentialsInfo.GrantApp;
+import com.wl4g.infra.common.jedis.JedisClient;
+import com.wl4g.infra.common.log.SmartLogger;
+import com.wl4g.infra.common.web.rest.RespBase;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/**
+ * Fast-CAS single logout notifier, which concurrently notifies all logged-in
+ * applications to logout with the bounded asynchronous HTTP client and does
+ * not wait for the responses, so that the slow or down application will not
+ * block the logout. </br>
+ * </br>
+ * The next attempt of each notification is recorded to the retrying queue
+ * (redis sorted set scored by the next attempt time) due at the deadline before
+ * sending. It is removed once notified, or rescheduled with exponential backoff
+ * when failed, and the due attempts are retried by the background worker. </br>
+ * </br>
+ * Note: The retrying queue only records the reference of the grantTicket, the
+ * grantTicket itself is cached separately until the retries are exhausted, and
+ * the logout URL is built at the time of sending and never logged.
+ *
+ * @author James Wong<jamewong1376@gmail.com>
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+public class FastCasLogoutNotifier implements InitializingBean, DisposableBean {
+    protected final SmartLogger log = getLogger(getClass());
+
+    protected final IamProperties config;
+    protected final IamCacheManager cacheManager;
+    protected final OkHttpClient httpClient;
+
+    private ScheduledExecutorService retryScheduler;
+
+    public FastCasLogoutNotifier(IamProperties config, IamCacheManager cacheManager, OkHttpClient httpClient) {
+        this.config = notNullOf(config, "config");
+        this.cacheManager = notNullOf(cacheManager, "cacheManager");
+        LogoutProperties logout = config.getLogout().validate();
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(logout.getMaxConcurrency());
+        dispatcher.setMaxRequestsPerHost(logout.getMaxConcurrencyPerHost());
+        this.httpClient = notNullOf(httpClient, "httpClient").newBuilder()
+                .dispatcher(dispatcher)
+                .callTimeout(logout.getNotifyTimeoutMs(), MILLISECONDS)
+                .build();
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "iam-fastcas-logout-retrier");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = config.getLogout().getRetryScanIntervalMs();
+        this.retryScheduler.scheduleWithFixedDelay(() -> retryDue(), interval, interval, MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (nonNull(retryScheduler)) {
+            retryScheduler.shutdownNow();
+        }
+        httpClient.dispatcher().cancelAll();
+        httpClient.dispatcher().executorService().shutdown();
+    }
+
+    /**
+     * Notifies all logged-in applications to logout without waiting for the
+     * responses, the retry of each notification is recorded before sending and
+     * cancelled once it is notified, so the notifications failed or not
+     * completed before the deadline are retried in the background.
+     *
+     * @param principal
+     * @param info
+     * @param apps
+     * @return Returns false if the retries of notifications cannot be recorded.
+     */
+    public boolean logoutAll(Object principal, GrantCredentialsInfo info, List<FastCasClientInfo> apps) {
+        List<LogoutNotification> notifications = new ArrayList<>(apps.size());
+        List<String> grantTickets = new ArrayList<>(apps.size());
+        for (FastCasClientInfo app : apps) {
+            hasText(app.getIntranetBaseUri(), "Application[%s] 'internalBaseUri' is required", app.getAppName());
+            GrantApp grantApp = info.getGrantApps().get(app.getAppName());
+            if (isNull(grantApp)) {
+                continue;
+            }
+            notifications.add(new LogoutNotification(app.getAppName(), app.getIntranetBaseUri(),
+                    UUID.randomUUID().toString().replaceAll("-", ""), String.valueOf(principal), 0));
+            grantTickets.add(grantApp.getGrantTicket());
+        }
+
+        boolean recorded = true;
+        for (int i = 0; i < notifications.size(); i++) {
+            LogoutNotification notification = notifications.get(i);
+            String grantTicket = grantTickets.get(i);
+            recorded &= putRetryTicket(notification, grantTicket);
+            recorded &= send(notification, grantTicket);
+        }
+        return recorded;
+    }
+
+    /**
+     * Retries the due notifications, each of them is claimed by removing from
+     * the retrying queue, so that only one node of the cluster will retry it.
+     */
+    public void retryDue() {
+        try {
+            LogoutProperties logout = config.getLogout();
+            String retryKey = getRetryKey();
+            Set<String> members = getJedisClient().zrangeByScore(retryKey, 0, currentTimeMillis(), 0,
+                    logout.getRetryBatchSize());
+            for (String member : members) {
+                if (getJedisClient().zrem(retryKey, member) > 0) {
+                    LogoutNotification notification = parseJSON(member, LogoutNotification.class);
+                    String grantTicket = getRetryTicket(notification);
+                    if (isNull(grantTicket)) {
+                        log.warn("Give up notifying logout of principal: {}, appName: {}, the grantTicket has expired.",
+                                notification.getPrincipal(), notification.getAppName());
+                        continue;
+                    }
+                    send(notification, grantTicket);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to retry logout notifications. - {}", e.toString());
+        }
+    }
+
+    /**
+     * Sends the notification asynchronously. The next attempt is recorded to
+     * the retrying queue due at the deadline before sending, it is removed
+     * when notified, or rescheduled with backoff when failed. If the deadline
+     * is reached first, the retrying worker claims it, and the late result of
+     * this attempt is ignored.
+     *
+     * @param notification
+     * @param grantTicket
+     * @return Returns false if the next attempt cannot be recorded.
+     */
+    protected boolean send(LogoutNotification notification, String grantTicket) {
+        LogoutProperties logout = config.getLogout();
+        String retryMember = null;
+        boolean recorded = true;
+        if (notification.getAttempts() < logout.getRetryMaxAttempts()) {
+            retryMember = toJSONString(new LogoutNotification(notification.getAppName(), notification.getBaseUri(),
+                    notification.getTicketRef(), notification.getPrincipal(), notification.getAttempts() + 1));
+            recorded = addRetry(notification, retryMember, currentTimeMillis() + logout.getDeadlineMs());
+        }
+
+        final String _retryMember = retryMember;
+        Call call = httpClient.newCall(new Request.Builder().url(buildLogoutUrl(notification.getBaseUri(), grantTicket))
+                .post(RequestBody.create(new byte[0]))
+                .build());
+        call.enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) throws IOException {
+                try (Response _response = response) {
+                    RespBase<LogoutModel> resp = null;
+                    if (response.isSuccessful() && nonNull(response.body())) {
+                        resp = parseJSON(response.body().string(), new TypeReference<RespBase<LogoutModel>>() {
+                        });
+                    }
+                    if (RespBase.isSuccess(resp)) {
+                        log.info("Finished logout of principal: {}, appName: {}", notification.getPrincipal(),
+                                notification.getAppName());
+                        if (nonNull(_retryMember)) {
+                            removeRetry(_retryMember);
+                        }
+                        removeRetryTicket(notification);
+                    } else {
+                        log.warn("Remote client logout failure. principal: {}, appName: {}, status: {}, message: {}",
+                                notification.getPrincipal(), notification.getAppName(), response.code(),
+                                nonNull(resp) ? resp.getMessage() : "No response");
+                        onFailed(notification, _retryMember);
+                    }
+                } catch (Exception e) {
+                    log.warn("Remote client logout failure. principal: {}, appName: {}. - {}", notification.getPrincipal(),
+                            notification.getAppName(), e.toString());
+                    onFailed(notification, _retryMember);
+                }
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                log.warn("Remote client logout failure. principal: {}, appName: {}. - {}", notification.getPrincipal(),
+                        notification.getAppName(), e.toString());
+                onFailed(notification, _retryMember);
+            }
+        });
+        return recorded;
+    }
+
+    /**
+     * Reschedules the recorded next attempt of the failed notification with
+     * exponential backoff, or gives up when the max attempts is exceeded.
+     *
+     * @param failure
+     * @param retryMember
+     */
+    private void onFailed(LogoutNotification failure, String retryMember) {
+        if (isNull(retryMember)) {
+            log.error("Give up notifying logout of principal: {}, appName: {}, attempts: {}", failure.getPrincipal(),
+                    failure.getAppName(), failure.getAttempts());
+            removeRetryTicket(failure);
+            return;
+        }
+        // Claimed by the retrying worker after the deadline.
+        if (!removeRetry(retryMember)) {
+            return;
+        }
+        long backoffMs = config.getLogout().getRetryBackoffMs() << Math.min(failure.getAttempts(), 16);
+        if (addRetry(failure, retryMember, currentTimeMillis() + backoffMs)) {
+            log.info("Scheduled retrying logout of principal: {}, appName: {}, attempts: {}, after: {}ms",
+                    failure.getPrincipal(), failure.getAppName(), failure.getAttempts() + 1, backoffMs);
+        }
+    }
+
+    private boolean addRetry(LogoutNotification notification, String retryMember, long dueTime) {
+        try {
+            getJedisClient().zadd(getRetryKey(), dueTime, retryMember);
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to record retrying logout of principal: {}, appName: {}. - {}", notification.getPrincipal(),
+                    notification.getAppName(), e.toString());
+            return false;
+        }
+    }
+
+    private boolean removeRetry(String retryMember) {
+        try {
+            return getJedisClient().zrem(getRetryKey(), retryMember) > 0;
+        } catch (Exception e) {
+            log.warn("Failed to remove retrying logout notification: {}. - {}", retryMember, e.toString());
+            return false;
+        }
+    }
+
+    /**
+     * Caches the grantTicket referenced by the retries of notification, it
+     * expires after all the retries are exhausted.
+     *
+     * @param notification
+     * @param grantTicket
+     * @return
+     */
+    private boolean putRetryTicket(LogoutNotification notification, String grantTicket) {
+        try {
+            cacheManager.getIamCache(CACHE_PREFIX_IAM_LOGOUT_TICKET)
+                    .put(new CacheKey(notification.getTicketRef(), getRetryWindowMs()), grantTicket);
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to record retrying logout ticket of principal: {}, appName: {}. - {}",
+                    notification.getPrincipal(), notification.getAppName(), e.toString());
+            return false;
+        }
+    }
+
+    private String getRetryTicket(LogoutNotification notification) {
+        return (String) cacheManager.getIamCache(CACHE_PREFIX_IAM_LOGOUT_TICKET)
+                .get(new CacheKey(notification.getTicketRef(), String.class));
+    }
+
+    private void removeRetryTicket(LogoutNotification notification) {
+        try {
+            cacheManager.getIamCache(CACHE_PREFIX_IAM_LOGOUT_TICKET).remove(new CacheKey(notification.getTicketRef()));
+        } catch (Exception e) {
+            log.warn("Failed to remove retrying logout ticket of principal: {}, appName: {}. - {}",
+                    notification.getPrincipal(), notification.getAppName(), e.toString());
+        }
+    }
+
+    /**
+     * The longest time from the first attempt to the last retry, i.e. the
+     * deadline and the backoff of each attempt, plus the scanning interval.
+     */
+    private long getRetryWindowMs() {
+        LogoutProperties logout = config.getLogout();
+        long windowMs = logout.getDeadlineMs();
+        for (int attempts = 0; attempts < logout.getRetryMaxAttempts(); attempts++) {
+            windowMs += (logout.getRetryBackoffMs() << Math.min(attempts, 16)) + logout.getDeadlineMs()
+                    + logout.getRetryScanIntervalMs();
+        }
+        return windowMs;
+    }
+
+    private String buildLogoutUrl(String baseUri, String grantTicket) {
+        return new StringBuilder(baseUri).append(URI_IAM_CLIENT_BASE)
+                .append("/")
+                .append(URI_IAM_CLIENT_LOGOUT)
+                .append("?")
+                .append(config.getParam().getGrantTicket())
+                .append("=")
+                .append(grantTicket)
+                .toString();
+    }
+
+    private String getRetryKey() {
+        return cacheManager.getIamCache(CACHE_PREFIX_IAM_LOGOUT_RETRY).getCacheName();
+    }
+
+    private JedisClient getJedisClient() {
+        return ((JedisIamCacheManager) cacheManager).getJedisClient();
+    }
+
+    /**
+     * The logout notification of application.
+     */
+    @Getter
+    @Setter
+    @ToString
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LogoutNotification {
+        private String appName;
+        private String baseUri;
+        private String ticketRef;
+        private String principal;
+        private int attempts;
+    }
+
+}
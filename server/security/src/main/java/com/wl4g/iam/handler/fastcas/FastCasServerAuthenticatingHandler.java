@@ -21,12 +21,11 @@ import static com.wl4g.infra.common.lang.Assert2.notNullOf;
 import static com.wl4g.infra.common.lang.Assert2.state;
 import static com.wl4g.infra.common.web.WebUtils2.getHttpRemoteAddr;
 import static com.wl4g.infra.common.web.WebUtils2.isEqualWithDomain;
+import static com.wl4g.iam.common.constant.FastCasIAMConstants.CACHE_PREFIX_IAM_SESSION;
 import static com.wl4g.iam.common.constant.FastCasIAMConstants.CACHE_PREFIX_IAM_TICKET_CLIENT;
 import static com.wl4g.iam.common.constant.FastCasIAMConstants.KEY_ACCESSTOKEN_SIGN_NAME;
 import static com.wl4g.iam.common.constant.FastCasIAMConstants.KEY_AUTHC_TOKEN;
 import static com.wl4g.iam.common.constant.FastCasIAMConstants.KEY_LANG_NAME;
-import static com.wl4g.iam.common.constant.FastCasIAMConstants.URI_IAM_CLIENT_BASE;
-import static com.wl4g.iam.common.constant.FastCasIAMConstants.URI_IAM_CLIENT_LOGOUT;
 import static com.wl4g.iam.common.model.SecondaryAuthcValidateModel.Status.ExpiredAuthorized;
 import static com.wl4g.iam.core.utils.IamAuthenticatingUtils.generateAccessTokenSignKey;
 import static com.wl4g.iam.core.utils.IamAuthenticatingUtils.generateDataCipherKey;
@@ -42,18 +41,21 @@ import static java.lang.String.valueOf;
 import static java.lang.System.currentTimeMillis;
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
+import static java.util.stream.Collectors.toList;
 import static org.apache.commons.lang3.RandomStringUtils.randomAlphabetic;
+import static org.apache.commons.lang3.StringUtils.EMPTY;
 import static org.apache.commons.lang3.StringUtils.equalsAny;
 import static org.apache.commons.lang3.StringUtils.isAnyBlank;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import static org.apache.shiro.SecurityUtils.getSubject;
 import static org.apache.shiro.web.util.WebUtils.toHttp;
-import static org.springframework.http.HttpMethod.POST;
 import static org.springframework.util.CollectionUtils.isEmpty;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
 
@@ -65,25 +67,25 @@ import org.apache.shiro.session.Session;
 import org.apache.shiro.session.SessionException;
 import org.apache.shiro.subject.Subject;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.ParameterizedTypeReference;
 
-import com.wl4g.infra.common.web.rest.RespBase;
-import com.wl4g.infra.common.jedis.cursor.ScanCursor;
 import com.wl4g.iam.authc.LogoutAuthenticationToken;
 import com.wl4g.iam.common.bean.FastCasClientInfo;
-import com.wl4g.iam.common.constant.FastCasIAMConstants;
 import com.wl4g.iam.common.subject.IamPrincipal;
 import com.wl4g.iam.common.subject.IamPrincipal.Attributes;
 import com.wl4g.iam.common.subject.SimpleIamPrincipal;
 import com.wl4g.iam.core.authc.IamAuthenticationTokenWrapper;
+import com.wl4g.iam.core.authc.SignedGrantTicket;
+import com.wl4g.iam.core.authc.SignedGrantTicket.GrantClaims;
+import com.wl4g.iam.common.model.GrantTicketKeysModel;
 import com.wl4g.iam.common.model.LoginedModel;
 import com.wl4g.iam.common.model.LogoutModel;
 import com.wl4g.iam.common.model.SecondaryAuthcValidateModel;
+import com.wl4g.iam.common.model.SessionRevocationModel;
 import com.wl4g.iam.common.model.SessionValidateModel;
 import com.wl4g.iam.common.model.ServiceTicketValidateRequest;
 import com.wl4g.iam.common.model.ServiceTicketValidateModel;
 import com.wl4g.iam.core.cache.CacheKey;
-import com.wl4g.iam.core.exception.IamException;
+import com.wl4g.iam.core.cache.IamCache;
 import com.wl4g.iam.core.exception.IllegalApplicationAccessException;
 import com.wl4g.iam.core.exception.IllegalCallbackDomainException;
 import com.wl4g.iam.core.exception.InvalidGrantTicketException;
@@ -93,6 +95,7 @@ import com.wl4g.iam.core.session.IamSession;
 import com.wl4g.iam.core.session.IamSession.RelationAttrKey;
 import com.wl4g.iam.core.session.mgt.IamSessionDAO;
 import com.wl4g.iam.handler.AbstractAuthenticatingHandler;
+import com.wl4g.iam.session.mgt.SessionRevocationLog;
 
 /**
  * IAM(fast-cas) authentication handler implements
@@ -110,6 +113,24 @@ public class FastCasServerAuthenticatingHandler extends AbstractAuthenticatingHa
     @Autowired
     protected IamSessionDAO sessionDAO;
 
+    /**
+     * Sessions revocation log.
+     */
+    @Autowired
+    protected SessionRevocationLog revocationLog;
+
+    /**
+     * Fast-CAS single logout notifier.
+     */
+    @Autowired
+    protected FastCasLogoutNotifier logoutNotifier;
+
+    /**
+     * Signed grantTickets signer.
+     */
+    @Autowired
+    protected GrantTicketSigner ticketSigner;
+
     @Override
     public void checkAuthenticateRedirectValidity(String appName, String redirectUrl) throws IllegalCallbackDomainException {
         // Check redirect URL(When source application is not empty)
@@ -161,7 +182,7 @@ public class FastCasServerAuthenticatingHandler extends AbstractAuthenticatingHa
         log.debug("Validating subject: {} by grantTicket: {}", subject, param.getTicket());
 
         // Assertion grantCredentials info.
-        assertGrantingTicketValidity(subject, param);
+        String grantTicket = assertGrantingTicketValidity(subject, param);
 
         // Check access authorized from application.
         assertApplicationAccessAuthorized((String) subject.getPrincipal(), grantAppName);
@@ -171,8 +192,9 @@ public class FastCasServerAuthenticatingHandler extends AbstractAuthenticatingHa
          * Synchronize with
          * xx.xx.handler.impl.FastCasAuthenticationHandler#validate#loggedin
          */
-        cacheManager.getCache(CACHE_PREFIX_IAM_TICKET_CLIENT).remove(new CacheKey(param.getTicket()));
-        log.debug("Clean older grantTicket: {}", param.getTicket());
+        cacheManager.getCache(CACHE_PREFIX_IAM_TICKET_CLIENT)
+                .remove(new CacheKey(getGrantTicketIndexKey(grantAppName, grantTicket)));
+        log.debug("Clean older grantTicket: {}", grantTicket);
 
         // --- Grant attributes setup. ---
 
@@ -248,10 +270,13 @@ public class FastCasServerAuthenticatingHandler extends AbstractAuthenticatingHa
 
             // Generate granting ticket. Same: CAS/service-ticket
             String grantTicket = null;
+            // The signed grantTicket can be verified by client locally.
+            boolean signable = isGrantTicketSignable((String) subject.getPrincipal(), grantAppname);
             // If the ticket has been generated in the previous
-            // moment.(currently?)
+            // moment.(currently?), the ticket that has been exposed in the
+            // claims of signed grantTicket cannot be reused.
             GrantApp grant = getGrantCredentials(session).getGrantApp(grantAppname);
-            if (!isNull(grant)) {
+            if (!isNull(grant) && !grant.isSigned() && !signable) {
                 grantTicket = grant.getGrantTicket();
             } else {
                 // Init generate grantCredentials
@@ -259,9 +284,17 @@ public class FastCasServerAuthenticatingHandler extends AbstractAuthenticatingHa
                 log.info("New init grantTicket: {}, grantAppname: {}", grantTicket, grantAppname);
             }
 
+            if (signable) {
+                GrantClaims claims = buildGrantClaims(session, grantAppname, grantTicket);
+                // Puts grantInfo session => applications, only the signed
+                // grantTicket can be redeemed.
+                putGrantCredentials(session, grantAppname,
+                        new GrantApp().setGrantTicket(grantTicket).setSignedExpireTime(claims.getExp()));
+                return new LoginedModel(ticketSigner.sign(claims));
+            }
+
             // Puts grantInfo session => applications
             putGrantCredentials(session, grantAppname, new GrantApp().setGrantTicket(grantTicket));
-
             return new LoginedModel(grantTicket);
         }
         throw new AuthenticationException("Unauthenticated");
@@ -297,6 +330,13 @@ public class FastCasServerAuthenticatingHandler extends AbstractAuthenticatingHa
         }
 
         if (forced || logoutAllMark) {
+            // Cleanup grantTicket => sessionId, so that the clients
+            // sessions validation can find out these tickets are dead.
+            if (!isNull(info)) {
+                removeGrantTickets(info);
+                // Notification clients to cleanup sessions immediately.
+                revocationLog.revoke(info);
+            }
             // Logout all sessions.
             try {
                 /**
@@ -339,33 +379,72 @@ public class FastCasServerAuthenticatingHandler extends AbstractAuthenticatingHa
     @Override
     public SessionValidateModel sessionValidate(SessionValidateModel model) {
         hasTextOf(model.getApplication(), "grantAppName");
+        if (isEmpty(model.getTickets())) {
+            return model;
+        }
 
-        ScanCursor<IamSession> cursor = sessionDAO.getAccessSessions(FastCasIAMConstants.DEFAULT_SESSION_SCAN_BATCHS);
-        while (cursor.hasNext()) {
-            Session session = cursor.next();
-            // GrantTicket of session.
-            GrantCredentialsInfo info = getGrantCredentials(session);
-
-            if (nonNull(info) && info.has(model.getApplication())) {
-                String storedTicket = info.getGrantApps().get(model.getApplication()).getGrantTicket();
-                // If exist grantTicket with application.
-                if (!isBlank(storedTicket)) {
-                    model.getTickets().remove(storedTicket);
-                }
+        // Lookup the grantTicket => sessionId with one round trip instead of
+        // scanning all sessions, which is removed when the ticket is renewed or
+        // logout. The index keys of application are in the same slot, so that
+        // is also one round trip on redis cluster.
+        /**
+         * @see {@link #putGrantCredentials()}
+         */
+        List<String> tickets = new ArrayList<>(model.getTickets());
+        List<String> indexKeys = tickets.stream().map(t -> getGrantTicketIndexKey(model.getApplication(), t)).collect(toList());
+        List<CacheKey> keys = indexKeys.stream().map(k -> new CacheKey(k, String.class)).collect(toList());
+        IamCache ticketCache = cacheManager.getIamCache(CACHE_PREFIX_IAM_TICKET_CLIENT);
+        List<Object> sessionIds = ticketCache.getAll(keys);
+
+        // The session slides on access but the index does not, so the session
+        // itself must be checked, and the indexes of the live sessions are
+        // extended to the session remaining time with one batch.
+        List<CacheKey> sessionKeys = sessionIds.stream()
+                .map(sid -> new CacheKey(isNull(sid) ? EMPTY : valueOf(sid), IamSession.class))
+                .collect(toList());
+        List<Object> sessions = cacheManager.getIamCache(CACHE_PREFIX_IAM_SESSION).getAll(sessionKeys);
+
+        List<String> deadTickets = new ArrayList<>(4);
+        List<CacheKey> liveKeys = new ArrayList<>(tickets.size());
+        for (int i = 0; i < tickets.size(); i++) {
+            Session session = isNull(sessionIds.get(i)) ? null : (Session) sessions.get(i);
+            long remainingTime = isNull(session) ? 0L : getSessionRemainingTime(session);
+            if (remainingTime <= 0L) {
+                deadTickets.add(tickets.get(i));
+                continue;
             }
+            liveKeys.add(new CacheKey(indexKeys.get(i), remainingTime));
         }
+        ticketCache.expireAll(liveKeys);
+        log.debug("Validated dead grantTickets: {}/{} of application: {}", deadTickets.size(), tickets.size(),
+                model.getApplication());
+
+        model.getTickets().clear();
+        model.getTickets().addAll(deadTickets);
         return model;
     }
 
+    @Override
+    public SessionRevocationModel sessionRevocations(SessionRevocationModel model) {
+        hasTextOf(model.getApplication(), "grantAppName");
+        return revocationLog.read(model);
+    }
+
+    @Override
+    public GrantTicketKeysModel grantTicketKeys(GrantTicketKeysModel model) {
+        return ticketSigner.getPublicKeys(model.getApplication());
+    }
+
     /**
      * Assertion granting ticket validity </br>
      *
      * @param subject
      * @param model
+     * @return the redeemed plain grantTicket
      * @throws InvalidGrantTicketException
      * @see {@link com.wl4g.iam.handler.fastcas.FastCasServerAuthenticatingHandler#loggedin}
      */
-    private void assertGrantingTicketValidity(Subject subject, ServiceTicketValidateRequest model)
+    private String assertGrantingTicketValidity(Subject subject, ServiceTicketValidateRequest model)
             throws InvalidGrantTicketException {
         if (isBlank(model.getTicket())) {
             log.warn("Invalid grantTicket: {}, application: {}, sessionId: {}", model.getTicket(), model.getApplication(),
@@ -383,13 +462,14 @@ public class FastCasServerAuthenticatingHandler extends AbstractAuthenticatingHa
         }
 
         // Validate grantTicket and storedTicket?
-        String storedTicket = info.getGrantApp(model.getApplication()).getGrantTicket();
-        if (!(model.getTicket().equals(storedTicket) && subject.isAuthenticated() && nonNull(subject.getPrincipal()))) {
+        GrantApp grant = info.getGrantApp(model.getApplication());
+        String grantTicket = ticketSigner.resolveGrantTicket(grant, model.getApplication(), model.getTicket());
+        if (!(grantTicket.equals(grant.getGrantTicket()) && subject.isAuthenticated() && nonNull(subject.getPrincipal()))) {
             log.warn("Invalid grantTicket: {}, appName: {}, sessionId: {}", model.getTicket(), model.getApplication(),
                     subject.getSession().getId());
             throw new InvalidGrantTicketException("Invalid granting ticket");
         }
-
+        return grantTicket;
     }
 
     /**
@@ -401,45 +481,63 @@ public class FastCasServerAuthenticatingHandler extends AbstractAuthenticatingHa
      * @return
      */
     private boolean handleLogoutSessionsAll(Subject subject, GrantCredentialsInfo info, List<FastCasClientInfo> apps) {
-        boolean logoutAllMark = true; // Represents all logout mark.
-
         /*
-         * Notification all logged-in applications to logout
+         * Notification all logged-in applications to logout concurrently, the
+         * failed notifications are retried in the background, so it does not
+         * prevent the logout.
          */
-        for (FastCasClientInfo app : apps) {
-            hasText(app.getIntranetBaseUri(), "Application[%s] 'internalBaseUri' is required", app.getAppName());
-
-            // Gets grantTicket by appName
-            String grantTicket = info.getGrantApps().get(app.getAppName()).getGrantTicket();
-            // Build logout URL
-            String url = new StringBuffer(app.getIntranetBaseUri()).append(URI_IAM_CLIENT_BASE)
-                    .append("/")
-                    .append(URI_IAM_CLIENT_LOGOUT)
-                    .append("?")
-                    .append(config.getParam().getGrantTicket())
-                    .append("=")
-                    .append(grantTicket)
-                    .toString();
-
-            // Post to remote client logout
-            try {
-                RespBase<LogoutModel> resp = restTemplate
-                        .exchange(url, POST, null, new ParameterizedTypeReference<RespBase<LogoutModel>>() {
-                        })
-                        .getBody();
-                if (RespBase.isSuccess(resp))
-                    log.info("Finished logout of principal: {}, appName: {}, url:{}", subject.getPrincipal(), app.getAppName(),
-                            url);
-                else
-                    throw new IamException(resp != null ? resp.getMessage() : "No response");
-            } catch (Exception e) {
-                logoutAllMark = false;
-                log.error(format("Remote client logout failure. principal: %s, appName: %s, url: %s", subject.getPrincipal(),
-                        app.getAppName(), url), e);
-            }
-        }
+        return logoutNotifier.logoutAll(subject.getPrincipal(), info, apps);
+    }
 
-        return logoutAllMark;
+    /**
+     * Check whether the signed grantTicket can be issued, the data cipher and
+     * access token sign keys of the granted application cannot be carried by
+     * the signed grantTicket (visible to user agent), so the remote ticket
+     * validation is required.
+     *
+     * @param principal
+     * @param grantAppname
+     * @return
+     */
+    private boolean isGrantTicketSignable(String principal, String grantAppname) {
+        return config.getTicket().isSigningEnabled() && !config.getCipher().isEnableDataCipher()
+                && !config.getSession().isEnableAccessTokenValidity()
+                // Unauthorized application should be rejected by the remote
+                // ticket validation.
+                && configurer.isApplicationAccessAuthorized(principal, grantAppname);
+    }
+
+    /**
+     * Build the claims of signed grantTicket with the principal digest and the
+     * attributes that are set by {@link #validate(ServiceTicketValidateRequest)}.
+     *
+     * @param session
+     * @param grantAppname
+     * @param grantTicket
+     * @return
+     * @see {@link com.wl4g.iam.client.realm.FastCasClientAuthorizingRealm#doAuthenticationInfo}
+     */
+    private GrantClaims buildGrantClaims(Session session, String grantAppname, String grantTicket) {
+        IamPrincipal info = getPrincipalInfo();
+        long now = currentTimeMillis();
+
+        GrantClaims claims = new GrantClaims();
+        claims.setIss(config.getServiceName());
+        claims.setAud(grantAppname);
+        claims.setSub(info.getPrincipal());
+        claims.setJti(grantTicket);
+        claims.setIat(now);
+        claims.setExp(now + config.getTicket().getSignedExpireMs());
+        claims.setVut(now + getSessionRemainingTime(session));
+        claims.setPver(SignedGrantTicket.digestPrincipal(info));
+        claims.setLang(getBindValue(KEY_LANG_NAME));
+        claims.setRme(info.attributes().getRememberMe());
+        IamAuthenticationTokenWrapper wrap = getBindValue(
+                new RelationAttrKey(KEY_AUTHC_TOKEN, IamAuthenticationTokenWrapper.class));
+        if (!isNull(wrap) && !isNull(wrap.getToken())) {
+            claims.setHost(wrap.getToken().getHost());
+        }
+        return claims;
     }
 
     /**
@@ -483,11 +581,41 @@ public class FastCasServerAuthenticatingHandler extends AbstractAuthenticatingHa
          * @see {@link com.wl4g.devops.iam.common.session.mgt.AbstractIamSessionManager#getSessionId()}
          */
         long expireTime = getSessionRemainingTime(session); // Expiration time
-        cacheManager.getIamCache(CACHE_PREFIX_IAM_TICKET_CLIENT).put(new CacheKey(grant.getGrantTicket(), expireTime),
+        cacheManager.getIamCache(CACHE_PREFIX_IAM_TICKET_CLIENT).put(
+                new CacheKey(getGrantTicketIndexKey(grantAppname, grant.getGrantTicket()), expireTime),
                 valueOf(session.getId()));
         log.debug("Sets grantTicket: '{}' of seesionId: '{}', expireTime: '{}'", grant, getSessionId(session), expireTime);
     }
 
+    /**
+     * Removes grantTicket => sessionId of all grant applications.
+     *
+     * @param info
+     */
+    private void removeGrantTickets(GrantCredentialsInfo info) {
+        for (Entry<String, GrantApp> ent : info.getGrantApps().entrySet()) {
+            GrantApp grant = ent.getValue();
+            if (nonNull(grant) && !isBlank(grant.getGrantTicket())) {
+                cacheManager.getIamCache(CACHE_PREFIX_IAM_TICKET_CLIENT)
+                        .remove(new CacheKey(getGrantTicketIndexKey(ent.getKey(), grant.getGrantTicket())));
+            }
+        }
+        log.debug("Removed grantTickets of {}", info);
+    }
+
+    /**
+     * Gets the index key of grantTicket => sessionId, the index keys of the
+     * same application are hash tagged to the same slot.
+     *
+     * @param grantAppname
+     * @param grantTicket
+     * @return
+     * @see {@link com.wl4g.iam.core.session.mgt.AbstractIamSessionManager#getGrantTicketIndexKey()}
+     */
+    private String getGrantTicketIndexKey(String grantAppname, String grantTicket) {
+        return CacheKey.withHashTag(grantAppname, grantTicket);
+    }
+
     /**
      * Gets bind session granting credentials.
      *
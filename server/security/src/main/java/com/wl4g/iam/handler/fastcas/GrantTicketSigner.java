@@ -0,0 +1,342 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.handler.fastcas;
+
+import static com.wl4g.infra.common.lang.Assert2.hasText;
+import static com.wl4g.infra.common.lang.Assert2.isTrue;
+import static com.wl4g.infra.common.lang.Assert2.notNullOf;
+import static com.wl4g.infra.common.lang.Assert2.state;
+import static com.wl4g.infra.common.log.SmartLoggerFactory.getLogger;
+import static com.wl4g.infra.common.serialize.JacksonUtils.parseJSON;
+import static com.wl4g.infra.common.serialize.JacksonUtils.toJSONString;
+import static com.wl4g.iam.common.constant.FastCasIAMConstants.CACHE_PREFIX_IAM_GRANT_TICKET_KEYS;
+import static java.lang.String.format;
+import static java.lang.System.currentTimeMillis;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.Function;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.wl4g.iam.common.model.GrantTicketKeysModel;
+import com.wl4g.iam.config.properties.TicketProperties;
+import com.wl4g.iam.core.authc.SignedGrantTicket;
+import com.wl4g.iam.core.authc.SignedGrantTicket.GrantClaims;
+import com.wl4g.iam.core.cache.IamCacheManager;
+import com.wl4g.iam.core.cache.JedisIamCacheManager;
+import com.wl4g.iam.core.exception.InvalidGrantTicketException;
+import com.wl4g.iam.core.session.GrantCredentialsInfo.GrantApp;
+import com.wl4g.infra.common.jedis.JedisClient;
+import com.wl4g.infra.common.log.SmartLogger;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Signed grantTickets signer, the signing keys are rotated by the time bucket
+ * (i.e. the kid) of {@link TicketProperties#getSigningKeyRotationMs()}, and
+ * stored in the redis hash, so that all nodes of the IAM server cluster share
+ * the same keys (the first node created the key of bucket wins), the private
+ * keys are encrypted (AES-GCM) with the configured
+ * {@link TicketProperties#getSigningKeyEncryptionKey()}. </br>
+ * </br>
+ * The public keys of current and previous buckets are published to the
+ * fast-CAS clients, see: {@link #getPublicKeys(String)}
+ *
+ * @author James Wong<jamewong1376@gmail.com>
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ * @see {@link com.wl4g.iam.client.authc.SignedGrantTicketVerifier}
+ */
+public class GrantTicketSigner {
+    protected final SmartLogger log = getLogger(getClass());
+
+    private final TicketProperties config;
+    private final IamCacheManager cacheManager;
+    private final SecretKey keyEncryptionKey;
+    private final SecureRandom random = new SecureRandom();
+
+    private volatile SigningKey current;
+
+    public GrantTicketSigner(TicketProperties config, IamCacheManager cacheManager) {
+        this.config = notNullOf(config, "config");
+        this.cacheManager = notNullOf(cacheManager, "cacheManager");
+        isTrue(config.getSignedExpireMs() < config.getSigningKeyRotationMs(),
+                "ticket.signedExpireMs must be less than ticket.signingKeyRotationMs");
+        if (config.isSigningEnabled()) {
+            hasText(config.getSigningKeyEncryptionKey(),
+                    "ticket.signingKeyEncryptionKey is required when ticket.signingEnabled is true");
+            byte[] kek = Base64.getDecoder().decode(config.getSigningKeyEncryptionKey());
+            isTrue(kek.length == 16 || kek.length == 24 || kek.length == 32,
+                    "ticket.signingKeyEncryptionKey must be base64 of 128/192/256 bits AES key");
+            this.keyEncryptionKey = new SecretKeySpec(kek, "AES");
+        } else {
+            this.keyEncryptionKey = null;
+        }
+    }
+
+    /**
+     * Sign the grant claims with the current key.
+     *
+     * @param claims
+     * @return
+     */
+    public String sign(GrantClaims claims) {
+        SigningKey key = getCurrentKey();
+        return SignedGrantTicket.sign(claims, key.getKid(), key.getPrivateKey());
+    }
+
+    /**
+     * Resolve the grant ticket to be redeemed by the remote ticket validation.
+     * Once the signed grant ticket has been issued, its grant ticket (the jti,
+     * which is visible in the claims) is refused as a plain grant ticket, and
+     * only the signed grant ticket itself can be redeemed.
+     *
+     * @param grant
+     * @param application
+     * @param ticket
+     * @return the plain grant ticket
+     * @throws InvalidGrantTicketException
+     */
+    public String resolveGrantTicket(GrantApp grant, String application, String ticket) throws InvalidGrantTicketException {
+        return resolveGrantTicket(grant, application, ticket, kid -> getPublicKey(kid), currentTimeMillis());
+    }
+
+    static String resolveGrantTicket(
+            GrantApp grant,
+            String application,
+            String ticket,
+            Function<String, PublicKey> keyResolver,
+            long now) throws InvalidGrantTicketException {
+        notNullOf(grant, "grant");
+        if (!grant.isSigned()) {
+            if (SignedGrantTicket.isSigned(ticket)) {
+                throw new InvalidGrantTicketException("Invalid granting ticket");
+            }
+            return ticket;
+        }
+        if (!SignedGrantTicket.isSigned(ticket)) {
+            throw new InvalidGrantTicketException("Signed granting ticket is required");
+        }
+
+        SignedGrantTicket signedTicket;
+        try {
+            signedTicket = SignedGrantTicket.parse(ticket);
+        } catch (RuntimeException e) {
+            throw new InvalidGrantTicketException("Invalid signed granting ticket");
+        }
+        PublicKey publicKey = keyResolver.apply(signedTicket.getKid());
+        if (isNull(publicKey) || !signedTicket.verify(publicKey)) {
+            throw new InvalidGrantTicketException("Invalid signed granting ticket");
+        }
+        GrantClaims claims;
+        try {
+            claims = signedTicket.checkClaims(application, now, 0L);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidGrantTicketException(e.getMessage());
+        }
+        if (!grant.getGrantTicket().equals(claims.getJti())) {
+            throw new InvalidGrantTicketException("Invalid signed granting ticket");
+        }
+        return claims.getJti();
+    }
+
+    /**
+     * Gets the public keys of current and previous buckets.
+     *
+     * @param application
+     * @return
+     */
+    public GrantTicketKeysModel getPublicKeys(String application) {
+        GrantTicketKeysModel assertion = new GrantTicketKeysModel(application);
+        if (!config.isSigningEnabled()) {
+            return assertion;
+        }
+        assertion.setRotationMs(config.getSigningKeyRotationMs());
+        getCurrentKey(); // Ensure created.
+
+        long now = currentTimeMillis();
+        for (Entry<String, String> ent : getJedisClient().hgetAll(getKeysKey()).entrySet()) {
+            if (!SignedGrantTicket.isActiveKid(ent.getKey(), now, config.getSigningKeyRotationMs())) {
+                continue;
+            }
+            StoredKey key = parseJSON(ent.getValue(), StoredKey.class);
+            assertion.getKeys().add(SignedGrantTicket.toGrantTicketKey(key.getKid(), decodePublicKey(key)));
+        }
+        return assertion;
+    }
+
+    private SigningKey getCurrentKey() {
+        state(config.isSigningEnabled(), "The signing of grantTicket is disabled");
+        long now = currentTimeMillis();
+        String kid = SignedGrantTicket.getKid(now, config.getSigningKeyRotationMs());
+        SigningKey key = current;
+        if (nonNull(key) && key.getKid().equals(kid)) {
+            return key;
+        }
+        synchronized (this) {
+            if (nonNull(current) && current.getKid().equals(kid)) {
+                return current;
+            }
+            String stored = getJedisClient().hget(getKeysKey(), kid);
+            if (isNull(stored)) {
+                KeyPair pair = SignedGrantTicket.generateKeyPair();
+                Base64.Encoder encoder = Base64.getEncoder();
+                getJedisClient().hsetnx(getKeysKey(), kid, toJSONString(new StoredKey(kid,
+                        encoder.encodeToString(encryptPrivateKey(kid, pair.getPrivate().getEncoded())),
+                        encoder.encodeToString(pair.getPublic().getEncoded()))));
+                // The key created by the other node may win.
+                stored = getJedisClient().hget(getKeysKey(), kid);
+                log.info("Rotated grantTicket signing key: {}", kid);
+                pruneKeys(now);
+            }
+            return (current = decodeKey(stored));
+        }
+    }
+
+    private PublicKey getPublicKey(String kid) {
+        SigningKey key = current;
+        if (nonNull(key) && key.getKid().equals(kid)) {
+            return key.getPublicKey();
+        }
+        if (!SignedGrantTicket.isActiveKid(kid, currentTimeMillis(), config.getSigningKeyRotationMs())) {
+            return null; // Expired key
+        }
+        String stored = getJedisClient().hget(getKeysKey(), kid);
+        return isNull(stored) ? null : decodePublicKey(parseJSON(stored, StoredKey.class));
+    }
+
+    private void pruneKeys(long now) {
+        Map<String, String> stored = getJedisClient().hgetAll(getKeysKey());
+        for (String kid : stored.keySet()) {
+            if (!SignedGrantTicket.isActiveKid(kid, now, config.getSigningKeyRotationMs())) {
+                getJedisClient().hdel(getKeysKey(), kid);
+                log.info("Removed expired grantTicket signing key: {}", kid);
+            }
+        }
+    }
+
+    private SigningKey decodeKey(String stored) {
+        StoredKey key = parseJSON(stored, StoredKey.class);
+        byte[] encoded = decryptPrivateKey(key.getKid(), Base64.getDecoder().decode(key.getPrivateKey()));
+        try {
+            PrivateKey privateKey = KeyFactory.getInstance("EC").generatePrivate(new PKCS8EncodedKeySpec(encoded));
+            return new SigningKey(key.getKid(), privateKey, decodePublicKey(key));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            Arrays.fill(encoded, (byte) 0);
+        }
+    }
+
+    private ECPublicKey decodePublicKey(StoredKey key) {
+        try {
+            return (ECPublicKey) KeyFactory.getInstance("EC")
+                    .generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(key.getPublicKey())));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Encrypt the private key with AES-GCM, the kid is bound as the AAD, so
+     * the encrypted key cannot be swapped to the other buckets.
+     *
+     * @param kid
+     * @param encoded
+     * @return iv + ciphertext
+     */
+    byte[] encryptPrivateKey(String kid, byte[] encoded) {
+        byte[] iv = new byte[GCM_IV_LENGTH];
+        random.nextBytes(iv);
+        try {
+            Cipher cipher = Cipher.getInstance(KEY_CIPHER_ALG);
+            cipher.init(Cipher.ENCRYPT_MODE, keyEncryptionKey, new GCMParameterSpec(GCM_TAG_BITS, iv));
+            cipher.updateAAD(kid.getBytes(UTF_8));
+            byte[] encrypted = cipher.doFinal(encoded);
+            byte[] result = new byte[iv.length + encrypted.length];
+            System.arraycopy(iv, 0, result, 0, iv.length);
+            System.arraycopy(encrypted, 0, result, iv.length, encrypted.length);
+            return result;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to encrypt grantTicket signing key", e);
+        }
+    }
+
+    byte[] decryptPrivateKey(String kid, byte[] encrypted) {
+        isTrue(encrypted.length > GCM_IV_LENGTH, "Invalid encrypted grantTicket signing key");
+        try {
+            Cipher cipher = Cipher.getInstance(KEY_CIPHER_ALG);
+            cipher.init(Cipher.DECRYPT_MODE, keyEncryptionKey, new GCMParameterSpec(GCM_TAG_BITS, encrypted, 0, GCM_IV_LENGTH));
+            cipher.updateAAD(kid.getBytes(UTF_8));
+            return cipher.doFinal(encrypted, GCM_IV_LENGTH, encrypted.length - GCM_IV_LENGTH);
+        } catch (GeneralSecurityException e) {
+            // e.g. the signingKeyEncryptionKey has been changed.
+            throw new IllegalStateException(format("Failed to decrypt grantTicket signing key: %s", kid), e);
+        }
+    }
+
+    private String getKeysKey() {
+        return cacheManager.getIamCache(CACHE_PREFIX_IAM_GRANT_TICKET_KEYS).getCacheName();
+    }
+
+    private JedisClient getJedisClient() {
+        return ((JedisIamCacheManager) cacheManager).getJedisClient();
+    }
+
+    private static final String KEY_CIPHER_ALG = "AES/GCM/NoPadding";
+    private static final int GCM_IV_LENGTH = 12;
+    private static final int GCM_TAG_BITS = 128;
+
+    @Getter
+    @AllArgsConstructor
+    static class SigningKey {
+        private final String kid;
+        private final PrivateKey privateKey;
+        private final ECPublicKey publicKey;
+    }
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StoredKey {
+        private String kid;
+        private String privateKey;
+        private String publicKey;
+    }
+
+}
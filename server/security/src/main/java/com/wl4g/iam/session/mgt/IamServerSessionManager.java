@@ -16,12 +16,16 @@
 package com.wl4g.iam.session.mgt;
 
 import static com.wl4g.iam.common.constant.FastCasIAMConstants.CACHE_PREFIX_IAM_TICKET_CLIENT;
+import static com.wl4g.iam.handler.fastcas.FastCasServerAuthenticatingHandler.getGrantCredentials;
 
 import java.io.Serializable;
 
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 
+import org.apache.shiro.session.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+
 import com.wl4g.iam.config.properties.IamProperties;
 import com.wl4g.iam.core.cache.IamCacheManager;
 import com.wl4g.iam.core.session.mgt.AbstractIamSessionManager;
@@ -36,6 +40,12 @@ import com.wl4g.iam.core.session.mgt.AbstractIamSessionManager;
  */
 public class IamServerSessionManager extends AbstractIamSessionManager<IamProperties> {
 
+    /**
+     * Sessions revocation log.
+     */
+    @Autowired
+    protected SessionRevocationLog revocationLog;
+
     public IamServerSessionManager(IamProperties config, IamCacheManager cacheManager) {
         super(config, cacheManager, CACHE_PREFIX_IAM_TICKET_CLIENT);
     }
@@ -45,4 +55,15 @@ public class IamServerSessionManager extends AbstractIamSessionManager<IamProper
         return super.getSessionId(request, response);
     }
 
+    @Override
+    protected void afterExpired(Session session) {
+        // Notification clients the grantTickets of expired session.
+        try {
+            revocationLog.revoke(getGrantCredentials(session));
+        } catch (Exception e) {
+            log.warn("Failed to revoke grantTickets of expired sessionId: {}. - {}", session.getId(), e.toString());
+        }
+        super.afterExpired(session);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.session.mgt;
+
+import static com.wl4g.infra.common.lang.Assert2.hasTextOf;
+import static com.wl4g.infra.common.lang.Assert2.notNullOf;
+import static com.wl4g.infra.common.log.SmartLoggerFactory.getLogger;
+import static com.wl4g.iam.common.constant.FastCasIAMConstants.CACHE_PREFIX_IAM_SESSION_REVOCATION;
+import static java.util.Collections.singletonMap;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.springframework.util.CollectionUtils.isEmpty;
+
+import java.util.List;
+import java.util.Map.Entry;
+
+import com.wl4g.iam.common.model.SessionRevocationModel;
+import com.wl4g.iam.core.cache.IamCacheManager;
+import com.wl4g.iam.core.cache.JedisIamCacheManager;
+import com.wl4g.iam.core.session.GrantCredentialsInfo;
+import com.wl4g.iam.core.session.GrantCredentialsInfo.GrantApp;
+import com.wl4g.infra.common.jedis.JedisClient;
+import com.wl4g.infra.common.log.SmartLogger;
+
+import redis.clients.jedis.StreamEntry;
+import redis.clients.jedis.StreamEntryID;
+
+/**
+ * Sessions revocation log, the revoked grantTickets of the logged out or
+ * expired sessions are appended to the redis stream of each application, and
+ * the clients incrementally consume it with the offset (i.e. stream entry ID)
+ * to cleanup local sessions immediately, instead of waiting for the periodic
+ * sessions validation. </br>
+ * </br>
+ * Every offset replied is the ID of an existing entry (a marker entry is
+ * appended to the empty stream), so that the trimmed offset can always be
+ * detected.
+ *
+ * @author James Wong<jamewong1376@gmail.com>
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ * @see {@link com.wl4g.iam.client.session.mgt.SessionRevocationConsumer}
+ */
+public class SessionRevocationLog {
+    protected final SmartLogger log = getLogger(getClass());
+
+    private final IamCacheManager cacheManager;
+
+    public SessionRevocationLog(IamCacheManager cacheManager) {
+        this.cacheManager = notNullOf(cacheManager, "cacheManager");
+    }
+
+    /**
+     * Appends the grantTickets of all applications of the session.
+     *
+     * @param info
+     */
+    public void revoke(GrantCredentialsInfo info) {
+        if (isNull(info)) {
+            return;
+        }
+        for (Entry<String, GrantApp> ent : info.getGrantApps().entrySet()) {
+            if (nonNull(ent.getValue()) && !isBlank(ent.getValue().getGrantTicket())) {
+                append(ent.getKey(), ent.getValue().getGrantTicket());
+            }
+        }
+    }
+
+    /**
+     * Appends the revoked grantTicket of application, the stream length is
+     * approximately trimmed to {@link #DEFAULT_MAX_LENGTH}.
+     *
+     * @param appName
+     * @param grantTicket
+     */
+    public void append(String appName, String grantTicket) {
+        try {
+            StreamEntryID id = getJedisClient().xadd(getStreamKey(appName), StreamEntryID.NEW_ENTRY,
+                    singletonMap(FIELD_TICKET, grantTicket), DEFAULT_MAX_LENGTH, true);
+            log.debug("Appended revoked grantTicket: {} of application: {}, id: {}", grantTicket, appName, id);
+        } catch (Exception e) {
+            // Ignore, the clients sessions validation is the fallback.
+            log.warn("Failed to append revoked grantTicket: {} of application: {}. - {}", grantTicket, appName, e.toString());
+        }
+    }
+
+    /**
+     * Reads the revocations of application after the offset.
+     *
+     * @param param
+     * @return
+     */
+    public SessionRevocationModel read(SessionRevocationModel param) {
+        hasTextOf(param.getApplication(), "application");
+        String streamKey = getStreamKey(param.getApplication());
+        int limit = Math.max(1, Math.min(param.getLimit(), DEFAULT_MAX_READ_LIMIT));
+
+        SessionRevocationModel assertion = new SessionRevocationModel(param.getApplication());
+        // Reading from the latest.
+        if (isBlank(param.getOffset())) {
+            assertion.setOffset(getLatestOffset(streamKey));
+            return assertion;
+        }
+
+        StreamEntryID offset = null;
+        List<StreamEntry> entries = null;
+        try {
+            offset = new StreamEntryID(param.getOffset());
+            entries = getJedisClient().xrange(streamKey, offset, null, limit + 1);
+        } catch (IllegalArgumentException e) { // e.g. NumberFormatException
+            log.warn("Invalid revocations offset: {} of application: {}", param.getOffset(), param.getApplication());
+        }
+        // The offset entry is invalid or has been trimmed, the revocations
+        // after that may be lost.
+        if (isNull(offset) || isEmpty(entries) || !entries.get(0).getID().equals(offset)) {
+            assertion.setReset(true);
+            assertion.setOffset(getLatestOffset(streamKey));
+            return assertion;
+        }
+
+        StreamEntryID next = offset;
+        for (StreamEntry entry : entries) {
+            if (entry.getID().equals(offset)) {
+                continue;
+            }
+            if (assertion.getTickets().size() >= limit) {
+                break;
+            }
+            String ticket = entry.getFields().get(FIELD_TICKET);
+            if (!isBlank(ticket)) {
+                assertion.getTickets().add(ticket);
+            }
+            next = entry.getID();
+        }
+        assertion.setOffset(next.toString());
+        return assertion;
+    }
+
+    private String getLatestOffset(String streamKey) {
+        List<StreamEntry> latest = getJedisClient().xrevrange(streamKey, null, null, 1);
+        if (!isEmpty(latest)) {
+            return latest.get(0).getID().toString();
+        }
+        // The empty stream has no entry can be used to detect trimming.
+        return getJedisClient()
+                .xadd(streamKey, StreamEntryID.NEW_ENTRY, singletonMap(FIELD_MARKER, ""), DEFAULT_MAX_LENGTH, true)
+                .toString();
+    }
+
+    private String getStreamKey(String appName) {
+        return cacheManager.getIamCache(CACHE_PREFIX_IAM_SESSION_REVOCATION).getCacheName() + appName;
+    }
+
+    private JedisClient getJedisClient() {
+        return ((JedisIamCacheManager) cacheManager).getJedisClient();
+    }
+
+    /**
+     * The stream entry field name of revoked grantTicket.
+     */
+    public static final String FIELD_TICKET = "ticket";
+
+    /**
+     * The stream entry field name of the marker entry without revocation.
+     */
+    public static final String FIELD_MARKER = "marker";
+
+    /**
+     * The default approximately max length of stream of each application.
+     */
+    public static final long DEFAULT_MAX_LENGTH = 100_000L;
+
+    /**
+     * The default max number of revocations per reading.
+     */
+    public static final int DEFAULT_MAX_READ_LIMIT = 10_000;
+
+}
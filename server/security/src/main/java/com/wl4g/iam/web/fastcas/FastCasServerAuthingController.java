@@ -18,8 +18,10 @@ package com.wl4g.iam.web.fastcas;
 import static com.wl4g.infra.common.serialize.JacksonUtils.toJSONString;
 import static com.wl4g.infra.common.web.WebUtils2.getFullRequestURL;
 import static com.wl4g.infra.common.web.WebUtils2.isTrue;
+import static com.wl4g.iam.common.constant.FastCasIAMConstants.URI_IAM_SERVER_GRANT_TICKET_KEYS;
 import static com.wl4g.iam.common.constant.FastCasIAMConstants.URI_IAM_SERVER_LOGOUT;
 import static com.wl4g.iam.common.constant.FastCasIAMConstants.URI_IAM_SERVER_SECOND_VALIDATE;
+import static com.wl4g.iam.common.constant.FastCasIAMConstants.URI_IAM_SERVER_SESSION_REVOCATIONS;
 import static com.wl4g.iam.common.constant.FastCasIAMConstants.URI_IAM_SERVER_SESSION_VALIDATE;
 import static com.wl4g.iam.common.constant.FastCasIAMConstants.URI_IAM_SERVER_VALIDATE;
 import static com.wl4g.iam.core.utils.IamSecurityHolder.getSessionId;
@@ -38,8 +40,10 @@ import com.wl4g.infra.common.web.rest.RespBase;
 import com.wl4g.infra.context.utils.web.WebUtils3;
 import com.wl4g.iam.common.subject.IamPrincipal;
 import com.wl4g.iam.core.annotation.FastCasController;
+import com.wl4g.iam.common.model.GrantTicketKeysModel;
 import com.wl4g.iam.common.model.LogoutModel;
 import com.wl4g.iam.common.model.SecondaryAuthcValidateModel;
+import com.wl4g.iam.common.model.SessionRevocationModel;
 import com.wl4g.iam.common.model.SessionValidateModel;
 import com.wl4g.iam.common.model.ServiceTicketValidateRequest;
 import com.wl4g.iam.common.model.ServiceTicketValidateModel;
@@ -102,6 +106,36 @@ public class FastCasServerAuthingController extends BaseIamController implements
         return resp;
     }
 
+    @PostMapping(URI_IAM_SERVER_SESSION_REVOCATIONS)
+    @ResponseBody
+    @Override
+    public RespBase<SessionRevocationModel> sessionRevocations(@NotNull @RequestBody SessionRevocationModel param) {
+        HttpServletRequest request = WebUtils3.currentServletRequest();
+        log.debug("called:sessionRevocations '{}' from '{}', param={}", URI_IAM_SERVER_SESSION_REVOCATIONS,
+                request.getRemoteHost(), param);
+
+        RespBase<SessionRevocationModel> resp = RespBase.create();
+        resp.setData(authHandler.sessionRevocations(param));
+
+        log.debug("resp:sessionRevocations {}", resp);
+        return resp;
+    }
+
+    @PostMapping(URI_IAM_SERVER_GRANT_TICKET_KEYS)
+    @ResponseBody
+    @Override
+    public RespBase<GrantTicketKeysModel> grantTicketKeys(@NotNull @RequestBody GrantTicketKeysModel param) {
+        HttpServletRequest request = WebUtils3.currentServletRequest();
+        log.debug("called:grantTicketKeys '{}' from '{}', param={}", URI_IAM_SERVER_GRANT_TICKET_KEYS, request.getRemoteHost(),
+                param);
+
+        RespBase<GrantTicketKeysModel> resp = RespBase.create();
+        resp.setData(authHandler.grantTicketKeys(param));
+
+        log.debug("resp:grantTicketKeys {}", resp);
+        return resp;
+    }
+
     @PostMapping(URI_IAM_SERVER_LOGOUT)
     @ResponseBody
     @Override
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.handler.fastcas;
+
+import static com.wl4g.iam.common.constant.FastCasIAMConstants.CACHE_PREFIX_IAM_LOGOUT_RETRY;
+import static com.wl4g.iam.common.constant.FastCasIAMConstants.CACHE_PREFIX_IAM_LOGOUT_TICKET;
+import static com.wl4g.infra.common.serialize.JacksonUtils.parseJSON;
+import static com.wl4g.infra.common.serialize.JacksonUtils.toJSONString;
+import static java.lang.System.currentTimeMillis;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.wl4g.iam.common.bean.FastCasClientInfo;
+import com.wl4g.iam.config.properties.IamProperties;
+import com.wl4g.iam.config.properties.LogoutProperties;
+import com.wl4g.iam.core.cache.CacheKey;
+import com.wl4g.iam.core.cache.JedisIamCacheManager;
+import com.wl4g.iam.core.session.GrantCredentialsInfo;
+import com.wl4g.iam.core.session.GrantCredentialsInfo.GrantApp;
+import com.wl4g.iam.handler.fastcas.FastCasLogoutNotifier.LogoutNotification;
+import com.wl4g.iam.util.InMemoryJedisClient;
+import com.wl4g.infra.common.web.rest.RespBase;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * {@link FastCasLogoutNotifierTests}
+ * 
+ * @author James Wong &lt;jameswong1376@gmail.com&gt;
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+public class FastCasLogoutNotifierTests {
+
+    private final InMemoryJedisClient jedis = new InMemoryJedisClient();
+    private final JedisIamCacheManager cacheManager = new JedisIamCacheManager("iam-web", jedis.getClient());
+    private final IamProperties config = new IamProperties();
+    private final AtomicInteger requests = new AtomicInteger(0);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile boolean blocking;
+    private volatile int status = 200;
+    private volatile String lastUrl;
+    private FastCasLogoutNotifier notifier;
+
+    @Before
+    public void init() {
+        config.getLogout().setRetryBackoffMs(60_000L);
+        config.getLogout().setRetryMaxAttempts(2);
+        // The client application, which does not send any request.
+        OkHttpClient httpClient = new OkHttpClient.Builder().addInterceptor(chain -> {
+            requests.incrementAndGet();
+            lastUrl = chain.request().url().toString();
+            if (blocking) {
+                release.await(10, SECONDS);
+            }
+            String body = status == 200 ? toJSONString(RespBase.create()) : "{}";
+            return new Response.Builder().request(chain.request())
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(status)
+                    .message("test")
+                    .body(ResponseBody.create(body, MediaType.get("application/json")))
+                    .build();
+        }).build();
+        this.notifier = new FastCasLogoutNotifier(config, cacheManager, httpClient);
+    }
+
+    @After
+    public void destroy() throws Exception {
+        release.countDown();
+        notifier.destroy();
+    }
+
+    @Test
+    public void testLogoutAllWithoutWaitingForResponses() throws Exception {
+        blocking = true;
+        long begin = currentTimeMillis();
+        assertTrue(notifier.logoutAll("user1", newGrantInfo("portal", "sso"), asList(newApp("portal"), newApp("sso"))));
+        assertTrue(currentTimeMillis() - begin < config.getLogout().getDeadlineMs());
+
+        // The next attempts are recorded due at the deadline.
+        Map<String, Double> retries = getRetries();
+        assertEquals(2, retries.size());
+        for (Map.Entry<String, Double> ent : retries.entrySet()) {
+            assertEquals(1, parseJSON(ent.getKey(), LogoutNotification.class).getAttempts());
+            assertTrue(ent.getValue() >= begin + config.getLogout().getDeadlineMs());
+            // Only the reference of grantTicket is recorded.
+            assertFalse(ent.getKey().contains("st-"));
+        }
+        assertEquals(2, jedis.getKeys().size());
+
+        // Notified, the retries and the referenced tickets are cancelled.
+        release.countDown();
+        await(() -> getRetries().isEmpty() && jedis.getKeys().isEmpty());
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void testFailureRescheduledWithBackoff() throws Exception {
+        status = 500;
+        long begin = currentTimeMillis();
+        notifier.logoutAll("user1", newGrantInfo("portal"), singletonList(newApp("portal")));
+
+        await(() -> getRetries().size() == 1
+                && getRetries().values().stream().allMatch(dueTime -> dueTime >= begin + 60_000L));
+        Map<String, Double> retries = getRetries();
+        assertEquals(1, retries.size());
+        assertEquals(1, parseJSON(retries.keySet().iterator().next(), LogoutNotification.class).getAttempts());
+    }
+
+    @Test
+    public void testRetryDueClaimsAndSends() throws Exception {
+        putRetryTicket("ref-portal", "st-portal");
+        putRetryTicket("ref-sso", "st-sso");
+        String member = toJSONString(new LogoutNotification("portal", "http://portal.local", "ref-portal", "user1", 1));
+        jedis.getClient().zadd(getRetryKey(), currentTimeMillis() - 1, member);
+        jedis.getClient().zadd(getRetryKey(), currentTimeMillis() + 60_000L,
+                toJSONString(new LogoutNotification("sso", "http://sso.local", "ref-sso", "user1", 1)));
+
+        notifier.retryDue();
+        // Only the due one is claimed and sent.
+        await(() -> getRetries().size() == 1);
+        assertEquals(1, requests.get());
+        assertEquals("sso", parseJSON(getRetries().keySet().iterator().next(), LogoutNotification.class).getAppName());
+        // The logout URL is built with the referenced ticket at sending.
+        assertTrue(lastUrl.startsWith("http://portal.local/"));
+        assertTrue(lastUrl.endsWith("=st-portal"));
+    }
+
+    @Test
+    public void testRetryDueGiveUpWhenTicketExpired() throws Exception {
+        jedis.getClient().zadd(getRetryKey(), currentTimeMillis() - 1,
+                toJSONString(new LogoutNotification("portal", "http://portal.local", "ref-portal", "user1", 1)));
+
+        notifier.retryDue();
+        Thread.sleep(50L);
+        assertEquals(0, requests.get());
+        assertTrue(getRetries().isEmpty());
+    }
+
+    @Test
+    public void testDeadlineExceededClaimedByRetrier() throws Exception {
+        blocking = true;
+        config.getLogout().setDeadlineMs(1L);
+        long begin = currentTimeMillis();
+        notifier.logoutAll("user1", newGrantInfo("portal"), singletonList(newApp("portal")));
+        Thread.sleep(10L);
+
+        // The pending attempt is claimed and sent again.
+        notifier.retryDue();
+        await(() -> requests.get() == 2);
+        Map<String, Double> retries = getRetries();
+        assertEquals(1, retries.size());
+        assertEquals(2, parseJSON(retries.keySet().iterator().next(), LogoutNotification.class).getAttempts());
+
+        // The late failure of the claimed attempt is ignored, only the last
+        // attempt is rescheduled.
+        status = 500;
+        release.countDown();
+        await(() -> getRetries().size() == 1
+                && getRetries().values().stream().allMatch(dueTime -> dueTime >= begin + 60_000L));
+        Thread.sleep(50L);
+        assertEquals(1, getRetries().size());
+    }
+
+    @Test
+    public void testGiveUpAfterMaxAttempts() throws Exception {
+        status = 500;
+        putRetryTicket("ref-portal", "st-portal");
+        jedis.getClient().zadd(getRetryKey(), currentTimeMillis() - 1,
+                toJSONString(new LogoutNotification("portal", "http://portal.local", "ref-portal", "user1", 2)));
+
+        notifier.retryDue();
+        await(() -> requests.get() == 1);
+        await(() -> jedis.getKeys().isEmpty());
+        assertTrue(getRetries().isEmpty());
+    }
+
+    @Test
+    public void testDeadlineMustBeGreaterThanNotifyTimeout() {
+        LogoutProperties logout = new LogoutProperties();
+        logout.setNotifyTimeoutMs(5_000L);
+        logout.setDeadlineMs(3_000L);
+        try {
+            logout.validate();
+            fail("Should be failed when deadlineMs <= notifyTimeoutMs");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        logout.setDeadlineMs(6_000L);
+        logout.validate();
+    }
+
+    private GrantCredentialsInfo newGrantInfo(String... appNames) {
+        GrantCredentialsInfo info = new GrantCredentialsInfo();
+        for (String appName : appNames) {
+            info.putGrant(appName, new GrantApp("st-" + appName));
+        }
+        return info;
+    }
+
+    private FastCasClientInfo newApp(String appName) {
+        FastCasClientInfo app = new FastCasClientInfo(appName, "http://" + appName + ".example.com");
+        app.setIntranetBaseUri("http://" + appName + ".local");
+        return app;
+    }
+
+    private void putRetryTicket(String ticketRef, String grantTicket) {
+        cacheManager.getIamCache(CACHE_PREFIX_IAM_LOGOUT_TICKET).put(new CacheKey(ticketRef, 60_000L), grantTicket);
+    }
+
+    private String getRetryKey() {
+        return cacheManager.getIamCache(CACHE_PREFIX_IAM_LOGOUT_RETRY).getCacheName();
+    }
+
+    private Map<String, Double> getRetries() {
+        return jedis.getZset(getRetryKey());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 500 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(10L);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.handler.fastcas;
+
+import static java.lang.System.currentTimeMillis;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.function.Function;
+
+import org.apache.shiro.cache.Cache;
+import org.junit.Test;
+
+import com.wl4g.iam.config.properties.TicketProperties;
+import com.wl4g.iam.core.authc.SignedGrantTicket;
+import com.wl4g.iam.core.authc.SignedGrantTicket.GrantClaims;
+import com.wl4g.iam.core.cache.IamCache;
+import com.wl4g.iam.core.cache.IamCacheManager;
+import com.wl4g.iam.core.exception.InvalidGrantTicketException;
+import com.wl4g.iam.core.session.GrantCredentialsInfo.GrantApp;
+
+/**
+ * {@link GrantTicketSignerTests}
+ * 
+ * @author James Wong &lt;jameswong1376@gmail.com&gt;
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+public class GrantTicketSignerTests {
+
+    private final KeyPair pair = SignedGrantTicket.generateKeyPair();
+    private final Function<String, PublicKey> keyResolver = kid -> "1".equals(kid) ? pair.getPublic() : null;
+    private final IamCacheManager cacheManager = new IamCacheManager() {
+        @Override
+        public IamCache getIamCache(String name) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <K, V> Cache<K, V> getCache(String name) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    @Test
+    public void testPlainGrantTicketOfSignedRefused() {
+        long now = currentTimeMillis();
+        GrantApp grant = new GrantApp("st1234567890").setSignedExpireTime(now + 60_000L);
+        // The jti is visible to anyone who holds the signed grant ticket.
+        String jti = SignedGrantTicket.parse(sign("st1234567890", "portal", now + 60_000L)).getClaims().getJti();
+        assertRefused(grant, "portal", jti, now);
+    }
+
+    @Test
+    public void testSignedGrantTicketRedeemed() {
+        long now = currentTimeMillis();
+        GrantApp grant = new GrantApp("st1234567890").setSignedExpireTime(now + 60_000L);
+        String ticket = sign("st1234567890", "portal", now + 60_000L);
+        assertEquals("st1234567890", GrantTicketSigner.resolveGrantTicket(grant, "portal", ticket, keyResolver, now));
+    }
+
+    @Test
+    public void testInvalidSignedGrantTicketRefused() {
+        long now = currentTimeMillis();
+        GrantApp grant = new GrantApp("st1234567890").setSignedExpireTime(now + 60_000L);
+        // Expired
+        assertRefused(grant, "portal", sign("st1234567890", "portal", now - 1L), now);
+        // Other audience
+        assertRefused(grant, "portal", sign("st1234567890", "other", now + 60_000L), now);
+        // Superseded grant ticket
+        assertRefused(grant, "portal", sign("st0987654321", "portal", now + 60_000L), now);
+        // Unknown key
+        assertRefused(grant, "portal", SignedGrantTicket.sign(claims("st1234567890", "portal", now + 60_000L), "2",
+                pair.getPrivate()), now);
+        // Tampered signature
+        String ticket = sign("st1234567890", "portal", now + 60_000L);
+        assertRefused(grant, "portal", ticket.substring(0, ticket.length() - 2).concat("AA"), now);
+    }
+
+    @Test
+    public void testPlainGrantTicketRedeemed() {
+        GrantApp grant = new GrantApp("st1234567890");
+        long now = currentTimeMillis();
+        assertEquals("st1234567890", GrantTicketSigner.resolveGrantTicket(grant, "portal", "st1234567890", keyResolver, now));
+        // Signed grant ticket has never been issued.
+        assertRefused(grant, "portal", sign("st1234567890", "portal", now + 60_000L), now);
+    }
+
+    @Test
+    public void testSigningKeyEncryptionKeyRequired() {
+        TicketProperties config = new TicketProperties();
+        config.setSigningEnabled(true);
+        try {
+            new GrantTicketSigner(config, cacheManager);
+            fail("Should require signingKeyEncryptionKey");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        config.setSigningKeyEncryptionKey(Base64.getEncoder().encodeToString(new byte[20]));
+        try {
+            new GrantTicketSigner(config, cacheManager);
+            fail("Should refuse invalid signingKeyEncryptionKey");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testPrivateKeyEncrypted() {
+        byte[] kek = new byte[32];
+        new SecureRandom().nextBytes(kek);
+        TicketProperties config = new TicketProperties();
+        config.setSigningEnabled(true);
+        config.setSigningKeyEncryptionKey(Base64.getEncoder().encodeToString(kek));
+        GrantTicketSigner signer = new GrantTicketSigner(config, cacheManager);
+
+        byte[] encoded = pair.getPrivate().getEncoded();
+        byte[] encrypted = signer.encryptPrivateKey("1", encoded);
+        assertFalse(Base64.getEncoder().encodeToString(encrypted).contains(Base64.getEncoder().encodeToString(encoded)));
+        assertArrayEquals(encoded, signer.decryptPrivateKey("1", encrypted));
+
+        // The encrypted key cannot be swapped to the other bucket.
+        try {
+            signer.decryptPrivateKey("2", encrypted);
+            fail("Should refuse the encrypted key of other kid");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+    }
+
+    private void assertRefused(GrantApp grant, String application, String ticket, long now) {
+        try {
+            GrantTicketSigner.resolveGrantTicket(grant, application, ticket, keyResolver, now);
+            fail("Should refuse grant ticket: " + ticket);
+        } catch (InvalidGrantTicketException e) {
+            // Expected
+        }
+    }
+
+    private String sign(String jti, String aud, long exp) {
+        return SignedGrantTicket.sign(claims(jti, aud, exp), "1", pair.getPrivate());
+    }
+
+    private GrantClaims claims(String jti, String aud, long exp) {
+        GrantClaims claims = new GrantClaims();
+        claims.setIss("iam-web");
+        claims.setAud(aud);
+        claims.setSub("root");
+        claims.setJti(jti);
+        claims.setIat(exp - 60_000L);
+        claims.setExp(exp);
+        return claims;
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.session.mgt;
+
+import static com.wl4g.iam.common.constant.FastCasIAMConstants.CACHE_PREFIX_IAM_SESSION_REVOCATION;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.wl4g.iam.common.model.SessionRevocationModel;
+import com.wl4g.iam.core.cache.JedisIamCacheManager;
+import com.wl4g.iam.util.InMemoryJedisClient;
+
+/**
+ * {@link SessionRevocationLogTests}
+ * 
+ * @author James Wong &lt;jameswong1376@gmail.com&gt;
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+public class SessionRevocationLogTests {
+
+    private final InMemoryJedisClient jedis = new InMemoryJedisClient();
+    private final JedisIamCacheManager cacheManager = new JedisIamCacheManager("iam-web", jedis.getClient());
+    private final SessionRevocationLog revocationLog = new SessionRevocationLog(cacheManager);
+
+    @Test
+    public void testReadFromLatest() {
+        revocationLog.append("portal", "st1");
+        SessionRevocationModel assertion = read(null, 10);
+        assertFalse(assertion.isReset());
+        assertTrue(assertion.getTickets().isEmpty());
+
+        revocationLog.append("portal", "st2");
+        assertion = read(assertion.getOffset(), 10);
+        assertFalse(assertion.isReset());
+        assertEquals(asList("st2"), assertion.getTickets());
+    }
+
+    @Test
+    public void testReadWithLimitAndOffset() {
+        String offset = read(null, 10).getOffset();
+        for (int i = 1; i <= 5; i++) {
+            revocationLog.append("portal", "st" + i);
+        }
+        SessionRevocationModel assertion = read(offset, 2);
+        assertEquals(asList("st1", "st2"), assertion.getTickets());
+        assertion = read(assertion.getOffset(), 2);
+        assertEquals(asList("st3", "st4"), assertion.getTickets());
+        assertion = read(assertion.getOffset(), 2);
+        assertEquals(asList("st5"), assertion.getTickets());
+
+        // Nothing new, the offset stays.
+        SessionRevocationModel last = read(assertion.getOffset(), 2);
+        assertTrue(last.getTickets().isEmpty());
+        assertEquals(assertion.getOffset(), last.getOffset());
+    }
+
+    @Test
+    public void testResetWhenOffsetTrimmed() {
+        revocationLog.append("portal", "st1");
+        String offset = read(null, 10).getOffset();
+        revocationLog.append("portal", "st2");
+        revocationLog.append("portal", "st3");
+        jedis.trim(getStreamKey("portal"), 1);
+
+        SessionRevocationModel assertion = read(offset, 10);
+        assertTrue(assertion.isReset());
+        assertTrue(assertion.getTickets().isEmpty());
+        // Continue from the latest.
+        assertFalse(read(assertion.getOffset(), 10).isReset());
+    }
+
+    @Test
+    public void testResetWhenOffsetOfEmptyStreamTrimmed() {
+        // The offset of the empty stream must also be detected when trimmed.
+        String offset = read(null, 10).getOffset();
+        assertNotEquals("0-0", offset);
+        revocationLog.append("portal", "st1");
+        revocationLog.append("portal", "st2");
+        jedis.trim(getStreamKey("portal"), 1);
+
+        assertTrue(read(offset, 10).isReset());
+    }
+
+    @Test
+    public void testResetWhenOffsetInvalid() {
+        revocationLog.append("portal", "st1");
+        SessionRevocationModel assertion = read("invalid", 10);
+        assertTrue(assertion.isReset());
+        assertTrue(assertion.getTickets().isEmpty());
+    }
+
+    private SessionRevocationModel read(String offset, int limit) {
+        SessionRevocationModel param = new SessionRevocationModel("portal");
+        param.setOffset(offset);
+        param.setLimit(limit);
+        return revocationLog.read(param);
+    }
+
+    private String getStreamKey(String appName) {
+        return cacheManager.getIamCache(CACHE_PREFIX_IAM_SESSION_REVOCATION).getCacheName() + appName;
+    }
+
+}
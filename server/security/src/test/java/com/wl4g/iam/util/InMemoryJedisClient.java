@@ -0,0 +1,194 @@
+/*
+ * Copyright 2017 ~ 2025 the original authors James Wong.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.wl4g.iam.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.isNull;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.wl4g.infra.common.jedis.JedisClient;
+
+import redis.clients.jedis.StreamEntry;
+import redis.clients.jedis.StreamEntryID;
+
+/**
+ * The in-memory {@link JedisClient} for tests, which only supports the stream,
+ * sorted set and binary string commands used by the IAM server.
+ * 
+ * @author James Wong &lt;jameswong1376@gmail.com&gt;
+ * @version 2022-06-10 v3.1.0
+ * @since v3.1.0
+ */
+public class InMemoryJedisClient {
+
+    private final Map<String, NavigableMap<StreamEntryID, Map<String, String>>> streams = new HashMap<>();
+    private final Map<String, Map<String, Double>> zsets = new HashMap<>();
+    private final Map<String, byte[]> values = new HashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final JedisClient client = (JedisClient) Proxy.newProxyInstance(JedisClient.class.getClassLoader(),
+            new Class<?>[] { JedisClient.class }, (proxy, method, args) -> {
+                switch (method.getName()) {
+                case "xadd":
+                    return xadd((String) args[0], (StreamEntryID) args[1], cast(args[2]), (long) args[3]);
+                case "xrange":
+                    return xrange((String) args[0], (StreamEntryID) args[1], (StreamEntryID) args[2], (int) args[3], false);
+                case "xrevrange":
+                    return xrange((String) args[0], (StreamEntryID) args[2], (StreamEntryID) args[1], (int) args[3], true);
+                case "zadd":
+                    return zadd((String) args[0], (double) args[1], (String) args[2]);
+                case "zrangeByScore":
+                    return zrangeByScore((String) args[0], (double) args[1], (double) args[2], (int) args[3], (int) args[4]);
+                case "zrem":
+                    return zrem((String) args[0], (String[]) args[1]);
+                case "get":
+                    return get((byte[]) args[0]);
+                case "setex":
+                    return set((byte[]) args[0], (byte[]) args[2]);
+                case "del":
+                    return del(args[0] instanceof byte[][] ? (byte[][]) args[0] : new byte[][] { (byte[]) args[0] });
+                case "toString":
+                    return InMemoryJedisClient.class.getSimpleName();
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                default:
+                    throw new UnsupportedOperationException(method.toString());
+                }
+            });
+
+    public JedisClient getClient() {
+        return client;
+    }
+
+    /**
+     * Trims the stream to the max length exactly.
+     */
+    public synchronized void trim(String key, int maxLength) {
+        NavigableMap<StreamEntryID, Map<String, String>> stream = getStream(key);
+        while (stream.size() > maxLength) {
+            stream.pollFirstEntry();
+        }
+    }
+
+    public synchronized Map<String, Double> getZset(String key) {
+        return new HashMap<>(zsets.getOrDefault(key, Collections.emptyMap()));
+    }
+
+    public synchronized Set<String> getKeys() {
+        return new HashSet<>(values.keySet());
+    }
+
+    private synchronized StreamEntryID xadd(String key, StreamEntryID id, Map<String, String> fields, long maxLength) {
+        StreamEntryID newId = id == StreamEntryID.NEW_ENTRY ? new StreamEntryID(sequence.incrementAndGet(), 0L) : id;
+        getStream(key).put(newId, new HashMap<>(fields));
+        trim(key, (int) maxLength);
+        return newId;
+    }
+
+    private synchronized List<StreamEntry> xrange(String key, StreamEntryID start, StreamEntryID end, int count,
+            boolean reverse) {
+        NavigableMap<StreamEntryID, Map<String, String>> range = getStream(key);
+        if (!isNull(start)) {
+            range = range.tailMap(start, true);
+        }
+        if (!isNull(end)) {
+            range = range.headMap(end, true);
+        }
+        if (reverse) {
+            range = range.descendingMap();
+        }
+        List<StreamEntry> entries = new ArrayList<>();
+        for (Entry<StreamEntryID, Map<String, String>> ent : range.entrySet()) {
+            if (entries.size() >= count) {
+                break;
+            }
+            entries.add(new StreamEntry(ent.getKey(), ent.getValue()));
+        }
+        return entries;
+    }
+
+    private synchronized Long zadd(String key, double score, String member) {
+        return isNull(zsets.computeIfAbsent(key, k -> new HashMap<>()).put(member, score)) ? 1L : 0L;
+    }
+
+    private synchronized Set<String> zrangeByScore(String key, double min, double max, int offset, int count) {
+        Set<String> members = new LinkedHashSet<>();
+        zsets.getOrDefault(key, Collections.emptyMap())
+                .entrySet()
+                .stream()
+                .filter(e -> e.getValue() >= min && e.getValue() <= max)
+                .sorted(Entry.comparingByValue())
+                .skip(offset)
+                .limit(count)
+                .forEach(e -> members.add(e.getKey()));
+        return members;
+    }
+
+    private synchronized Long zrem(String key, String[] members) {
+        long removed = 0;
+        Map<String, Double> zset = zsets.getOrDefault(key, Collections.emptyMap());
+        for (String member : members) {
+            if (!isNull(zset.remove(member))) {
+                ++removed;
+            }
+        }
+        return removed;
+    }
+
+    private synchronized byte[] get(byte[] key) {
+        return values.get(new String(key, UTF_8));
+    }
+
+    private synchronized String set(byte[] key, byte[] data) {
+        values.put(new String(key, UTF_8), data);
+        return "OK";
+    }
+
+    private synchronized Long del(byte[][] keys) {
+        long deleted = 0;
+        for (byte[] key : keys) {
+            if (!isNull(values.remove(new String(key, UTF_8)))) {
+                ++deleted;
+            }
+        }
+        return deleted;
+    }
+
+    private NavigableMap<StreamEntryID, Map<String, String>> getStream(String key) {
+        return streams.computeIfAbsent(key, k -> new TreeMap<>());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, String> cast(Object fields) {
+        return (Map<String, String>) fields;
+    }
+
+}